@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.ContentHandler;
+
+/**
+ * Generates the FO documents the benchmarks format. The documents are generated rather than
+ * read from files, so their size can be chosen, and they are the same on every run.
+ * <ul>
+ * <li>"text": justified paragraphs of running text, with a header and page numbers,</li>
+ * <li>"tables": a long table with a repeated header, borders and padding,</li>
+ * <li>"mixed": headings, lists, bordered blocks, inline formatting, links and footnotes.</li>
+ * </ul>
+ */
+final class BenchmarkDocuments {
+
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed",
+        "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna",
+        "aliqua", "enim", "ad", "minim", "veniam", "quis", "nostrud", "exercitation",
+        "ullamco", "laboris", "nisi", "aliquip", "ex", "ea", "commodo", "consequat", "duis",
+        "aute", "irure", "in", "reprehenderit", "voluptate", "velit", "esse", "cillum",
+        "fugiat", "nulla", "pariatur", "excepteur", "sint", "occaecat", "cupidatat", "non",
+        "proident", "sunt", "culpa", "qui", "officia", "deserunt", "mollit", "anim", "id",
+        "est", "laborum"
+    };
+
+    private static final int PARAGRAPHS_PER_PAGE = 6;
+
+    private static final int ROWS_PER_PAGE = 40;
+
+    private static final int SECTIONS_PER_PAGE = 2;
+
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+    private BenchmarkDocuments() {
+    }
+
+    /**
+     * Creates a document.
+     * @param name the name of the document
+     * @param pages the approximate number of pages
+     * @return the document
+     */
+    static byte[] create(String name, int pages) {
+        Random random = new Random(pages);
+        StringBuilder sb = new StringBuilder();
+        startDocument(sb);
+        if ("text".equals(name)) {
+            for (int i = 0; i < pages * PARAGRAPHS_PER_PAGE; i++) {
+                sb.append("<fo:block text-align=\"justify\" space-after=\"6pt\">");
+                appendWords(sb, random, 80);
+                sb.append("</fo:block>\n");
+            }
+        } else if ("tables".equals(name)) {
+            appendTable(sb, random, pages * ROWS_PER_PAGE);
+        } else if ("mixed".equals(name)) {
+            for (int i = 0; i < pages * SECTIONS_PER_PAGE; i++) {
+                appendSection(sb, random, i);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown document: " + name);
+        }
+        endDocument(sb);
+        try {
+            return sb.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Feeds a document to a SAX content handler, for example the one of a Fop instance.
+     * @param document the document
+     * @param handler the content handler
+     * @throws TransformerException if the document can't be processed
+     */
+    static void parse(byte[] document, ContentHandler handler) throws TransformerException {
+        Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+        transformer.transform(new StreamSource(new ByteArrayInputStream(document)),
+                new SAXResult(handler));
+    }
+
+    private static void startDocument(StringBuilder sb) {
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">\n");
+        sb.append("<fo:layout-master-set>\n");
+        sb.append("<fo:simple-page-master master-name=\"page\" page-width=\"210mm\"");
+        sb.append(" page-height=\"297mm\" margin=\"15mm\">\n");
+        sb.append("<fo:region-body margin-top=\"15mm\" margin-bottom=\"15mm\"/>\n");
+        sb.append("<fo:region-before extent=\"10mm\"/>\n");
+        sb.append("<fo:region-after extent=\"10mm\"/>\n");
+        sb.append("</fo:simple-page-master>\n");
+        sb.append("</fo:layout-master-set>\n");
+        sb.append("<fo:page-sequence master-reference=\"page\" font-family=\"Helvetica\"");
+        sb.append(" font-size=\"10pt\">\n");
+        sb.append("<fo:static-content flow-name=\"xsl-region-before\">");
+        sb.append("<fo:block text-align=\"end\" border-bottom=\"0.5pt solid black\">");
+        sb.append("Benchmark document</fo:block></fo:static-content>\n");
+        sb.append("<fo:static-content flow-name=\"xsl-region-after\">");
+        sb.append("<fo:block text-align=\"center\">Page <fo:page-number/> of ");
+        sb.append("<fo:page-number-citation-last ref-id=\"flow\"/></fo:block>");
+        sb.append("</fo:static-content>\n");
+        sb.append("<fo:flow flow-name=\"xsl-region-body\" id=\"flow\">\n");
+    }
+
+    private static void endDocument(StringBuilder sb) {
+        sb.append("</fo:flow>\n");
+        sb.append("</fo:page-sequence>\n");
+        sb.append("</fo:root>\n");
+    }
+
+    private static void appendTable(StringBuilder sb, Random random, int rows) {
+        sb.append("<fo:table table-layout=\"fixed\" width=\"100%\" border-collapse=\"separate\">\n");
+        sb.append("<fo:table-column column-width=\"15%\"/>");
+        sb.append("<fo:table-column column-width=\"45%\"/>");
+        sb.append("<fo:table-column column-width=\"20%\"/>");
+        sb.append("<fo:table-column column-width=\"20%\"/>\n");
+        sb.append("<fo:table-header font-weight=\"bold\" background-color=\"#DDDDDD\"><fo:table-row>");
+        String[] headings = {"Item", "Description", "Quantity", "Amount"};
+        for (String heading : headings) {
+            sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block>");
+            sb.append(heading);
+            sb.append("</fo:block></fo:table-cell>");
+        }
+        sb.append("</fo:table-row></fo:table-header>\n");
+        sb.append("<fo:table-body>\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("<fo:table-row>");
+            appendCell(sb, Integer.toString(i + 1), "start");
+            sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block>");
+            appendWords(sb, random, 3 + random.nextInt(8));
+            sb.append("</fo:block></fo:table-cell>");
+            appendCell(sb, Integer.toString(random.nextInt(100)), "end");
+            appendCell(sb, random.nextInt(10000) + "." + (10 + random.nextInt(90)), "end");
+            sb.append("</fo:table-row>\n");
+        }
+        sb.append("</fo:table-body>\n");
+        sb.append("</fo:table>\n");
+    }
+
+    private static void appendCell(StringBuilder sb, String content, String textAlign) {
+        sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\">");
+        sb.append("<fo:block text-align=\"").append(textAlign).append("\">");
+        sb.append(content);
+        sb.append("</fo:block></fo:table-cell>");
+    }
+
+    private static void appendSection(StringBuilder sb, Random random, int index) {
+        sb.append("<fo:block font-size=\"14pt\" font-weight=\"bold\" space-before=\"12pt\"");
+        sb.append(" space-after=\"6pt\" keep-with-next=\"always\" id=\"s").append(index).append("\">");
+        sb.append("Section ").append(index + 1).append("</fo:block>\n");
+        sb.append("<fo:block text-align=\"justify\" space-after=\"6pt\">");
+        appendWords(sb, random, 30);
+        sb.append(" <fo:inline font-weight=\"bold\">");
+        appendWords(sb, random, 3);
+        sb.append("</fo:inline> ");
+        appendWords(sb, random, 20);
+        sb.append(" <fo:inline font-style=\"italic\" color=\"#336699\">");
+        appendWords(sb, random, 4);
+        sb.append("</fo:inline>");
+        sb.append("<fo:footnote><fo:inline baseline-shift=\"super\" font-size=\"7pt\">");
+        sb.append(index + 1).append("</fo:inline><fo:footnote-body>");
+        sb.append("<fo:block font-size=\"8pt\">").append(index + 1).append(" ");
+        appendWords(sb, random, 10);
+        sb.append("</fo:block></fo:footnote-body></fo:footnote> ");
+        appendWords(sb, random, 20);
+        if (index > 0) {
+            sb.append(" See <fo:basic-link internal-destination=\"s").append(index - 1);
+            sb.append("\" color=\"blue\">page <fo:page-number-citation ref-id=\"s");
+            sb.append(index - 1).append("\"/></fo:basic-link>.");
+        }
+        sb.append("</fo:block>\n");
+        sb.append("<fo:list-block provisional-distance-between-starts=\"12pt\" space-after=\"6pt\">\n");
+        for (int i = 0; i < 4; i++) {
+            sb.append("<fo:list-item><fo:list-item-label end-indent=\"label-end()\">");
+            sb.append("<fo:block>\u2022</fo:block></fo:list-item-label>");
+            sb.append("<fo:list-item-body start-indent=\"body-start()\"><fo:block>");
+            appendWords(sb, random, 8 + random.nextInt(12));
+            sb.append("</fo:block></fo:list-item-body></fo:list-item>\n");
+        }
+        sb.append("</fo:list-block>\n");
+        sb.append("<fo:block border=\"1pt solid #999999\" padding=\"4pt\" background-color=\"#F4F4F4\"");
+        sb.append(" font-family=\"Courier\" font-size=\"8pt\" linefeed-treatment=\"preserve\"");
+        sb.append(" white-space-collapse=\"false\" keep-together.within-page=\"always\">");
+        for (int i = 0; i < 4; i++) {
+            appendWords(sb, random, 6);
+            sb.append('\n');
+        }
+        sb.append("</fo:block>\n");
+    }
+
+    private static void appendWords(StringBuilder sb, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.CustomFont;
+import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.EncodingMode;
+import org.apache.fop.fonts.FontLoader;
+import org.apache.fop.fonts.FontUris;
+
+/**
+ * Access to the fonts and text corpora of FOP's test resources that the benchmarks use.
+ * The resources are looked up in the directory given by the "fop.benchmarks.resources" system
+ * property, which defaults to the test resources of a source checkout when the benchmarks are
+ * run from the fop-benchmarks directory.
+ */
+final class BenchmarkResources {
+
+    /** The system property pointing to the test resources directory. */
+    static final String RESOURCES_PROPERTY = "fop.benchmarks.resources";
+
+    /** A TrueType font with OpenType layout tables (Latin, Greek and Cyrillic). */
+    static final String DEJAVU_TTF = "fonts/ttf/DejaVuLGCSerif.ttf";
+
+    /** An OpenType font with CFF outlines. */
+    static final String SOURCE_SANS_OTF = "fonts/otf/SourceSansProBold.otf";
+
+    /** An Arabic word list, one word per line. */
+    static final String ARABIC_WORDS = "complexscripts/arab/data/arab-001.txt";
+
+    private static final String DEFAULT_RESOURCES = "../fop/test/resources";
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * Returns a file from the test resources.
+     * @param path the path of the file relative to the test resources directory
+     * @return the file
+     */
+    static File getFile(String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(System.getProperty(RESOURCES_PROPERTY, DEFAULT_RESOURCES), path);
+        }
+        if (!file.isFile()) {
+            throw new IllegalStateException(file + " not found. Set the " + RESOURCES_PROPERTY
+                    + " system property to the test/resources directory of FOP.");
+        }
+        return file;
+    }
+
+    /** @return the directory relative URIs in the benchmark documents are resolved against */
+    static File getBaseDirectory() {
+        return new File(".").getAbsoluteFile();
+    }
+
+    /**
+     * Loads a font the way the PDF output does, with kerning and advanced typographic features.
+     * @param path the font file, absolute or relative to the test resources directory
+     * @param embeddingMode the embedding mode
+     * @return the font
+     * @throws IOException if the font can't be loaded
+     */
+    static CustomFont loadFont(String path, EmbeddingMode embeddingMode) throws IOException {
+        InternalResourceResolver resolver = ResourceResolverFactory
+                .createDefaultInternalResourceResolver(getBaseDirectory().toURI());
+        return FontLoader.loadFont(new FontUris(getFile(path).toURI(), null), null, true,
+                embeddingMode, EncodingMode.AUTO, true, true, resolver, false, false, false);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result includes the memory allocated per
+ * operation, and compares the results with a baseline. Besides the usual JMH options, it
+ * accepts:
+ * <ul>
+ * <li>-save file: writes the results to a baseline file,</li>
+ * <li>-baseline file: compares the results with a baseline file,</li>
+ * <li>-threshold percent: how much slower, or how much more allocating, a benchmark may be
+ * than its baseline before it is reported as a regression (default: 10).</li>
+ * </ul>
+ * The exit code is 1 if a regression was found.
+ */
+public final class BenchmarkRunner {
+
+    private static final String SCORE = ".score";
+
+    private static final String ALLOCATION = ".alloc";
+
+    private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args the command line arguments
+     * @throws Exception if the benchmarks can't be run
+     */
+    public static void main(String[] args) throws Exception {
+        File save = null;
+        File baseline = null;
+        double threshold = 10;
+        List<String> jmhArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-save".equals(args[i]) && i + 1 < args.length) {
+                save = new File(args[++i]);
+            } else if ("-baseline".equals(args[i]) && i + 1 < args.length) {
+                baseline = new File(args[++i]);
+            } else if ("-threshold".equals(args[i]) && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+        CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+        Collection<RunResult> runResults = new Runner(new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        Properties results = toProperties(runResults);
+        if (save != null) {
+            OutputStream out = new FileOutputStream(save);
+            try {
+                results.store(out, "FOP benchmark baseline");
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+        if (baseline != null && !compare(load(baseline), results, threshold / 100)) {
+            System.exit(1);
+        }
+    }
+
+    private static Properties toProperties(Collection<RunResult> runResults) {
+        Properties properties = new Properties();
+        for (RunResult runResult : runResults) {
+            String key = getKey(runResult.getParams());
+            properties.setProperty(key + SCORE,
+                    Double.toString(runResult.getPrimaryResult().getScore()));
+            for (Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet()) {
+                if (entry.getKey().endsWith(ALLOCATION_RESULT)) {
+                    properties.setProperty(key + ALLOCATION,
+                            Double.toString(entry.getValue().getScore()));
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static String getKey(BenchmarkParams params) {
+        StringBuilder sb = new StringBuilder(params.getBenchmark());
+        String separator = "[";
+        for (String param : params.getParamsKeys()) {
+            sb.append(separator).append(param).append('=').append(params.getParam(param));
+            separator = ",";
+        }
+        if (!params.getParamsKeys().isEmpty()) {
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return properties;
+    }
+
+    /**
+     * Compares results with a baseline. Since all benchmarks measure the average time per
+     * operation, higher values are worse for both the time and the allocations.
+     * @return false if a result is worse than the baseline by more than the threshold
+     */
+    private static boolean compare(Properties baseline, Properties results, double threshold) {
+        boolean passed = true;
+        System.out.println();
+        System.out.println(String.format("%-100s %14s %14s %8s", "Benchmark", "Baseline", "Current",
+                "Change"));
+        for (String key : new TreeSet<String>(results.stringPropertyNames())) {
+            String value = baseline.getProperty(key);
+            if (value == null) {
+                continue;
+            }
+            double before = Double.parseDouble(value);
+            double after = Double.parseDouble(results.getProperty(key));
+            double change = before == 0 ? 0 : (after - before) / before;
+            String marker = "";
+            if (change > threshold) {
+                marker = " REGRESSION";
+                passed = false;
+            }
+            System.out.println(String.format("%-100s %14.3f %14.3f %+7.1f%%%s", key, before, after,
+                    change * 100, marker));
+        }
+        return passed;
+    }
+}
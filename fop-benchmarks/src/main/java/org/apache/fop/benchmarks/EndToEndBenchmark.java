@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+
+/**
+ * Measures formatting documents from FO to the final output format, from parsing to writing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"text", "tables", "mixed"})
+    private String document;
+
+    @Param({"20"})
+    private int pages;
+
+    @Param({"application/pdf", "application/postscript", "application/x-afp"})
+    private String outputFormat;
+
+    private byte[] fo;
+
+    private FopFactory fopFactory;
+
+    /** Creates the document and the factory. */
+    @Setup
+    public void setUp() {
+        fo = BenchmarkDocuments.create(document, pages);
+        fopFactory = new FopFactoryBuilder(BenchmarkResources.getBaseDirectory().toURI()).build();
+    }
+
+    /**
+     * Formats the document.
+     * @throws Exception if the document can't be processed
+     */
+    @Benchmark
+    public void format() throws Exception {
+        Fop fop = fopFactory.newFop(outputFormat, new NullOutputStream());
+        BenchmarkDocuments.parse(fo, fop.getDefaultHandler());
+    }
+}
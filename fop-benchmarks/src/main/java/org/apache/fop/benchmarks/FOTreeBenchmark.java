@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.apache.fop.fo.FOEventHandler;
+
+/**
+ * Measures building the FO tree: parsing, creating the FO nodes and resolving their properties,
+ * without any layout. Compares the default {@link org.apache.fop.fo.StaticPropertyList}s with
+ * {@link org.apache.fop.fo.SparsePropertyList}s; run with the GC profiler to compare the
+ * allocations as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FOTreeBenchmark {
+
+    @Param({"text", "tables", "mixed"})
+    private String document;
+
+    @Param({"20"})
+    private int pages;
+
+    @Param({"false", "true"})
+    private boolean sparsePropertyLists;
+
+    private byte[] fo;
+
+    private FopFactory fopFactory;
+
+    /** Creates the document and the factory. */
+    @Setup
+    public void setUp() {
+        fo = BenchmarkDocuments.create(document, pages);
+        fopFactory = new FopFactoryBuilder(BenchmarkResources.getBaseDirectory().toURI())
+                .setSparsePropertyLists(sparsePropertyLists)
+                .build();
+    }
+
+    /**
+     * Builds the FO tree of the document.
+     * @throws Exception if the document can't be processed
+     */
+    @Benchmark
+    public void buildFOTree() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setFOEventHandlerOverride(new FOEventHandler(userAgent) { });
+        Fop fop = fopFactory.newFop(userAgent);
+        BenchmarkDocuments.parse(fo, fop.getDefaultHandler());
+    }
+}
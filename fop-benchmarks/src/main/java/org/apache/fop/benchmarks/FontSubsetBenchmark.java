@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.FontFileReader;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+import org.apache.fop.fonts.truetype.OTFSubSetFile;
+import org.apache.fop.fonts.truetype.TTFSubSetFile;
+
+/**
+ * Measures creating font subsets for embedding, for TrueType fonts ({@link TTFSubSetFile})
+ * and OpenType fonts with CFF outlines ({@link OTFSubSetFile}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FontSubsetBenchmark {
+
+    /** The number of glyphs in the subset. */
+    @Param({"100", "500"})
+    private int glyphs;
+
+    private byte[] trueTypeFont;
+
+    private byte[] openTypeFont;
+
+    private Map<Integer, Integer> trueTypeGlyphs;
+
+    private MultiByteFont openTypeMetrics;
+
+    /**
+     * Reads the fonts and selects the glyphs.
+     * @throws IOException if the fonts can't be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        trueTypeFont = FileUtils.readFileToByteArray(
+                BenchmarkResources.getFile(BenchmarkResources.DEJAVU_TTF));
+        trueTypeGlyphs = new HashMap<Integer, Integer>();
+        for (int i = 0; i < glyphs; i++) {
+            trueTypeGlyphs.put(i, i);
+        }
+        openTypeFont = FileUtils.readFileToByteArray(
+                BenchmarkResources.getFile(BenchmarkResources.SOURCE_SANS_OTF));
+        openTypeMetrics = (MultiByteFont) BenchmarkResources.loadFont(
+                BenchmarkResources.SOURCE_SANS_OTF, EmbeddingMode.SUBSET);
+        //use the characters of the font until the subset has the required size
+        for (int c = 0x20; c < 0x10000 && openTypeMetrics.getUsedGlyphs().size() < glyphs; c++) {
+            if (openTypeMetrics.hasChar((char) c)) {
+                openTypeMetrics.mapChar((char) c);
+            }
+        }
+    }
+
+    /**
+     * Creates a subset of a TrueType font.
+     * @return the subset
+     * @throws IOException if the font can't be read
+     */
+    @Benchmark
+    public byte[] subsetTrueType() throws IOException {
+        FontFileReader reader = new FontFileReader(new ByteArrayInputStream(trueTypeFont));
+        TTFSubSetFile subset = new TTFSubSetFile();
+        subset.readFont(reader, "DejaVuLGCSerif", OFFontLoader.readHeader(reader), trueTypeGlyphs);
+        return subset.getFontSubset();
+    }
+
+    /**
+     * Creates a subset of an OpenType font with CFF outlines.
+     * @return the subset
+     * @throws IOException if the font can't be read
+     */
+    @Benchmark
+    public byte[] subsetOpenType() throws IOException {
+        FontFileReader reader = new FontFileReader(new ByteArrayInputStream(openTypeFont));
+        OTFSubSetFile subset = new OTFSubSetFile();
+        subset.readFont(reader, "SourceSansProBold", openTypeMetrics);
+        return subset.getFontSubset();
+    }
+}
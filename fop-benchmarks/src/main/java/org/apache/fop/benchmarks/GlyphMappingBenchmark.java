@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.IOException;
+import java.text.CharacterIterator;
+import java.text.StringCharacterIterator;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.Font;
+import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.fonts.GlyphMapping;
+import org.apache.fop.fonts.ShapingCache;
+import org.apache.fop.fonts.TextFragment;
+import org.apache.fop.traits.MinOptMax;
+
+/**
+ * Measures the glyph mapping the {@link org.apache.fop.layoutmgr.inline.TextLayoutManager}
+ * performs for every word: glyph substitution and positioning with the OpenType tables of
+ * the font, and the {@link ShapingCache} in front of them. The words are drawn from a vocabulary
+ * with a skewed distribution, so some words occur much more often than others, as in running
+ * text.
+ * <p>
+ * The "latin" corpus works with DejaVu LGC Serif from the test resources. The "arabic" corpus
+ * uses the Arabic word list from the test resources and needs a font with Arabic OpenType
+ * tables, for example: <code>-p corpus=arabic -p fontFile=/path/to/arabic-font.ttf</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlyphMappingBenchmark {
+
+    private static final int WORDS_PER_DOCUMENT = 10000;
+
+    private static final int LATIN_VOCABULARY_SIZE = 5000;
+
+    private static final String[] SYLLABLES = {
+        "ba", "be", "bi", "bo", "ca", "ce", "ci", "co", "da", "de", "di", "do", "fa", "fe",
+        "fi", "fo", "ga", "ge", "la", "le", "li", "lo", "ma", "me", "mi", "mo", "na", "ne",
+        "ni", "no", "pa", "pe", "ra", "re", "ri", "ro", "sa", "se", "si", "so", "ta", "te",
+        "ti", "to", "ff", "fl", "st", "th"
+    };
+
+    @Param({"latin"})
+    private String corpus;
+
+    @Param({""})
+    private String fontFile;
+
+    /**
+     * "none" empties the cache before every word, "document" before every document (one
+     * benchmark operation) and "shared" never.
+     */
+    @Param({"none", "document", "shared"})
+    private String shapingCache;
+
+    private TextFragment[] words;
+
+    private Font font;
+
+    /**
+     * Loads the font and draws the words.
+     * @throws IOException if the font or the corpus can't be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        List<String> vocabulary;
+        String script;
+        String file = fontFile;
+        if ("latin".equals(corpus)) {
+            script = "latn";
+            vocabulary = createLatinVocabulary();
+            if (file.length() == 0) {
+                file = BenchmarkResources.DEJAVU_TTF;
+            }
+        } else if ("arabic".equals(corpus)) {
+            script = "arab";
+            vocabulary = new ArrayList<String>();
+            for (String line : FileUtils.readLines(
+                    BenchmarkResources.getFile(BenchmarkResources.ARABIC_WORDS), "UTF-8")) {
+                if (line.trim().length() > 0) {
+                    vocabulary.add(line.trim());
+                }
+            }
+            if (file.length() == 0) {
+                throw new IllegalStateException(
+                        "The arabic corpus needs a font with Arabic glyphs: -p fontFile=...");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown corpus: " + corpus);
+        }
+        font = new Font("F1", new FontTriplet("Benchmark", Font.STYLE_NORMAL, Font.WEIGHT_NORMAL),
+                BenchmarkResources.loadFont(file, EmbeddingMode.AUTO), 10000);
+        Random random = new Random(WORDS_PER_DOCUMENT);
+        words = new TextFragment[WORDS_PER_DOCUMENT];
+        for (int i = 0; i < words.length; i++) {
+            //log-uniform ranks: the most frequent words are far more frequent than the rest
+            int rank = (int) Math.pow(vocabulary.size(), random.nextDouble()) - 1;
+            words[i] = new Word(vocabulary.get(rank), script);
+        }
+    }
+
+    private static List<String> createLatinVocabulary() {
+        Random random = new Random(LATIN_VOCABULARY_SIZE);
+        Set<String> vocabulary = new LinkedHashSet<String>();
+        while (vocabulary.size() < LATIN_VOCABULARY_SIZE) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary.add(sb.toString());
+        }
+        return new ArrayList<String>(vocabulary);
+    }
+
+    /**
+     * Maps all the words of a document.
+     * @param blackhole receives the mappings
+     */
+    @Benchmark
+    public void mapWords(Blackhole blackhole) {
+        ShapingCache cache = font.getShapingCache();
+        if ("document".equals(shapingCache)) {
+            cache.clear();
+        }
+        for (TextFragment word : words) {
+            if ("none".equals(shapingCache)) {
+                cache.clear();
+            }
+            int length = word.getEndIndex();
+            blackhole.consume(GlyphMapping.doGlyphMapping(word, 0, length, font, MinOptMax.ZERO,
+                    new MinOptMax[length + 1], '\0', ' ', false, 0, false, false, false));
+        }
+    }
+
+    private static final class Word implements TextFragment {
+
+        private final String text;
+
+        private final String script;
+
+        Word(String text, String script) {
+            this.text = text;
+            this.script = script;
+        }
+
+        /** {@inheritDoc} */
+        public CharacterIterator getIterator() {
+            return new StringCharacterIterator(text);
+        }
+
+        /** {@inheritDoc} */
+        public int getBeginIndex() {
+            return 0;
+        }
+
+        /** {@inheritDoc} */
+        public int getEndIndex() {
+            return text.length();
+        }
+
+        /** {@inheritDoc} */
+        public String getScript() {
+            return script;
+        }
+
+        /** {@inheritDoc} */
+        public String getLanguage() {
+            return "none";
+        }
+
+        /** {@inheritDoc} */
+        public int getBidiLevel() {
+            return 0;
+        }
+
+        /** {@inheritDoc} */
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        /** {@inheritDoc} */
+        public CharSequence subSequence(int startIndex, int endIndex) {
+            return text.subSequence(startIndex, endIndex);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFParser;
+import org.apache.fop.render.intermediate.IFSerializer;
+
+/**
+ * Measures the intermediate format: parsing it and serializing it again, which is what
+ * concatenating or post-processing IF documents costs, and parsing it into PDF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IFBenchmark {
+
+    @Param({"text", "tables", "mixed"})
+    private String document;
+
+    @Param({"20"})
+    private int pages;
+
+    private byte[] intermediateFormat;
+
+    private FopFactory fopFactory;
+
+    /**
+     * Formats the document to the intermediate format.
+     * @throws Exception if the document can't be processed
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = new FopFactoryBuilder(BenchmarkResources.getBaseDirectory().toURI()).build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, out);
+        BenchmarkDocuments.parse(BenchmarkDocuments.create(document, pages), fop.getDefaultHandler());
+        intermediateFormat = out.toByteArray();
+    }
+
+    /**
+     * Parses the intermediate format and serializes it again.
+     * @throws Exception if the document can't be processed
+     */
+    @Benchmark
+    public void parseAndSerialize() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        IFSerializer serializer = new IFSerializer(new IFContext(userAgent));
+        serializer.setResult(new StreamResult(new NullOutputStream()));
+        parse(serializer, userAgent);
+    }
+
+    /**
+     * Parses the intermediate format and renders it to PDF.
+     * @throws Exception if the document can't be processed
+     */
+    @Benchmark
+    public void parseToPDF() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        IFDocumentHandler documentHandler = userAgent.getRendererFactory().createDocumentHandler(
+                userAgent, MimeConstants.MIME_PDF);
+        documentHandler.setResult(new StreamResult(new NullOutputStream()));
+        documentHandler.setDefaultFontInfo(new FontInfo());
+        parse(documentHandler, userAgent);
+    }
+
+    private void parse(IFDocumentHandler documentHandler, FOUserAgent userAgent) throws Exception {
+        new IFParser().parse(new StreamSource(new ByteArrayInputStream(intermediateFormat)),
+                documentHandler, userAgent);
+    }
+}
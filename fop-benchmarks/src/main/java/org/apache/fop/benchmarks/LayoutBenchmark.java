@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.apache.fop.area.LineArea;
+import org.apache.fop.area.OffDocumentItem;
+import org.apache.fop.area.PageSequence;
+import org.apache.fop.area.PageViewport;
+import org.apache.fop.fonts.FontCollection;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.fonts.FontManager;
+import org.apache.fop.fonts.base14.Base14FontCollection;
+import org.apache.fop.render.Graphics2DAdapter;
+import org.apache.fop.render.ImageAdapter;
+import org.apache.fop.render.Renderer;
+
+/**
+ * Measures layout: the FO tree is built and laid out by the layout managers, including line
+ * breaking ({@link org.apache.fop.layoutmgr.inline.LineLayoutManager}) and page breaking
+ * ({@link org.apache.fop.layoutmgr.PageBreakingAlgorithm}). The resulting pages are discarded
+ * instead of being rendered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutBenchmark {
+
+    @Param({"text", "tables", "mixed"})
+    private String document;
+
+    @Param({"20"})
+    private int pages;
+
+    private byte[] fo;
+
+    private FopFactory fopFactory;
+
+    /** Creates the document and the factory. */
+    @Setup
+    public void setUp() {
+        fo = BenchmarkDocuments.create(document, pages);
+        fopFactory = new FopFactoryBuilder(BenchmarkResources.getBaseDirectory().toURI()).build();
+    }
+
+    /**
+     * Lays out the document.
+     * @throws Exception if the document can't be processed
+     */
+    @Benchmark
+    public void layout() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setRendererOverride(new NullRenderer(userAgent));
+        Fop fop = fopFactory.newFop(userAgent);
+        BenchmarkDocuments.parse(fo, fop.getDefaultHandler());
+    }
+
+    /** A renderer that discards the pages. */
+    private static final class NullRenderer implements Renderer {
+
+        private final FOUserAgent userAgent;
+
+        NullRenderer(FOUserAgent userAgent) {
+            this.userAgent = userAgent;
+        }
+
+        /** {@inheritDoc} */
+        public String getMimeType() {
+            return "application/X-fop-null";
+        }
+
+        /** {@inheritDoc} */
+        public void startRenderer(OutputStream outputStream) {
+        }
+
+        /** {@inheritDoc} */
+        public void stopRenderer() {
+        }
+
+        /** {@inheritDoc} */
+        public FOUserAgent getUserAgent() {
+            return userAgent;
+        }
+
+        /** {@inheritDoc} */
+        public void setupFontInfo(FontInfo fontInfo) {
+            FontManager fontManager = userAgent.getFontManager();
+            fontManager.setup(fontInfo, new FontCollection[] {
+                    new Base14FontCollection(fontManager.isBase14KerningEnabled())});
+        }
+
+        /** {@inheritDoc} */
+        public boolean supportsOutOfOrder() {
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        public void setDocumentLocale(Locale locale) {
+        }
+
+        /** {@inheritDoc} */
+        public void processOffDocumentItem(OffDocumentItem odi) {
+        }
+
+        /** {@inheritDoc} */
+        public Graphics2DAdapter getGraphics2DAdapter() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public ImageAdapter getImageAdapter() {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public void preparePage(PageViewport page) {
+        }
+
+        /** {@inheritDoc} */
+        public void startPageSequence(LineArea seqTitle) {
+        }
+
+        /** {@inheritDoc} */
+        public void startPageSequence(PageSequence pageSequence) {
+        }
+
+        /** {@inheritDoc} */
+        public void renderPage(PageViewport page) {
+        }
+    }
+}
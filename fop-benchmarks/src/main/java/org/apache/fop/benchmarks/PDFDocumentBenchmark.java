@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFilterList;
+import org.apache.fop.pdf.PDFPage;
+import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.pdf.PDFResources;
+import org.apache.fop.pdf.PDFStream;
+
+/**
+ * Measures writing a PDF document with the PDF library: creating the pages and their content
+ * streams, compressing the streams and writing the objects, the cross-reference table and the
+ * trailer. The content of the pages is text and vector graphics similar to what the PDF
+ * output writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFDocumentBenchmark {
+
+    private static final int LINES_PER_PAGE = 60;
+
+    @Param({"100"})
+    private int pages;
+
+    private String pageContent;
+
+    /** Creates the page content. */
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("q 0.5 w 0 0 0 RG 42.5 42.5 510.2 756.9 re S Q\n");
+        sb.append("BT /F1 10 Tf 12 TL 56.7 785.2 Td\n");
+        for (int i = 0; i < LINES_PER_PAGE; i++) {
+            sb.append("[(Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod)");
+            sb.append(" -250 (tempor incididunt ut labore ").append(i).append(")] TJ T*\n");
+        }
+        sb.append("ET\n");
+        pageContent = sb.toString();
+    }
+
+    /**
+     * Writes the document.
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public void writeDocument() throws IOException {
+        OutputStream out = new NullOutputStream();
+        PDFDocument pdfDoc = new PDFDocument("Apache FOP");
+        pdfDoc.outputHeader(out);
+        PDFResources resources = pdfDoc.getResources();
+        for (int i = 0; i < pages; i++) {
+            PDFPage page = pdfDoc.getFactory().makePage(resources, 595, 842, i);
+            PDFStream content = pdfDoc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+            content.add(pageContent);
+            pdfDoc.registerObject(content);
+            page.setContents(new PDFReference(content));
+            pdfDoc.addObject(page);
+            pdfDoc.output(out);
+        }
+        pdfDoc.outputTrailer(out);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFEncryptionParams;
+import org.apache.fop.pdf.PDFStream;
+
+/**
+ * Measures the throughput of encrypting PDF streams with RC4 (128 bit) and AES (256 bit),
+ * compared to writing them unencrypted. Compression is turned off, so only the encryption
+ * is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFEncryptionBenchmark {
+
+    @Param({"none", "rc4", "aes-256"})
+    private String encryption;
+
+    /** The size of the streams in bytes. */
+    @Param({"1024", "1048576"})
+    private int size;
+
+    private PDFDocument pdfDoc;
+
+    private byte[] data;
+
+    /** Sets up the document and the stream data. */
+    @Setup
+    public void setUp() {
+        pdfDoc = new PDFDocument("Apache FOP");
+        if ("rc4".equals(encryption)) {
+            pdfDoc.setEncryption(createEncryptionParams(128));
+        } else if ("aes-256".equals(encryption)) {
+            pdfDoc.setEncryption(createEncryptionParams(256));
+        } else if (!"none".equals(encryption)) {
+            throw new IllegalArgumentException("Unknown encryption: " + encryption);
+        }
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+    }
+
+    private static PDFEncryptionParams createEncryptionParams(int length) {
+        PDFEncryptionParams params = new PDFEncryptionParams();
+        params.setEncryptionLengthInBits(length);
+        params.setUserPassword("user");
+        params.setOwnerPassword("owner");
+        return params;
+    }
+
+    /**
+     * Writes a stream.
+     * @return the length of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public int writeStream() throws IOException {
+        PDFStream stream = new PDFStream();
+        stream.setDocument(pdfDoc);
+        stream.setObjectNumber(1);
+        stream.getFilterList().addFilter("null");
+        stream.getBufferOutputStream().write(data);
+        return stream.output(new NullOutputStream());
+    }
+}
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
@@ -51,12 +52,15 @@ import org.apache.fop.events.DefaultEventBroadcaster;
 import org.apache.fop.events.Event;
 import org.apache.fop.events.EventBroadcaster;
 import org.apache.fop.events.EventListener;
+import org.apache.fop.events.EventProducer;
 import org.apache.fop.events.FOPEventListenerProxy;
 import org.apache.fop.events.LoggingEventListener;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fo.FOEventHandler;
+import org.apache.fop.fo.properties.PropertyExpressionCache;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
+import org.apache.fop.image.ImagePrefetcher;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.Renderer;
@@ -68,6 +72,7 @@ import org.apache.fop.render.XMLHandlerRegistry;
 import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.util.ColorSpaceCache;
 import org.apache.fop.util.ContentHandlerFactoryRegistry;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * This is the user agent for FOP.
@@ -105,6 +110,8 @@ public class FOUserAgent {
     private FOEventHandler foEventHandlerOverride;
     private boolean locatorEnabled = true; // true by default (for error messages).
     private boolean conserveMemoryPolicy;
+    private boolean tableStreaming;
+    private Boolean sparsePropertyLists;
     private EventBroadcaster eventBroadcaster = new FOPEventBroadcaster();
     private StructureTreeEventHandler structureTreeEventHandler
             = DummyStructureTreeEventHandler.INSTANCE;
@@ -136,6 +143,10 @@ public class FOUserAgent {
 
     private final ImageSessionContext imageSessionContext;
     private final SoftMapCache pdfObjectCache = new SoftMapCache(true);
+    private int imagePrefetchThreadCount;
+    private ImagePrefetcher imagePrefetcher;
+    private int tableCellLayoutThreadCount;
+    private ForkJoinPool tableCellLayoutPool;
 
     /**
      * Main constructor. <b>This constructor should not be called directly. Please use the
@@ -150,7 +161,17 @@ public class FOUserAgent {
         setTargetResolution(factory.getTargetResolution());
         setAccessibility(factory.isAccessibilityEnabled());
         setKeepEmptyTags(factory.isKeepEmptyTags());
-        imageSessionContext = new AbstractImageSessionContext(factory.getFallbackResolver()) {
+        imageSessionContext = newImageSessionContext();
+    }
+
+    /**
+     * Creates a new image session context for this rendering run. Image session contexts are
+     * not thread-safe, so code loading images on other threads than the one building the FO
+     * tree has to use its own session context instead of {@link #getImageSessionContext()}.
+     * @return a new image session context
+     */
+    public ImageSessionContext newImageSessionContext() {
+        return new AbstractImageSessionContext(factory.getFallbackResolver()) {
 
             public ImageContext getParentContext() {
                 return factory;
@@ -485,6 +506,79 @@ public class FOUserAgent {
         return this.imageSessionContext;
     }
 
+    /**
+     * Enables the asynchronous preloading of images while the FO tree is being built. Images
+     * referenced by external-graphics and background-images are then preloaded by a pool of
+     * background threads and layout only waits for them when it needs their intrinsic size.
+     * @param threadCount the maximum number of images to preload concurrently, 0 to disable
+     *          prefetching (the default)
+     */
+    public void setImagePrefetchThreadCount(int threadCount) {
+        if (threadCount < 0) {
+            throw new IllegalArgumentException("threadCount must not be negative");
+        }
+        this.imagePrefetchThreadCount = threadCount;
+    }
+
+    /**
+     * Returns the image prefetcher for this rendering run.
+     * @return the image prefetcher or null if images aren't prefetched
+     * @see #setImagePrefetchThreadCount(int)
+     */
+    public synchronized ImagePrefetcher getImagePrefetcher() {
+        if (imagePrefetcher == null && imagePrefetchThreadCount > 0) {
+            imagePrefetcher = new ImagePrefetcher(this, imagePrefetchThreadCount);
+        }
+        return imagePrefetcher;
+    }
+
+    /**
+     * Stops the image prefetcher (if any). Called at the end of the rendering run.
+     */
+    public synchronized void disposeImagePrefetcher() {
+        if (imagePrefetcher != null) {
+            imagePrefetcher.dispose();
+            imagePrefetcher = null;
+        }
+    }
+
+    /**
+     * Enables the concurrent layout of the cells of a table row. The cells are broken into
+     * Knuth elements speculatively on a pool of threads; a cell that needs to change state shared
+     * with the rest of the document (an unused glyph, a new font, an event...) is laid out again
+     * on the layout thread, in document order, so the result is the same as with serial layout.
+     * @param threadCount the parallelism of the pool, 0 to disable concurrent cell layout
+     *          (the default)
+     */
+    public void setTableCellLayoutThreadCount(int threadCount) {
+        if (threadCount < 0) {
+            throw new IllegalArgumentException("threadCount must not be negative");
+        }
+        this.tableCellLayoutThreadCount = threadCount;
+    }
+
+    /**
+     * Returns the pool used to lay out table cells concurrently.
+     * @return the pool or null if table cells are laid out serially
+     * @see #setTableCellLayoutThreadCount(int)
+     */
+    public synchronized ForkJoinPool getTableCellLayoutPool() {
+        if (tableCellLayoutPool == null && tableCellLayoutThreadCount > 0) {
+            tableCellLayoutPool = new ForkJoinPool(tableCellLayoutThreadCount);
+        }
+        return tableCellLayoutPool;
+    }
+
+    /**
+     * Stops the table cell layout pool (if any). Called at the end of the rendering run.
+     */
+    public synchronized void disposeTableCellLayoutPool() {
+        if (tableCellLayoutPool != null) {
+            tableCellLayoutPool.shutdown();
+            tableCellLayoutPool = null;
+        }
+    }
+
     // ---------------------------------------------- environment-level stuff
     //                                                (convenience access to FopFactory methods)
 
@@ -618,9 +712,17 @@ public class FOUserAgent {
 
         /** {@inheritDoc} */
         public void broadcastEvent(Event event) {
+            SpeculativeExecution.checkSharedStateChange();
             rootListener.processEvent(event);
         }
 
+        /** {@inheritDoc} */
+        public EventProducer getEventProducerFor(Class clazz) {
+            //the proxies are cached in an unsynchronized map
+            SpeculativeExecution.checkSharedStateChange();
+            return super.getEventProducerFor(clazz);
+        }
+
     }
 
     /**
@@ -641,6 +743,50 @@ public class FOUserAgent {
         this.conserveMemoryPolicy = conserveMemoryPolicy;
     }
 
+    /**
+     * Check whether tables in the flow are laid out in streaming mode.
+     *
+     * @return true if the content of table-body cells is released once their areas are added
+     */
+    public boolean isTableStreamingEnabled() {
+        return this.tableStreaming;
+    }
+
+    /**
+     * Controls the streaming mode for tables. In this mode, the cells of the table-bodies
+     * in the flow release their content, element list and layout manager as soon as all their
+     * areas have been added, which lowers the memory needed for very long tables. The
+     * resulting document is the same.
+     *
+     * @param tableStreaming true to enable the streaming mode
+     */
+    public void setTableStreamingEnabled(boolean tableStreaming) {
+        this.tableStreaming = tableStreaming;
+    }
+
+    /**
+     * Check whether FO nodes use compact property lists which only store the properties
+     * actually used. Unless set on the user agent, the setting of the {@link FopFactory} applies.
+     *
+     * @return true if sparse property lists are used
+     */
+    public boolean isSparsePropertyLists() {
+        if (sparsePropertyLists != null) {
+            return sparsePropertyLists;
+        }
+        return factory.isSparsePropertyLists();
+    }
+
+    /**
+     * Control whether FO nodes use compact property lists for this rendering run, overriding
+     * the setting of the {@link FopFactory}.
+     *
+     * @param sparsePropertyLists true to use sparse property lists
+     */
+    public void setSparsePropertyLists(boolean sparsePropertyLists) {
+        this.sparsePropertyLists = sparsePropertyLists;
+    }
+
     /**
      * Check whether complex script features are enabled.
      *
@@ -803,6 +949,11 @@ public class FOUserAgent {
         return factory.getColorSpaceCache();
     }
 
+    /** @return the property expression cache, null if disabled */
+    public PropertyExpressionCache getPropertyExpressionCache() {
+        return factory.getPropertyExpressionCache();
+    }
+
     /** @see FopFactory#getHyphenationPatternNames() */
     public Map<String, String> getHyphenationPatternNames() {
         return factory.getHyphenationPatternNames();
@@ -57,6 +57,7 @@ public class FopConfParser {
 
     private static final String PREFER_RENDERER = "prefer-renderer";
     private static final String TABLE_BORDER_OVERPAINT = "table-border-overpaint";
+    private static final String SPARSE_PROPERTY_LISTS = "sparse-property-lists";
 
     private final Log log = LogFactory.getLog(FopConfParser.class);
 
@@ -280,6 +281,15 @@ public class FopConfParser {
             }
         }
 
+        if (cfg.getChild(SPARSE_PROPERTY_LISTS, false) != null) {
+            try {
+                fopFactoryBuilder.setSparsePropertyLists(
+                        cfg.getChild(SPARSE_PROPERTY_LISTS).getValueAsBoolean());
+            } catch (ConfigurationException e) {
+                LogUtil.handleException(log, e, strict);
+            }
+        }
+
         // configure font manager
         new FontManagerConfigurator(cfg, baseURI, fopFactoryBuilder.getBaseURI(), resourceResolver)
                 .configure(fopFactoryBuilder.getFontManager(), strict);
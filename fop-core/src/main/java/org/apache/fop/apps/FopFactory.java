@@ -45,6 +45,7 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
 import org.apache.fop.fo.ElementMapping;
 import org.apache.fop.fo.ElementMappingRegistry;
+import org.apache.fop.fo.properties.PropertyExpressionCache;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
@@ -93,12 +94,17 @@ public final class FopFactory implements ImageContext {
 
     private HyphenationTreeCache hyphenationTreeCache;
 
+    private final PropertyExpressionCache propertyExpressionCache;
+
     private FopFactory(FopFactoryConfig config) {
         this.config = config;
         this.resolver = ResourceResolverFactory.createInternalResourceResolver(config.getBaseURI(),
                 config.getResourceResolver());
         this.elementMappingRegistry = new ElementMappingRegistry(this);
         this.colorSpaceCache = new ColorSpaceCache(resolver);
+        int cacheSize = config.getPropertyExpressionCacheSize();
+        this.propertyExpressionCache = cacheSize > 0
+                ? new PropertyExpressionCache(cacheSize) : null;
         this.rendererFactory = new RendererFactory(config.preferRenderer());
         this.xmlHandlers = new XMLHandlerRegistry();
         this.imageHandlers = new ImageHandlerRegistry();
@@ -219,6 +225,10 @@ public final class FopFactory implements ImageContext {
         return config.isTableBorderOverpaint();
     }
 
+    boolean isSparsePropertyLists() {
+        return config.isSparsePropertyLists();
+    }
+
     /**
      * Returns a new {@link Fop} instance. FOP will be configured with a default user agent
      * instance. Use this factory method if your output type requires an output stream.
@@ -456,6 +466,16 @@ public final class FopFactory implements ImageContext {
         return this.colorSpaceCache;
     }
 
+    /**
+     * Returns the cache for properties parsed from attribute values.
+     * <p>
+     * Note: this method should not be considered as part of FOP's external API.
+     * @return the property expression cache, null if disabled
+     */
+    public PropertyExpressionCache getPropertyExpressionCache() {
+        return this.propertyExpressionCache;
+    }
+
     public HyphenationTreeCache getHyphenationTreeCache() {
         if (hyphenationTreeCache == null) {
             hyphenationTreeCache = new HyphenationTreeCache();
@@ -36,6 +36,7 @@ import org.apache.xmlgraphics.io.ResourceResolver;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
+import org.apache.fop.fo.properties.PropertyExpressionCache;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 
@@ -345,6 +346,31 @@ public final class FopFactoryBuilder {
         return this;
     }
 
+    /**
+     * Sets whether FO nodes use compact property lists which only store the properties
+     * actually used. This reduces memory allocation for large FO trees at the price of slightly
+     * slower property lookups.
+     *
+     * @param b true to use sparse property lists
+     * @return <code>this</code>
+     */
+    public FopFactoryBuilder setSparsePropertyLists(boolean b) {
+        fopFactoryConfigBuilder.setSparsePropertyLists(b);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of parsed attribute values that are cached and shared by all
+     * documents rendered with the factory.
+     *
+     * @param size the maximum cache size, 0 to disable the cache
+     * @return <code>this</code>
+     */
+    public FopFactoryBuilder setPropertyExpressionCacheSize(int size) {
+        fopFactoryConfigBuilder.setPropertyExpressionCacheSize(size);
+        return this;
+    }
+
     public static class FopFactoryConfigImpl implements FopFactoryConfig {
 
         private final EnvironmentProfile enviro;
@@ -388,6 +414,10 @@ public final class FopFactoryBuilder {
 
         private boolean tableBorderOverpaint;
 
+        private boolean sparsePropertyLists;
+
+        private int propertyExpressionCacheSize = PropertyExpressionCache.DEFAULT_MAX_SIZE;
+
         private static final class ImageContextImpl implements ImageContext {
 
             private final FopFactoryConfig config;
@@ -508,6 +538,16 @@ public final class FopFactoryBuilder {
             return tableBorderOverpaint;
         }
 
+        /** {@inheritDoc} */
+        public boolean isSparsePropertyLists() {
+            return sparsePropertyLists;
+        }
+
+        /** {@inheritDoc} */
+        public int getPropertyExpressionCacheSize() {
+            return propertyExpressionCacheSize;
+        }
+
         public Map<String, String> getHyphenationPatternNames() {
             return hyphPatNames;
         }
@@ -555,6 +595,10 @@ public final class FopFactoryBuilder {
         void setHyphPatNames(Map<String, String> hyphPatNames);
 
         void setTableBorderOverpaint(boolean b);
+
+        void setSparsePropertyLists(boolean b);
+
+        void setPropertyExpressionCacheSize(int size);
     }
 
     private static final class CompletedFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -642,6 +686,14 @@ public final class FopFactoryBuilder {
         public void setTableBorderOverpaint(boolean b) {
             throwIllegalStateException();
         }
+
+        public void setSparsePropertyLists(boolean b) {
+            throwIllegalStateException();
+        }
+
+        public void setPropertyExpressionCacheSize(int size) {
+            throwIllegalStateException();
+        }
     }
 
     private static final class ActiveFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -730,6 +782,14 @@ public final class FopFactoryBuilder {
         public void setTableBorderOverpaint(boolean b) {
             config.tableBorderOverpaint = b;
         }
+
+        public void setSparsePropertyLists(boolean b) {
+            config.sparsePropertyLists = b;
+        }
+
+        public void setPropertyExpressionCacheSize(int size) {
+            config.propertyExpressionCacheSize = size;
+        }
     }
 
 }
@@ -165,6 +165,20 @@ public interface FopFactoryConfig {
 
     boolean isTableBorderOverpaint();
 
+    /**
+     * Whether FO nodes use compact property lists which only store the properties actually
+     * used (see {@link org.apache.fop.fo.SparsePropertyList}).
+     * @return true if sparse property lists are used
+     */
+    boolean isSparsePropertyLists();
+
+    /**
+     * Returns the maximum number of parsed attribute values cached across documents
+     * (see {@link org.apache.fop.fo.properties.PropertyExpressionCache}).
+     * @return the maximum cache size, 0 if the cache is disabled
+     */
+    int getPropertyExpressionCacheSize();
+
     /** @return the hyphenation pattern names */
     Map<String, String> getHyphenationPatternNames();
 
@@ -88,6 +88,15 @@ public class BlockParent extends Area {
         return children == null || children.size() == 0;
     }
 
+    /** {@inheritDoc} */
+    public Object clone() throws CloneNotSupportedException {
+        BlockParent bp = (BlockParent) super.clone();
+        if (children != null) {
+            bp.children = new ArrayList<Area>(children);
+        }
+        return bp;
+    }
+
     /**
      * Set the X offset of this block parent area.
      *
@@ -151,6 +151,13 @@ public class LineArea extends Area {
         return inlineAreas;
     }
 
+    /** {@inheritDoc} */
+    public Object clone() throws CloneNotSupportedException {
+        LineArea line = (LineArea) super.clone();
+        line.inlineAreas = new ArrayList<InlineArea>(inlineAreas);
+        return line;
+    }
+
     /**
      * Get the start indent of this line area.
      * The start indent is used for offsetting the start of
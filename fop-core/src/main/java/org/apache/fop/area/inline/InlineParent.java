@@ -94,6 +94,13 @@ public class InlineParent extends InlineArea {
         return inlines;
     }
 
+    /** {@inheritDoc} */
+    public Object clone() throws CloneNotSupportedException {
+        InlineParent ip = (InlineParent) super.clone();
+        ip.inlines = new ArrayList<InlineArea>(inlines);
+        return ip;
+    }
+
     /**
      * recursively apply the variation factor to all descendant areas
      * @param variationFactor the variation factor that must be applied to adjustments
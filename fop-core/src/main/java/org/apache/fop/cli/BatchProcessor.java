@@ -0,0 +1,569 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.binary.BinaryIFConstants;
+import org.apache.fop.render.intermediate.binary.BinaryIFReader;
+
+/**
+ * Formats many documents in one JVM. All documents share one {@link FopFactory} (and with it
+ * the font setup, hyphenation patterns and image cache) and every stylesheet is compiled only
+ * once. The documents are formatted on a pool of worker threads. A failing document doesn't
+ * stop the batch; it is reported in the summary printed at the end.
+ * <p>
+ * The documents are either listed in a manifest file or all XSL-FO, XML and intermediate
+ * format files in a directory are formatted. Every non-empty line of a manifest that doesn't
+ * start with '#' has the form <code>input [stylesheet [output]]</code>. Use '-' as the
+ * stylesheet if an output file but no stylesheet is specified. Relative input and stylesheet
+ * paths are resolved against the directory of the manifest, relative output paths against
+ * the output directory.
+ * <p>
+ * The output file of a document is named after its input file, with the extension of the
+ * output format. If several input files in a directory only differ in their extension, the
+ * extension of the output format is appended to the full input file name instead. Two
+ * documents written to the same file, or a document overwriting an input file or a
+ * stylesheet, are rejected.
+ */
+public class BatchProcessor {
+
+    private static final String IF_NAMESPACE = "http://xmlgraphics.apache.org/fop/intermediate";
+
+    private static final int SNIFF_LENGTH = 1024;
+
+    private static final String[] INPUT_EXTENSIONS = {".fo", ".xml", ".if"};
+
+    private Log log = LogFactory.getLog("FOP");
+
+    private final FopFactory fopFactory;
+    private final String outputFormat;
+    private final File outputDir;
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private Map rendererOptions = Collections.EMPTY_MAP;
+    private boolean conserveMemoryPolicy;
+    private Vector xsltParams;
+    private boolean useCatalogResolver;
+
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private final ConcurrentMap<File, Templates> templatesCache
+            = new ConcurrentHashMap<File, Templates>();
+
+    /**
+     * Creates a new batch processor.
+     * @param fopFactory the FOP factory shared by all documents
+     * @param outputFormat the output format (MIME type)
+     * @param outputDir the directory the output files are written to
+     */
+    public BatchProcessor(FopFactory fopFactory, String outputFormat, File outputDir) {
+        this.fopFactory = fopFactory;
+        this.outputFormat = outputFormat;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Sets the number of documents formatted concurrently. The default is the number of
+     * available processors.
+     * @param threadCount the number of worker threads
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets the renderer options applied to every document.
+     * @param rendererOptions the renderer options
+     */
+    public void setRendererOptions(Map rendererOptions) {
+        this.rendererOptions = rendererOptions;
+    }
+
+    /**
+     * Controls whether the memory-conservation policy is enabled for every document.
+     * @param conserveMemoryPolicy true to enable the memory-conservation policy
+     */
+    public void setConserveMemoryPolicy(boolean conserveMemoryPolicy) {
+        this.conserveMemoryPolicy = conserveMemoryPolicy;
+    }
+
+    /**
+     * Sets the parameters passed to the stylesheets.
+     * @param xsltParams Vector of parameters (name, value, name, value, ...), null if none
+     */
+    public void setXSLTParameters(Vector xsltParams) {
+        this.xsltParams = xsltParams;
+    }
+
+    /**
+     * Controls whether a catalog resolver is used for the input XML files.
+     * @param useCatalogResolver true to use a catalog resolver
+     */
+    public void setUseCatalogResolver(boolean useCatalogResolver) {
+        this.useCatalogResolver = useCatalogResolver;
+    }
+
+    /**
+     * Reads the documents to be formatted from a manifest file or a directory.
+     * @param manifestOrDir the manifest file or the directory
+     * @param defaultStylesheet the stylesheet for XML files that have none in the manifest
+     *          (may be null)
+     * @return the list of jobs
+     * @throws IOException if the manifest cannot be read
+     */
+    public List<Job> readJobs(File manifestOrDir, File defaultStylesheet) throws IOException {
+        List<Job> jobs = new ArrayList<Job>();
+        if (manifestOrDir.isDirectory()) {
+            File[] files = manifestOrDir.listFiles();
+            if (files == null) {
+                throw new IOException("Cannot list directory: " + manifestOrDir);
+            }
+            Arrays.sort(files);
+            List<File> inputs = new ArrayList<File>();
+            Set<String> baseNames = new HashSet<String>();
+            Set<String> sharedBaseNames = new HashSet<String>();
+            for (File file : files) {
+                if (file.isFile() && isInputFile(file)) {
+                    inputs.add(file);
+                    if (!baseNames.add(getBaseName(file))) {
+                        sharedBaseNames.add(getBaseName(file));
+                    }
+                }
+            }
+            for (File input : inputs) {
+                File output = null;
+                if (sharedBaseNames.contains(getBaseName(input))) {
+                    output = new File(outputDir,
+                            input.getName() + getOutputExtension(outputFormat));
+                }
+                jobs.add(createJob(input, null, defaultStylesheet, output));
+            }
+        } else {
+            File baseDir = manifestOrDir.getAbsoluteFile().getParentFile();
+            BufferedReader reader = new BufferedReader(new java.io.InputStreamReader(
+                    new FileInputStream(manifestOrDir), "UTF-8"));
+            try {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith("#")) {
+                        continue;
+                    }
+                    StringTokenizer tokens = new StringTokenizer(line);
+                    if (tokens.countTokens() > 3) {
+                        throw new IOException("Invalid line " + lineNumber + " in "
+                                + manifestOrDir + ": " + line);
+                    }
+                    File input = resolve(baseDir, tokens.nextToken());
+                    File stylesheet = null;
+                    if (tokens.hasMoreTokens()) {
+                        String name = tokens.nextToken();
+                        if (!"-".equals(name)) {
+                            stylesheet = resolve(baseDir, name);
+                        }
+                    }
+                    File output = null;
+                    if (tokens.hasMoreTokens()) {
+                        output = resolve(outputDir, tokens.nextToken());
+                    }
+                    jobs.add(createJob(input, stylesheet, defaultStylesheet, output));
+                }
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+        checkOutputs(jobs);
+        return jobs;
+    }
+
+    private static void checkOutputs(List<Job> jobs) throws IOException {
+        Set<File> inputs = new HashSet<File>();
+        for (Job job : jobs) {
+            inputs.add(job.input.getCanonicalFile());
+            if (job.stylesheet != null) {
+                inputs.add(job.stylesheet.getCanonicalFile());
+            }
+        }
+        Set<File> outputs = new HashSet<File>();
+        for (Job job : jobs) {
+            File output = job.output.getCanonicalFile();
+            if (inputs.contains(output)) {
+                throw new IOException("The output of " + job.input + " would overwrite "
+                        + job.output + ", which is an input of the batch");
+            }
+            if (!outputs.add(output)) {
+                throw new IOException("More than one document would be written to "
+                        + job.output);
+            }
+        }
+    }
+
+    private static File resolve(File baseDir, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(baseDir, path);
+    }
+
+    private static boolean isInputFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ENGLISH);
+        for (String extension : INPUT_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Job createJob(File input, File stylesheet, File defaultStylesheet, File output)
+            throws IOException {
+        int inputType;
+        if (stylesheet != null) {
+            inputType = CommandLineOptions.XSLT_INPUT;
+        } else if (isIntermediateFormat(input)) {
+            inputType = CommandLineOptions.IF_INPUT;
+        } else if (input.getName().toLowerCase(Locale.ENGLISH).endsWith(".fo")
+                || defaultStylesheet == null) {
+            inputType = CommandLineOptions.FO_INPUT;
+        } else {
+            inputType = CommandLineOptions.XSLT_INPUT;
+            stylesheet = defaultStylesheet;
+        }
+        if (output == null) {
+            output = new File(outputDir, getBaseName(input) + getOutputExtension(outputFormat));
+        }
+        return new Job(input, inputType, stylesheet, output);
+    }
+
+    private static boolean isIntermediateFormat(File file) throws IOException {
+        if (!file.isFile()) {
+            //reported when the job is run
+            return false;
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] header = new byte[SNIFF_LENGTH];
+            int len = IOUtils.read(in, header);
+            if (len >= BinaryIFConstants.MAGIC.length && BinaryIFReader.isBinaryIF(header, len)) {
+                return true;
+            }
+            return new String(header, 0, len, "ISO-8859-1").contains(IF_NAMESPACE);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static String getBaseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Returns the file name extension for an output format.
+     * @param mime the output format (MIME type)
+     * @return the extension including the leading dot
+     */
+    static String getOutputExtension(String mime) {
+        if (MimeConstants.MIME_PDF.equals(mime)) {
+            return ".pdf";
+        } else if (MimeConstants.MIME_POSTSCRIPT.equals(mime)) {
+            return ".ps";
+        } else if (MimeConstants.MIME_PCL.equals(mime)
+                || MimeConstants.MIME_PCL_ALT.equals(mime)) {
+            return ".pcl";
+        } else if (MimeConstants.MIME_AFP.equals(mime)
+                || MimeConstants.MIME_AFP_ALT.equals(mime)) {
+            return ".afp";
+        } else if (MimeConstants.MIME_RTF.equals(mime)
+                || MimeConstants.MIME_RTF_ALT1.equals(mime)
+                || MimeConstants.MIME_RTF_ALT2.equals(mime)) {
+            return ".rtf";
+        } else if (MimeConstants.MIME_TIFF.equals(mime)) {
+            return ".tif";
+        } else if (MimeConstants.MIME_PNG.equals(mime)) {
+            return ".png";
+        } else if (MimeConstants.MIME_PLAIN_TEXT.equals(mime)) {
+            return ".txt";
+        } else if (MimeConstants.MIME_SVG.equals(mime)) {
+            return ".svg";
+        } else if (MimeConstants.MIME_MIF.equals(mime)) {
+            return ".mif";
+        } else if (MimeConstants.MIME_FOP_AREA_TREE.equals(mime)) {
+            return ".at.xml";
+        } else if (MimeConstants.MIME_FOP_IF.equals(mime)) {
+            return ".if.xml";
+        } else if (MimeConstants.MIME_FOP_IF_BINARY.equals(mime)) {
+            return ".if";
+        } else if (MimeConstants.MIME_XSL_FO.equals(mime)) {
+            return ".fo";
+        }
+        return ".out";
+    }
+
+    /**
+     * Formats the given documents and prints a summary.
+     * @param jobs the documents to format
+     * @param summary the stream the summary is printed to
+     * @return the number of documents that failed
+     * @throws InterruptedException if the thread is interrupted while waiting for the batch
+     */
+    public int process(List<Job> jobs, PrintStream summary) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        List<Callable<JobResult>> tasks = new ArrayList<Callable<JobResult>>(jobs.size());
+        for (final Job job : jobs) {
+            tasks.add(new Callable<JobResult>() {
+                public JobResult call() {
+                    return run(job);
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(threadCount, jobs.size())));
+        List<Future<JobResult>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        int failures = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            JobResult result;
+            try {
+                result = futures.get(i).get();
+            } catch (ExecutionException e) {
+                //run() catches everything but errors
+                result = new JobResult(jobs.get(i), 0, e.getCause());
+            }
+            if (result.failure != null) {
+                failures++;
+                summary.println("FAILED " + formatTime(result.time) + result.job.input
+                        + ": " + result.failure);
+            } else {
+                summary.println("OK     " + formatTime(result.time) + result.job.input
+                        + " -> " + result.job.output);
+            }
+        }
+        summary.println(jobs.size() + " document(s) processed in " + elapsed + " ms using "
+                + threadCount + " thread(s): " + (jobs.size() - failures) + " succeeded, "
+                + failures + " failed");
+        summary.flush();
+        return failures;
+    }
+
+    private static String formatTime(long time) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(time).append(" ms");
+        while (sb.length() < 10) {
+            sb.insert(0, ' ');
+        }
+        return sb.append("  ").toString();
+    }
+
+    private JobResult run(Job job) {
+        long start = System.currentTimeMillis();
+        Exception failure = null;
+        OutputStream out = null;
+        try {
+            FOUserAgent userAgent = fopFactory.newFOUserAgent();
+            userAgent.getRendererOptions().putAll(rendererOptions);
+            userAgent.setConserveMemoryPolicy(conserveMemoryPolicy);
+            userAgent.setOutputFile(job.output);
+            InputHandler handler = createInputHandler(job, userAgent);
+            File parent = job.output.getAbsoluteFile().getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Cannot create directory: " + parent);
+            }
+            out = new BufferedOutputStream(new FileOutputStream(job.output));
+            if (MimeConstants.MIME_XSL_FO.equals(outputFormat)) {
+                handler.transformTo(out);
+            } else {
+                handler.renderTo(userAgent, outputFormat, out);
+            }
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        long time = System.currentTimeMillis() - start;
+        if (failure != null) {
+            log.error("Error formatting " + job.input, failure);
+            if (out != null) {
+                job.output.delete();
+            }
+        } else if (log.isInfoEnabled()) {
+            log.info("Formatted " + job.input + " in " + time + " ms");
+        }
+        return new JobResult(job, time, failure);
+    }
+
+    private InputHandler createInputHandler(Job job, FOUserAgent userAgent) {
+        InputHandler handler;
+        switch (job.inputType) {
+        case CommandLineOptions.IF_INPUT:
+            return new IFInputHandler(job.input);
+        case CommandLineOptions.XSLT_INPUT:
+            handler = new CachingInputHandler(job.input, job.stylesheet, xsltParams);
+            break;
+        default:
+            handler = new InputHandler(job.input);
+        }
+        if (useCatalogResolver) {
+            handler.createCatalogResolver(userAgent);
+        }
+        return handler;
+    }
+
+    private Templates getTemplates(File stylesheet, Source xsltSource)
+            throws TransformerConfigurationException {
+        File key = stylesheet.getAbsoluteFile();
+        Templates templates = templatesCache.get(key);
+        if (templates == null) {
+            //TransformerFactory isn't thread-safe
+            synchronized (transformerFactory) {
+                templates = templatesCache.get(key);
+                if (templates == null) {
+                    templates = transformerFactory.newTemplates(xsltSource);
+                    templatesCache.put(key, templates);
+                }
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * InputHandler that uses the compiled stylesheets cached by the batch processor.
+     */
+    private class CachingInputHandler extends InputHandler {
+
+        private final File stylesheet;
+
+        CachingInputHandler(File xmlfile, File xsltfile, Vector params) {
+            super(xmlfile, xsltfile, params);
+            this.stylesheet = xsltfile;
+        }
+
+        /** {@inheritDoc} */
+        protected Transformer createTransformer(TransformerFactory factory, Source xsltSource)
+                throws TransformerConfigurationException {
+            return getTemplates(stylesheet, xsltSource).newTransformer();
+        }
+    }
+
+    /** A document to be formatted in a batch. */
+    public static final class Job {
+
+        private final File input;
+        private final int inputType;
+        private final File stylesheet;
+        private final File output;
+
+        /**
+         * Creates a new job.
+         * @param input the input file
+         * @param inputType the input type (see the input constants of
+         *          {@link CommandLineOptions})
+         * @param stylesheet the stylesheet (only used for XSLT input)
+         * @param output the output file
+         */
+        public Job(File input, int inputType, File stylesheet, File output) {
+            this.input = input;
+            this.inputType = inputType;
+            this.stylesheet = stylesheet;
+            this.output = output;
+        }
+
+        /** @return the input file */
+        public File getInput() {
+            return input;
+        }
+
+        /** @return the input type (see the input constants of {@link CommandLineOptions}) */
+        public int getInputType() {
+            return inputType;
+        }
+
+        /** @return the stylesheet, null if the input is not transformed */
+        public File getStylesheet() {
+            return stylesheet;
+        }
+
+        /** @return the output file */
+        public File getOutput() {
+            return output;
+        }
+    }
+
+    private static final class JobResult {
+
+        private final Job job;
+        private final long time;
+        private final Throwable failure;
+
+        private JobResult(Job job, long time, Throwable failure) {
+            this.job = job;
+            this.time = time;
+            this.failure = failure;
+        }
+    }
+}
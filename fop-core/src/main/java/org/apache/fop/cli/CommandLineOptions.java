@@ -54,6 +54,7 @@ import org.apache.fop.render.awt.AWTRenderer;
 import org.apache.fop.render.intermediate.IFContext;
 import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.render.intermediate.IFSerializer;
+import org.apache.fop.render.intermediate.util.IFScatterGatherRenderer;
 import org.apache.fop.render.pdf.PDFEncryptionOption;
 import org.apache.fop.render.print.PagesMode;
 import org.apache.fop.render.print.PrintRenderer;
@@ -83,6 +84,8 @@ public class CommandLineOptions {
     public static final int IF_INPUT = 4;
     /** input: Image file */
     public static final int IMAGE_INPUT = 5;
+    /** input: manifest or directory of documents to be formatted in one batch */
+    public static final int BATCH_INPUT = 6;
 
     /* show configuration information */
     private Boolean showConfiguration = Boolean.FALSE;
@@ -102,6 +105,10 @@ public class CommandLineOptions {
     private File iffile;
     /* area tree input file */
     private File imagefile;
+    /* batch manifest file or directory */
+    private File batchfile;
+    /* number of documents formatted concurrently in batch mode (0 for default) */
+    private int threadCount;
     /* output file */
     private File outfile;
     /* input mode */
@@ -132,6 +139,10 @@ public class CommandLineOptions {
 
     private InputHandler inputHandler;
 
+    private BatchProcessor batchProcessor;
+
+    private IFScatterGatherRenderer scatterGatherRenderer;
+
     private Log log;
 
     private Vector xsltParams;
@@ -195,9 +206,16 @@ public class CommandLineOptions {
             throw e;
         }
 
+        if (inputmode == BATCH_INPUT) {
+            batchProcessor = createBatchProcessor();
+            return true;
+        }
+
         inputHandler = createInputHandler();
 
-        if (MimeConstants.MIME_FOP_AWT_PREVIEW.equals(outputmode)) {
+        if (threadCount > 0) {
+            scatterGatherRenderer = createScatterGatherRenderer();
+        } else if (MimeConstants.MIME_FOP_AWT_PREVIEW.equals(outputmode)) {
             //set the system look&feel for the preview dialog
             try {
                 UIManager.setLookAndFeel(
@@ -242,6 +260,37 @@ public class CommandLineOptions {
         return inputHandler;
     }
 
+    /**
+     * @return the batch processor if batch mode has been selected, null otherwise
+     */
+    public BatchProcessor getBatchProcessor() {
+        return batchProcessor;
+    }
+
+    /**
+     * @return the renderer formatting the page-sequences of the document concurrently if
+     * '-threads' has been used without '-batch', null otherwise
+     */
+    public IFScatterGatherRenderer getScatterGatherRenderer() {
+        return scatterGatherRenderer;
+    }
+
+    /**
+     * Indicates whether many documents are formatted in one batch.
+     * @return true if batch mode has been selected
+     */
+    public boolean isBatchMode() {
+        return inputmode == BATCH_INPUT;
+    }
+
+    /**
+     * Returns the batch manifest file or directory if set.
+     * @return the manifest file or directory, null if not set
+     */
+    public File getBatchFile() {
+        return batchfile;
+    }
+
     /**
      * Get the logger.
      * @return the logger
@@ -307,6 +356,10 @@ public class CommandLineOptions {
                 i = i + parseIFInputOption(args, i);
             } else if (args[i].equals("-imagein")) {
                 i = i + parseImageInputOption(args, i);
+            } else if (args[i].equals("-batch")) {
+                i = i + parseBatchInputOption(args, i);
+            } else if (args[i].equals("-threads")) {
+                i = i + parseThreadsOption(args, i);
             } else if (args[i].equals("-awt")) {
                 i = i + parseAWTOutputOption(args, i);
             } else if (args[i].equals("-pdf")) {
@@ -468,7 +521,9 @@ public class CommandLineOptions {
     }
 
     private int parseXSLInputOption(String[] args, int i) throws FOPException {
-        setInputFormat(XSLT_INPUT);
+        if (inputmode != BATCH_INPUT) {
+            setInputFormat(XSLT_INPUT);
+        }
         if ((i + 1 == args.length)
                 || (isOption(args[i + 1]))) {
             throw new FOPException("you must specify the stylesheet "
@@ -497,6 +552,45 @@ public class CommandLineOptions {
         }
     }
 
+    private int parseBatchInputOption(String[] args, int i) throws FOPException {
+        if (inputmode == XSLT_INPUT && xmlfile == null && !useStdIn) {
+            //only -xsl so far, which sets the default stylesheet of the batch
+            inputmode = BATCH_INPUT;
+        }
+        setInputFormat(BATCH_INPUT);
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException("you must specify the manifest file or the input directory "
+                            + "for the '-batch' option");
+        } else {
+            batchfile = new File(args[i + 1]);
+            if (batchfile.isDirectory()) {
+                baseURI = batchfile.getAbsoluteFile().toURI();
+            } else {
+                baseURI = getBaseURI(batchfile);
+            }
+            return 1;
+        }
+    }
+
+    private int parseThreadsOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException("if you use '-threads', you must specify "
+              + "the number of threads");
+        } else {
+            try {
+                threadCount = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException nfe) {
+                threadCount = 0;
+            }
+            if (threadCount < 1) {
+                throw new FOPException("the number of threads must be a positive integer");
+            }
+            return 1;
+        }
+    }
+
     private URI getBaseURI(File file) {
         return file.getAbsoluteFile().getParentFile().toURI();
     }
@@ -994,6 +1088,30 @@ public class CommandLineOptions {
                                               + iffile.getAbsolutePath()
                                               + " not found ");
             }
+        } else if (inputmode == BATCH_INPUT) {
+            if (outputmode.equals(MimeConstants.MIME_FOP_AWT_PREVIEW)
+                    || outputmode.equals(MimeConstants.MIME_FOP_PRINT)) {
+                throw new FOPException("AWT and PRINT output are not available in batch mode");
+            }
+            if (outfile == null) {
+                throw new FOPException(
+                        "The output directory must be specified for the batch mode");
+            }
+            if (outfile.exists() && !outfile.isDirectory()) {
+                throw new FOPException("Error: output directory "
+                                        + outfile.getAbsolutePath()
+                                        + " is not a directory");
+            }
+            if (!batchfile.exists()) {
+                throw new FileNotFoundException("Error: batch manifest or directory "
+                                              + batchfile.getAbsolutePath()
+                                              + " not found ");
+            }
+            if (xsltfile != null && !xsltfile.exists()) {
+                throw new FileNotFoundException("Error: xsl file "
+                                                + xsltfile.getAbsolutePath()
+                                                + " not found ");
+            }
         } else if (inputmode == IMAGE_INPUT) {
             if (outputmode.equals(MimeConstants.MIME_XSL_FO)) {
                 throw new FOPException(
@@ -1083,6 +1201,43 @@ public class CommandLineOptions {
         }
     }
 
+    private BatchProcessor createBatchProcessor() {
+        BatchProcessor processor = new BatchProcessor(factory, outputmode, outfile);
+        if (threadCount > 0) {
+            processor.setThreadCount(threadCount);
+        }
+        processor.setRendererOptions(renderingOptions);
+        processor.setConserveMemoryPolicy(conserveMemoryPolicy);
+        processor.setXSLTParameters(xsltParams);
+        processor.setUseCatalogResolver(useCatalogResolver);
+        return processor;
+    }
+
+    private IFScatterGatherRenderer createScatterGatherRenderer() throws FOPException {
+        if (inputmode != FO_INPUT && inputmode != XSLT_INPUT) {
+            throw new FOPException("'-threads' requires FO or XML input, or '-batch'");
+        }
+        if (mimicRenderer != null
+                || MimeConstants.MIME_XSL_FO.equals(outputmode)
+                || MimeConstants.MIME_FOP_AREA_TREE.equals(outputmode)
+                || MimeConstants.MIME_FOP_AWT_PREVIEW.equals(outputmode)
+                || MimeConstants.MIME_FOP_PRINT.equals(outputmode)) {
+            throw new FOPException("'-threads' is not supported for the output format "
+                    + outputmode);
+        }
+        IFScatterGatherRenderer renderer = new IFScatterGatherRenderer(factory, outputmode) {
+            @Override
+            protected FOUserAgent createUserAgent() {
+                FOUserAgent userAgent = super.createUserAgent();
+                userAgent.getRendererOptions().putAll(renderingOptions);
+                userAgent.setConserveMemoryPolicy(conserveMemoryPolicy);
+                return userAgent;
+            }
+        };
+        renderer.setThreadCount(threadCount);
+        return renderer;
+    }
+
     /**
      * Get the FOUserAgent for this Command-Line run
      * @return FOUserAgent instance
@@ -1165,6 +1320,8 @@ public class CommandLineOptions {
             return fofile;
         case XSLT_INPUT:
             return xmlfile;
+        case BATCH_INPUT:
+            return batchfile;
         default:
             return fofile;
         }
@@ -1233,6 +1390,14 @@ public class CommandLineOptions {
             + "  -param name value <value> to use for parameter <name> in xslt stylesheet\n"
             + "                    (repeat '-param name value' for each parameter)\n \n"
             + "  -catalog          use catalog resolver for input XML and XSLT files\n"
+            + "  -batch file|dir   format all documents listed in the manifest file or all\n"
+            + "                    .fo, .xml and .if files in the directory in one batch.\n"
+            + "                    The outfile of the output option names the output directory.\n"
+            + "                    Manifest lines: input [stylesheet|- [outfile]]\n"
+            + "                    (-xsl sets the stylesheet for XML files without one)\n"
+            + "  -threads n        number of documents formatted concurrently in batch mode\n"
+            + "                    (default: number of processors); without -batch, the\n"
+            + "                    page-sequences of the input are formatted on n threads\n"
             + " [OUTPUT] \n"
             + "  outfile           input will be rendered as PDF into outfile\n"
             + "                    (use '-' for outfile to pipe output to stdout)\n"
@@ -1274,6 +1439,7 @@ public class CommandLineOptions {
             + "  fop -xml foo.xml -xsl foo.xsl -pdf foo.pdf\n"
             + "  fop -xml foo.xml -xsl foo.xsl -foout foo.fo\n"
             + "  fop -xml - -xsl foo.xsl -pdf -\n"
+            + "  fop -batch docs.txt -threads 4 -pdf out\n"
             + "  fop foo.fo -mif foo.mif\n"
             + "  fop foo.fo -rtf foo.rtf\n"
             + "  fop foo.fo -print\n"
@@ -1335,6 +1501,10 @@ public class CommandLineOptions {
                 log.info("intermediate input file: " + iffile.toString());
             }
             break;
+        case BATCH_INPUT:
+            log.info("Batch ");
+            log.info("manifest file or directory: " + batchfile.toString());
+            break;
         case IMAGE_INPUT:
             log.info("Image ");
             if (isInputFromStdIn()) {
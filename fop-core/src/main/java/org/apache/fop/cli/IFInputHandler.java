@@ -20,6 +20,8 @@
 package org.apache.fop.cli;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Vector;
 
@@ -27,15 +29,21 @@ import javax.xml.transform.Result;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.commons.io.IOUtils;
+
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.render.intermediate.IFException;
 import org.apache.fop.render.intermediate.IFParser;
 import org.apache.fop.render.intermediate.IFUtil;
+import org.apache.fop.render.intermediate.binary.BinaryIFConstants;
+import org.apache.fop.render.intermediate.binary.BinaryIFReader;
+import org.apache.fop.render.intermediate.binary.IFBinaryParser;
 
 /**
- * InputHandler for the intermediate format XML as input.
+ * InputHandler for the intermediate format XML as input. Files in the binary intermediate
+ * format are detected automatically.
  */
 public class IFInputHandler extends InputHandler {
 
@@ -68,6 +76,16 @@ public class IFInputHandler extends InputHandler {
             documentHandler.setResult(new StreamResult(out));
             IFUtil.setupFonts(documentHandler);
 
+            if (isBinaryIF()) {
+                InputStream in = new java.io.FileInputStream(sourcefile);
+                try {
+                    new IFBinaryParser().parse(in, documentHandler, userAgent);
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+                return;
+            }
+
             //Create IF parser
             IFParser parser = new IFParser();
 
@@ -77,6 +95,22 @@ public class IFInputHandler extends InputHandler {
             transformTo(res);
         } catch (IFException ife) {
             throw new FOPException(ife);
+        } catch (IOException ioe) {
+            throw new FOPException(ioe);
+        }
+    }
+
+    private boolean isBinaryIF() throws IOException {
+        if (sourcefile == null || createXSLTSource() != null) {
+            return false;
+        }
+        InputStream in = new java.io.FileInputStream(sourcefile);
+        try {
+            byte[] header = new byte[BinaryIFConstants.MAGIC.length];
+            int len = IOUtils.read(in, header);
+            return BinaryIFReader.isBinaryIF(header, len);
+        } finally {
+            IOUtils.closeQuietly(in);
         }
     }
 
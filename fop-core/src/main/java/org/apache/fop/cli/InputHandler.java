@@ -33,6 +33,7 @@ import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.sax.SAXResult;
@@ -53,6 +54,7 @@ import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.Fop;
 import org.apache.fop.render.awt.viewer.Renderable;
+import org.apache.fop.render.intermediate.util.IFScatterGatherRenderer;
 
 /**
  * Class for handling files input from command line
@@ -263,28 +265,7 @@ public class InputHandler implements ErrorListener, Renderable {
      */
     protected void transformTo(Result result) throws FOPException {
         try {
-            // Setup XSLT
-            TransformerFactory factory = TransformerFactory.newInstance();
-            Transformer transformer;
-
-            Source xsltSource = createXSLTSource();
-            if (xsltSource == null) {   // FO Input
-                transformer = factory.newTransformer();
-            } else {    // XML/XSLT input
-                transformer = factory.newTransformer(xsltSource);
-
-                // Set the value of parameters, if any, defined for stylesheet
-                if (xsltParams != null) {
-                    for (int i = 0; i < xsltParams.size(); i += 2) {
-                        transformer.setParameter((String) xsltParams.elementAt(i),
-                            (String) xsltParams.elementAt(i + 1));
-                    }
-                }
-                if (uriResolver != null) {
-                    transformer.setURIResolver(uriResolver);
-                }
-            }
-            transformer.setErrorListener(this);
+            Transformer transformer = setupTransformer();
 
             // Create a SAXSource from the input Source file
             Source src = createMainSource();
@@ -297,6 +278,63 @@ public class InputHandler implements ErrorListener, Renderable {
         }
     }
 
+    /**
+     * Renders the input document with a renderer that formats the page-sequences of the
+     * document concurrently.
+     * @param renderer the renderer, set up for the desired output format
+     * @param out the output stream for the final output format
+     * @throws FOPException in case of an error during processing
+     */
+    public void renderTo(IFScatterGatherRenderer renderer, OutputStream out)
+            throws FOPException {
+        Transformer transformer;
+        try {
+            transformer = setupTransformer();
+        } catch (TransformerConfigurationException e) {
+            throw new FOPException(e);
+        }
+        renderer.render(transformer, createMainSource(), out);
+    }
+
+    private Transformer setupTransformer() throws TransformerConfigurationException {
+        // Setup XSLT
+        TransformerFactory factory = TransformerFactory.newInstance();
+        Transformer transformer;
+
+        Source xsltSource = createXSLTSource();
+        if (xsltSource == null) {   // FO Input
+            transformer = factory.newTransformer();
+        } else {    // XML/XSLT input
+            transformer = createTransformer(factory, xsltSource);
+
+            // Set the value of parameters, if any, defined for stylesheet
+            if (xsltParams != null) {
+                for (int i = 0; i < xsltParams.size(); i += 2) {
+                    transformer.setParameter((String) xsltParams.elementAt(i),
+                        (String) xsltParams.elementAt(i + 1));
+                }
+            }
+            if (uriResolver != null) {
+                transformer.setURIResolver(uriResolver);
+            }
+        }
+        transformer.setErrorListener(this);
+        return transformer;
+    }
+
+    /**
+     * Creates the transformer for the stylesheet. Subclasses may override this method to
+     * reuse compiled stylesheets.
+     * @param factory the transformer factory
+     * @param xsltSource the stylesheet
+     * @return the transformer
+     * @throws TransformerConfigurationException if the stylesheet cannot be compiled
+     */
+    protected Transformer createTransformer(TransformerFactory factory, Source xsltSource)
+            throws TransformerConfigurationException {
+        return factory.newTransformer(xsltSource);
+    }
+
     // --- Implementation of the ErrorListener interface ---
 
     /**
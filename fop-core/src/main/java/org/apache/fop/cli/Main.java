@@ -168,6 +168,15 @@ public final class Main {
                 System.exit(0);
             }
 
+            if (options.isBatchMode()) {
+                BatchProcessor processor = options.getBatchProcessor();
+                int failures = processor.process(
+                        processor.readJobs(options.getBatchFile(), options.getXSLFile()),
+                        System.out);
+                // @SuppressFBWarnings("DM_EXIT")
+                System.exit(failures == 0 ? 0 : 1);
+            }
+
             foUserAgent = options.getFOUserAgent();
             String outputFormat = options.getOutputFormat();
 
@@ -179,7 +188,9 @@ public final class Main {
                 } else if (options.isOutputToStdOut()) {
                     out = new java.io.BufferedOutputStream(System.out);
                 }
-                if (!MimeConstants.MIME_XSL_FO.equals(outputFormat)) {
+                if (options.getScatterGatherRenderer() != null) {
+                    options.getInputHandler().renderTo(options.getScatterGatherRenderer(), out);
+                } else if (!MimeConstants.MIME_XSL_FO.equals(outputFormat)) {
                     options.getInputHandler().renderTo(foUserAgent, outputFormat, out);
                 } else {
                     options.getInputHandler().transformTo(out);
@@ -197,7 +208,7 @@ public final class Main {
         } catch (Exception e) {
             if (options != null) {
                 options.getLogger().error("Exception", e);
-                if (options.getOutputFile() != null) {
+                if (options.getOutputFile() != null && !options.isBatchMode()) {
                     options.getOutputFile().delete();
                 }
             }
@@ -48,10 +48,16 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
 
     private GlyphClassMapping cm;
 
+    /* the range class mapping flattened into an array, or null if not a range mapping or too sparse */
+    private FlattenedMapping flattened;
+
     private GlyphClassTable(GlyphClassMapping cm) {
         assert cm != null;
         assert cm instanceof GlyphMappingTable;
         this.cm = cm;
+        if (cm instanceof RangeClassTable) {
+            this.flattened = FlattenedMapping.flatten((GlyphMappingTable) cm);
+        }
     }
 
     /** {@inheritDoc} */
@@ -64,6 +70,11 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
         return ((GlyphMappingTable) cm) .getEntries();
     }
 
+    /** {@inheritDoc} */
+    public int[] getGlyphRanges() {
+        return ((GlyphMappingTable) cm) .getGlyphRanges();
+    }
+
     /** {@inheritDoc} */
     public int getClassSize(int set) {
         return cm.getClassSize(set);
@@ -71,7 +82,11 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
 
     /** {@inheritDoc} */
     public int getClassIndex(int gid, int set) {
-        return cm.getClassIndex(gid, set);
+        if (flattened != null) {
+            return flattened.getMappedIndex(gid);
+        } else {
+            return cm.getClassIndex(gid, set);
+        }
     }
 
     /**
@@ -96,6 +111,33 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
         return new GlyphClassTable(cm);
     }
 
+    /**
+     * Create glyph class table from an array of glyph classes (class definition format 1).
+     * @param firstGlyph the glyph the first class applies to
+     * @param classes the classes of consecutive glyphs
+     * @return a new class table instance
+     */
+    public static GlyphClassTable createMappedClassTable(int firstGlyph, int[] classes) {
+        return new GlyphClassTable(new MappedClassTable(firstGlyph, classes));
+    }
+
+    /**
+     * Create glyph class table from arrays of glyph ranges (class definition format 2).
+     * @param starts (inclusive) starts of glyph ranges, in ascending order
+     * @param ends (inclusive) ends of glyph ranges
+     * @param classes classes of the glyph ranges
+     * @return a new class table instance
+     */
+    public static GlyphClassTable createRangeClassTable(int[] starts, int[] ends, int[] classes) {
+        GlyphClassMapping cm;
+        if (starts.length == 0) {
+            cm = new EmptyClassTable(null);
+        } else {
+            cm = new RangeClassTable(starts, ends, classes);
+        }
+        return new GlyphClassTable(cm);
+    }
+
     private static boolean isMappedClass(List entries) {
         if ((entries == null) || (entries.size() == 0)) {
             return false;
@@ -156,6 +198,9 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
         public MappedClassTable(List entries) {
             populate(entries);
         }
+        public MappedClassTable(int firstGlyph, int[] classes) {
+            populate(firstGlyph, classes.clone());
+        }
         /** {@inheritDoc} */
         public List getEntries() {
             List entries = new java.util.ArrayList();
@@ -172,6 +217,14 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
             return gcMax + 1;
         }
         /** {@inheritDoc} */
+        public int[] getGlyphRanges() {
+            if (gca.length == 0) {
+                return new int[0];
+            } else {
+                return new int[] { firstGlyph, firstGlyph + gca.length - 1 };
+            }
+        }
+        /** {@inheritDoc} */
         public int getMappedIndex(int gid) {
             int i = gid - firstGlyph;
             if ((i >= 0) && (i < gca.length)) {
@@ -204,21 +257,25 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
             // extract glyph class array
             int i = 0;
             int n = entries.size() - 1;
-            int gcMax = -1;
             int[] gca = new int [ n ];
             while (it.hasNext()) {
                 Object o = it.next();
                 if (o instanceof Integer) {
-                    int gc = (Integer) o;
-                    gca [ i++ ] = gc;
-                    if (gc > gcMax) {
-                        gcMax = gc;
-                    }
+                    gca [ i++ ] = (Integer) o;
                 } else {
                     throw new AdvancedTypographicTableFormatException("illegal mapping entry, must be Integer: " + o);
                 }
             }
             assert i == n;
+            populate(firstGlyph, gca);
+        }
+        private void populate(int firstGlyph, int[] gca) {
+            int gcMax = -1;
+            for (int gc : gca) {
+                if (gc > gcMax) {
+                    gcMax = gc;
+                }
+            }
             assert this.gca == null;
             this.firstGlyph = firstGlyph;
             this.gca = gca;
@@ -243,6 +300,9 @@ public final class GlyphClassTable extends GlyphMappingTable implements GlyphCla
         public RangeClassTable(List entries) {
             super(entries);
         }
+        public RangeClassTable(int[] starts, int[] ends, int[] classes) {
+            super(starts, ends, classes);
+        }
         /** {@inheritDoc} */
         public int getMappedIndex(int gid, int s, int m) {
             return m;
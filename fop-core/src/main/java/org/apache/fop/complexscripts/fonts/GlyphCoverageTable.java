@@ -48,10 +48,14 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
 
     private GlyphCoverageMapping cm;
 
+    /* the coverage mapping flattened into an array, or null if too sparse */
+    private FlattenedMapping flattened;
+
     private GlyphCoverageTable(GlyphCoverageMapping cm) {
         assert cm != null;
         assert cm instanceof GlyphMappingTable;
         this.cm = cm;
+        this.flattened = FlattenedMapping.flatten((GlyphMappingTable) cm);
     }
 
     /** {@inheritDoc} */
@@ -64,6 +68,11 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         return ((GlyphMappingTable) cm) .getEntries();
     }
 
+    /** {@inheritDoc} */
+    public int[] getGlyphRanges() {
+        return ((GlyphMappingTable) cm) .getGlyphRanges();
+    }
+
     /** {@inheritDoc} */
     public int getCoverageSize() {
         return cm.getCoverageSize();
@@ -71,7 +80,11 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
 
     /** {@inheritDoc} */
     public int getCoverageIndex(int gid) {
-        return cm.getCoverageIndex(gid);
+        if (flattened != null) {
+            return flattened.getMappedIndex(gid);
+        } else {
+            return cm.getCoverageIndex(gid);
+        }
     }
 
     /**
@@ -94,6 +107,38 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         return new GlyphCoverageTable(cm);
     }
 
+    /**
+     * Create glyph coverage table from an array of glyphs (coverage format 1).
+     * @param glyphs covered glyphs, in ascending order
+     * @return a new coverage table instance
+     */
+    public static GlyphCoverageTable createMappedCoverageTable(int[] glyphs) {
+        GlyphCoverageMapping cm;
+        if (glyphs.length == 0) {
+            cm = new EmptyCoverageTable(null);
+        } else {
+            cm = new MappedCoverageTable(glyphs);
+        }
+        return new GlyphCoverageTable(cm);
+    }
+
+    /**
+     * Create glyph coverage table from arrays of glyph ranges (coverage format 2).
+     * @param starts (inclusive) starts of glyph ranges, in ascending order
+     * @param ends (inclusive) ends of glyph ranges
+     * @param indices coverage indices of the starts of the glyph ranges
+     * @return a new coverage table instance
+     */
+    public static GlyphCoverageTable createRangeCoverageTable(int[] starts, int[] ends, int[] indices) {
+        GlyphCoverageMapping cm;
+        if (starts.length == 0) {
+            cm = new EmptyCoverageTable(null);
+        } else {
+            cm = new RangeCoverageTable(starts, ends, indices);
+        }
+        return new GlyphCoverageTable(cm);
+    }
+
     private static boolean isMappedCoverage(List entries) {
         if ((entries == null) || (entries.size() == 0)) {
             return false;
@@ -137,7 +182,19 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
     private static class MappedCoverageTable extends GlyphMappingTable.MappedMappingTable implements GlyphCoverageMapping {
         private int[] map;
         public MappedCoverageTable(List entries) {
-            populate(entries);
+            int[] glyphs = new int [ entries.size() ];
+            int i = 0;
+            for (Object o : entries) {
+                if (o instanceof Integer) {
+                    glyphs [ i++ ] = (Integer) o;
+                } else {
+                    throw new AdvancedTypographicTableFormatException("illegal coverage entry, must be Integer: " + o);
+                }
+            }
+            populate(glyphs);
+        }
+        public MappedCoverageTable(int[] glyphs) {
+            populate(glyphs);
         }
         /** {@inheritDoc} */
         public List getEntries() {
@@ -153,6 +210,20 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         public int getMappingSize() {
             return (map != null) ? map.length : 0;
         }
+        /** {@inheritDoc} */
+        public int[] getGlyphRanges() {
+            int[] ranges = new int [ map.length * 2 ];
+            int n = 0;
+            for (int gid : map) {
+                if ((n > 0) && (ranges [ n - 1 ] == gid - 1)) {
+                    ranges [ n - 1 ] = gid;
+                } else {
+                    ranges [ n++ ] = gid;
+                    ranges [ n++ ] = gid;
+                }
+            }
+            return Arrays.copyOf(ranges, n);
+        }
         public int getMappedIndex(int gid) {
             int i;
             if ((i = Arrays.binarySearch(map, gid)) >= 0) {
@@ -169,32 +240,27 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         public int getCoverageIndex(int gid) {
             return getMappedIndex(gid);
         }
-        private void populate(List entries) {
+        private void populate(int[] glyphs) {
             int i = 0;
             int skipped = 0;
-            int n = entries.size();
+            int n = glyphs.length;
             int gidMax = -1;
             int[] map = new int [ n ];
-            for (Object o : entries) {
-                if (o instanceof Integer) {
-                    int gid = (Integer) o;
-                    if ((gid >= 0) && (gid < 65536)) {
-                        if (gid > gidMax) {
-                            map[i++] = gidMax = gid;
-                        } else {
-                            log.info("ignoring out of order or duplicate glyph index: " + gid);
-                            skipped++;
-                        }
+            for (int gid : glyphs) {
+                if ((gid >= 0) && (gid < 65536)) {
+                    if (gid > gidMax) {
+                        map[i++] = gidMax = gid;
                     } else {
-                        throw new AdvancedTypographicTableFormatException("illegal glyph index: " + gid);
+                        log.info("ignoring out of order or duplicate glyph index: " + gid);
+                        skipped++;
                     }
                 } else {
-                    throw new AdvancedTypographicTableFormatException("illegal coverage entry, must be Integer: " + o);
+                    throw new AdvancedTypographicTableFormatException("illegal glyph index: " + gid);
                 }
             }
             assert (i + skipped) == n;
             assert this.map == null;
-            this.map = map;
+            this.map = (skipped > 0) ? Arrays.copyOf(map, i) : map;
         }
         /** {@inheritDoc} */
         public String toString() {
@@ -215,6 +281,9 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         public RangeCoverageTable(List entries) {
             super(entries);
         }
+        public RangeCoverageTable(int[] starts, int[] ends, int[] indices) {
+            super(starts, ends, indices);
+        }
         /** {@inheritDoc} */
         public int getMappedIndex(int gid, int s, int m) {
             return m + gid - s;
@@ -77,6 +77,15 @@ public class GlyphMappingTable {
         return -1;
     }
 
+    /**
+     * Obtain the glyphs in the domain of the mapping table as ranges of glyph identifiers. Unlike
+     * {@link #getEntries()}, this doesn't box the entries.
+     * @return array of inclusive [start,end] glyph ranges in ascending order, two elements per range
+     */
+    public int[] getGlyphRanges() {
+        return new int[0];
+    }
+
     /** empty mapping table base class */
     protected static class EmptyMappingTable extends GlyphMappingTable {
         /**
@@ -122,6 +131,67 @@ public class GlyphMappingTable {
         }
     }
 
+    /**
+     * A mapping table flattened into an array indexed by glyph identifier, so mapping a glyph
+     * takes a single array access instead of a search.
+     */
+    static final class FlattenedMapping {
+
+        /** maximum ratio of the size of the array to the number of mapped glyphs */
+        private static final int MAX_SPREAD = 4;
+
+        /** number of unmapped glyphs in the array that are always acceptable */
+        private static final int MIN_GAP = 32;
+
+        private final int firstGlyph;
+        private final int[] index;
+
+        private FlattenedMapping(int firstGlyph, int[] index) {
+            this.firstGlyph = firstGlyph;
+            this.index = index;
+        }
+
+        /**
+         * Flatten a mapping table, if its glyphs are dense enough for the array not to be much
+         * larger than the table itself.
+         * @param table the mapping table
+         * @return the flattened mapping, or null if the table is empty or too sparse
+         */
+        static FlattenedMapping flatten(GlyphMappingTable table) {
+            int[] ranges = table.getGlyphRanges();
+            if (ranges.length == 0) {
+                return null;
+            }
+            int firstGlyph = ranges[0];
+            int span = ranges[ranges.length - 1] - firstGlyph + 1;
+            int count = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                count += ranges[i + 1] - ranges[i] + 1;
+            }
+            if (span > MAX_SPREAD * count + MIN_GAP) {
+                return null;
+            }
+            int[] index = new int[span];
+            Arrays.fill(index, -1);
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int gid = ranges[i]; gid <= ranges[i + 1]; gid++) {
+                    index[gid - firstGlyph] = table.getMappedIndex(gid);
+                }
+            }
+            return new FlattenedMapping(firstGlyph, index);
+        }
+
+        /**
+         * Map glyph identifier (code) to mapping index.
+         * @param gid glyph identifier (code)
+         * @return non-negative glyph mapping index or -1 if glyph identifiers is not mapped by table
+         */
+        int getMappedIndex(int gid) {
+            int i = gid - firstGlyph;
+            return ((i >= 0) && (i < index.length)) ? index[i] : -1;
+        }
+    }
+
     /** range mapping table base class */
     protected abstract static class RangeMappingTable extends GlyphMappingTable {
         private int[] sa;                                                // array of range (inclusive) starts
@@ -133,7 +203,35 @@ public class GlyphMappingTable {
          * @param entries of mapping ranges
          */
         public RangeMappingTable(List entries) {
-            populate(entries);
+            int n = entries.size();
+            int[] sa = new int [ n ];
+            int[] ea = new int [ n ];
+            int[] ma = new int [ n ];
+            int i = 0;
+            for (Object o : entries) {
+                if (o instanceof MappingRange) {
+                    MappingRange r = (MappingRange) o;
+                    sa[i] = r.getStart();
+                    ea[i] = r.getEnd();
+                    ma[i] = r.getIndex();
+                    i++;
+                } else {
+                    throw new AdvancedTypographicTableFormatException("illegal mapping entry, must be Integer: " + o);
+                }
+            }
+            populate(sa, ea, ma);
+        }
+        /**
+         * Construct range mapping table.
+         * @param starts (inclusive) starts of mapping ranges
+         * @param ends (inclusive) ends of mapping ranges
+         * @param indices mapping values of mapping ranges
+         */
+        public RangeMappingTable(int[] starts, int[] ends, int[] indices) {
+            if ((starts.length != ends.length) || (starts.length != indices.length)) {
+                throw new AdvancedTypographicTableFormatException("mismatched mapping range arrays");
+            }
+            populate(starts.clone(), ends.clone(), indices.clone());
         }
         /** {@inheritDoc} */
         public int getType() {
@@ -154,6 +252,15 @@ public class GlyphMappingTable {
             return miMax + 1;
         }
         /** {@inheritDoc} */
+        public int[] getGlyphRanges() {
+            int[] ranges = new int [ sa.length * 2 ];
+            for (int i = 0, n = sa.length; i < n; i++) {
+                ranges [ i * 2 ] = sa [ i ];
+                ranges [ i * 2 + 1 ] = ea [ i ];
+            }
+            return ranges;
+        }
+        /** {@inheritDoc} */
         public int getMappedIndex(int gid) {
             int i;
             int mi;
@@ -177,45 +284,31 @@ public class GlyphMappingTable {
          * @return non-negative glyph mapping index or -1 if glyph identifiers is not mapped by table
          */
         public abstract int getMappedIndex(int gid, int s, int m);
-        private void populate(List entries) {
-            int i = 0;
-            int n = entries.size();
+        private void populate(int[] sa, int[] ea, int[] ma) {
             int gidMax = -1;
             int miMax = -1;
-            int[] sa = new int [ n ];
-            int[] ea = new int [ n ];
-            int[] ma = new int [ n ];
-            for (Object o : entries) {
-                if (o instanceof MappingRange) {
-                    MappingRange r = (MappingRange) o;
-                    int gs = r.getStart();
-                    int ge = r.getEnd();
-                    int mi = r.getIndex();
-                    if ((gs < 0) || (gs > 65535)) {
-                        throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: bad start index");
-                    } else if ((ge < 0) || (ge > 65535)) {
-                        throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: bad end index");
-                    } else if (gs > ge) {
-                        throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: start index exceeds end index");
-                    } else if (gs < gidMax) {
-                        throw new AdvancedTypographicTableFormatException("out of order glyph range: [" + gs + "," + ge + "]");
-                    } else if (mi < 0) {
-                        throw new AdvancedTypographicTableFormatException("illegal mapping index: " + mi);
-                    } else {
-                        int miLast;
-                        sa[i] = gs;
-                        ea[i] = gidMax = ge;
-                        ma[i] = mi;
-                        if ((miLast = mi + (ge - gs)) > miMax) {
-                            miMax = miLast;
-                        }
-                        i++;
-                    }
+            for (int i = 0, n = sa.length; i < n; i++) {
+                int gs = sa [ i ];
+                int ge = ea [ i ];
+                int mi = ma [ i ];
+                if ((gs < 0) || (gs > 65535)) {
+                    throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: bad start index");
+                } else if ((ge < 0) || (ge > 65535)) {
+                    throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: bad end index");
+                } else if (gs > ge) {
+                    throw new AdvancedTypographicTableFormatException("illegal glyph range: [" + gs + "," + ge + "]: start index exceeds end index");
+                } else if (gs < gidMax) {
+                    throw new AdvancedTypographicTableFormatException("out of order glyph range: [" + gs + "," + ge + "]");
+                } else if (mi < 0) {
+                    throw new AdvancedTypographicTableFormatException("illegal mapping index: " + mi);
                 } else {
-                    throw new AdvancedTypographicTableFormatException("illegal mapping entry, must be Integer: " + o);
+                    int miLast;
+                    gidMax = ge;
+                    if ((miLast = mi + (ge - gs)) > miMax) {
+                        miMax = miLast;
+                    }
                 }
             }
-            assert i == n;
             assert this.sa == null;
             assert this.ea == null;
             assert this.ma == null;
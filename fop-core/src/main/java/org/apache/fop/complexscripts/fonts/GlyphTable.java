@@ -19,9 +19,10 @@
 
 package org.apache.fop.complexscripts.fonts;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,6 +30,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -69,8 +72,9 @@ public class GlyphTable {
     // map from lookup identifiers to lookup tables
     private Map<String, LookupTable> lookupTables;
 
-    // cache for lookups matching
-    private Map<LookupSpec, Map<LookupSpec, List<LookupTable>>> matchedLookups;
+    // cache for lookups matching, filled during layout; the table may be shared by documents
+    // laid out concurrently (see MultiByteFont#newDocumentInstance)
+    private ConcurrentMap<LookupSpec, Map<LookupSpec, List<LookupTable>>> matchedLookups;
 
     // if true, then prevent further subtable addition
     private boolean frozen;
@@ -93,7 +97,7 @@ public class GlyphTable {
             this.gdef = gdef;
             this.lookups = lookups;
             this.lookupTables = new LinkedHashMap<String, LookupTable>();
-            this.matchedLookups = new HashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
+            this.matchedLookups = new ConcurrentHashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
         }
     }
 
@@ -225,7 +229,10 @@ public class GlyphTable {
                 LookupSpec ls = (LookupSpec) aLsl;
                 lm.put(ls, findLookupTables(ls));
             }
-            matchedLookups.put(lsm, lm);
+            Map<LookupSpec, List<LookupTable>> other = matchedLookups.putIfAbsent(lsm, lm);
+            if (other != null) {
+                lm = other;
+            }
         }
         if (lm.isEmpty() && !OTFScript.isDefault(script) && !OTFScript.isWildCard(script)) {
             return matchLookups(OTFScript.DEFAULT, OTFLanguage.DEFAULT, feature);
@@ -477,6 +484,7 @@ public class GlyphTable {
         // frozen state
         private GlyphSubtable[] subtablesArray;
         private static GlyphSubtable[] subtablesArrayEmpty       = new GlyphSubtable[0];
+        private BitSet firstGlyphs;                             // glyphs a subtable may apply at, or null if unknown
 
         /**
          * Instantiate a LookupTable.
@@ -596,6 +604,7 @@ public class GlyphTable {
                 GlyphSubtable[] sta = getSubtables();
                 resolveLookupReferences(sta, lookupTables);
                 this.subtablesArray = sta;
+                this.firstGlyphs = compileFirstGlyphs(sta);
                 this.frozen = true;
             }
         }
@@ -610,6 +619,73 @@ public class GlyphTable {
             }
         }
 
+        /**
+         * Collect the glyphs any of the subtables may apply at. Every subtable only applies at a
+         * glyph in its coverage, so a glyph sequence without any of these glyphs doesn't need to
+         * be processed at all.
+         * @return the glyphs, or null if they can't be determined
+         */
+        private static BitSet compileFirstGlyphs(GlyphSubtable[] subtables) {
+            if (subtables == null) {
+                return null;
+            }
+            BitSet glyphs = new BitSet();
+            for (GlyphSubtable st : subtables) {
+                GlyphCoverageMapping coverage = st.getCoverage();
+                if (coverage instanceof GlyphMappingTable) {
+                    int[] ranges = ((GlyphMappingTable) coverage).getGlyphRanges();
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        glyphs.set(ranges[i], ranges[i + 1] + 1);
+                    }
+                } else if (coverage != null) {
+                    return null;
+                }
+            }
+            return glyphs;
+        }
+
+        /**
+         * Determine if any subtable may apply to a glyph sequence.
+         * @param gs a glyph sequence
+         * @return false if no subtable applies at any glyph of the sequence
+         */
+        private boolean mayApply(GlyphSequence gs) {
+            if (firstGlyphs == null) {
+                return true;
+            }
+            for (int i = 0, n = gs.getGlyphCount(); i < n; i++) {
+                if (firstGlyphs.get(gs.getGlyph(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy a glyph sequence the way substitution does when no subtable applies, i.e.,
+         * omitting deleted glyphs (65535).
+         * @param gs a glyph sequence
+         * @return a copy of the glyph sequence, or the glyph sequence itself if the copy would be empty
+         */
+        private static GlyphSequence copyUnsubstituted(GlyphSequence gs) {
+            int ng = gs.getGlyphCount();
+            IntBuffer glyphs = IntBuffer.allocate(ng);
+            List associations = new ArrayList(ng);
+            for (int i = 0; i < ng; i++) {
+                int gi = gs.getGlyph(i);
+                if (gi != 65535) {
+                    glyphs.put(gi);
+                    associations.add(gs.getAssociation(i));
+                }
+            }
+            if (glyphs.position() > 0) {
+                glyphs.flip();
+                return new GlyphSequence(gs.getCharacters(), glyphs, associations);
+            } else {
+                return gs;
+            }
+        }
+
         /**
          * Determine if this glyph table performs substitution.
          * @return true if it performs substitution
@@ -628,10 +704,12 @@ public class GlyphTable {
          * @return the substituted (output) glyph sequence
          */
         public GlyphSequence substitute(GlyphSequence gs, String script, String language, String feature, ScriptContextTester sct) {
-            if (performsSubstitution()) {
-                return GlyphSubstitutionSubtable.substitute(gs, script, language, feature, (GlyphSubstitutionSubtable[]) subtablesArray, sct);
-            } else {
+            if (!performsSubstitution()) {
                 return gs;
+            } else if (!mayApply(gs)) {
+                return copyUnsubstituted(gs);
+            } else {
+                return GlyphSubstitutionSubtable.substitute(gs, script, language, feature, (GlyphSubstitutionSubtable[]) subtablesArray, sct);
             }
         }
 
@@ -671,7 +749,7 @@ public class GlyphTable {
          * @return true if some adjustment is not zero; otherwise, false
          */
         public boolean position(GlyphSequence gs, String script, String language, String feature, int fontSize, int[] widths, int[][] adjustments, ScriptContextTester sct) {
-            if (performsPositioning()) {
+            if (performsPositioning() && mayApply(gs)) {
                 return GlyphPositioningSubtable.position(gs, script, language, feature, fontSize, (GlyphPositioningSubtable[]) subtablesArray, widths, adjustments, sct);
             } else {
                 return false;
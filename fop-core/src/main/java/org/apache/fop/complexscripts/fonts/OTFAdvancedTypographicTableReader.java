@@ -547,7 +547,6 @@ public final class OTFAdvancedTypographicTableReader {
     }
 
     private GlyphCoverageTable readCoverageTableFormat1(String label, long tableOffset, int coverageFormat) throws IOException {
-        List entries = new java.util.ArrayList();
         in.seekSet(tableOffset);
         // skip over format (already known)
         in.skip(2);
@@ -555,38 +554,37 @@ public final class OTFAdvancedTypographicTableReader {
         int ng = in.readTTFUShort();
         int[] ga = new int[ng];
         for (int i = 0, n = ng; i < n; i++) {
-            int g = in.readTTFUShort();
-            ga[i] = g;
-            entries.add(g);
+            ga[i] = in.readTTFUShort();
         }
         // dump info if debugging
         if (log.isDebugEnabled()) {
             log.debug(label + " glyphs: " + toString(ga));
         }
-        return GlyphCoverageTable.createCoverageTable(entries);
+        return GlyphCoverageTable.createMappedCoverageTable(ga);
     }
 
     private GlyphCoverageTable readCoverageTableFormat2(String label, long tableOffset, int coverageFormat) throws IOException {
-        List entries = new java.util.ArrayList();
         in.seekSet(tableOffset);
         // skip over format (already known)
         in.skip(2);
         // read range record count
         int nr = in.readTTFUShort();
+        int[] sa = new int[nr];
+        int[] ea = new int[nr];
+        int[] ma = new int[nr];
         for (int i = 0, n = nr; i < n; i++) {
             // read range start
-            int s = in.readTTFUShort();
+            int s = sa[i] = in.readTTFUShort();
             // read range end
-            int e = in.readTTFUShort();
+            int e = ea[i] = in.readTTFUShort();
             // read range coverage (mapping) index
-            int m = in.readTTFUShort();
+            int m = ma[i] = in.readTTFUShort();
             // dump info if debugging
             if (log.isDebugEnabled()) {
                 log.debug(label + " range[" + i + "]: [" + s + "," + e + "]: " + m);
             }
-            entries.add(new GlyphCoverageTable.MappingRange(s, e, m));
         }
-        return GlyphCoverageTable.createCoverageTable(entries);
+        return GlyphCoverageTable.createRangeCoverageTable(sa, ea, ma);
     }
 
     private GlyphCoverageTable readCoverageTable(String label, long tableOffset) throws IOException {
@@ -607,50 +605,47 @@ public final class OTFAdvancedTypographicTableReader {
     }
 
     private GlyphClassTable readClassDefTableFormat1(String label, long tableOffset, int classFormat) throws IOException {
-        List entries = new java.util.ArrayList();
         in.seekSet(tableOffset);
         // skip over format (already known)
         in.skip(2);
         // read start glyph
         int sg = in.readTTFUShort();
-        entries.add(sg);
         // read glyph count
         int ng = in.readTTFUShort();
         // read glyph classes
         int[] ca = new int[ng];
         for (int i = 0, n = ng; i < n; i++) {
-            int gc = in.readTTFUShort();
-            ca[i] = gc;
-            entries.add(gc);
+            ca[i] = in.readTTFUShort();
         }
         // dump info if debugging
         if (log.isDebugEnabled()) {
             log.debug(label + " glyph classes: " + toString(ca));
         }
-        return GlyphClassTable.createClassTable(entries);
+        return GlyphClassTable.createMappedClassTable(sg, ca);
     }
 
     private GlyphClassTable readClassDefTableFormat2(String label, long tableOffset, int classFormat) throws IOException {
-        List entries = new java.util.ArrayList();
         in.seekSet(tableOffset);
         // skip over format (already known)
         in.skip(2);
         // read range record count
         int nr = in.readTTFUShort();
+        int[] sa = new int[nr];
+        int[] ea = new int[nr];
+        int[] ma = new int[nr];
         for (int i = 0, n = nr; i < n; i++) {
             // read range start
-            int s = in.readTTFUShort();
+            int s = sa[i] = in.readTTFUShort();
             // read range end
-            int e = in.readTTFUShort();
+            int e = ea[i] = in.readTTFUShort();
             // read range glyph class (mapping) index
-            int m = in.readTTFUShort();
+            int m = ma[i] = in.readTTFUShort();
             // dump info if debugging
             if (log.isDebugEnabled()) {
                 log.debug(label + " range[" + i + "]: [" + s + "," + e + "]: " + m);
             }
-            entries.add(new GlyphClassTable.MappingRange(s, e, m));
         }
-        return GlyphClassTable.createClassTable(entries);
+        return GlyphClassTable.createRangeClassTable(sa, ea, ma);
     }
 
     private GlyphClassTable readClassDefTable(String label, long tableOffset) throws IOException {
@@ -20,9 +20,10 @@
 package org.apache.fop.complexscripts.scripts;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.fop.complexscripts.fonts.GlyphDefinitionTable;
 import org.apache.fop.complexscripts.fonts.GlyphPositioningTable;
@@ -45,7 +46,9 @@ public abstract class ScriptProcessor {
 
     private final String script;
 
-    private final Map<AssembledLookupsKey, GlyphTable.UseSpec[]> assembledLookups;
+    // filled during layout; processors belong to the tables of a font, which may be shared by
+    // documents laid out concurrently
+    private final ConcurrentMap<AssembledLookupsKey, GlyphTable.UseSpec[]> assembledLookups;
 
     /**
      * Instantiate a script processor.
@@ -56,7 +59,7 @@ public abstract class ScriptProcessor {
             throw new IllegalArgumentException("script must be non-empty string");
         } else {
             this.script = script;
-            this.assembledLookups = new HashMap<AssembledLookupsKey, GlyphTable.UseSpec[]>();
+            this.assembledLookups = new ConcurrentHashMap<AssembledLookupsKey, GlyphTable.UseSpec[]>();
         }
     }
 
@@ -219,8 +222,8 @@ public abstract class ScriptProcessor {
     }
 
     private GlyphTable.UseSpec[]  assembledLookupsPut(AssembledLookupsKey key, GlyphTable.UseSpec[] usa) {
-        assembledLookups.put(key, usa);
-        return usa;
+        GlyphTable.UseSpec[] other = assembledLookups.putIfAbsent(key, usa);
+        return other != null ? other : usa;
     }
 
     /**
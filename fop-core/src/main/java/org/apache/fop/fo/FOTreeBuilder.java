@@ -113,11 +113,19 @@ public class FOTreeBuilder extends DefaultHandler {
                     foUserAgent.getStructureTreeEventHandler(), foEventHandler);
         }
         builderContext = new FOTreeBuilderContext();
-        builderContext.setPropertyListMaker(new PropertyListMaker() {
-            public PropertyList make(FObj fobj, PropertyList parentPropertyList) {
-                return new StaticPropertyList(fobj, parentPropertyList);
-            }
-        });
+        if (userAgent.isSparsePropertyLists()) {
+            builderContext.setPropertyListMaker(new PropertyListMaker() {
+                public PropertyList make(FObj fobj, PropertyList parentPropertyList) {
+                    return new SparsePropertyList(fobj, parentPropertyList);
+                }
+            });
+        } else {
+            builderContext.setPropertyListMaker(new PropertyListMaker() {
+                public PropertyList make(FObj fobj, PropertyList parentPropertyList) {
+                    return new StaticPropertyList(fobj, parentPropertyList);
+                }
+            });
+        }
     }
 
     /** {@inheritDoc} */
@@ -169,7 +177,12 @@ public class FOTreeBuilder extends DefaultHandler {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Parsing of document complete");
         }
-        foEventHandler.endDocument();
+        try {
+            foEventHandler.endDocument();
+        } finally {
+            userAgent.disposeImagePrefetcher();
+            userAgent.disposeTableCellLayoutPool();
+        }
     }
 
     /** {@inheritDoc} */
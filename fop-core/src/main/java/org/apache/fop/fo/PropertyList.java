@@ -45,6 +45,7 @@ import org.apache.fop.fo.properties.CommonMarginInline;
 import org.apache.fop.fo.properties.CommonRelativePosition;
 import org.apache.fop.fo.properties.CommonTextDecoration;
 import org.apache.fop.fo.properties.Property;
+import org.apache.fop.fo.properties.PropertyExpressionCache;
 import org.apache.fop.fo.properties.PropertyMaker;
 
 /**
@@ -496,7 +497,13 @@ public abstract class PropertyList {
                     if (getExplicit(propId) != null) {
                         return;
                     }
-                    prop = propertyMaker.make(this, attributeValue, parentFO);
+                    PropertyExpressionCache cache = fobj.getUserAgent()
+                            .getPropertyExpressionCache();
+                    if (cache != null) {
+                        prop = cache.make(propertyMaker, attributeValue, this, parentFO);
+                    } else {
+                        prop = propertyMaker.make(this, attributeValue, parentFO);
+                    }
                 } else { // e.g. "leader-length.maximum"
                     Property baseProperty
                         = findBaseProperty(attributes, parentFO, propId,
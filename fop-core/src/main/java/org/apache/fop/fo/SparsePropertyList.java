@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo;
+
+import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.fo.properties.Property;
+
+/**
+ * A compact implementation of PropertyList that only stores the properties that are
+ * explicitly set or have actually been retrieved. Unlike {@link StaticPropertyList}, which
+ * allocates two arrays with a slot for every property, the properties are kept in small
+ * arrays sorted by property ID. This considerably reduces the allocation rate when building
+ * FO trees with many elements, at the price of a binary search per lookup.
+ */
+public class SparsePropertyList extends PropertyList {
+
+    private final PropertyMap explicit = new PropertyMap();
+    private final PropertyMap values = new PropertyMap();
+
+    /**
+     * Construct a SparsePropertyList.
+     * @param fObjToAttach The FObj object.
+     * @param parentPropertyList The parent property list.
+     */
+    public SparsePropertyList(FObj fObjToAttach, PropertyList parentPropertyList) {
+        super(fObjToAttach, parentPropertyList);
+    }
+
+    /**
+     * Return the value explicitly specified on this FO.
+     * @param propId The ID of the property whose value is desired.
+     * @return The value if the property is explicitly set, otherwise null.
+     */
+    public Property getExplicit(int propId) {
+        return explicit.get(propId);
+    }
+
+    /**
+     * Set an value defined explicitly on this FO.
+     * @param propId The ID of the property whose value is desired.
+     * @param value The value of the property to set.
+     */
+    public void putExplicit(int propId, Property value) {
+        explicit.put(propId, value);
+        // if the cached value is set overwrite it
+        values.replace(propId, value);
+    }
+
+    /**
+     * Override PropertyList.get() and provides caching of previously
+     * retrieved property values.
+     * {@inheritDoc}
+     */
+    public Property get(int propId, boolean bTryInherit, boolean bTryDefault)
+        throws PropertyException {
+        Property p = values.get(propId);
+        if (p == null) {
+            p = super.get(propId, bTryInherit, bTryDefault);
+            if (p != null) {
+                values.put(propId, p);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Map from property IDs to properties, stored as parallel arrays sorted by property ID.
+     */
+    private static final class PropertyMap {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private int[] ids;
+        private Property[] props;
+        private int size;
+
+        /*
+         * Properties are usually looked up again right after they have been added (inherited
+         * values by child elements, specified values by the FO's bind()), so the last entry
+         * is checked before searching.
+         */
+        private int lastIndex = -1;
+
+        Property get(int propId) {
+            int index = indexOf(propId);
+            return index < 0 ? null : props[index];
+        }
+
+        void put(int propId, Property value) {
+            if (size > 0 && propId > ids[size - 1]) {
+                //properties are often added in ascending order of their IDs
+                insert(size, propId, value);
+                return;
+            }
+            int index = indexOf(propId);
+            if (index >= 0) {
+                props[index] = value;
+            } else {
+                insert(-(index + 1), propId, value);
+            }
+        }
+
+        void replace(int propId, Property value) {
+            int index = indexOf(propId);
+            if (index >= 0) {
+                props[index] = value;
+            }
+        }
+
+        private int indexOf(int propId) {
+            if (lastIndex >= 0 && lastIndex < size && ids[lastIndex] == propId) {
+                return lastIndex;
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int id = ids[mid];
+                if (id < propId) {
+                    low = mid + 1;
+                } else if (id > propId) {
+                    high = mid - 1;
+                } else {
+                    lastIndex = mid;
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void insert(int index, int propId, Property value) {
+            if (ids == null) {
+                ids = new int[INITIAL_CAPACITY];
+                props = new Property[INITIAL_CAPACITY];
+            } else if (size == ids.length) {
+                int capacity = Math.min(size + (size >> 1), Constants.PROPERTY_COUNT + 1);
+                int[] newIds = new int[capacity];
+                Property[] newProps = new Property[capacity];
+                System.arraycopy(ids, 0, newIds, 0, index);
+                System.arraycopy(props, 0, newProps, 0, index);
+                System.arraycopy(ids, index, newIds, index + 1, size - index);
+                System.arraycopy(props, index, newProps, index + 1, size - index);
+                ids = newIds;
+                props = newProps;
+                store(index, propId, value);
+                return;
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(props, index, props, index + 1, size - index);
+            store(index, propId, value);
+        }
+
+        private void store(int index, int propId, Property value) {
+            ids[index] = propId;
+            props[index] = value;
+            size++;
+            lastIndex = index;
+        }
+    }
+}
@@ -39,7 +39,6 @@ import org.apache.fop.fo.properties.PropertyMaker;
 public class PropertyInfo {
     private PropertyMaker maker;
     private PropertyList plist;
-    private FObj fo;
     private Stack stkFunction;    // Stack of functions being evaluated
 
     /**
@@ -50,7 +49,6 @@ public class PropertyInfo {
     public PropertyInfo(PropertyMaker maker, PropertyList plist) {
         this.maker = maker;
         this.plist = plist;
-        this.fo = plist.getParentFObj();
     }
 
     /**
@@ -78,7 +76,7 @@ public class PropertyInfo {
      * @return FObj
      */
     public FObj getFO() {
-        return fo;
+        return plist.getParentFObj();
     }
 
     /**
@@ -326,7 +326,8 @@ public final class PropertyParser extends PropertyTokenizer {
             break;
 
         case TOK_COLORSPEC:
-            prop = ColorProperty.getInstance(propInfo.getUserAgent(), currentTokenValue);
+            //hex colors don't need the user agent, which keeps them context-independent
+            prop = ColorProperty.getInstance(null, currentTokenValue);
             break;
 
         case TOK_FUNCTION_LPAR:
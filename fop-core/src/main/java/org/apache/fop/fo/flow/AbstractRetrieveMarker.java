@@ -54,6 +54,8 @@ public abstract class AbstractRetrieveMarker extends FObjMixed {
 
     private StructureTreeElement structureTreeElement;
 
+    private Marker boundMarker;
+
     /**
      * Create a new AbstractRetrieveMarker instance that
      * is a child of the given {@link FONode}
@@ -198,11 +200,19 @@ public abstract class AbstractRetrieveMarker extends FObjMixed {
     }
 
     /**
-     * Clone the subtree of the given marker
+     * Clone the subtree of the given marker. If the marker is the one
+     * cloned the last time and {@link #isClonedSubtreeReusable()}, the subtree
+     * from then is kept and laid out again, like the rest of a static-content.
      *
      * @param marker the marker that is to be cloned
      */
     public void bindMarker(Marker marker) {
+        if (marker == boundMarker && firstChild != null && isClonedSubtreeReusable()
+                && !getUserAgent().isAccessibilityEnabled()) {
+            // with accessibility the cloning also fires the structure tree events
+            return;
+        }
+        boundMarker = null;
         // clean up remnants from a possible earlier layout
         if (firstChild != null) {
             currentTextNode = null;
@@ -212,6 +222,7 @@ public abstract class AbstractRetrieveMarker extends FObjMixed {
             try {
                 restoreFOEventHandlerState();
                 cloneFromMarker(marker);
+                boundMarker = marker;
             } catch (FOPException exc) {
                 getFOValidationEventProducer().markerCloningFailed(this,
                         marker.getMarkerClassName(), exc, getLocator());
@@ -223,6 +234,15 @@ public abstract class AbstractRetrieveMarker extends FObjMixed {
 
     protected abstract void restoreFOEventHandlerState();
 
+    /**
+     * Indicates whether the subtree cloned from a marker stays intact after it has been laid
+     * out, so that it can be laid out again if the same marker is bound next time.
+     * @return true if the cloned subtree can be reused
+     */
+    protected boolean isClonedSubtreeReusable() {
+        return false;
+    }
+
     /**
      * Return the value for the <code>retrieve-class-name</code>
      * property
@@ -21,12 +21,12 @@ package org.apache.fop.fo.flow;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.Future;
 
 import org.xml.sax.Locator;
 
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
-import org.apache.xmlgraphics.image.loader.ImageManager;
 
 import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOPException;
@@ -37,6 +37,7 @@ import org.apache.fop.fo.FONode;
 import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.ValidationException;
 import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.image.ImagePrefetcher;
 
 /**
  * Class modelling the <a href="http://www.w3.org/TR/xsl/#fo_external-graphic">
@@ -56,6 +57,8 @@ public class ExternalGraphic extends AbstractGraphics {
     private int intrinsicWidth;
     private int intrinsicHeight;
     private Length intrinsicAlignmentAdjust;
+    private Future<ImageInfo> imageInfoFuture;
+    private boolean imageInfoResolved;
 
     /**
      * Create a new ExternalGraphic node that is a child
@@ -74,11 +77,24 @@ public class ExternalGraphic extends AbstractGraphics {
 
         //Additional processing: obtain the image's intrinsic size and baseline information
         url = URISpecification.getURL(src);
+        ImagePrefetcher prefetcher = getUserAgent().getImagePrefetcher();
+        if (prefetcher != null) {
+            //Preload in the background, layout waits for the result when it needs it
+            imageInfoFuture = prefetcher.prefetch(url);
+        } else {
+            resolveImageInfo();
+        }
+    }
+
+    private void resolveImageInfo() {
+        if (imageInfoResolved) {
+            return;
+        }
+        imageInfoResolved = true;
         FOUserAgent userAgent = getUserAgent();
-        ImageManager manager = userAgent.getImageManager();
         ImageInfo info = null;
         try {
-            info = manager.getImageInfo(url, userAgent.getImageSessionContext());
+            info = ImagePrefetcher.getImageInfo(imageInfoFuture, url, userAgent);
         } catch (ImageException e) {
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                     getUserAgent().getEventBroadcaster());
@@ -92,6 +108,7 @@ public class ExternalGraphic extends AbstractGraphics {
                     getUserAgent().getEventBroadcaster());
             eventProducer.imageIOError(this, url, ioe, getLocator());
         }
+        imageInfoFuture = null;
         if (info != null) {
             this.intrinsicWidth = info.getSize().getWidthMpt();
             this.intrinsicHeight = info.getSize().getHeightMpt();
@@ -145,16 +162,19 @@ public class ExternalGraphic extends AbstractGraphics {
 
     /** {@inheritDoc} */
     public int getIntrinsicWidth() {
+        resolveImageInfo();
         return this.intrinsicWidth;
     }
 
     /** {@inheritDoc} */
     public int getIntrinsicHeight() {
+        resolveImageInfo();
         return this.intrinsicHeight;
     }
 
     /** {@inheritDoc} */
     public Length getIntrinsicAlignmentAdjust() {
+        resolveImageInfo();
         return this.intrinsicAlignmentAdjust;
     }
 
@@ -126,4 +126,14 @@ public class RetrieveMarker extends AbstractRetrieveMarker {
         getFOEventHandler().restoreState(this);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>An fo:retrieve-marker is only allowed in an fo:static-content, whose FO children
+     * are kept by the layout managers for the following pages.
+     */
+    @Override
+    protected boolean isClonedSubtreeReusable() {
+        return true;
+    }
+
 }
@@ -123,6 +123,16 @@ public class PrimaryGridUnit extends GridUnit {
         return this.elements;
     }
 
+    /**
+     * Releases the element list and the layout manager of this cell, and the content of the
+     * table-cell element, once all the areas of the cell have been added.
+     */
+    public void releaseLayout() {
+        elements = null;
+        cellLM = null;
+        cell.clearChildNodes();
+    }
+
     /**
      * Returns the widths of the border-before and -after for this cell. In the separate
      * border model the border-separation is included. In the collapsing model only half
@@ -52,7 +52,7 @@ public final class CharacterProperty extends Property {
 
     /** cache containing all canonical CharacterProperty instances */
     private static final PropertyCache<CharacterProperty> CACHE
-            = new PropertyCache<CharacterProperty>();
+            = new PropertyCache<CharacterProperty>(CharacterProperty.class);
 
     private final char character;
 
@@ -33,7 +33,7 @@ import org.apache.fop.util.ColorUtil;
 public final class ColorProperty extends Property  {
 
     /** cache holding canonical ColorProperty instances */
-    private static final PropertyCache<ColorProperty> CACHE = new PropertyCache<ColorProperty>();
+    private static final PropertyCache<ColorProperty> CACHE = new PropertyCache<ColorProperty>(ColorProperty.class);
 
     /**
      * The color represented by this property.
@@ -23,11 +23,10 @@ import java.awt.Color;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.Future;
 
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
-import org.apache.xmlgraphics.image.loader.ImageManager;
-import org.apache.xmlgraphics.image.loader.ImageSessionContext;
 
 import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOUserAgent;
@@ -38,6 +37,7 @@ import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.FObj;
 import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.image.ImagePrefetcher;
 import org.apache.fop.util.CompareUtil;
 
 /**
@@ -51,7 +51,7 @@ public class CommonBorderPaddingBackground {
      *  (w/ absolute background-position-* and padding-*)
      */
     private static final PropertyCache<CommonBorderPaddingBackground> CACHE
-            = new PropertyCache<CommonBorderPaddingBackground>();
+            = new PropertyCache<CommonBorderPaddingBackground>(CommonBorderPaddingBackground.class);
 
     private int hash = -1;
 
@@ -89,6 +89,9 @@ public class CommonBorderPaddingBackground {
     public final Length backgroungImageTargetHeight;
 
     private ImageInfo backgroundImageInfo;
+    //Pending background image (see resolveBackgroundImageInfo())
+    private Future<ImageInfo> backgroundImageFuture;
+    private FObj backgroundImageFObj;
 
 
     /** the "before" edge */
@@ -109,7 +112,7 @@ public class CommonBorderPaddingBackground {
 
         /** cache holding all canonical instances */
         private static final PropertyCache<BorderInfo> CACHE
-                = new PropertyCache<BorderInfo>();
+                = new PropertyCache<BorderInfo>(BorderInfo.class);
 
         private int mStyle; // Enum for border style
         private Color mColor; // Border color
@@ -424,25 +427,13 @@ public class CommonBorderPaddingBackground {
                 //Additional processing: preload image
                 String uri = URISpecification.getURL(newInstance.backgroundImage);
                 FObj fobj = pList.getFObj();
-                FOUserAgent userAgent = pList.getFObj().getUserAgent();
-                ImageManager manager = userAgent.getImageManager();
-                ImageSessionContext sessionContext = userAgent.getImageSessionContext();
-                ImageInfo info;
-                try {
-                    info = manager.getImageInfo(uri, sessionContext);
-                    newInstance.backgroundImageInfo = info;
-                } catch (ImageException e) {
-                    ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                            fobj.getUserAgent().getEventBroadcaster());
-                    eventProducer.imageError(fobj, uri, e, fobj.getLocator());
-                } catch (FileNotFoundException fnfe) {
-                    ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                            fobj.getUserAgent().getEventBroadcaster());
-                    eventProducer.imageNotFound(fobj, uri, fnfe, fobj.getLocator());
-                } catch (IOException ioe) {
-                    ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
-                            fobj.getUserAgent().getEventBroadcaster());
-                    eventProducer.imageIOError(fobj, uri, ioe, fobj.getLocator());
+                ImagePrefetcher prefetcher = fobj.getUserAgent().getImagePrefetcher();
+                newInstance.backgroundImageFObj = fobj;
+                if (prefetcher != null) {
+                    //Preload in the background, layout waits for the result when it needs it
+                    newInstance.backgroundImageFuture = prefetcher.prefetch(uri);
+                } else {
+                    newInstance.resolveBackgroundImageInfo();
                 }
             }
         }
@@ -489,11 +480,43 @@ public class CommonBorderPaddingBackground {
         }
     }
 
+    /**
+     * Obtains the background image's info object, waiting for the image to be prefetched
+     * if necessary. Errors are reported through the FO node which referenced the image first.
+     */
+    private synchronized void resolveBackgroundImageInfo() {
+        FObj fobj = backgroundImageFObj;
+        if (fobj == null) {
+            return;
+        }
+        String uri = URISpecification.getURL(backgroundImage);
+        FOUserAgent userAgent = fobj.getUserAgent();
+        try {
+            backgroundImageInfo = ImagePrefetcher.getImageInfo(backgroundImageFuture, uri,
+                    userAgent);
+        } catch (ImageException e) {
+            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
+                    userAgent.getEventBroadcaster());
+            eventProducer.imageError(fobj, uri, e, fobj.getLocator());
+        } catch (FileNotFoundException fnfe) {
+            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
+                    userAgent.getEventBroadcaster());
+            eventProducer.imageNotFound(fobj, uri, fnfe, fobj.getLocator());
+        } catch (IOException ioe) {
+            ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
+                    userAgent.getEventBroadcaster());
+            eventProducer.imageIOError(fobj, uri, ioe, fobj.getLocator());
+        }
+        backgroundImageFuture = null;
+        backgroundImageFObj = null;
+    }
+
     /**
      * @return the background image info object, null if there is
      *     no background image.
      */
     public ImageInfo getImageInfo() {
+        resolveBackgroundImageInfo();
         return this.backgroundImageInfo;
     }
 
@@ -797,7 +820,7 @@ public class CommonBorderPaddingBackground {
      * @return the background image info
      */
     public ImageInfo getBackgroundImageInfo() {
-        return backgroundImageInfo;
+        return getImageInfo();
     }
 
     /**
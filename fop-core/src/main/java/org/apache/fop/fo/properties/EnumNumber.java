@@ -30,7 +30,7 @@ public final class EnumNumber extends Property implements Numeric {
 
     /** cache holding all canonical EnumNumber instances */
     private static final PropertyCache<EnumNumber> CACHE
-            = new PropertyCache<EnumNumber>();
+            = new PropertyCache<EnumNumber>(EnumNumber.class);
 
     private final EnumProperty enumProperty;
 
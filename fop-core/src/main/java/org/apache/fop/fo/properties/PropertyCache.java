@@ -19,14 +19,15 @@
 
 package org.apache.fop.fo.properties;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,38 +36,43 @@ import org.apache.commons.logging.LogFactory;
  * Thread-safe cache that minimizes the memory requirements by fetching an instance from the cache
  * that is equal to the given one. Internally the instances are stored in WeakReferences in order to
  * be reclaimed when they are no longer referenced.
+ * <p>
+ * Instances are grouped by their hash code; instances with the same hash code that aren't equal
+ * are kept side by side, so colliding instances don't evict each other. Entries whose referents
+ * have been reclaimed are removed as the garbage collector reports them through a reference
+ * queue. Every cache counts hits, misses and hash code collisions; all caches are available
+ * through {@link #getCaches()} for monitoring.
  * @param <T> The type of values that are cached
  */
 public final class PropertyCache<T> {
 
     private static final Log LOG = LogFactory.getLog(PropertyCache.class);
 
+    private static final List<PropertyCache<?>> CACHES
+            = new CopyOnWriteArrayList<PropertyCache<?>>();
+
     /**
      * Determines if the cache is used based on the value of the system property
      * org.apache.fop.fo.properties.use-cache
      */
     private final boolean useCache;
 
-    /**
-     * The underlying map that stores WeakReferences to the cached entries. The map keys are the
-     * hashCode of the cached entries. The map values are a WeakRefence to the cached entries. When
-     * two cached entries have the same hash code, the last one is kept but this should be an
-     * exception case (otherwise the hashCode() method of T needs to be fixed).
-     */
-    private final ConcurrentMap<Integer, WeakReference<T>> map;
+    private final String name;
 
     /**
-     * Counts the number of entries put in the map in order to periodically check and remove the
-     * entries whose referents have been reclaimed.
+     * The underlying map from hash codes to the buckets holding WeakReferences to the cached
+     * entries with that hash code.
      */
-    private final AtomicInteger putCounter;
+    private final ConcurrentMap<Integer, Bucket<T>> map;
 
-    /**
-     * Lock to prevent concurrent cleanup of the map.
-     */
-    private final Lock cleanupLock;
+    /** The queue the garbage collector puts the references of reclaimed entries on. */
+    private final ReferenceQueue<T> queue;
 
-    private final AtomicInteger hashCodeCollisionCounter;
+    private final AtomicInteger size;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter collisions;
 
     /**
      * Creates a new cache. The "org.apache.fop.fo.properties.use-cache" system
@@ -74,8 +80,21 @@ public final class PropertyCache<T> {
      * cached or not. If not, then the {@link #fetch(Object)} method will simply
      * return its argument. To enable the cache, set this property to "true"
      * (case insensitive).
+     * @param type the type of the cached values, used to identify the cache
+     */
+    public PropertyCache(Class<?> type) {
+        this(type.getName());
+    }
+
+    /**
+     * Creates a new cache.
+     * @see #PropertyCache(Class)
      */
     public PropertyCache() {
+        this(PropertyCache.class.getName());
+    }
+
+    private PropertyCache(String name) {
         boolean useCache;
         try {
             useCache = Boolean.valueOf(
@@ -85,16 +104,22 @@ public final class PropertyCache<T> {
             LOG.info("Unable to access org.apache.fop.fo.properties.use-cache"
                    + " due to security restriction; defaulting to 'true'.");
         }
+        this.name = name;
         if (useCache) {
-            this.map = new ConcurrentHashMap<Integer, WeakReference<T>>();
-            this.putCounter = new AtomicInteger();
-            this.cleanupLock = new ReentrantLock();
-            this.hashCodeCollisionCounter = new AtomicInteger();
+            this.map = new ConcurrentHashMap<Integer, Bucket<T>>();
+            this.queue = new ReferenceQueue<T>();
+            this.size = new AtomicInteger();
+            this.hits = new Counter();
+            this.misses = new Counter();
+            this.collisions = new Counter();
+            CACHES.add(this);
         } else {
             this.map = null;
-            this.putCounter = null;
-            this.cleanupLock = null;
-            this.hashCodeCollisionCounter = null;
+            this.queue = null;
+            this.size = null;
+            this.hits = null;
+            this.misses = null;
+            this.collisions = null;
         }
         this.useCache = useCache;
     }
@@ -115,80 +140,220 @@ public final class PropertyCache<T> {
             return null;
         }
 
-        Integer hashCode = obj.hashCode();
-
-        WeakReference<T> weakRef = map.get(hashCode);
-        if (weakRef == null) {
-            weakRef = map.putIfAbsent(hashCode, new WeakReference<T>(obj));
-            attemptCleanup();
+        expungeReclaimedEntries();
 
-            if (weakRef == null) {
-                return obj;
+        Integer hashCode = obj.hashCode();
+        Bucket<T> bucket = map.get(hashCode);
+        if (bucket != null) {
+            T cached = bucket.find(obj);
+            if (cached != null) {
+                hits.increment();
+                return cached;
             }
-            // else another thread added a value, continue.
         }
+        misses.increment();
 
-        T cached = weakRef.get();
-        if (cached != null) {
-            if (eq(cached, obj)) {
-                return cached;
-            } else {
-                /*
-                 * Log a message when obj.getClass() does not implement correctly the equals() or
-                 * hashCode() method. It is expected that only very few objects will have the
-                 * same hashCode but will not be equal.
-                 */
-                if ((hashCodeCollisionCounter.incrementAndGet() % 10) == 0) {
-                    LOG.info(hashCodeCollisionCounter.get() + " hashCode() collisions for "
-                            + obj.getClass().getName());
+        while (true) {
+            if (bucket == null) {
+                bucket = new Bucket<T>(new Entry<T>(obj, hashCode, queue));
+                Bucket<T> existing = map.putIfAbsent(hashCode, bucket);
+                if (existing == null) {
+                    size.incrementAndGet();
+                    return obj;
+                }
+                bucket = existing;
+            }
+            synchronized (bucket) {
+                if (!bucket.removed) {
+                    // Another thread might have added an equal object in the meantime
+                    T cached = bucket.find(obj);
+                    if (cached != null) {
+                        return cached;
+                    }
+                    if (bucket.add(new Entry<T>(obj, hashCode, queue))) {
+                        /*
+                         * Other objects with the same hash code are cached. That's fine, but if
+                         * it happens often, the hashCode() method of T needs to be fixed.
+                         */
+                        collisions.increment();
+                    }
+                    size.incrementAndGet();
+                    return obj;
                 }
             }
+            // The bucket has been emptied and removed concurrently, start over
+            bucket = map.get(hashCode);
+        }
+    }
 
+    @SuppressWarnings("unchecked")
+    private void expungeReclaimedEntries() {
+        Entry<T> entry;
+        while ((entry = (Entry<T>) queue.poll()) != null) {
+            Integer hashCode = entry.hash;
+            Bucket<T> bucket = map.get(hashCode);
+            if (bucket != null) {
+                synchronized (bucket) {
+                    if (bucket.remove(entry)) {
+                        size.decrementAndGet();
+                        if (bucket.isEmpty()) {
+                            bucket.removed = true;
+                            map.remove(hashCode, bucket);
+                        }
+                    }
+                }
+            }
         }
+    }
 
-        // Adds a new or replaces an existing entry with obj that has the same hash code
-        map.put(hashCode, new WeakReference<T>(obj));
-        attemptCleanup();
-        return obj;
+    /** @return the name of the cache (the name of the cached type) */
+    public String getName() {
+        return name;
+    }
 
-        /*
-         * Another thread might add first. We could check this using map.replace() instead of
-         * map.put() and then recursively call fetch(obj). But if in the meantime, garbage
-         * collection kicks in, we might end up with a StackOverflowException. Not caching an entry
-         * is tolerable, after all it's configurable.
-         */
+    /** @return the number of cached objects (including reclaimed ones not yet removed) */
+    public int size() {
+        return useCache ? size.get() : 0;
+    }
+
+    /** @return the number of calls to {@link #fetch(Object)} that returned a cached object */
+    public long getHitCount() {
+        return useCache ? hits.get() : 0;
+    }
+
+    /** @return the number of calls to {@link #fetch(Object)} that added the object */
+    public long getMissCount() {
+        return useCache ? misses.get() : 0;
+    }
+
+    /**
+     * @return the number of objects added while another, unequal object with the same hash
+     * code was cached
+     */
+    public long getCollisionCount() {
+        return useCache ? collisions.get() : 0;
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return name + ": size=" + size() + ", hits=" + getHitCount() + ", misses="
+                + getMissCount() + ", collisions=" + getCollisionCount();
     }
 
+    /**
+     * Returns all active caches, for example to publish their statistics.
+     * @return an unmodifiable list of all caches
+     */
+    public static List<PropertyCache<?>> getCaches() {
+        return Collections.unmodifiableList(CACHES);
+    }
+
+    /**
+     * Weak reference to a cached object, remembering the object's hash code so the entry can
+     * be found once the object has been reclaimed.
+     */
+    private static final class Entry<T> extends WeakReference<T> {
+
+        private final Integer hash;
+
+        Entry(T referent, Integer hash, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * The entries with the same hash code. The array is copied on every change, so lookups
+     * don't need to lock; changes are made while holding the bucket's lock.
+     */
+    private static final class Bucket<T> {
+
+        private volatile Entry<T>[] entries;
 
-    private void attemptCleanup() {
-        if ((putCounter.incrementAndGet() % 10000) != 0) {
-            return;
+        /** set when the bucket has been removed from the map, no entries may be added then */
+        private boolean removed;
+
+        @SuppressWarnings("unchecked")
+        Bucket(Entry<T> entry) {
+            this.entries = new Entry[] {entry};
         }
 
-        // Lock as there is no need for concurrent cleanup and protect us, on JDK5, from
-        // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6312056
-        if (cleanupLock.tryLock()) {
-            try {
-                cleanReclaimedMapEntries();
-            } finally {
-                cleanupLock.unlock();
+        T find(T obj) {
+            for (Entry<T> entry : entries) {
+                T cached = entry.get();
+                if (cached != null && (cached == obj || cached.equals(obj))) {
+                    return cached;
+                }
             }
+            return null;
         }
-    }
 
-    private void cleanReclaimedMapEntries() {
-        Iterator<Map.Entry<Integer, WeakReference<T>>> iterator = map.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Integer, WeakReference<T>> entry = iterator.next();
-            WeakReference<T> weakRef = entry.getValue();
-            T r = weakRef.get();
-            if (r == null) {
-                iterator.remove();
+        /**
+         * Adds an entry.
+         * @param entry the entry
+         * @return true if the bucket already held an object that has not been reclaimed
+         */
+        @SuppressWarnings("unchecked")
+        boolean add(Entry<T> entry) {
+            Entry<T>[] current = entries;
+            boolean collision = false;
+            for (Entry<T> e : current) {
+                if (e.get() != null) {
+                    collision = true;
+                    break;
+                }
             }
+            Entry<T>[] newEntries = new Entry[current.length + 1];
+            System.arraycopy(current, 0, newEntries, 0, current.length);
+            newEntries[current.length] = entry;
+            entries = newEntries;
+            return collision;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean remove(Entry<T> entry) {
+            Entry<T>[] current = entries;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == entry) {
+                    Entry<T>[] newEntries = new Entry[current.length - 1];
+                    System.arraycopy(current, 0, newEntries, 0, i);
+                    System.arraycopy(current, i + 1, newEntries, i, current.length - i - 1);
+                    entries = newEntries;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return entries.length == 0;
         }
     }
 
-    private boolean eq(Object p, Object q) {
-        return (p == q || p.equals(q));
+    /**
+     * Counter striped across threads, so concurrent updates don't all contend for the same
+     * memory location.
+     */
+    private static final class Counter {
+
+        private static final int STRIPES = 16;
+
+        /* keeps the cells of different stripes on different cache lines */
+        private static final int PADDING = 8;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void increment() {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            cells.incrementAndGet(stripe * PADDING);
+        }
+
+        long get() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
     }
 }
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xml.sax.Attributes;
+
+import org.apache.fop.fo.FObj;
+import org.apache.fop.fo.PropertyList;
+import org.apache.fop.fo.expr.NCnameProperty;
+import org.apache.fop.fo.expr.PropertyException;
+
+/**
+ * Thread-safe cache for properties parsed from attribute values, shared by all documents
+ * rendered with the same {@link org.apache.fop.apps.FopFactory}. Generated XSL-FO tends to
+ * repeat a small number of attribute values (like "10pt" or "solid 0.5pt #cccccc") very
+ * often; with this cache, each of them is parsed only once.
+ * <p>
+ * Only values that don't depend on the context they're used in are cached. On the first
+ * occurrence of a value, the property is made against a property list that has no context:
+ * any attempt to access the FO, its ancestors, other properties or the user agent (as
+ * needed for percentages, font-size relative units, inherited values or functions like
+ * from-parent()) aborts the attempt and the value is marked as context-dependent. In
+ * addition, only immutable property types are cached. Compound properties, for example,
+ * are excluded because they are modified when components are specified separately. String
+ * properties aren't cached either: their values are taken as they are, and many of them,
+ * like IDs and link destinations, are unique to one FO.
+ * <p>
+ * The cache is bounded, separately for the cached properties and for the values marked as
+ * context-dependent. When it is full, values seen for the first time are no longer added
+ * (and no longer tried without context), so the most common values (which tend to show up
+ * early) stay cached.
+ */
+public final class PropertyExpressionCache {
+
+    /** The default maximum number of cached values. */
+    public static final int DEFAULT_MAX_SIZE = 8192;
+
+    /** Marks values which are context-dependent or invalid. */
+    private static final Object NOT_CACHEABLE = new Object();
+
+    private final ConcurrentMap<Key, Object> map = new ConcurrentHashMap<Key, Object>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger notCacheableCount = new AtomicInteger();
+    private final int maxSize;
+
+    /**
+     * Creates a new cache.
+     * @param maxSize the maximum number of cached values, and of values marked as
+     * context-dependent
+     */
+    public PropertyExpressionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Makes a property from an attribute value, reusing a previously parsed property if the
+     * value doesn't depend on the context.
+     * @param maker the maker of the property
+     * @param value the attribute value
+     * @param propertyList the property list the property is made for
+     * @param fo the parent FO of the FO the property is made for
+     * @return the property
+     * @throws PropertyException if the value is invalid
+     * @see PropertyMaker#make(PropertyList, String, FObj)
+     */
+    public Property make(PropertyMaker maker, String value, PropertyList propertyList, FObj fo)
+            throws PropertyException {
+        if (maker instanceof StringProperty.Maker) {
+            return maker.make(propertyList, value, fo);
+        }
+        Key key = new Key(maker, value);
+        Object cached = map.get(key);
+        if (cached == null) {
+            //only try without context if the outcome can be stored
+            if (size.get() < maxSize && notCacheableCount.get() < maxSize) {
+                Property prop = makeWithoutContext(maker, value);
+                if (prop != null) {
+                    put(key, prop, size);
+                    return prop;
+                }
+                put(key, NOT_CACHEABLE, notCacheableCount);
+            }
+        } else if (cached != NOT_CACHEABLE) {
+            return (Property) cached;
+        }
+        return maker.make(propertyList, value, fo);
+    }
+
+    private void put(Key key, Object value, AtomicInteger count) {
+        if (count.get() < maxSize && map.putIfAbsent(key, value) == null) {
+            count.incrementAndGet();
+        }
+    }
+
+    /** @return the number of cached values (not counting the context-dependent ones) */
+    public int size() {
+        return size.get();
+    }
+
+    /** Removes all cached values. */
+    public void clear() {
+        map.clear();
+        size.set(0);
+        notCacheableCount.set(0);
+    }
+
+    private static Property makeWithoutContext(PropertyMaker maker, String value) {
+        try {
+            Property prop = maker.make(new ContextFreePropertyList(), value, null);
+            return isImmutable(prop) ? prop : null;
+        } catch (PropertyException e) {
+            //invalid values are reported when made in context
+            return null;
+        } catch (RuntimeException e) {
+            //the context has been accessed
+            return null;
+        }
+    }
+
+    private static boolean isImmutable(Property prop) {
+        if (prop instanceof ListProperty) {
+            for (Property p : ((ListProperty) prop).getList()) {
+                if (!isImmutable(p)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return prop instanceof EnumProperty
+                || prop instanceof FixedLength
+                || prop instanceof NumberProperty
+                || prop instanceof ColorProperty
+                || prop instanceof StringProperty
+                || prop instanceof NCnameProperty
+                || prop instanceof CharacterProperty;
+    }
+
+    private static final class Key {
+
+        private final PropertyMaker maker;
+        private final String value;
+        private final int hash;
+
+        private Key(PropertyMaker maker, String value) {
+            this.maker = maker;
+            this.value = value;
+            this.hash = 31 * System.identityHashCode(maker) + value.hashCode();
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return maker == other.maker && value.equals(other.value);
+        }
+    }
+
+    /**
+     * Thrown by {@link ContextFreePropertyList} when the context of a property is accessed.
+     */
+    private static final class ContextAccessException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ContextAccessException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A property list without FO, parent or properties. Properties that can be made using
+     * this property list don't depend on their context.
+     */
+    private static final class ContextFreePropertyList extends PropertyList {
+
+        private ContextFreePropertyList() {
+            super(null, null);
+        }
+
+        private static ContextAccessException contextAccessed() {
+            return new ContextAccessException();
+        }
+
+        /** {@inheritDoc} */
+        public FObj getFObj() {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public FObj getParentFObj() {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public PropertyList getParentPropertyList() {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public void validatePropertyValue(String propertyValue, Property output,
+                Property property) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Map<String, Property> getUnknownPropertyValues() {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getExplicitOrShorthand(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getExplicit(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public void putExplicit(int propId, Property value) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getInherited(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property get(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property get(int propId, boolean bTryInherit, boolean bTryDefault) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getNearestSpecified(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getFromParent(int propId) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public int selectFromWritingMode(int lrtb, int rltb, int tbrl, int tblr) {
+            throw contextAccessed();
+        }
+
+        /** {@inheritDoc} */
+        public Property getPropertyForAttribute(Attributes attributes, String attributeName,
+                String attributeValue) {
+            throw contextAccessed();
+        }
+    }
+}
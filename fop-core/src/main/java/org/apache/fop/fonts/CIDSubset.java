@@ -26,6 +26,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.fop.util.CharUtilities;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * Provides methods to get font information.
@@ -101,6 +102,7 @@ public class CIDSubset implements CIDSet {
         // IOW, accumulate the accessed characters and build a character map for them
         Integer subsetCharSelector = usedGlyphs.get(glyphIndex);
         if (subsetCharSelector == null) {
+            SpeculativeExecution.checkSharedStateChange();
             int selector = usedGlyphsCount;
             usedGlyphs.put(glyphIndex, selector);
             usedGlyphsIndex.put(selector, glyphIndex);
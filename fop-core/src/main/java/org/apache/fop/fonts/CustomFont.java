@@ -33,6 +33,7 @@ import java.util.Set;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.truetype.SVGGlyphData;
+import org.apache.fop.util.SpeculativeExecution;
 
 
 /**
@@ -76,7 +77,9 @@ public abstract class CustomFont extends Typeface
 
     private int strikeoutThickness;
 
+    /** the kerning pairs read from the font, until they are compiled into the kerning table */
     private Map<Integer, Map<Integer, Integer>> kerning;
+    private volatile KerningTable kerningTable;
 
     private boolean useKerning = true;
     /** the character map, mapping Unicode ranges to glyph indices. */
@@ -312,20 +315,42 @@ public abstract class CustomFont extends Typeface
      * {@inheritDoc}
      */
     public final boolean hasKerningInfo() {
-        return (isKerningEnabled() && (kerning != null) && !kerning.isEmpty());
+        return isKerningEnabled() && getKerningPairs().size() > 0;
     }
 
     /**
      * {@inheritDoc}
+     * The kerning pairs are kept in a {@link KerningTable}, so the map is created by every call.
      */
     public final Map<Integer, Map<Integer, Integer>> getKerningInfo() {
         if (hasKerningInfo()) {
-            return kerning;
+            return getKerningPairs().toMap();
         } else {
             return Collections.emptyMap();
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public KerningTable getKerningTable() {
+        return isKerningEnabled() ? getKerningPairs() : KerningTable.EMPTY;
+    }
+
+    private KerningTable getKerningPairs() {
+        KerningTable table = kerningTable;
+        if (table == null) {
+            synchronized (this) {
+                table = kerningTable;
+                if (table == null) {
+                    table = KerningTable.create(kerning);
+                    kerning = null;
+                    kerningTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
     /**
      * Used to determine if advanced typographic features are enabled.
      * By default, this is false, but may be overridden by subclasses.
@@ -508,10 +533,15 @@ public abstract class CustomFont extends Typeface
     }
 
     /** {@inheritDoc} */
-    public void putKerningEntry(Integer key, Map<Integer, Integer> value) {
+    public synchronized void putKerningEntry(Integer key, Map<Integer, Integer> value) {
         if (kerning == null) {
-            kerning = new HashMap<Integer, Map<Integer, Integer>>();
+            if (kerningTable != null) {
+                kerning = kerningTable.toMap();
+            } else {
+                kerning = new HashMap<Integer, Map<Integer, Integer>>();
+            }
         }
+        kerningTable = null;
         this.kerning.put(key, value);
     }
 
@@ -520,12 +550,9 @@ public abstract class CustomFont extends Typeface
      * @param kerningMap the kerning map (the integers are
      *                          character codes)
      */
-    public void replaceKerningMap(Map<Integer, Map<Integer, Integer>> kerningMap) {
-        if (kerningMap == null) {
-            this.kerning = Collections.emptyMap();
-        } else {
-            this.kerning = kerningMap;
-        }
+    public synchronized void replaceKerningMap(Map<Integer, Map<Integer, Integer>> kerningMap) {
+        this.kerning = kerningMap;
+        this.kerningTable = null;
     }
 
     /**
@@ -657,6 +684,7 @@ public abstract class CustomFont extends Typeface
             SingleByteFont.UnencodedCharacter unencoded = this.unencodedCharacters.get(ch);
             if (unencoded != null) {
                 if (this.additionalEncodings == null) {
+                    SpeculativeExecution.checkSharedStateChange();
                     this.additionalEncodings = new ArrayList<SimpleSingleByteEncoding>();
                 }
                 SimpleSingleByteEncoding encoding = null;
@@ -670,6 +698,7 @@ public abstract class CustomFont extends Typeface
                         return (char)(mappedStart + alt);
                     }
                 }
+                SpeculativeExecution.checkSharedStateChange();
                 if (encoding != null && encoding.isFull()) {
                     encoding = null;
                 }
@@ -685,6 +714,19 @@ public abstract class CustomFont extends Typeface
         return 0;
     }
 
+    /**
+     * Clones the font. The clone shares the data read from the font file, but has its own
+     * character map, to which private use mappings can be added, and no additional encodings.
+     * {@inheritDoc}
+     */
+    protected Object clone() throws CloneNotSupportedException {
+        getKerningPairs();
+        CustomFont font = (CustomFont) super.clone();
+        font.cmap = new ArrayList<CMapSegment>(cmap);
+        font.additionalEncodings = null;
+        return font;
+    }
+
     public boolean hasSVG() {
         return svgs != null;
     }
@@ -31,6 +31,7 @@ public class CustomFontCollection implements FontCollection {
     private final List<EmbedFontInfo> embedFontInfoList;
     private final InternalResourceResolver uriResolver;
     private final boolean useComplexScripts;
+    private final FontFaceCache fontFaceCache;
 
     /**
      * Main constructor.
@@ -40,9 +41,23 @@ public class CustomFontCollection implements FontCollection {
      */
     public CustomFontCollection(InternalResourceResolver fontResolver,
             List<EmbedFontInfo> customFonts, boolean useComplexScriptFeatures) {
+        this(fontResolver, customFonts, useComplexScriptFeatures, null);
+    }
+
+    /**
+     * Creates a collection of custom fonts that are parsed once and shared with other documents.
+     * @param fontResolver a font resolver
+     * @param customFonts the list of custom fonts
+     * @param useComplexScriptFeatures true if complex script features enabled
+     * @param fontFaceCache the cache of parsed fonts (null to parse the fonts for every document)
+     */
+    public CustomFontCollection(InternalResourceResolver fontResolver,
+            List<EmbedFontInfo> customFonts, boolean useComplexScriptFeatures,
+            FontFaceCache fontFaceCache) {
         this.uriResolver = fontResolver;
         this.embedFontInfoList = customFonts;
         this.useComplexScripts = useComplexScriptFeatures;
+        this.fontFaceCache = fontFaceCache;
     }
 
     /** {@inheritDoc} */
@@ -57,7 +72,8 @@ public class CustomFontCollection implements FontCollection {
             internalName = "F" + num;
             num++;
 
-            LazyFont font = new LazyFont(embedFontInfo, this.uriResolver, useComplexScripts);
+            LazyFont font = new LazyFont(embedFontInfo, this.uriResolver, useComplexScripts,
+                    fontFaceCache);
             fontInfo.addMetrics(internalName, font);
 
             List<FontTriplet> triplets = embedFontInfo.getFontTriplets();
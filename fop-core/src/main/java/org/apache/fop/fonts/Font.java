@@ -71,6 +71,14 @@ public class Font implements Substitutable, Positionable {
     /** logger */
     private  static Log log = LogFactory.getLog(Font.class);
 
+    private static final int WIDTH_PAGE_SHIFT = 8;
+
+    private static final int WIDTH_PAGE_MASK = 0xFF;
+
+    private static final int BMP_WIDTH_PAGES = 0x10000 >> WIDTH_PAGE_SHIFT;
+
+    private static final int ALL_WIDTH_PAGES = 0x110000 >> WIDTH_PAGE_SHIFT;
+
     private final String fontName;
     private final FontTriplet triplet;
     private final int fontSize;
@@ -82,6 +90,20 @@ public class Font implements Substitutable, Positionable {
 
     private final FontMetrics metric;
 
+    /** the words shaped with this font, if it does substitution or positioning */
+    private final ShapingCache shapingCache = new ShapingCache(ShapingCache.DEFAULT_MAX_SIZE);
+
+    /**
+     * The widths of the characters measured with this font, in pages of 256 code points. The
+     * pages are allocated on demand. A width is stored plus one, so 0 means not measured yet.
+     * Measuring a character maps it, which adds its glyph to the font subset. That only needs to
+     * happen once, so later measurements can skip it.
+     */
+    private int[][] charWidths;
+
+    /** the kerning pairs of the font, looked up on first use */
+    private KerningTable kerningTable;
+
     /**
      * Main constructor
      * @param key key of the font
@@ -104,6 +126,14 @@ public class Font implements Substitutable, Positionable {
         return this.metric;
     }
 
+    /**
+     * Returns the cache for the results of shaping words with this font.
+     * @return the shaping cache
+     */
+    public ShapingCache getShapingCache() {
+        return this.shapingCache;
+    }
+
     /**
      * Determines whether the font is a multibyte font.
      * @return True if it is multibyte
@@ -187,6 +217,25 @@ public class Font implements Substitutable, Positionable {
         }
     }
 
+    /**
+     * Returns the font's kerning pairs, for lookups without boxing.
+     * @return the kerning table
+     */
+    public KerningTable getKerningTable() {
+        KerningTable table = kerningTable;
+        if (table == null) {
+            if (metric instanceof Typeface) {
+                table = ((Typeface) metric).getKerningTable();
+            } else if (metric.hasKerningInfo()) {
+                table = KerningTable.create(metric.getKerningInfo());
+            } else {
+                table = KerningTable.EMPTY;
+            }
+            kerningTable = table;
+        }
+        return table;
+    }
+
     /**
      * Returns the amount of kerning between two characters.
      *
@@ -204,12 +253,9 @@ public class Font implements Substitutable, Positionable {
             return 0;
         }
 
-        Map<Integer, Integer> kernPair = getKerning().get(ch1);
-        if (kernPair != null) {
-            Integer width = kernPair.get(ch2);
-            if (width != null) {
-                return width * getFontSize() / 1000;
-            }
+        int width = getKerningTable().getKerning(ch1, ch2);
+        if (width != 0) {
+            return width * getFontSize() / 1000;
         }
         return 0;
     }
@@ -348,10 +394,43 @@ public class Font implements Substitutable, Positionable {
      * from the current fontstate.
      * This also performs some guessing on widths on various
      * versions of space that might not exists in the font.
+     * The width of a character is only measured once, after that it is read from a cache.
      * @param c character to inspect
      * @return the width of the character or -1 if no width available
      */
     public int getCharWidth(char c) {
+        int[] page = getCharWidthPage(c);
+        int width = page[c & WIDTH_PAGE_MASK] - 1;
+        if (width < 0) {
+            width = measureCharWidth(c);
+            page[c & WIDTH_PAGE_MASK] = width + 1;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the page of the width cache for a code point, allocating it if necessary.
+     */
+    private int[] getCharWidthPage(int cp) {
+        int index = cp >> WIDTH_PAGE_SHIFT;
+        int[][] pages = charWidths;
+        if (pages == null || index >= pages.length) {
+            int[][] newPages = new int[index < BMP_WIDTH_PAGES ? BMP_WIDTH_PAGES : ALL_WIDTH_PAGES][];
+            if (pages != null) {
+                System.arraycopy(pages, 0, newPages, 0, pages.length);
+            }
+            pages = newPages;
+            charWidths = pages;
+        }
+        int[] page = pages[index];
+        if (page == null) {
+            page = new int[WIDTH_PAGE_MASK + 1];
+            pages[index] = page;
+        }
+        return page;
+    }
+
+    private int measureCharWidth(char c) {
         int width;
 
         if ((c == '\n') || (c == '\r') || (c == '\t') || (c == '\u00A0')) {
@@ -425,13 +504,19 @@ public class Font implements Substitutable, Positionable {
         if (c < 0x10000) {
             return getCharWidth((char) c);
         }
-
-        if (hasCodePoint(c)) {
-            int mappedChar = mapCodePoint(c);
-            return getWidth(mappedChar);
+        if (c > Character.MAX_CODE_POINT) {
+            return -1;
         }
-
-        return -1;
+        int[] page = getCharWidthPage(c);
+        int width = page[c & WIDTH_PAGE_MASK] - 1;
+        if (width < 0) {
+            if (!hasCodePoint(c)) {
+                return -1;
+            }
+            width = getWidth(mapCodePoint(c));
+            page[c & WIDTH_PAGE_MASK] = width + 1;
+        }
+        return width;
     }
 
     /**
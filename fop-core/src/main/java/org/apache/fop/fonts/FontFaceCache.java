@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * Keeps the fonts parsed from font files, so that they are read only once for all the documents
+ * processed with the same {@link FontManager}. Every call to
+ * {@link #loadFont(FontUris, String, boolean, EmbeddingMode, EncodingMode, boolean, boolean,
+ * InternalResourceResolver, boolean, boolean, boolean) loadFont} returns a new instance of the
+ * font for one document: it shares the metrics, the character map and the advanced typographic
+ * tables with the parsed font, but records the glyphs used by the document, for subsetting, on
+ * its own.
+ * <p>
+ * Only multi-byte (CID) fonts are shared. Single-byte fonts keep their encodings and used
+ * glyphs in many places, so they are still loaded for every document.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class FontFaceCache {
+
+    private final ConcurrentMap<FaceKey, Face> faces = new ConcurrentHashMap<FaceKey, Face>();
+
+    /**
+     * Loads a font, or returns a new instance of a font already loaded with the same parameters.
+     * The parameters are those of {@link FontLoader#loadFont(FontUris, String, boolean,
+     * EmbeddingMode, EncodingMode, boolean, boolean, InternalResourceResolver, boolean, boolean,
+     * boolean)}.
+     * @param fontUris the URI to the font
+     * @param subFontName the sub-fontname of a font (for TrueType Collections, null otherwise)
+     * @param embedded indicates whether the font is embedded or referenced
+     * @param embeddingMode the embedding mode of the font
+     * @param encodingMode the requested encoding mode
+     * @param useKerning indicates whether kerning information should be loaded if available
+     * @param useAdvanced indicates whether advanced typographic information shall be loaded if
+     * available
+     * @param resourceResolver the font resolver to use when resolving URIs
+     * @param simulateStyle indicates whether bold and italic styles are simulated
+     * @param embedAsType1 indicates whether an OpenType CFF font is embedded as Type 1
+     * @param useSVG indicates whether the SVG glyphs of the font are used
+     * @return a font for the exclusive use of one document
+     * @throws IOException In case of an I/O error
+     */
+    public CustomFont loadFont(FontUris fontUris, String subFontName,
+            boolean embedded, EmbeddingMode embeddingMode, EncodingMode encodingMode,
+            boolean useKerning, boolean useAdvanced, InternalResourceResolver resourceResolver,
+            boolean simulateStyle, boolean embedAsType1, boolean useSVG) throws IOException {
+        FaceKey key = new FaceKey(fontUris, subFontName, embedded, embeddingMode, encodingMode,
+                useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1, useSVG);
+        Face face = faces.get(key);
+        if (face == null) {
+            face = new Face();
+            Face existing = faces.putIfAbsent(key, face);
+            if (existing != null) {
+                face = existing;
+            }
+        }
+        MultiByteFont font = face.getFont();
+        if (font == null) {
+            font = face.load(key);
+        }
+        if (font != null) {
+            return font.newDocumentInstance();
+        }
+        return key.loadFont();
+    }
+
+    /**
+     * Returns the number of fonts parsed and kept by this cache.
+     * @return the number of fonts
+     */
+    public int size() {
+        int size = 0;
+        for (Face face : faces.values()) {
+            if (face.getFont() != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all fonts from this cache. The instances already returned are not affected.
+     */
+    public void clear() {
+        faces.clear();
+    }
+
+    /** The parsed font for one set of parameters. */
+    private final class Face {
+
+        private volatile MultiByteFont font;
+
+        private boolean shared = true;
+
+        MultiByteFont getFont() {
+            return font;
+        }
+
+        /**
+         * Parses the font, unless another thread got there first.
+         * @return the parsed font, or null if the font can't be shared
+         */
+        synchronized MultiByteFont load(FaceKey key) throws IOException {
+            if (font == null && shared) {
+                CustomFont loaded;
+                try {
+                    loaded = key.loadFont();
+                } catch (IOException e) {
+                    faces.remove(key, this);
+                    throw e;
+                } catch (RuntimeException e) {
+                    faces.remove(key, this);
+                    throw e;
+                }
+                if (loaded instanceof MultiByteFont) {
+                    font = (MultiByteFont) loaded;
+                } else {
+                    shared = false;
+                }
+            }
+            return font;
+        }
+    }
+
+    /** The parameters a font is loaded with. */
+    private static final class FaceKey {
+
+        private final FontUris fontUris;
+        private final String subFontName;
+        private final boolean embedded;
+        private final EmbeddingMode embeddingMode;
+        private final EncodingMode encodingMode;
+        private final boolean useKerning;
+        private final boolean useAdvanced;
+        private final InternalResourceResolver resourceResolver;
+        private final boolean simulateStyle;
+        private final boolean embedAsType1;
+        private final boolean useSVG;
+        private final int hash;
+
+        FaceKey(FontUris fontUris, String subFontName, boolean embedded,
+                EmbeddingMode embeddingMode, EncodingMode encodingMode, boolean useKerning,
+                boolean useAdvanced, InternalResourceResolver resourceResolver,
+                boolean simulateStyle, boolean embedAsType1, boolean useSVG) {
+            this.fontUris = fontUris;
+            this.subFontName = subFontName;
+            this.embedded = embedded;
+            this.embeddingMode = embeddingMode;
+            this.encodingMode = encodingMode;
+            this.useKerning = useKerning;
+            this.useAdvanced = useAdvanced;
+            this.resourceResolver = resourceResolver;
+            this.simulateStyle = simulateStyle;
+            this.embedAsType1 = embedAsType1;
+            this.useSVG = useSVG;
+            int h = hashCode(fontUris.getEmbed());
+            h = 31 * h + hashCode(fontUris.getMetrics());
+            h = 31 * h + hashCode(fontUris.getAfm());
+            h = 31 * h + hashCode(fontUris.getPfm());
+            h = 31 * h + hashCode(subFontName);
+            h = 31 * h + hashCode(embeddingMode);
+            h = 31 * h + hashCode(encodingMode);
+            h = 31 * h + (embedded ? 1 : 0);
+            h = 31 * h + (useKerning ? 1 : 0);
+            h = 31 * h + (useAdvanced ? 1 : 0);
+            h = 31 * h + (simulateStyle ? 1 : 0);
+            h = 31 * h + (embedAsType1 ? 1 : 0);
+            h = 31 * h + (useSVG ? 1 : 0);
+            this.hash = 31 * h + System.identityHashCode(resourceResolver);
+        }
+
+        CustomFont loadFont() throws IOException {
+            return FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                    encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle,
+                    embedAsType1, useSVG);
+        }
+
+        private static int hashCode(Object o) {
+            return o == null ? 0 : o.hashCode();
+        }
+
+        private static boolean equals(Object o1, Object o2) {
+            return o1 == null ? o2 == null : o1.equals(o2);
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FaceKey)) {
+                return false;
+            }
+            FaceKey other = (FaceKey) o;
+            return hash == other.hash
+                    && equals(fontUris.getEmbed(), other.fontUris.getEmbed())
+                    && equals(fontUris.getMetrics(), other.fontUris.getMetrics())
+                    && equals(fontUris.getAfm(), other.fontUris.getAfm())
+                    && equals(fontUris.getPfm(), other.fontUris.getPfm())
+                    && equals(subFontName, other.subFontName)
+                    && embeddingMode == other.embeddingMode
+                    && encodingMode == other.encodingMode
+                    && embedded == other.embedded
+                    && useKerning == other.useKerning
+                    && useAdvanced == other.useAdvanced
+                    && simulateStyle == other.simulateStyle
+                    && embedAsType1 == other.embedAsType1
+                    && useSVG == other.useSVG
+                    && resourceResolver == other.resourceResolver;
+        }
+    }
+}
@@ -30,6 +30,8 @@ import java.util.TreeSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.util.SpeculativeExecution;
+
 
 /**
  * The FontInfo holds font information for the layout and rendering of a fo document.
@@ -281,11 +283,15 @@ public class FontInfo {
      * @param internalName the internal font name (F1, F2 etc.)
      */
     public void useFont(String internalName) {
+        if (!usedFonts.containsKey(internalName)) {
+            SpeculativeExecution.checkSharedStateChange();
+        }
         usedFonts.put(internalName, fonts.get(internalName));
     }
 
     private Map<FontTriplet, Map<Integer, Font>> getFontInstanceCache() {
         if (fontInstanceCache == null) {
+            SpeculativeExecution.checkSharedStateChange();
             fontInstanceCache = new HashMap<FontTriplet, Map<Integer, Font>>();
         }
         return fontInstanceCache;
@@ -301,12 +307,14 @@ public class FontInfo {
     public Font getFontInstance(FontTriplet triplet, int fontSize) {
         Map<Integer, Font> sizes = getFontInstanceCache().get(triplet);
         if (sizes == null) {
+            SpeculativeExecution.checkSharedStateChange();
             sizes = new HashMap<Integer, Font>();
             getFontInstanceCache().put(triplet, sizes);
         }
         Integer size = fontSize;
         Font font = sizes.get(size);
         if (font == null) {
+            SpeculativeExecution.checkSharedStateChange();
             String fontKey = getInternalFontKey(triplet);
             useFont(fontKey);
             FontMetrics metrics = getMetricsFor(fontKey);
@@ -440,6 +448,7 @@ public class FontInfo {
 
     private void notifyFontReplacement(FontTriplet replacedKey, FontTriplet newKey) {
         if (this.eventListener != null) {
+            SpeculativeExecution.checkSharedStateChange();
             this.eventListener.fontSubstituted(this, replacedKey, newKey);
         }
     }
@@ -571,6 +580,9 @@ public class FontInfo {
      */
     public FontMetrics getMetricsFor(String fontName) {
         Typeface metrics = fonts.get(fontName);
+        if (!usedFonts.containsKey(fontName)) {
+            SpeculativeExecution.checkSharedStateChange();
+        }
         usedFonts.put(fontName, metrics);
         return metrics;
     }
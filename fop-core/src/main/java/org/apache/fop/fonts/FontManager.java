@@ -52,6 +52,9 @@ public class FontManager {
     /** FontTriplet matcher for fonts that shall be referenced rather than embedded. */
     private FontTriplet.Matcher referencedFontsMatcher;
 
+    /** The fonts parsed for one document and shared with the following ones */
+    private FontFaceCache fontFaceCache = new FontFaceCache();
+
     /**
      * Main constructor
      *
@@ -133,6 +136,26 @@ public class FontManager {
         return fontCacheManager.load();
     }
 
+    /**
+     * Returns the cache of parsed fonts, which lets documents share the fonts read from font files.
+     * @return the font face cache, or null if every document reads the font files again
+     */
+    public FontFaceCache getFontFaceCache() {
+        return fontFaceCache;
+    }
+
+    /**
+     * Controls whether the fonts read from font files are shared by all documents.
+     * @param value true if the fonts are shared, false if every document reads them again
+     */
+    public void setFontFaceSharingEnabled(boolean value) {
+        if (!value) {
+            fontFaceCache = null;
+        } else if (fontFaceCache == null) {
+            fontFaceCache = new FontFaceCache();
+        }
+    }
+
     /**
      * Saves the FontCache as necessary
      *
@@ -126,10 +126,6 @@ public class GlyphMapping {
             language = "dflt";
         }
 
-        // 3. perform mapping of chars to glyphs ... to glyphs ... to chars, retaining
-        // associations if requested.
-        List associations = retainAssociations ? new ArrayList() : null;
-
         // This is a workaround to read the ligature from the font even if the script
         // does not match the one defined for the table.
         // More info here: https://issues.apache.org/jira/browse/FOP-2638
@@ -138,6 +134,31 @@ public class GlyphMapping {
             script = "*";
         }
 
+        // Shaping only depends on the word, the script and language, so repeated words are
+        // taken from the font's cache.
+        ShapingCache shapingCache = font.getShapingCache();
+        String word = ics.toString();
+        ShapingCache.ShapedRun run
+                = shapingCache.get(word, script, language, retainAssociations, retainControls);
+        if (run == null) {
+            run = shape(ics, font, script, language, retainAssociations, retainControls);
+            shapingCache.put(word, script, language, retainAssociations, retainControls, run);
+        }
+        String mcs = run.getMapping();
+
+        // [TBD] - handle letter spacing
+
+        return new GlyphMapping(startIndex, endIndex, 0, nLS, run.getIPD(), endsWithHyphen, false,
+                breakOpportunityChar != 0, font, level, run.getAdjustments(),
+                !dontOptimizeForIdentityMapping && CharUtilities.isSameSequence(mcs, ics) ? null : mcs,
+                run.getAssociations());
+    }
+
+    private static ShapingCache.ShapedRun shape(CharSequence ics, final Font font, String script,
+            String language, boolean retainAssociations, boolean retainControls) {
+        // 3. perform mapping of chars to glyphs ... to glyphs ... to chars, retaining
+        // associations if requested.
+        List associations = retainAssociations ? new ArrayList() : null;
         CharSequence mcs = font.performSubstitution(ics, script, language, associations, retainControls);
 
         // 4. compute glyph position adjustments on (substituted) characters.
@@ -176,12 +197,7 @@ public class GlyphMapping {
             ipd = ipd.plus(w);
         }
 
-        // [TBD] - handle letter spacing
-
-        return new GlyphMapping(startIndex, endIndex, 0, nLS, ipd, endsWithHyphen, false,
-                breakOpportunityChar != 0, font, level, gpa,
-                !dontOptimizeForIdentityMapping && CharUtilities.isSameSequence(mcs, ics) ? null : mcs.toString(),
-                associations);
+        return new ShapingCache.ShapedRun(mcs, gpa, associations, ipd);
     }
 
     private static boolean useKerningAdjustments(final Font font, String script, String language) {
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The kerning pairs of a font, stored without boxing: an open-addressing hash table with the
+ * two characters of a pair packed into a long key. Instances are immutable and thread-safe.
+ */
+public final class KerningTable {
+
+    /** A table without kerning pairs. */
+    public static final KerningTable EMPTY = new KerningTable(0);
+
+    /** Marks a free slot. No pair of characters packs to this value. */
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    private int size;
+
+    private KerningTable(int pairs) {
+        int capacity = 1;
+        while (capacity < pairs * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Creates a kerning table.
+     * @param kerning the kerning values in the form used by {@link FontMetrics#getKerningInfo()}:
+     * first character to second character to kerning value (may be null)
+     * @return the kerning table
+     */
+    public static KerningTable create(Map<Integer, Map<Integer, Integer>> kerning) {
+        if (kerning == null) {
+            return EMPTY;
+        }
+        int pairs = 0;
+        for (Map<Integer, Integer> seconds : kerning.values()) {
+            if (seconds != null) {
+                pairs += seconds.size();
+            }
+        }
+        if (pairs == 0) {
+            return EMPTY;
+        }
+        KerningTable table = new KerningTable(pairs);
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            if (first.getValue() != null) {
+                for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                    if (second.getValue() != null) {
+                        table.put(first.getKey(), second.getKey(), second.getValue());
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    private static long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void put(int first, int second, int value) {
+        long key = key(first, second);
+        if (key == FREE) {
+            return;
+        }
+        int i = slot(key);
+        while (keys[i] != FREE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == FREE) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Returns the kerning value of a pair of characters, in font units.
+     * @param first the first character
+     * @param second the second character
+     * @return the kerning value, 0 if there's no kerning for the pair
+     */
+    public int getKerning(int first, int second) {
+        long key = key(first, second);
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != FREE) {
+            if (k == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of kerning pairs.
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kerning pairs in the form used by {@link FontMetrics#getKerningInfo()}. The
+     * maps are created by every call and can be modified.
+     * @return first character to second character to kerning value
+     */
+    public Map<Integer, Map<Integer, Integer>> toMap() {
+        Map<Integer, Map<Integer, Integer>> kerning = new HashMap<Integer, Map<Integer, Integer>>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                Integer first = (int) (keys[i] >> 32);
+                Map<Integer, Integer> seconds = kerning.get(first);
+                if (seconds == null) {
+                    seconds = new HashMap<Integer, Integer>();
+                    kerning.put(first, seconds);
+                }
+                seconds.put((int) keys[i], values[i]);
+            }
+        }
+        return kerning;
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.complexscripts.fonts.Positionable;
 import org.apache.fop.complexscripts.fonts.Substitutable;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * This class is used to defer the loading of a font until it is really used.
@@ -53,6 +54,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
     private final String subFontName;
     private final boolean embedded;
     private final InternalResourceResolver resourceResolver;
+    private final FontFaceCache fontFaceCache;
 
     private boolean isMetricsLoaded;
     private Typeface realFont;
@@ -65,6 +67,18 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
      */
     public LazyFont(EmbedFontInfo fontInfo, InternalResourceResolver resourceResolver,
             boolean useComplexScripts) {
+        this(fontInfo, resourceResolver, useComplexScripts, null);
+    }
+
+    /**
+     * Creates a lazy font that obtains the font from a cache of parsed fonts.
+     * @param fontInfo  the font info to embed
+     * @param resourceResolver the font resolver to handle font URIs
+     * @param useComplexScripts true if complex script features are enabled
+     * @param fontFaceCache the cache of parsed fonts (null to always parse the font file)
+     */
+    public LazyFont(EmbedFontInfo fontInfo, InternalResourceResolver resourceResolver,
+            boolean useComplexScripts, FontFaceCache fontFaceCache) {
 
         this.fontUris = fontInfo.getFontUris();
         this.useKerning = fontInfo.getKerning();
@@ -83,6 +97,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         this.subFontName = fontInfo.getSubFontName();
         this.embedded = fontInfo.isEmbedded();
         this.resourceResolver = resourceResolver;
+        this.fontFaceCache = fontFaceCache;
     }
 
     /** {@inheritDoc} */
@@ -99,6 +114,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
 
     private void load(boolean fail) {
         if (!isMetricsLoaded) {
+            SpeculativeExecution.checkSharedStateChange();
             try {
                 if (fontUris.getMetrics() != null) {
                     // Use of XML based font metrics is DEPRECATED!
@@ -118,8 +134,14 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
                     if (fontUris.getEmbed() == null) {
                         throw new RuntimeException("Cannot load font. No font URIs available.");
                     }
-                    realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode, encodingMode,
-                            useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1, useSVG);
+                    if (fontFaceCache != null) {
+                        realFont = fontFaceCache.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                                encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1,
+                                useSVG);
+                    } else {
+                        realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode, encodingMode,
+                                useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1, useSVG);
+                    }
                 }
                 if (realFont instanceof FontDescriptor) {
                     realFontDescriptor = (FontDescriptor) realFont;
@@ -321,6 +343,13 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return realFont.getKerningInfo();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public KerningTable getKerningTable() {
+        load(true);
+        return realFont.getKerningTable();
+    }
+
     /** {@inheritDoc} */
     public boolean hasFeature(int tableType, String script, String language, String feature) {
         load(true);
@@ -44,11 +44,12 @@ import org.apache.fop.complexscripts.util.CharNormalize;
 import org.apache.fop.complexscripts.util.GlyphSequence;
 import org.apache.fop.fonts.truetype.SVGGlyphData;
 import org.apache.fop.util.CharUtilities;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * Generic MultiByte (CID) font
  */
-public class MultiByteFont extends CIDFont implements Substitutable, Positionable {
+public class MultiByteFont extends CIDFont implements Substitutable, Positionable, Cloneable {
 
     /** logging instance */
     private static final Log log
@@ -60,7 +61,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     private int defaultWidth;
     private CIDFontType cidType = CIDFontType.CIDTYPE2;
 
-    protected final CIDSet cidSet;
+    protected CIDSet cidSet;
 
     /* advanced typographic support */
     private GlyphDefinitionTable gdef;
@@ -81,9 +82,13 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
 
     private boolean isOTFFile;
 
-    // since for most users the most likely glyphs are in the first cmap segments we store their mapping.
-    private static final int NUM_MOST_LIKELY_GLYPHS = 256;
-    private int[] mostLikelyGlyphs = new int[NUM_MOST_LIKELY_GLYPHS];
+    /*
+     * The glyph indices of the code points, in pages of 256 code points, filled from the cmap
+     * segments when a code point of the page is first looked up.
+     */
+    private static final int GLYPH_PAGE_SHIFT = 8;
+    private static final int GLYPH_PAGE_MASK = 0xFF;
+    private int[][] glyphPages;
 
     //A map to store each used glyph from the CID set against the glyph name.
     private LinkedHashMap<Integer, String> usedGlyphNames = new LinkedHashMap<Integer, String>();
@@ -102,6 +107,34 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         }
     }
 
+    /**
+     * Returns a new instance of this font for another document. The new instance shares the
+     * metrics, the character map and the advanced typographic tables with this font, but keeps
+     * its own record of the glyphs used, so it can be subset independently.
+     * @return the new instance
+     */
+    public MultiByteFont newDocumentInstance() {
+        try {
+            return (MultiByteFont) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(); // Can't happen
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        MultiByteFont font = (MultiByteFont) super.clone();
+        if (cidSet instanceof CIDFull) {
+            font.cidSet = new CIDFull(font);
+        } else {
+            font.cidSet = new CIDSubset(font);
+        }
+        font.usedGlyphNames = new LinkedHashMap<Integer, String>();
+        font.glyphPages = null;
+        return font;
+    }
+
     /** {@inheritDoc} */
     @Override
     public int getDefaultWidth() {
@@ -219,32 +252,51 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      * @param c the Unicode character index
      * @return the glyph index (or 0 if the glyph is not available)
      */
-    // [TBD] - needs optimization, i.e., change from linear search to binary search
     public int findGlyphIndex(int c) {
-        int idx = c;
-        int retIdx = SingleByteEncoding.NOT_FOUND_CODE_POINT;
-
-        // for most users the most likely glyphs are in the first cmap segments (meaning the one with
-        // the lowest unicode start values)
-        if (idx < NUM_MOST_LIKELY_GLYPHS && mostLikelyGlyphs[idx] != 0) {
-            return mostLikelyGlyphs[idx];
+        int index = c >> GLYPH_PAGE_SHIFT;
+        int[][] pages = glyphPages;
+        if (pages == null) {
+            SpeculativeExecution.checkSharedStateChange();
+            pages = new int[(Character.MAX_CODE_POINT >> GLYPH_PAGE_SHIFT) + 1][];
+            glyphPages = pages;
         }
-        for (CMapSegment i : cmap) {
-            if (retIdx == 0
-                    && i.getUnicodeStart() <= idx
-                    && i.getUnicodeEnd() >= idx) {
-                retIdx = i.getGlyphStartIndex()
-                    + idx
-                    - i.getUnicodeStart();
-                if (idx < NUM_MOST_LIKELY_GLYPHS) {
-                    mostLikelyGlyphs[idx] = retIdx;
-                }
-                if (retIdx != 0) {
-                    break;
+        if (c < 0 || index >= pages.length) {
+            return SingleByteEncoding.NOT_FOUND_CODE_POINT;
+        }
+        int[] page = pages[index];
+        if (page == null) {
+            SpeculativeExecution.checkSharedStateChange();
+            page = createGlyphPage(index);
+            pages[index] = page;
+        }
+        return page[c & GLYPH_PAGE_MASK];
+    }
+
+    /**
+     * Looks up the glyph indices of a page of code points. If several segments map a code point,
+     * the first one with a glyph other than 0 wins.
+     */
+    private int[] createGlyphPage(int index) {
+        int[] page = new int[GLYPH_PAGE_MASK + 1];
+        int first = index << GLYPH_PAGE_SHIFT;
+        int last = first + GLYPH_PAGE_MASK;
+        for (CMapSegment segment : cmap) {
+            int start = Math.max(first, segment.getUnicodeStart());
+            int end = Math.min(last, segment.getUnicodeEnd());
+            for (int cp = start; cp <= end; cp++) {
+                if (page[cp - first] == 0) {
+                    page[cp - first] = segment.getGlyphStartIndex() + cp - segment.getUnicodeStart();
                 }
             }
         }
-        return retIdx;
+        return page;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCMap(CMapSegment[] cmap) {
+        super.setCMap(cmap);
+        glyphPages = null;
     }
 
     /**
@@ -254,6 +306,9 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     protected synchronized void addPrivateUseMapping(int pu, int gi) {
         assert findGlyphIndex(pu) == SingleByteEncoding.NOT_FOUND_CODE_POINT;
         cmap.add(new CMapSegment(pu, pu, gi));
+        if (glyphPages != null && glyphPages[pu >> GLYPH_PAGE_SHIFT] != null) {
+            glyphPages[pu >> GLYPH_PAGE_SHIFT][pu & GLYPH_PAGE_MASK] = gi;
+        }
     }
 
     /**
@@ -269,6 +324,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      * @returns unicode scalar value
      */
     private int createPrivateUseMapping(int gi) {
+        SpeculativeExecution.checkSharedStateChange();
         while ((nextPrivateUse < 0xF900)
                 && (findGlyphIndex(nextPrivateUse) != SingleByteEncoding.NOT_FOUND_CODE_POINT)) {
             nextPrivateUse++;
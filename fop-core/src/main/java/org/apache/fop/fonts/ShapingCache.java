@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.traits.MinOptMax;
+
+/**
+ * Thread-safe cache for the results of shaping words with a font: glyph substitution, glyph
+ * positioning and the reordering of combining marks. In complex scripts like Arabic or
+ * Devanagari, the same words occur over and over again; with this cache, each of them goes
+ * through the OpenType tables only once per font.
+ * <p>
+ * Results are keyed on the text, the script and language it's shaped for, and the options
+ * that affect the result. The cache is bounded. When it is full, words seen for the first time
+ * are no longer added, so the most common words (which tend to show up early) stay cached.
+ */
+public final class ShapingCache {
+
+    /** The default maximum number of cached words. */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final ConcurrentMap<Key, ShapedRun> map = new ConcurrentHashMap<Key, ShapedRun>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final int maxSize;
+
+    /**
+     * Creates a new cache.
+     * @param maxSize the maximum number of cached words
+     */
+    public ShapingCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the result of shaping a word, if cached.
+     * @param text the word
+     * @param script the script the word is shaped for
+     * @param language the language the word is shaped for
+     * @param retainAssociations whether character associations are retained
+     * @param retainControls whether control characters are retained
+     * @return the shaped run, or null if the word hasn't been cached
+     */
+    public ShapedRun get(String text, String script, String language,
+            boolean retainAssociations, boolean retainControls) {
+        ShapedRun run = map.get(new Key(text, script, language, retainAssociations, retainControls));
+        if (run != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return run;
+    }
+
+    /**
+     * Caches the result of shaping a word, unless the cache is full.
+     * @param text the word
+     * @param script the script the word has been shaped for
+     * @param language the language the word has been shaped for
+     * @param retainAssociations whether character associations have been retained
+     * @param retainControls whether control characters have been retained
+     * @param run the shaped run
+     */
+    public void put(String text, String script, String language,
+            boolean retainAssociations, boolean retainControls, ShapedRun run) {
+        if (size.get() < maxSize && map.putIfAbsent(
+                new Key(text, script, language, retainAssociations, retainControls), run) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    /** @return the number of cached words */
+    public int size() {
+        return size.get();
+    }
+
+    /** @return the number of words found in the cache */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return the number of words not found in the cache */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** Removes all cached words. */
+    public void clear() {
+        map.clear();
+        size.set(0);
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "ShapingCache: size=" + size() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount();
+    }
+
+    /**
+     * The immutable result of shaping a word. Callers get their own copies of the position
+     * adjustments and character associations, since these are modified when words are
+     * reordered for bidirectional text.
+     */
+    public static final class ShapedRun {
+
+        private final String mapping;
+        private final int[][] adjustments;
+        private final List<CharAssociation> associations;
+        private final MinOptMax ipd;
+
+        /**
+         * Creates a new shaped run.
+         * @param mapping the mapped (substituted and reordered) characters
+         * @param adjustments the glyph position adjustments, or null if none apply
+         * @param associations the character associations, or null if not retained
+         * @param ipd the width of the word
+         */
+        public ShapedRun(CharSequence mapping, int[][] adjustments,
+                List<CharAssociation> associations, MinOptMax ipd) {
+            this.mapping = mapping.toString();
+            this.adjustments = copyAdjustments(adjustments);
+            this.associations = copyAssociations(associations);
+            this.ipd = ipd;
+        }
+
+        /** @return the mapped characters */
+        public String getMapping() {
+            return mapping;
+        }
+
+        /** @return a copy of the glyph position adjustments, or null if none apply */
+        public int[][] getAdjustments() {
+            return copyAdjustments(adjustments);
+        }
+
+        /** @return a copy of the character associations, or null if not retained */
+        public List<CharAssociation> getAssociations() {
+            return copyAssociations(associations);
+        }
+
+        /** @return the width of the word */
+        public MinOptMax getIPD() {
+            return ipd;
+        }
+
+        private static int[][] copyAdjustments(int[][] adjustments) {
+            if (adjustments == null) {
+                return null;
+            }
+            int[][] copy = new int[adjustments.length][];
+            for (int i = 0; i < adjustments.length; i++) {
+                copy[i] = adjustments[i].clone();
+            }
+            return copy;
+        }
+
+        private static List<CharAssociation> copyAssociations(List<CharAssociation> associations) {
+            if (associations == null) {
+                return null;
+            }
+            List<CharAssociation> copy = new ArrayList<CharAssociation>(associations.size());
+            for (CharAssociation ca : associations) {
+                copy.add((CharAssociation) ca.clone());
+            }
+            return copy;
+        }
+    }
+
+    private static final class Key {
+
+        private final String text;
+        private final String script;
+        private final String language;
+        private final boolean retainAssociations;
+        private final boolean retainControls;
+        private final int hash;
+
+        private Key(String text, String script, String language,
+                boolean retainAssociations, boolean retainControls) {
+            this.text = text;
+            this.script = script;
+            this.language = language;
+            this.retainAssociations = retainAssociations;
+            this.retainControls = retainControls;
+            int hash = text.hashCode();
+            hash = 31 * hash + script.hashCode();
+            hash = 31 * hash + language.hashCode();
+            hash = 31 * hash + (retainAssociations ? 1 : 0);
+            hash = 31 * hash + (retainControls ? 1 : 0);
+            this.hash = hash;
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return text.equals(other.text)
+                    && script.equals(other.script)
+                    && language.equals(other.language)
+                    && retainAssociations == other.retainAssociations
+                    && retainControls == other.retainControls;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.xmlgraphics.fonts.Glyphs;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.truetype.OpenFont.PostScriptVersion;
 import org.apache.fop.util.CharUtilities;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * Generic SingleByte font
@@ -158,6 +159,7 @@ public class SingleByteFont extends CustomFont {
     private char findAlternative(char c) {
         char d;
         if (alternativeCodes == null) {
+            SpeculativeExecution.checkSharedStateChange();
             alternativeCodes = new java.util.HashMap<Character, Character>();
         } else {
             Character alternative = alternativeCodes.get(c);
@@ -177,6 +179,7 @@ public class SingleByteFont extends CustomFont {
                 if (s != null) {
                     d = lookupChar(s.charAt(0));
                     if (d != SingleByteEncoding.NOT_FOUND_CODE_POINT) {
+                        SpeculativeExecution.checkSharedStateChange();
                         alternativeCodes.put(c, d);
                         return d;
                     }
@@ -229,6 +232,7 @@ public class SingleByteFont extends CustomFont {
         // IOW, accumulate the accessed characters and build a character map for them
         Integer subsetCharSelector = usedGlyphs.get(glyphIndex);
         if (subsetCharSelector == null) {
+            SpeculativeExecution.checkSharedStateChange();
             int selector = usedGlyphsCount;
             usedGlyphs.put(glyphIndex, selector);
             usedCharsIndex.put(selector, unicode);
@@ -27,6 +27,8 @@ import org.apache.commons.logging.LogFactory;
 
 import org.apache.xmlgraphics.fonts.Glyphs;
 
+import org.apache.fop.util.SpeculativeExecution;
+
 /**
  * Base class for font classes
  */
@@ -53,6 +55,8 @@ public abstract class Typeface implements FontMetrics {
 
     private Set<Character> warnedChars;
 
+    private volatile KerningTable kerningTable;
+
     /**
      * Get the encoding of the font.
      * @return the encoding
@@ -71,6 +75,13 @@ public abstract class Typeface implements FontMetrics {
      * was used at all or not.
      */
     protected void notifyMapOperation() {
+        if (SpeculativeExecution.isActive()) {
+            // only the fact that the font was used matters, which the main thread records
+            if (this.charMapOps == 0) {
+                SpeculativeExecution.checkSharedStateChange();
+            }
+            return;
+        }
         this.charMapOps++;
     }
 
@@ -130,6 +141,9 @@ public abstract class Typeface implements FontMetrics {
     protected void warnMissingGlyph(char c) {
         // Give up, character is not available
         Character ch = c;
+        if (warnedChars == null || (warnedChars.size() < 8 && !warnedChars.contains(ch))) {
+            SpeculativeExecution.checkSharedStateChange();
+        }
         if (warnedChars == null) {
             warnedChars = new HashSet<Character>();
         }
@@ -151,6 +165,34 @@ public abstract class Typeface implements FontMetrics {
         }
     }
 
+    /**
+     * Returns the kerning pairs of the font, for lookups without boxing. By default, the table
+     * is created from {@link #getKerningInfo()} the first time it is requested.
+     * @return the kerning table, empty if the font has no kerning information or kerning is
+     * disabled
+     */
+    public KerningTable getKerningTable() {
+        KerningTable table = kerningTable;
+        if (table == null) {
+            table = hasKerningInfo() ? KerningTable.create(getKerningInfo()) : KerningTable.EMPTY;
+            kerningTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Clones the typeface. The clone doesn't inherit the mapping statistics, the event listener
+     * or the missing glyph warnings of this typeface.
+     * {@inheritDoc}
+     */
+    protected Object clone() throws CloneNotSupportedException {
+        Typeface typeface = (Typeface) super.clone();
+        typeface.charMapOps = 0;
+        typeface.eventListener = null;
+        typeface.warnedChars = null;
+        return typeface;
+    }
+
     /** {@inheritDoc} */
     public String toString() {
         StringBuffer sbuf = new StringBuffer(super.toString());
@@ -36,6 +36,7 @@ import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.events.EventBroadcaster;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * <p>This class is the main entry point to the hyphenation package.
@@ -74,6 +75,7 @@ public final class Hyphenator {
         if (hTree != null) {
             return hTree;
         }
+        SpeculativeExecution.checkSharedStateChange();
 
         String key = HyphenationTreeCache.constructUserKey(lang, country, hyphPatNames);
         if (key == null) {
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.image;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.xmlgraphics.image.loader.ImageException;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+
+import org.apache.fop.apps.FOUserAgent;
+
+/**
+ * Preloads images in the background while the FO tree is being built. FO nodes hand the URIs
+ * of their images to {@link #prefetch(String)} as soon as they are bound and only wait for the
+ * result when layout needs the intrinsic size of the image. Image latency (remote resources,
+ * large files) thereby overlaps with parsing and layout instead of blocking the SAX thread
+ * once per image.
+ * <p>
+ * Every URI is preloaded once per rendering run. The preloaded {@link ImageInfo} ends up in
+ * the image cache of the {@link ImageManager}, so renderers looking up the image later don't
+ * have to preload it again.
+ * <p>
+ * Image session contexts are not thread-safe, so every background task uses its own
+ * (see {@link FOUserAgent#newImageSessionContext()}).
+ */
+public class ImagePrefetcher {
+
+    private static final Log LOG = LogFactory.getLog(ImagePrefetcher.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private final FOUserAgent userAgent;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, FutureTask<ImageInfo>> tasks
+            = new ConcurrentHashMap<String, FutureTask<ImageInfo>>();
+
+    /**
+     * Creates a new image prefetcher.
+     * @param userAgent the user agent of the rendering run
+     * @param threadCount the maximum number of images to load concurrently
+     */
+    public ImagePrefetcher(FOUserAgent userAgent, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.userAgent = userAgent;
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new PrefetchThreadFactory());
+        //Idle threads must not keep abandoned rendering runs alive
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts preloading the image with the given URI unless it's already being preloaded.
+     * @param uri the URI of the image
+     * @return the future delivering the image's {@link ImageInfo}
+     */
+    public Future<ImageInfo> prefetch(final String uri) {
+        FutureTask<ImageInfo> task = tasks.get(uri);
+        if (task == null) {
+            FutureTask<ImageInfo> newTask = new FutureTask<ImageInfo>(new Callable<ImageInfo>() {
+                public ImageInfo call() throws Exception {
+                    return userAgent.getImageManager().getImageInfo(uri,
+                            userAgent.newImageSessionContext());
+                }
+            });
+            task = tasks.putIfAbsent(uri, newTask);
+            if (task == null) {
+                task = newTask;
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Prefetching image: " + uri);
+                }
+                executor.execute(newTask);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Stops the background threads. Images that haven't been preloaded, yet, are loaded
+     * synchronously by {@link #getImageInfo(Future, String, FOUserAgent)} when they're needed.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+        for (FutureTask<ImageInfo> task : tasks.values()) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the {@link ImageInfo} for an image, waiting for it to be preloaded if necessary.
+     * If the image isn't being prefetched (or prefetching has been cancelled), the image is
+     * preloaded synchronously using the user agent's image session context.
+     * @param future the future returned by {@link #prefetch(String)} (may be null)
+     * @param uri the URI of the image
+     * @param userAgent the user agent
+     * @return the image info
+     * @throws ImageException if the image cannot be preloaded
+     * @throws IOException if an I/O error occurs while preloading the image
+     */
+    public static ImageInfo getImageInfo(Future<ImageInfo> future, String uri,
+            FOUserAgent userAgent) throws ImageException, IOException {
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (CancellationException ce) {
+                //fall through to synchronous loading
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for image: " + uri);
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof ImageException) {
+                    throw (ImageException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ImageException("Error while preloading image: " + uri, cause);
+            }
+        }
+        return userAgent.getImageManager().getImageInfo(uri, userAgent.getImageSessionContext());
+    }
+
+    private static final class PrefetchThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+        /** {@inheritDoc} */
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "FOP image prefetch " + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
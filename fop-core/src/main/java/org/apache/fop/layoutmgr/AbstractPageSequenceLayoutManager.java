@@ -225,8 +225,26 @@ public abstract class AbstractPageSequenceLayoutManager extends AbstractLayoutMa
      * could be found.
      */
     public RetrieveMarker resolveRetrieveMarker(RetrieveMarker rm) {
+        Marker mark = findMarker(rm);
+        if (mark == null) {
+            log.debug("found no marker with name: " + rm.getRetrieveClassName());
+            return null;
+        } else {
+            rm.bindMarker(mark);
+            return rm;
+        }
+    }
+
+    /**
+     * Finds the Marker a RetrieveMarker would be bound to on the current page, without
+     * binding it. See {@link #resolveRetrieveMarker(RetrieveMarker)}.
+     *
+     * @param rm the RetrieveMarker instance whose properties are to
+     * used to find the matching Marker.
+     * @return the matching Marker, or null if no Marker could be found.
+     */
+    Marker findMarker(RetrieveMarker rm) {
         AreaTreeModel areaTreeModel = areaTreeHandler.getAreaTreeModel();
-        String name = rm.getRetrieveClassName();
         int boundary = rm.getRetrieveBoundary();
 
         // get marker from the current markers on area tree
@@ -258,14 +276,7 @@ public abstract class AbstractPageSequenceLayoutManager extends AbstractLayoutMa
                 }
             }
         }
-
-        if (mark == null) {
-            log.debug("found no marker with name: " + name);
-            return null;
-        } else {
-            rm.bindMarker(mark);
-            return rm;
-        }
+        return mark;
     }
 
     /**
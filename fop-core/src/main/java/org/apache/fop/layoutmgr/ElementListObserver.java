@@ -21,6 +21,8 @@ package org.apache.fop.layoutmgr;
 
 import java.util.List;
 
+import org.apache.fop.util.SpeculativeExecution;
+
 /**
  * This class is used to observe Knuth element lists generated within the layout managers. This
  * is mainly used for the purpose of automated testing. This implementation here does nothing.
@@ -63,6 +65,7 @@ public final class ElementListObserver {
      */
     public static void observe(List elementList, String category, String id) {
         if (isObservationActive()) {
+            SpeculativeExecution.checkSharedStateChange();
             if (category == null) {
                 throw new NullPointerException("category must not be null");
             }
@@ -33,6 +33,7 @@ import org.apache.fop.fo.pagination.PageSequence;
 import org.apache.fop.fo.pagination.Region;
 import org.apache.fop.fo.pagination.RegionBody;
 import org.apache.fop.fo.pagination.SimplePageMaster;
+import org.apache.fop.util.SpeculativeExecution;
 
 /**
  * <p>This class delivers Page instances. It also caches them as necessary.
@@ -406,6 +407,7 @@ public class PageProvider implements Constants {
     }
 
     public int getNextIPD() {
+        SpeculativeExecution.checkSharedStateChange();
         pageSeq.setOnlyTryInfinite(true);
         try {
             int oldSize = cachedPages.size();
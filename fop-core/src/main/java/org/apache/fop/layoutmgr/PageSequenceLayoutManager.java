@@ -30,6 +30,7 @@ import org.apache.fop.area.Area;
 import org.apache.fop.area.AreaTreeHandler;
 import org.apache.fop.area.AreaTreeModel;
 import org.apache.fop.area.LineArea;
+import org.apache.fop.area.RegionReference;
 import org.apache.fop.complexscripts.bidi.BidiResolver;
 import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.pagination.PageSequence;
@@ -63,6 +64,8 @@ public class PageSequenceLayoutManager extends AbstractPageSequenceLayoutManager
     private int startIntrusionAdjustment;
     private int endIntrusionAdjustment;
 
+    private StaticContentAreaCache staticContentAreaCache;
+
     /**
      * Constructor
      *
@@ -225,11 +228,22 @@ public class PageSequenceLayoutManager extends AbstractPageSequenceLayoutManager
         if (sc == null) {
             return;
         }
+        if (staticContentAreaCache == null) {
+            staticContentAreaCache = new StaticContentAreaCache(this);
+        }
+        RegionReference target = getCurrentPV().getRegionReference(reg.getNameId());
+        StaticContentAreaCache.Key key = staticContentAreaCache.getKey(sc, reg, target);
+        if (key != null && staticContentAreaCache.addAreas(key, target)) {
+            return;
+        }
 
         StaticContentLayoutManager lm = getLayoutManagerMaker()
                                             .makeStaticContentLayoutManager(
                                                 this, sc, reg);
         lm.doLayout();
+        if (key != null && !lm.isOverflow()) {
+            staticContentAreaCache.put(key, target);
+        }
     }
 
     /** {@inheritDoc} */
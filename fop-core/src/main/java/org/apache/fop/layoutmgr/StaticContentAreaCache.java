@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.fop.area.Area;
+import org.apache.fop.area.BlockParent;
+import org.apache.fop.area.LineArea;
+import org.apache.fop.area.RegionReference;
+import org.apache.fop.area.Trait;
+import org.apache.fop.area.inline.Container;
+import org.apache.fop.area.inline.InlineArea;
+import org.apache.fop.area.inline.InlineBlockParent;
+import org.apache.fop.area.inline.InlineParent;
+import org.apache.fop.area.inline.InlineViewport;
+import org.apache.fop.area.inline.ResolvedPageNumber;
+import org.apache.fop.area.inline.WordArea;
+import org.apache.fop.fo.FONode;
+import org.apache.fop.fo.FObj;
+import org.apache.fop.fo.flow.AbstractPageNumberCitation;
+import org.apache.fop.fo.flow.BasicLink;
+import org.apache.fop.fo.flow.ChangeBar;
+import org.apache.fop.fo.flow.InstreamForeignObject;
+import org.apache.fop.fo.flow.Marker;
+import org.apache.fop.fo.flow.RetrieveMarker;
+import org.apache.fop.fo.flow.RetrieveTableMarker;
+import org.apache.fop.fo.pagination.SideRegion;
+import org.apache.fop.fo.pagination.StaticContent;
+import org.apache.fop.fonts.Font;
+import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.fonts.FontTriplet;
+
+/**
+ * Keeps the areas laid out for the side regions of the previous page, so that a static content
+ * that comes out the same on the next page is not laid out again. The areas are shared between
+ * the pages, except for the page numbers and the areas containing them, which are copied with
+ * the number of the new page.
+ * <p>
+ * The areas are reused if the region has the same dimensions and every fo:retrieve-marker
+ * retrieves the same fo:marker. Static contents with anything else that depends on the page
+ * (page number citations, IDs, internal links, change bars, retrieve-table-markers) are laid out
+ * for every page, and so is everything if accessibility is enabled. A page number is only
+ * replaced if the new number has the same width as the old one, which is usually the case with
+ * the same number of digits; otherwise the region is laid out again.
+ */
+final class StaticContentAreaCache {
+
+    private final PageSequenceLayoutManager pslm;
+
+    private final FontInfo fontInfo;
+
+    private final boolean enabled;
+
+    /** The retrieve-markers of the static contents, null for those that can't be reused. */
+    private final Map<StaticContent, List<RetrieveMarker>> retrieveMarkers
+            = new HashMap<StaticContent, List<RetrieveMarker>>();
+
+    /** The areas last laid out into each region. */
+    private final Map<SideRegion, Entry> entries = new HashMap<SideRegion, Entry>();
+
+    /**
+     * Creates a cache for the side regions of a page sequence.
+     * @param pslm the page sequence layout manager
+     */
+    StaticContentAreaCache(PageSequenceLayoutManager pslm) {
+        this.pslm = pslm;
+        this.fontInfo = pslm.getPageSequence().getFOEventHandler().getFontInfo();
+        this.enabled = !pslm.getPageSequence().getUserAgent().isAccessibilityEnabled()
+                && pslm.getLayoutManagerMaker().getClass() == LayoutManagerMapping.class;
+    }
+
+    /**
+     * Returns the key identifying the areas of a static content on the current page.
+     * @param sc the static content
+     * @param region the side region
+     * @param target the region reference area of the current page
+     * @return the key, or null if the areas of the static content can't be reused
+     */
+    Key getKey(StaticContent sc, SideRegion region, RegionReference target) {
+        if (!enabled) {
+            return null;
+        }
+        List<RetrieveMarker> rms = retrieveMarkers.get(sc);
+        if (rms == null && !retrieveMarkers.containsKey(sc)) {
+            rms = new ArrayList<RetrieveMarker>();
+            if (!isPageIndependent(sc, rms)) {
+                rms = null;
+            }
+            retrieveMarkers.put(sc, rms);
+        }
+        if (rms == null) {
+            return null;
+        }
+        List<Marker> markers = new ArrayList<Marker>(rms.size());
+        for (RetrieveMarker rm : rms) {
+            Marker marker = pslm.findMarker(rm);
+            if (marker != null && !isPageIndependent(marker, null)) {
+                return null;
+            }
+            markers.add(marker);
+        }
+        return new Key(sc, region, target.getIPD(), target.getBPD(), markers);
+    }
+
+    /**
+     * Adds the areas kept for a key to the region reference area of the current page.
+     * @param key the key
+     * @param target the region reference area of the current page
+     * @return true if the areas were added, false if the static content must be laid out
+     */
+    boolean addAreas(Key key, RegionReference target) {
+        Entry entry = entries.get(key.region);
+        if (entry == null || !entry.key.equals(key)) {
+            return false;
+        }
+        String pageNumber = pslm.getCurrentPV().getPageNumberString();
+        List<Area> areas = new ArrayList<Area>(entry.areas.size());
+        for (Area area : entry.areas) {
+            Area copy = entry.copy(area, pageNumber);
+            if (copy == null) {
+                return false;
+            }
+            areas.add(copy);
+        }
+        for (Area area : areas) {
+            target.addChildArea(area);
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the areas just laid out into the region reference area of the current page.
+     * @param key the key returned before the layout
+     * @param target the region reference area of the current page
+     */
+    void put(Key key, RegionReference target) {
+        Entry entry = new Entry(key, new ArrayList<Area>(target.getBlocks()));
+        for (Area area : entry.areas) {
+            if (!entry.findPageNumbers(area)) {
+                entries.remove(key.region);
+                return;
+            }
+        }
+        entries.put(key.region, entry);
+    }
+
+    private static boolean isPageIndependent(FONode node, List<RetrieveMarker> rms) {
+        if (node instanceof RetrieveMarker) {
+            if (rms == null) {
+                return false;
+            }
+            rms.add((RetrieveMarker) node);
+            //the children are those of the marker retrieved for some earlier page
+            return true;
+        }
+        if (node instanceof AbstractPageNumberCitation || node instanceof RetrieveTableMarker
+                || node instanceof ChangeBar
+                || (node instanceof BasicLink && ((BasicLink) node).hasInternalDestination())
+                || (node instanceof FObj && ((FObj) node).hasId())) {
+            return false;
+        }
+        if (node instanceof InstreamForeignObject) {
+            return true;
+        }
+        FONode.FONodeIterator it = node.getChildNodes();
+        while (it != null && it.hasNext()) {
+            if (!isPageIndependent(it.next(), rms)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Area> getChildAreas(Area area) {
+        if (area instanceof BlockParent) {
+            return ((BlockParent) area).getChildAreas();
+        } else if (area instanceof LineArea) {
+            return ((LineArea) area).getInlineAreas();
+        } else if (area instanceof InlineParent) {
+            return (List<Area>) (List<?>) ((InlineParent) area).getChildAreas();
+        }
+        return null;
+    }
+
+    /** Identifies the areas of a static content on a page. */
+    static final class Key {
+
+        private final StaticContent staticContent;
+        private final SideRegion region;
+        private final int ipd;
+        private final int bpd;
+        private final List<Marker> markers;
+
+        Key(StaticContent staticContent, SideRegion region, int ipd, int bpd,
+                List<Marker> markers) {
+            this.staticContent = staticContent;
+            this.region = region;
+            this.ipd = ipd;
+            this.bpd = bpd;
+            this.markers = markers;
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return System.identityHashCode(region) * 31 + ipd;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (staticContent != other.staticContent || region != other.region
+                    || ipd != other.ipd || bpd != other.bpd
+                    || markers.size() != other.markers.size()) {
+                return false;
+            }
+            for (int i = 0; i < markers.size(); i++) {
+                if (markers.get(i) != other.markers.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The areas laid out for a key. */
+    private final class Entry {
+
+        private final Key key;
+
+        private final List<Area> areas;
+
+        /** The page numbers and the areas containing them, which have to be copied. */
+        private final Set<Area> copied = Collections.newSetFromMap(new IdentityHashMap<Area, Boolean>());
+
+        Entry(Key key, List<Area> areas) {
+            this.key = key;
+            this.areas = areas;
+        }
+
+        /**
+         * Records the page numbers in an area and the areas containing them.
+         * @return false if a page number can't be replaced
+         */
+        boolean findPageNumbers(Area area) {
+            if (area instanceof ResolvedPageNumber) {
+                int[] levels = getBidiLevels((ResolvedPageNumber) area);
+                if (levels != null && levels.length > 0 && (levels[0] & 1) != 0) {
+                    //right-to-left
+                    return false;
+                }
+                copied.add(area);
+                return true;
+            }
+            List<Area> children = getChildAreas(area);
+            if (children != null) {
+                for (Area child : children) {
+                    if (!findPageNumbers(child)) {
+                        return false;
+                    }
+                    if (copied.contains(child)) {
+                        copied.add(area);
+                    }
+                }
+                return true;
+            }
+            List<Area> nested = new ArrayList<Area>();
+            if (area instanceof InlineBlockParent) {
+                nested.add(((InlineBlockParent) area).getChildArea());
+            } else if (area instanceof InlineViewport) {
+                nested.add(((InlineViewport) area).getContent());
+            } else if (area instanceof Container) {
+                nested.addAll(((Container) area).getBlocks());
+            }
+            //these can't be copied, so there mustn't be any page number in them
+            int count = copied.size();
+            for (Area child : nested) {
+                if (child != null && (!findPageNumbers(child) || copied.size() != count)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Copies an area for a new page.
+         * @return the area itself if it doesn't contain any page number, null if a page number
+         * doesn't fit
+         */
+        Area copy(Area area, String pageNumber) {
+            if (!copied.contains(area)) {
+                return area;
+            }
+            Area copy;
+            try {
+                copy = (Area) area.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(); // Can't happen
+            }
+            if (copy instanceof ResolvedPageNumber) {
+                return setPageNumber((ResolvedPageNumber) copy, pageNumber) ? copy : null;
+            }
+            List<Area> children = getChildAreas(copy);
+            for (int i = 0; i < children.size(); i++) {
+                Area child = children.get(i);
+                Area childCopy = copy(child, pageNumber);
+                if (childCopy == null) {
+                    return null;
+                } else if (childCopy != child) {
+                    children.set(i, childCopy);
+                    if (childCopy instanceof InlineArea) {
+                        ((InlineArea) childCopy).setParentArea(copy);
+                    }
+                }
+            }
+            return copy;
+        }
+
+        private boolean setPageNumber(ResolvedPageNumber pn, String pageNumber) {
+            Font font = fontInfo.getFontInstance((FontTriplet) pn.getTrait(Trait.FONT),
+                    pn.getTraitAsInteger(Trait.FONT_SIZE));
+            int width = 0;
+            for (int i = 0; i < pageNumber.length(); i++) {
+                width += font.getCharWidth(pageNumber.charAt(i));
+            }
+            if (width != pn.getIPD()) {
+                return false;
+            }
+            int[] levels = getBidiLevels(pn);
+            pn.removeText();
+            pn.addWord(pageNumber, 0, levels != null && levels.length > 0 ? levels[0] : -1);
+            return true;
+        }
+
+        private int[] getBidiLevels(ResolvedPageNumber pn) {
+            List<InlineArea> words = pn.getChildAreas();
+            if (words.isEmpty() || !(words.get(0) instanceof WordArea)) {
+                return null;
+            }
+            return ((WordArea) words.get(0)).getBidiLevels();
+        }
+    }
+}
@@ -19,14 +19,40 @@
 
 package org.apache.fop.layoutmgr.table;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FONode;
+import org.apache.fop.fo.FOText;
+import org.apache.fop.fo.flow.BasicLink;
+import org.apache.fop.fo.flow.BidiOverride;
+import org.apache.fop.fo.flow.Block;
+import org.apache.fop.fo.flow.BlockContainer;
+import org.apache.fop.fo.flow.Character;
+import org.apache.fop.fo.flow.Inline;
+import org.apache.fop.fo.flow.InlineContainer;
+import org.apache.fop.fo.flow.Leader;
+import org.apache.fop.fo.flow.ListBlock;
+import org.apache.fop.fo.flow.ListItem;
+import org.apache.fop.fo.flow.ListItemBody;
+import org.apache.fop.fo.flow.ListItemLabel;
+import org.apache.fop.fo.flow.Marker;
+import org.apache.fop.fo.flow.PageNumber;
+import org.apache.fop.fo.flow.Wrapper;
 import org.apache.fop.fo.flow.table.EffRow;
 import org.apache.fop.fo.flow.table.GridUnit;
 import org.apache.fop.fo.flow.table.PrimaryGridUnit;
@@ -36,8 +62,10 @@ import org.apache.fop.fo.properties.CommonBorderPaddingBackground;
 import org.apache.fop.fo.properties.LengthRangeProperty;
 import org.apache.fop.layoutmgr.ElementListObserver;
 import org.apache.fop.layoutmgr.LayoutContext;
+import org.apache.fop.layoutmgr.LayoutManagerMapping;
 import org.apache.fop.traits.MinOptMax;
 import org.apache.fop.util.BreakUtil;
+import org.apache.fop.util.SpeculativeExecution;
 
 class RowGroupLayoutManager {
 
@@ -45,6 +73,13 @@ class RowGroupLayoutManager {
 
     private static final MinOptMax MAX_STRETCH = MinOptMax.getInstance(0, 0, Integer.MAX_VALUE);
 
+    private static final Set<Class<? extends FONode>> CONCURRENT_LAYOUT_NODES
+            = new HashSet<Class<? extends FONode>>(Arrays.<Class<? extends FONode>>asList(
+                    FOText.class, Block.class, BlockContainer.class, Inline.class,
+                    InlineContainer.class, Wrapper.class, Character.class, Leader.class,
+                    PageNumber.class, BasicLink.class, BidiOverride.class, ListBlock.class,
+                    ListItem.class, ListItemLabel.class, ListItemBody.class));
+
     private EffRow[] rowGroup;
 
     private TableLayoutManager tableLM;
@@ -94,6 +129,7 @@ class RowGroupLayoutManager {
     private void createElementsForRowGroup(LayoutContext context, int alignment,
             int bodyType, LinkedList returnList) {
         log.debug("Handling row group with " + rowGroup.length + " rows...");
+        List<PrimaryGridUnit> cells = new ArrayList<PrimaryGridUnit>();
         EffRow row;
         for (EffRow aRowGroup : rowGroup) {
             row = aRowGroup;
@@ -104,25 +140,27 @@ class RowGroupLayoutManager {
                     // TODO a new LM must be created for every new static-content
                     primary.createCellLM();
                     primary.getCellLM().setParent(tableLM);
-                    //Calculate width of cell
-                    int spanWidth = 0;
-                    Iterator colIter = tableLM.getTable().getColumns().listIterator(
-                            primary.getColIndex());
-                    for (int i = 0, c = primary.getCell().getNumberColumnsSpanned(); i < c; i++) {
-                        spanWidth += ((TableColumn) colIter.next()).getColumnWidth().getValue(
-                                tableLM);
-                    }
-                    LayoutContext childLC = LayoutContext.newInstance();
-                    childLC.setStackLimitBP(context.getStackLimitBP()); //necessary?
-                    childLC.setRefIPD(spanWidth);
-
-                    //Get the element list for the cell contents
-                    List elems = primary.getCellLM().getNextKnuthElements(
-                            childLC, alignment);
-                    ElementListObserver.observe(elems, "table-cell", primary.getCell().getId());
-                    primary.setElements(elems);
+                    cells.add(primary);
+                }
+            }
+        }
+        List[] speculativeElements = createElementsConcurrently(cells, context, alignment,
+                bodyType);
+        for (int i = 0; i < cells.size(); i++) {
+            PrimaryGridUnit primary = cells.get(i);
+            List elems = (speculativeElements != null ? speculativeElements[i] : null);
+            if (elems == null) {
+                if (speculativeElements != null) {
+                    //The speculative attempt was abandoned, start over with a fresh LM
+                    primary.createCellLM();
+                    primary.getCellLM().setParent(tableLM);
                 }
+                //Get the element list for the cell contents
+                elems = primary.getCellLM().getNextKnuthElements(
+                        createCellContext(primary, context), alignment);
             }
+            ElementListObserver.observe(elems, "table-cell", primary.getCell().getId());
+            primary.setElements(elems);
         }
         computeRowHeights();
         List elements = tableStepper.getCombinedKnuthElementsForRowGroup(context,
@@ -130,6 +168,95 @@ class RowGroupLayoutManager {
         returnList.addAll(elements);
     }
 
+    private LayoutContext createCellContext(PrimaryGridUnit primary, LayoutContext context) {
+        //Calculate width of cell
+        int spanWidth = 0;
+        Iterator colIter = tableLM.getTable().getColumns().listIterator(
+                primary.getColIndex());
+        for (int i = 0, c = primary.getCell().getNumberColumnsSpanned(); i < c; i++) {
+            spanWidth += ((TableColumn) colIter.next()).getColumnWidth().getValue(
+                    tableLM);
+        }
+        LayoutContext childLC = LayoutContext.newInstance();
+        childLC.setStackLimitBP(context.getStackLimitBP()); //necessary?
+        childLC.setRefIPD(spanWidth);
+        return childLC;
+    }
+
+    /**
+     * Creates the element lists of the cells on the user agent's cell layout pool, if enabled.
+     * Every cell is laid out speculatively: as soon as it would change state shared with the
+     * rest of the document, the attempt is abandoned so the cell can be laid out again
+     * serially, in document order.
+     * @return the element lists, with null entries for the cells that must be laid out again,
+     * or null if no cell was laid out concurrently
+     */
+    private List[] createElementsConcurrently(List<PrimaryGridUnit> cells,
+            final LayoutContext context, final int alignment, int bodyType) {
+        ForkJoinPool pool = getCellLayoutPool(bodyType);
+        if (pool == null || cells.size() < 2) {
+            return null;
+        }
+        for (PrimaryGridUnit primary : cells) {
+            if (!canLayOutConcurrently(primary.getCell())) {
+                return null;
+            }
+        }
+        List<Callable<List>> tasks = new ArrayList<Callable<List>>(cells.size());
+        for (final PrimaryGridUnit primary : cells) {
+            final LayoutContext childLC = createCellContext(primary, context);
+            tasks.add(SpeculativeExecution.speculative(new Callable<List>() {
+                public List call() {
+                    return primary.getCellLM().getNextKnuthElements(childLC, alignment);
+                }
+            }));
+        }
+        List[] elementLists = new List[cells.size()];
+        try {
+            List<Future<List>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < elementLists.length; i++) {
+                try {
+                    elementLists[i] = results.get(i).get();
+                } catch (ExecutionException e) {
+                    //Laid out again serially, which reports the problem
+                    log.debug("Concurrent layout of table-cell failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return elementLists;
+    }
+
+    private ForkJoinPool getCellLayoutPool(int bodyType) {
+        FOUserAgent userAgent = tableLM.getTable().getUserAgent();
+        if (bodyType != TableRowIterator.BODY || SpeculativeExecution.isActive()
+                || userAgent.isAccessibilityEnabled()
+                || tableLM.getPSLM().getLayoutManagerMaker().getClass()
+                        != LayoutManagerMapping.class) {
+            return null;
+        }
+        return userAgent.getTableCellLayoutPool();
+    }
+
+    /**
+     * Indicates whether the content of a node only consists of formatting objects whose layout
+     * is known not to depend on page-level state (markers, citations, footnotes, images...).
+     */
+    private static boolean canLayOutConcurrently(FONode node) {
+        for (FONode.FONodeIterator it = node.getChildNodes(); it != null && it.hasNext();) {
+            FONode child = it.next();
+            if (child.getClass() == Marker.class) {
+                continue;
+            }
+            if (!CONCURRENT_LAYOUT_NODES.contains(child.getClass())
+                    || !canLayOutConcurrently(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Calculate the heights of the rows in the row group, see CSS21, 17.5.3 Table height
      * algorithms.
@@ -35,6 +35,7 @@ import org.apache.fop.fo.flow.table.EmptyGridUnit;
 import org.apache.fop.fo.flow.table.GridUnit;
 import org.apache.fop.fo.flow.table.PrimaryGridUnit;
 import org.apache.fop.fo.flow.table.Table;
+import org.apache.fop.fo.flow.table.TableBody;
 import org.apache.fop.fo.flow.table.TableColumn;
 import org.apache.fop.fo.flow.table.TablePart;
 import org.apache.fop.fo.properties.CommonBorderPaddingBackground;
@@ -86,8 +87,14 @@ class RowPainter {
 
     private TableContentLayoutManager tclm;
 
+    /** True if the body cells may be released once their areas have been added. */
+    private boolean releaseBodyCells;
+    /** True if the cells of the current table part are released once finished. */
+    private boolean releaseCells;
+
     RowPainter(TableContentLayoutManager tclm, LayoutContext layoutContext) {
         this.tclm = tclm;
+        this.releaseBodyCells = tclm.getTableLM().isBodyCellReleaseEnabled();
         this.layoutContext = layoutContext;
         this.colCount = tclm.getColumns().getColumnCount();
         this.cellHeights = new int[colCount];
@@ -107,6 +114,7 @@ class RowPainter {
             }
         }
         tablePartOffset = currentRowOffset;
+        releaseCells = releaseBodyCells && tablePart instanceof TableBody;
     }
 
     /**
@@ -314,6 +322,9 @@ class RowPainter {
                         firstCellParts[i].start, lastCellParts[i].end,
                         actualRowHeight, borderBeforeWhich, borderAfterWhich,
                         lastOnPage);
+                if (releaseCells && lastCellParts[i].isLastPart()) {
+                    firstCellParts[i].pgu.releaseLayout();
+                }
                 firstCellParts[i] = null; // why? what about the lastCellParts[i]?
                 Arrays.fill(firstCellOnPage, i, i + currentGU.getCell().getNumberColumnsSpanned(),
                         false);
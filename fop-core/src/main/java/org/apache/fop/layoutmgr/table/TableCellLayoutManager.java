@@ -307,7 +307,7 @@ public class TableCellLayoutManager extends BlockStackingLayoutManager {
      * Checks whether the associated table cell of this LM is in a table header or footer.
      * @return true if descendant of table header or footer
      */
-    private boolean isDescendantOfTableHeaderOrFooter() {
+    boolean isDescendantOfTableHeaderOrFooter() {
         return (isDescendantOfTableFooter || isDescendantOfTableHeader);
     }
 
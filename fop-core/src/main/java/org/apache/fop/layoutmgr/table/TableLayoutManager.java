@@ -45,11 +45,14 @@ import org.apache.fop.fo.properties.KeepProperty;
 import org.apache.fop.layoutmgr.BlockLevelEventProducer;
 import org.apache.fop.layoutmgr.BreakElement;
 import org.apache.fop.layoutmgr.BreakOpportunity;
+import org.apache.fop.layoutmgr.FlowLayoutManager;
 import org.apache.fop.layoutmgr.KnuthElement;
 import org.apache.fop.layoutmgr.KnuthGlue;
 import org.apache.fop.layoutmgr.LayoutContext;
+import org.apache.fop.layoutmgr.LayoutManager;
 import org.apache.fop.layoutmgr.LeafPosition;
 import org.apache.fop.layoutmgr.ListElement;
+import org.apache.fop.layoutmgr.PageSequenceLayoutManager;
 import org.apache.fop.layoutmgr.Position;
 import org.apache.fop.layoutmgr.PositionIterator;
 import org.apache.fop.layoutmgr.SpacedBorderedPaddedBlockLayoutManager;
@@ -144,6 +147,29 @@ public class TableLayoutManager extends SpacedBorderedPaddedBlockLayoutManager
         return (Table)this.fobj;
     }
 
+    /**
+     * Indicates whether the cells of the table-bodies may release their content once all their
+     * areas have been added. This is the case in streaming mode for tables in the flow, unless
+     * the table is nested in a table-header or -footer whose areas may be added more than once.
+     * @return true if the body cells may be released
+     * @see org.apache.fop.apps.FOUserAgent#setTableStreamingEnabled(boolean)
+     */
+    boolean isBodyCellReleaseEnabled() {
+        if (!getTable().getUserAgent().isTableStreamingEnabled()) {
+            return false;
+        }
+        LayoutManager lm = getParent();
+        while (lm != null
+                && !(lm instanceof FlowLayoutManager || lm instanceof PageSequenceLayoutManager)) {
+            if (lm instanceof TableCellLayoutManager
+                    && ((TableCellLayoutManager) lm).isDescendantOfTableHeaderOrFooter()) {
+                return false;
+            }
+            lm = lm.getParent();
+        }
+        return lm instanceof FlowLayoutManager;
+    }
+
     /**
      * @return the column setup for this table.
      */
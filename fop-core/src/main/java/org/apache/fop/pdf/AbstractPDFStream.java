@@ -41,6 +41,9 @@ public abstract class AbstractPDFStream extends PDFObject {
 
     private PDFNumber refLength = new PDFNumber();
 
+    /** the encoded stream, if it has been spilled before the stream is output */
+    private StreamCache spilledStream;
+
     protected AbstractPDFStream() {
         this(true);
     }
@@ -217,14 +220,27 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     @Override
     public int output(OutputStream stream) throws IOException {
-        setupFilterList();
+        if (spilledStream == null) {
+            setupFilterList();
+        }
 
         CountingOutputStream cout = new CountingOutputStream(stream);
         StringBuilder textBuffer = new StringBuilder(64);
 
         StreamCache encodedStream = null;
         final Object lengthEntry;
-        if (encodeOnTheFly) {
+        if (spilledStream != null) {
+            encodedStream = spilledStream;
+            if (encodeOnTheFly) {
+                if (!refLength.hasObjectNumber()) {
+                    registerChildren();
+                }
+                refLength.setNumber(encodedStream.getSize());
+                lengthEntry = refLength;
+            } else {
+                lengthEntry = encodedStream.getSize();
+            }
+        } else if (encodeOnTheFly) {
             if (!refLength.hasObjectNumber()) {
                 registerChildren();
             }
@@ -250,6 +266,31 @@ public abstract class AbstractPDFStream extends PDFObject {
         return cout.getCount();
     }
 
+    /**
+     * Encodes the stream data ahead of output into the given cache and releases the raw data.
+     * The encoded data is written from the cache when the stream is output.
+     * @param cache the cache to write the encoded stream data to
+     * @throws IOException in case of an I/O problem
+     */
+    void spill(StreamCache cache) throws IOException {
+        setupFilterList();
+        OutputStream filteredOutput = getFilterList().applyFilters(
+                new CloseBlockerOutputStream(cache.getOutputStream()));
+        outputRawStreamData(filteredOutput);
+        filteredOutput.close();
+        spilledStream = cache;
+        releaseStreamData();
+    }
+
+    /**
+     * Releases the raw stream data after it has been encoded ahead of output. Override this
+     * method if the raw data is held by this object; it won't be needed any more.
+     * @throws IOException in case of an I/O problem
+     */
+    protected void releaseStreamData() throws IOException {
+        //nop: No raw data held by default
+    }
+
     @Override
     public void setDocument(PDFDocument doc) {
         dictionary.setDocument(doc);
@@ -19,6 +19,8 @@
 
 package org.apache.fop.pdf;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,8 +28,9 @@ import org.apache.fop.pdf.xref.CompressedObjectReference;
 
 /**
  * Manages a collection of object streams, creating new streams as necessary to keep the
- * number of objects in each stream at the recommended value. Streams are related to each
- * other through the use of the Extends entry in the stream dictionary.
+ * number of objects in each stream at the recommended value. Streams output with the
+ * document's trailer are related to each other through the use of the Extends entry in the
+ * stream dictionary.
  */
 class ObjectStreamManager {
 
@@ -41,26 +44,99 @@ class ObjectStreamManager {
 
     private ObjectStream currentObjectStream;
 
+    /**
+     * The full object streams to be output by the caller, null if the object streams are
+     * output with the document's trailer.
+     */
+    private List<ObjectStream> completedObjectStreams;
+
     ObjectStreamManager(PDFDocument pdfDocument) {
+        this(pdfDocument, false);
+    }
+
+    /**
+     * Creates a new manager.
+     *
+     * @param pdfDocument the document
+     * @param outputByCaller true if the caller outputs the object streams (see
+     * {@link #takeCompletedObjectStreams(boolean)}), false if they are output with the
+     * document's trailer
+     */
+    ObjectStreamManager(PDFDocument pdfDocument, boolean outputByCaller) {
         this.pdfDocument = pdfDocument;
-        createObjectStream();
         compressedObjectReferences = new ArrayList<CompressedObjectReference>();
+        if (outputByCaller) {
+            completedObjectStreams = new ArrayList<ObjectStream>();
+        } else {
+            createObjectStream();
+        }
     }
 
     void add(CompressedObject compressedObject) {
-        if (numObjectsInStream++ == OBJECT_STREAM_CAPACITY) {
+        if (currentObjectStream == null || numObjectsInStream == OBJECT_STREAM_CAPACITY) {
             createObjectStream();
-            numObjectsInStream = 1;
+            numObjectsInStream = 0;
         }
+        numObjectsInStream++;
         compressedObjectReferences.add(currentObjectStream.addObject(compressedObject));
     }
 
+    /**
+     * Adds an object that doesn't implement {@link CompressedObject}. The object must not be
+     * a stream and must have a generation number of 0.
+     *
+     * @param object the object
+     */
+    void addObject(final PDFObject object) {
+        if (object instanceof CompressedObject) {
+            add((CompressedObject) object);
+        } else {
+            add(new CompressedObject() {
+
+                public PDFObjectNumber getObjectNumber() {
+                    return object.getObjectNumber();
+                }
+
+                public int output(OutputStream outputStream) throws IOException {
+                    return object.output(outputStream);
+                }
+            });
+        }
+    }
+
     private void createObjectStream() {
-        currentObjectStream = currentObjectStream == null
-                ? new ObjectStream()
-                : new ObjectStream(currentObjectStream);
-        pdfDocument.assignObjectNumber(currentObjectStream);
-        pdfDocument.addTrailerObject(currentObjectStream);
+        if (completedObjectStreams == null) {
+            currentObjectStream = currentObjectStream == null
+                    ? new ObjectStream()
+                    : new ObjectStream(currentObjectStream);
+            pdfDocument.assignObjectNumber(currentObjectStream);
+            pdfDocument.addTrailerObject(currentObjectStream);
+        } else {
+            // Extends isn't used here, it would keep all previous object streams in memory
+            if (currentObjectStream != null) {
+                completedObjectStreams.add(currentObjectStream);
+            }
+            currentObjectStream = new ObjectStream();
+            pdfDocument.assignObjectNumber(currentObjectStream);
+        }
+    }
+
+    /**
+     * Returns the object streams that won't receive further objects and that have not been
+     * returned yet. Only to be used if the caller outputs the object streams.
+     *
+     * @param all true to also return the object stream that is currently filled; further
+     * objects are then added to a new object stream
+     * @return the object streams to output
+     */
+    List<ObjectStream> takeCompletedObjectStreams(boolean all) {
+        if (all && currentObjectStream != null) {
+            completedObjectStreams.add(currentObjectStream);
+            currentObjectStream = null;
+        }
+        List<ObjectStream> objectStreams = completedObjectStreams;
+        completedObjectStreams = new ArrayList<ObjectStream>();
+        return objectStreams;
     }
 
     List<CompressedObjectReference> getCompressedObjectReferences() {
@@ -30,9 +30,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -40,6 +42,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.xmlgraphics.image.loader.util.SoftMapCache;
 
 import org.apache.fop.pdf.StandardStructureAttributes.Table.Scope;
+import org.apache.fop.pdf.xref.CompressedObjectReference;
 import org.apache.fop.pdf.xref.CrossReferenceStream;
 import org.apache.fop.pdf.xref.CrossReferenceTable;
 import org.apache.fop.pdf.xref.TrailerDictionary;
@@ -180,6 +183,35 @@ public class PDFDocument {
 
     private boolean formXObjectEnabled;
 
+    private boolean incrementalStructureTreeEnabled;
+
+    private boolean objectStreamsEnabled;
+
+    private boolean regionContentReuseEnabled;
+
+    private boolean svgReuseEnabled;
+
+    private int fontEmbeddingThreadCount;
+
+    /** the objects written to object streams as the document is output, null until needed */
+    private ObjectStreamManager objectStreams;
+
+    private boolean linearizationSpillEnabled;
+
+    /** the temporary file stream data is spilled to with linearization, null until needed */
+    private SpillStore spillStore;
+
+    /** the streams added since stream data has last been spilled */
+    private List<AbstractPDFStream> unspilledStreams = new ArrayList<AbstractPDFStream>();
+
+    /** the structure elements of the page-sequences not written yet, in document order */
+    private LinkedList<List<PDFStructElem>> pageSequenceStructureElements
+            = new LinkedList<List<PDFStructElem>>();
+
+    /** the structure elements already written to object streams */
+    private List<CompressedObjectReference> writtenStructureTreeElements
+            = new ArrayList<CompressedObjectReference>();
+
     protected boolean outputStarted;
 
     /**
@@ -389,6 +421,9 @@ public class PDFDocument {
     public void registerStructureElement(PDFStructElem structElem) {
         assignObjectNumber(structElem);
         structureTreeElements.add(structElem);
+        if (!pageSequenceStructureElements.isEmpty()) {
+            pageSequenceStructureElements.getLast().add(structElem);
+        }
     }
 
     /**
@@ -544,6 +579,18 @@ public class PDFDocument {
             }
             this.navigatorActions.add((PDFNavigatorAction) obj);
         }
+        if (isLinearizationSpillActive() && isSpillable(obj)) {
+            unspilledStreams.add((AbstractPDFStream) obj);
+        }
+    }
+
+    /**
+     * Streams whose data is complete once the page they're added for ends: page contents, form
+     * XObjects and images. Other streams, like metadata or font streams, may change until the
+     * end of the document.
+     */
+    private static boolean isSpillable(PDFObject obj) {
+        return obj.getClass() == PDFStream.class || obj instanceof PDFXObject;
     }
 
     /**
@@ -1024,10 +1071,112 @@ public class PDFDocument {
         //on the fly even during serialization.
         while (this.objects.size() > 0) {
             PDFObject object = this.objects.remove(0);
+            writeObject(object, stream);
+        }
+    }
+
+    /**
+     * Writes the given object, to an object stream if possible.
+     */
+    private void writeObject(PDFObject object, OutputStream stream) throws IOException {
+        if (mayBeInObjectStream(object)) {
+            if (objectStreams == null) {
+                objectStreams = new ObjectStreamManager(this, true);
+            }
+            objectStreams.addObject(object);
+            streamIndirectObjects(objectStreams.takeCompletedObjectStreams(false), stream);
+        } else {
             streamIndirectObject(object, stream);
         }
     }
 
+    private boolean mayBeInObjectStream(PDFObject object) {
+        return isObjectStreamsActive()
+                && !(object instanceof AbstractPDFStream)
+                // may be the length of a stream
+                && !(object instanceof PDFNumber)
+                && object.getGeneration() == 0;
+    }
+
+    private boolean isObjectStreamsActive() {
+        return objectStreamsEnabled
+                && !isEncryptionActive()
+                && !isLinearizationEnabled()
+                && !pdfProfile.getPDFAMode().isPart1()
+                && versionController.getPDFVersion().compareTo(Version.V1_5) >= 0;
+    }
+
+    /**
+     * Starts a new page-sequence in the structure tree. The structure elements registered from
+     * now on belong to that page-sequence, see {@link #outputStructureTreeElements(OutputStream)}.
+     * Does nothing unless incremental output of the structure tree is enabled.
+     */
+    public void startStructureTreePageSequence() {
+        if (incrementalStructureTreeEnabled) {
+            pageSequenceStructureElements.add(new ArrayList<PDFStructElem>());
+        }
+    }
+
+    /**
+     * Writes the structure elements of the oldest page-sequence that hasn't been written yet.
+     * This is meant to be called once for every page-sequence, when all its pages have been
+     * output: the structure elements of the page-sequence won't change anymore. The structure
+     * tree of the following page-sequences may already have been built at that point, their
+     * elements are kept until their own pages are done. So are the elements directly below the
+     * structure tree root, to which further page-sequences are added. Does nothing unless
+     * incremental output of the structure tree is enabled.
+     *
+     * @param stream the OutputStream to write the structure elements to
+     * @throws IOException if there is an exception writing to the output stream
+     */
+    public void outputStructureTreeElements(OutputStream stream) throws IOException {
+        if (!incrementalStructureTreeEnabled || structureTreeElements == null
+                || isLinearizationEnabled()) {
+            return;
+        }
+        List<PDFStructElem> pageSequenceElements = pageSequenceStructureElements.poll();
+        if (pageSequenceElements == null || pageSequenceElements.isEmpty()) {
+            return;
+        }
+        List<PDFStructElem> completeElements = new ArrayList<PDFStructElem>();
+        Set<PDFStructElem> written
+                = Collections.newSetFromMap(new IdentityHashMap<PDFStructElem, Boolean>());
+        for (PDFStructElem structElem : pageSequenceElements) {
+            if (structElem.getParentStructElem() != null) {
+                completeElements.add(structElem);
+                written.add(structElem);
+            }
+        }
+        if (mayCompressStructureTreeElements()) {
+            ObjectStreamManager structElemStreams = new ObjectStreamManager(this, true);
+            for (PDFStructElem structElem : completeElements) {
+                structElemStreams.add(structElem);
+            }
+            streamIndirectObjects(structElemStreams.takeCompletedObjectStreams(true), stream);
+            writtenStructureTreeElements.addAll(structElemStreams.getCompressedObjectReferences());
+        } else {
+            for (PDFStructElem structElem : completeElements) {
+                streamIndirectObject(structElem, stream);
+            }
+        }
+        Set<PDFStructElem> parents
+                = Collections.newSetFromMap(new IdentityHashMap<PDFStructElem, Boolean>());
+        for (PDFStructElem structElem : completeElements) {
+            PDFStructElem parent = structElem.getParentStructElem();
+            if (!written.contains(parent) && parents.add(parent)) {
+                parent.replaceWrittenKids(written);
+            }
+        }
+        List<PDFStructElem> remainingElements = new ArrayList<PDFStructElem>(
+                structureTreeElements.size() - completeElements.size());
+        for (PDFStructElem structElem : structureTreeElements) {
+            if (!written.contains(structElem)) {
+                remainingElements.add(structElem);
+            }
+        }
+        structureTreeElements = remainingElements;
+    }
+
     protected void writeTrailer(OutputStream stream, int first, int last, int size, long mainOffset, long startxref)
             throws IOException {
         TrailerOutputHelper trailerOutputHelper = mayCompressStructureTreeElements()
@@ -1143,13 +1292,19 @@ public class PDFDocument {
     }
 
     private void outputTrailerObjectsAndXref(OutputStream stream) throws IOException {
-        TrailerOutputHelper trailerOutputHelper = mayCompressStructureTreeElements()
+        TrailerOutputHelper trailerOutputHelper
+                = mayCompressStructureTreeElements() || isObjectStreamsActive()
                 ? new CompressedTrailerOutputHelper()
                 : new UncompressedTrailerOutputHelper();
         if (structureTreeElements != null) {
             trailerOutputHelper.outputStructureTreeElements(stream);
         }
-        streamIndirectObjects(trailerObjects, stream);
+        for (PDFObject trailerObject : trailerObjects) {
+            writeObject(trailerObject, stream);
+        }
+        if (objectStreams != null) {
+            streamIndirectObjects(objectStreams.takeCompletedObjectStreams(true), stream);
+        }
         TrailerDictionary trailerDictionary = createTrailerDictionary(true);
         long startxref = trailerOutputHelper.outputCrossReferenceObject(stream, trailerDictionary, 0,
                 indirectObjectOffsets.size(), indirectObjectOffsets.size());
@@ -1221,6 +1376,10 @@ public class PDFDocument {
         public void outputStructureTreeElements(OutputStream stream)
                 throws IOException {
             assert structureTreeElements.size() > 0;
+            if (!mayCompressStructureTreeElements()) {
+                streamIndirectObjects(structureTreeElements, stream);
+                return;
+            }
             structureTreeObjectStreams = new ObjectStreamManager(PDFDocument.this);
             for (PDFStructElem structElem : structureTreeElements) {
                 structureTreeObjectStreams.add(structElem);
@@ -1231,9 +1390,17 @@ public class PDFDocument {
                 TrailerDictionary trailerDictionary, int first, int last, int size) throws IOException {
             // Outputting the object streams should not have created new indirect objects
             assert objects.isEmpty();
+            List<CompressedObjectReference> compressedObjectReferences
+                    = new ArrayList<CompressedObjectReference>(writtenStructureTreeElements);
+            if (structureTreeObjectStreams != null) {
+                compressedObjectReferences.addAll(
+                        structureTreeObjectStreams.getCompressedObjectReferences());
+            }
+            if (objectStreams != null) {
+                compressedObjectReferences.addAll(objectStreams.getCompressedObjectReferences());
+            }
             new CrossReferenceStream(PDFDocument.this, ++objectcount, trailerDictionary, position,
-                    indirectObjectOffsets,
-                    structureTreeObjectStreams.getCompressedObjectReferences())
+                    indirectObjectOffsets, compressedObjectReferences)
                     .output(stream);
             return position;
         }
@@ -1262,6 +1429,83 @@ public class PDFDocument {
         linearizationEnabled = b;
     }
 
+    public boolean isLinearizationSpillEnabled() {
+        return linearizationSpillEnabled;
+    }
+
+    /**
+     * Enables spilling stream data to a temporary file with linearization. A linearized document
+     * can only be written once it is complete, so all of its objects are held back until then.
+     * With this option, the data of page content streams, form XObjects and images is encoded
+     * to a temporary file as pages are completed, and the document is assembled from that file.
+     * @param b true to spill stream data
+     * @see #spillStreams()
+     */
+    public void setLinearizationSpillEnabled(boolean b) {
+        linearizationSpillEnabled = b;
+    }
+
+    /**
+     * Stream data isn't spilled if the document is encrypted: the encryption key of an object
+     * depends on its object number, which isn't fixed before the end with linearization.
+     */
+    private boolean isLinearizationSpillActive() {
+        return linearizationSpillEnabled && isLinearizationEnabled() && !isEncryptionActive();
+    }
+
+    /**
+     * Encodes the data of the streams added since the last call to a temporary file and
+     * releases it from memory, if spilling is enabled for linearization. If this fails, the
+     * temporary file is deleted.
+     * @throws IOException if an I/O error occurs
+     * @see #setLinearizationSpillEnabled(boolean)
+     */
+    public void spillStreams() throws IOException {
+        if (unspilledStreams.isEmpty() || !isLinearizationSpillActive()) {
+            unspilledStreams.clear();
+            return;
+        }
+        if (spillStore == null) {
+            spillStore = new SpillStore();
+        }
+        try {
+            for (AbstractPDFStream stream : unspilledStreams) {
+                stream.spill(spillStore.createStreamCache());
+            }
+        } catch (IOException ioe) {
+            closeSpillStore();
+            throw ioe;
+        }
+        unspilledStreams.clear();
+    }
+
+    /**
+     * Creates a buffer for the linearized document body; backed by the temporary file if stream
+     * data has been spilled.
+     */
+    StreamCache createLinearizationBuffer() throws IOException {
+        if (spillStore != null) {
+            return spillStore.createStreamCache();
+        }
+        return StreamCacheFactory.getInstance().createStreamCache();
+    }
+
+    /**
+     * Closes and deletes the temporary file stream data has been spilled to, if any. This is
+     * done when the document has been output, and must also be done if output fails.
+     */
+    public void closeSpillStore() {
+        if (spillStore != null) {
+            try {
+                spillStore.close();
+            } catch (IOException ioe) {
+                log.warn("Error closing the temporary file of the PDF stream data: "
+                        + ioe.getMessage());
+            }
+            spillStore = null;
+        }
+    }
+
     public boolean isFormXObjectEnabled() {
         return formXObjectEnabled;
     }
@@ -1269,4 +1513,81 @@ public class PDFDocument {
     public void setFormXObjectEnabled(boolean b) {
         formXObjectEnabled = b;
     }
+
+    public boolean isRegionContentReuseEnabled() {
+        return regionContentReuseEnabled;
+    }
+
+    /**
+     * Enables writing the content of the before and after regions that repeats on several pages
+     * only once, as a form XObject referenced by each page.
+     * @param b true to reuse the content of the regions
+     */
+    public void setRegionContentReuseEnabled(boolean b) {
+        regionContentReuseEnabled = b;
+    }
+
+    public boolean isSVGReuseEnabled() {
+        return svgReuseEnabled;
+    }
+
+    /**
+     * Enables writing SVG graphics that occur several times with the same content and size
+     * only once, as a form XObject referenced wherever the graphic is drawn.
+     * @param b true to reuse SVG graphics
+     */
+    public void setSVGReuseEnabled(boolean b) {
+        svgReuseEnabled = b;
+    }
+
+    public int getFontEmbeddingThreadCount() {
+        return fontEmbeddingThreadCount;
+    }
+
+    /**
+     * Sets the number of threads the used fonts are subset on when they are added to the
+     * document. The fonts are still registered one after the other, in the same order as
+     * with a single thread, so the output doesn't change.
+     * @param threadCount the number of threads, 0 or 1 to subset the fonts one at a time
+     */
+    public void setFontEmbeddingThreadCount(int threadCount) {
+        fontEmbeddingThreadCount = threadCount;
+    }
+
+    public boolean isObjectStreamsEnabled() {
+        return objectStreamsEnabled;
+    }
+
+    /**
+     * Enables writing all objects that may be compressed to object streams, together with a
+     * cross-reference stream. This requires PDF 1.5; the version of the document is raised if
+     * possible. Object streams are not used with encryption, linearization or PDF/A-1.
+     * @param b true to enable object streams
+     */
+    public void setObjectStreamsEnabled(boolean b) {
+        objectStreamsEnabled = b;
+        if (b && versionController.getPDFVersion().compareTo(Version.V1_5) < 0
+                && !isEncryptionActive() && !pdfProfile.getPDFAMode().isPart1()) {
+            try {
+                versionController.setPDFVersion(Version.V1_5);
+            } catch (IllegalStateException e) {
+                log.warn("Object streams require PDF 1.5 or later; they will not be used for"
+                        + " PDF " + versionController.getPDFVersion());
+            }
+        }
+    }
+
+    public boolean isIncrementalStructureTreeEnabled() {
+        return incrementalStructureTreeEnabled;
+    }
+
+    /**
+     * Enables writing the structure tree as page-sequences are completed, rather than keeping
+     * it in memory until the end of the document.
+     * @param b true to enable incremental output of the structure tree
+     * @see #outputStructureTreeElements(OutputStream)
+     */
+    public void setIncrementalStructureTreeEnabled(boolean b) {
+        incrementalStructureTreeEnabled = b;
+    }
 }
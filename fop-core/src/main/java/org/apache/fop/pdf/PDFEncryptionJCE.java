@@ -19,6 +19,7 @@
 
 package org.apache.fop.pdf;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
@@ -27,13 +28,17 @@ import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -656,16 +661,122 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
                 Cipher cipher = initCipher(encryptionKey, false, iv);
                 out.write(iv);
                 out.flush();
-                return new CipherOutputStream(out, cipher);
+                return new EncryptingOutputStream(out, cipher);
             } else {
                 byte[] key = createEncryptionKey(streamNumber.getNumber(), streamGeneration);
                 Cipher cipher = initCipher(key);
-                return new CipherOutputStream(out, cipher);
+                return new EncryptingOutputStream(out, cipher);
             }
         }
 
     }
 
+    /**
+     * Encrypts the data written to it. Unlike {@link javax.crypto.CipherOutputStream}, which
+     * allocates a new array for every write, the encrypted data goes through a buffer that is
+     * allocated once per stream. The cipher is given back to the {@link CipherCache} when the
+     * stream is closed.
+     */
+    private static final class EncryptingOutputStream extends FilterOutputStream {
+
+        private static final int CHUNK_SIZE = 4096;
+
+        private Cipher cipher;
+
+        private final byte[] buffer;
+
+        private final byte[] singleByte = new byte[1];
+
+        EncryptingOutputStream(OutputStream out, Cipher cipher) {
+            super(out);
+            this.cipher = cipher;
+            buffer = new byte[cipher.getOutputSize(CHUNK_SIZE)];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            singleByte[0] = (byte) b;
+            write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (cipher == null) {
+                throw new IOException("Stream closed");
+            }
+            try {
+                while (len > 0) {
+                    int chunk = Math.min(len, CHUNK_SIZE);
+                    int encrypted = cipher.update(b, off, chunk, buffer);
+                    out.write(buffer, 0, encrypted);
+                    off += chunk;
+                    len -= chunk;
+                }
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cipher == null) {
+                return;
+            }
+            try {
+                int encrypted = cipher.doFinal(buffer, 0);
+                out.write(buffer, 0, encrypted);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            } catch (IllegalBlockSizeException e) {
+                throw new IllegalStateException(e);
+            } catch (BadPaddingException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                CipherCache.release(cipher);
+                cipher = null;
+            }
+            out.flush();
+            out.close();
+        }
+    }
+
+    /**
+     * Keeps the Cipher instances of each thread, as looking them up is expensive compared to
+     * encrypting the typical PDF string or stream. The instances are re-initialized for each
+     * use. A Cipher is removed from the cache while it's in use, so strings encrypted while
+     * a stream is being written get a separate instance.
+     */
+    private static final class CipherCache {
+
+        private static final ThreadLocal<Map<String, Deque<Cipher>>> CIPHERS
+                = new ThreadLocal<Map<String, Deque<Cipher>>>() {
+            @Override
+            protected Map<String, Deque<Cipher>> initialValue() {
+                return new HashMap<String, Deque<Cipher>>();
+            }
+        };
+
+        private CipherCache() {
+        }
+
+        static Cipher acquire(String transformation)
+                throws NoSuchAlgorithmException, NoSuchPaddingException {
+            Deque<Cipher> ciphers = CIPHERS.get().get(transformation);
+            Cipher cipher = ciphers == null ? null : ciphers.poll();
+            return cipher == null ? Cipher.getInstance(transformation) : cipher;
+        }
+
+        static void release(Cipher cipher) {
+            Map<String, Deque<Cipher>> ciphersByTransformation = CIPHERS.get();
+            Deque<Cipher> ciphers = ciphersByTransformation.get(cipher.getAlgorithm());
+            if (ciphers == null) {
+                ciphers = new ArrayDeque<Cipher>(2);
+                ciphersByTransformation.put(cipher.getAlgorithm(), ciphers);
+            }
+            ciphers.push(cipher);
+        }
+    }
+
     private PDFEncryptionJCE(PDFObjectNumber objectNumber, PDFEncryptionParams params, PDFDocument pdf) {
         setObjectNumber(objectNumber);
         try {
@@ -746,7 +857,11 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
     private static byte[] encryptWithKey(byte[] key, byte[] data) {
         try {
             final Cipher c = initCipher(key);
-            return c.doFinal(data);
+            try {
+                return c.doFinal(data);
+            } finally {
+                CipherCache.release(c);
+            }
         } catch (IllegalBlockSizeException e) {
             throw new IllegalStateException(e.getMessage());
         } catch (BadPaddingException e) {
@@ -757,7 +872,11 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
     private static byte[] encryptWithKey(byte[] key, byte[] data, boolean noPadding, byte[] iv) {
         try {
             final Cipher c = initCipher(key, noPadding, iv);
-            return c.doFinal(data);
+            try {
+                return c.doFinal(data);
+            } finally {
+                CipherCache.release(c);
+            }
         } catch (IllegalBlockSizeException e) {
             throw new IllegalStateException(e.getMessage());
         } catch (BadPaddingException e) {
@@ -768,7 +887,7 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
     private static Cipher initCipher(byte[] key) {
         try {
             SecretKeySpec keyspec = new SecretKeySpec(key, "RC4");
-            Cipher cipher = Cipher.getInstance("RC4");
+            Cipher cipher = CipherCache.acquire("RC4");
             cipher.init(Cipher.ENCRYPT_MODE, keyspec);
             return cipher;
         } catch (InvalidKeyException e) {
@@ -784,8 +903,8 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         try {
             SecretKeySpec skeySpec = new SecretKeySpec(key, "AES");
             IvParameterSpec ivspec = new IvParameterSpec(iv);
-            Cipher cipher = noPadding ? Cipher.getInstance("AES/CBC/NoPadding") : Cipher
-                    .getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = CipherCache.acquire(noPadding ? "AES/CBC/NoPadding"
+                    : "AES/CBC/PKCS5Padding");
             cipher.init(Cipher.ENCRYPT_MODE, skeySpec, ivspec);
             return cipher;
         } catch (InvalidKeyException e) {
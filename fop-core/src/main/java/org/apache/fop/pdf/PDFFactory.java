@@ -31,12 +31,19 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -82,6 +89,13 @@ public class PDFFactory {
     private int subsetFontCounter = -1;
     private Map<String, PDFDPart> dparts = new HashMap<String, PDFDPart>();
 
+    /** the subset prefixes reserved by prepareFontFiles(), by internal font name */
+    private Map<String, String> reservedFontPrefixes = new HashMap<String, String>();
+
+    /** the font files being created by prepareFontFiles(), by font descriptor */
+    private Map<FontDescriptor, Future<AbstractPDFStream>> preparedFontFiles
+            = new IdentityHashMap<FontDescriptor, Future<AbstractPDFStream>>();
+
     /**
      * Creates a new PDFFactory.
      * @param document the parent PDFDocument needed to register the generated
@@ -922,6 +936,39 @@ public class PDFFactory {
         return encoding;
     }
 
+    /**
+     * Starts creating the embedded font files of the given fonts on the given executor, so
+     * that the fonts can be subset concurrently. {@link #makeFont} must then be called for the
+     * same fonts, in the same order: it registers the objects one font after the other and
+     * picks up the prepared font files, so the result is the same as without preparation.
+     * Only subset fonts are prepared, and only once per font. The subset prefixes are reserved
+     * here, in the order of the map, since they are part of the subset font files.
+     * @param fonts the fonts that are going to be made, by internal font name (eg "F1")
+     * @param executor the executor to create the font files on
+     */
+    public void prepareFontFiles(Map<String, FontDescriptor> fonts, ExecutorService executor) {
+        Set<Typeface> preparedFonts
+                = Collections.newSetFromMap(new IdentityHashMap<Typeface, Boolean>());
+        for (Map.Entry<String, FontDescriptor> entry : fonts.entrySet()) {
+            final FontDescriptor desc = entry.getValue();
+            if (getDocument().findFont(entry.getKey()) != null || !desc.isSubsetEmbedded()) {
+                continue;
+            }
+            final String fontPrefix = createSubsetFontPrefix();
+            reservedFontPrefixes.put(entry.getKey(), fontPrefix);
+            //Subsetting may change the state of the font (the names of the used glyphs), so
+            //a font used under several names is only prepared once
+            if (desc.isEmbeddable() && desc.getFontType() != FontType.OTHER
+                    && preparedFonts.add(getCustomFont(desc))) {
+                preparedFontFiles.put(desc, executor.submit(new Callable<AbstractPDFStream>() {
+                    public AbstractPDFStream call() {
+                        return makeFontFile(desc, fontPrefix);
+                    }
+                }));
+            }
+        }
+    }
+
     /**
      * Make a Type1 /Font object.
      *
@@ -961,7 +1008,10 @@ public class PDFFactory {
         } else {
             FontType fonttype = metrics.getFontType();
 
-            String fontPrefix = descriptor.isSubsetEmbedded() ? createSubsetFontPrefix() : "";
+            String fontPrefix = reservedFontPrefixes.remove(fontname);
+            if (fontPrefix == null) {
+                fontPrefix = descriptor.isSubsetEmbedded() ? createSubsetFontPrefix() : "";
+            }
 
             String subsetFontName = fontPrefix + basefont;
 
@@ -1325,7 +1375,7 @@ public class PDFFactory {
 
         // Check if the font is embeddable
         if (desc.isEmbeddable()) {
-            AbstractPDFStream stream = makeFontFile(desc, fontPrefix);
+            AbstractPDFStream stream = takeFontFile(desc, fontPrefix);
             if (stream != null) {
                 descriptor.setFontFile(desc.getFontType(), stream);
                 getDocument().registerObject(stream);
@@ -1339,6 +1389,39 @@ public class PDFFactory {
         return descriptor;
     }
 
+    /**
+     * Cancels the creation of the prepared font files that haven't been picked up.
+     */
+    void discardPreparedFontFiles() {
+        for (Future<AbstractPDFStream> fontFile : preparedFontFiles.values()) {
+            fontFile.cancel(true);
+        }
+        preparedFontFiles.clear();
+        reservedFontPrefixes.clear();
+    }
+
+    private AbstractPDFStream takeFontFile(FontDescriptor desc, String fontPrefix) {
+        Future<AbstractPDFStream> fontFile = preparedFontFiles.remove(desc);
+        if (fontFile == null) {
+            return makeFontFile(desc, fontPrefix);
+        }
+        try {
+            return fontFile.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while embedding font [" + desc + "] " + desc.getEmbedFontName());
+            return null;
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
     private void buildCIDSet(PDFFontDescriptor descriptor, CIDFont cidFont) {
         BitSet cidSet = cidFont.getCIDSet().getGlyphIndices();
         PDFStream pdfStream = makeStream(null, true);
@@ -168,6 +168,11 @@ public class PDFFormXObject extends PDFXObject {
         return len;
     }
 
+    /** {@inheritDoc} */
+    protected void releaseStreamData() {
+        this.contents = null;
+    }
+
     /** {@inheritDoc} */
     protected void populateStreamDict(Object lengthEntry) {
         if (get("Matrix") == null) {
@@ -43,6 +43,12 @@ public class PDFImageXObject extends PDFXObject {
 
     private PDFImage pdfimage;
 
+    /** the dictionary entries taken from the image, if the image was released before output */
+    private PDFDictionary imageEntries;
+
+    /** the ICC stream of the image, if the image was released before output */
+    private PDFICCStream iccStream;
+
     /**
      * create an XObject with the given number and name and load the
      * image in the object
@@ -65,10 +71,8 @@ public class PDFImageXObject extends PDFXObject {
      * @return the length of the data written
      */
     public int output(OutputStream stream) throws IOException {
-        if (getDocument().getProfile().isPDFVTActive()) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            pdfimage.outputContents(baos);
-            put("GTS_XID", "uuid:" + UUID.nameUUIDFromBytes(baos.toByteArray()));
+        if (pdfimage != null && getDocument().getProfile().isPDFVTActive()) {
+            putXID();
         }
         int length = super.output(stream);
 
@@ -79,34 +83,50 @@ public class PDFImageXObject extends PDFXObject {
         return length;
     }
 
+    private void putXID() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        pdfimage.outputContents(baos);
+        put("GTS_XID", "uuid:" + UUID.nameUUIDFromBytes(baos.toByteArray()));
+    }
+
     /** {@inheritDoc} */
     protected void populateStreamDict(Object lengthEntry) {
         super.populateStreamDict(lengthEntry);
+        if (pdfimage != null) {
+            populateImageEntries(getDictionary());
+        } else {
+            for (String name : imageEntries.order) {
+                put(name, imageEntries.get(name));
+            }
+        }
+    }
+
+    private void populateImageEntries(PDFDictionary dict) {
         if (pdfimage.isPS()) {
-            populateDictionaryFromPS();
+            populateDictionaryFromPS(dict);
         } else {
-            populateDictionaryFromImage();
+            populateDictionaryFromImage(dict);
         }
     }
 
-    private void populateDictionaryFromPS() {
+    private void populateDictionaryFromPS(PDFDictionary dict) {
         getDocumentSafely().getProfile().verifyPSXObjectsAllowed();
-        put("Subtype", new PDFName("PS"));
+        dict.put("Subtype", new PDFName("PS"));
     }
 
-    private void populateDictionaryFromImage() {
-        put("Subtype", new PDFName("Image"));
-        put("Width", pdfimage.getWidth());
-        put("Height", pdfimage.getHeight());
-        put("BitsPerComponent", pdfimage.getBitsPerComponent());
+    private void populateDictionaryFromImage(PDFDictionary dict) {
+        dict.put("Subtype", new PDFName("Image"));
+        dict.put("Width", pdfimage.getWidth());
+        dict.put("Height", pdfimage.getHeight());
+        dict.put("BitsPerComponent", pdfimage.getBitsPerComponent());
 
         PDFICCStream pdfICCStream = pdfimage.getICCStream();
         if (pdfICCStream != null) {
-            put("ColorSpace", new PDFArray(this,
+            dict.put("ColorSpace", new PDFArray(this,
                     new Object[] {new PDFName("ICCBased"), pdfICCStream}));
         } else {
             PDFDeviceColorSpace cs = pdfimage.getColorSpace();
-            put("ColorSpace", new PDFName(cs.getName()));
+            dict.put("ColorSpace", new PDFName(cs.getName()));
         }
 
         if (pdfimage.isInverted()) {
@@ -121,7 +141,7 @@ public class PDFImageXObject extends PDFXObject {
                 decode.add(one);
                 decode.add(zero);
             }
-            put("Decode", decode);
+            dict.put("Decode", decode);
         }
 
         if (pdfimage.isTransparent()) {
@@ -138,14 +158,14 @@ public class PDFImageXObject extends PDFXObject {
                 mask.add(Integer.valueOf(transp.blue255()));
                 mask.add(Integer.valueOf(transp.blue255()));
             }
-            put("Mask", mask);
+            dict.put("Mask", mask);
         }
         PDFReference ref = pdfimage.getSoftMaskReference();
         if (ref != null) {
-            put("SMask", ref);
+            dict.put("SMask", ref);
         }
         //Important: do this at the end so previous values can be overwritten.
-        pdfimage.populateXObjectDictionary(getDictionary());
+        pdfimage.populateXObjectDictionary(dict);
     }
 
     /** {@inheritDoc} */
@@ -153,6 +173,21 @@ public class PDFImageXObject extends PDFXObject {
         pdfimage.outputContents(out);
     }
 
+    /**
+     * {@inheritDoc}
+     * The image, which holds the image data, is released. The dictionary entries that are
+     * taken from it are kept for the output.
+     */
+    protected void releaseStreamData() throws IOException {
+        if (getDocumentSafely().getProfile().isPDFVTActive()) {
+            putXID();
+        }
+        imageEntries = new PDFDictionary();
+        populateImageEntries(imageEntries);
+        iccStream = pdfimage.getICCStream();
+        pdfimage = null;
+    }
+
     /** {@inheritDoc} */
     protected int getSizeHint() throws IOException {
         return 0;
@@ -182,7 +217,7 @@ public class PDFImageXObject extends PDFXObject {
     @Override
     public void getChildren(Set<PDFObject> children) {
         super.getChildren(children);
-        PDFICCStream pdfICCStream = pdfimage.getICCStream();
+        PDFICCStream pdfICCStream = pdfimage != null ? pdfimage.getICCStream() : iccStream;
         if (pdfICCStream != null) {
             children.add(pdfICCStream);
             pdfICCStream.getChildren(children);
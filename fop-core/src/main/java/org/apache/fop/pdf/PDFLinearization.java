@@ -238,6 +238,14 @@ public class PDFLinearization {
     }
 
     public void outputPages(OutputStream stream) throws IOException {
+        try {
+            outputLinearizedPages(stream);
+        } finally {
+            doc.closeSpillStore();
+        }
+    }
+
+    private void outputLinearizedPages(OutputStream stream) throws IOException {
         Collections.sort(doc.pageObjs, new Comparator<PDFPage>() {
             public int compare(PDFPage o1, PDFPage o2) {
                 return Integer.compare(o1.pageIndex, o2.pageIndex);
@@ -265,8 +273,8 @@ public class PDFLinearization {
                 page1Children.size() + sizeOfRest + 1, Long.MAX_VALUE, 0);
         doc.position += fakeHeaderTrailerStream.size();
 
-        ByteArrayOutputStream pageStream = new ByteArrayOutputStream();
-        writeObjects(page1Children, pageStream, sizeOfRest + 1);
+        StreamCache pageStream = doc.createLinearizationBuffer();
+        writeObjects(page1Children, pageStream.getOutputStream(), sizeOfRest + 1);
         long trailerOffset = doc.position;
         ByteArrayOutputStream footerTrailerStream = new ByteArrayOutputStream();
         doc.writeTrailer(footerTrailerStream, 0, sizeOfRest, sizeOfRest, 0, topTrailer);
@@ -285,7 +293,8 @@ public class PDFLinearization {
                 break;
             }
         }
-        stream.write(pageStream.toByteArray());
+        pageStream.outputContents(stream);
+        pageStream.clear();
         stream.write(footerTrailerStream.toByteArray());
     }
 
@@ -25,6 +25,8 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.xmlgraphics.java2d.color.profile.ColorProfileUtil;
 
@@ -118,28 +120,59 @@ public class PDFResources extends PDFDictionary {
      * @param fontInfo font info object to get font information from
      */
    public void addFonts(PDFDocument doc, FontInfo fontInfo) {
+        Map<String, FontDescriptor> descriptors = new LinkedHashMap<String, FontDescriptor>();
         Map<String, Typeface> usedFonts = fontInfo.getUsedFonts();
         for (Map.Entry<String, Typeface> e : usedFonts.entrySet()) {
-            String f = e.getKey();
             Typeface font = e.getValue();
 
             //Check if the font actually had any mapping operations. If not, it is an indication
             //that it has never actually been used and therefore doesn't have to be embedded.
             if (font.hadMappingOperations()) {
-                FontDescriptor desc = null;
-                if (font instanceof FontDescriptor) {
-                    desc = (FontDescriptor)font;
-                }
+                descriptors.put(e.getKey(),
+                        font instanceof FontDescriptor ? (FontDescriptor) font : null);
+            }
+        }
+        ExecutorService executor = createFontEmbeddingExecutor(doc, descriptors);
+        try {
+            for (Map.Entry<String, FontDescriptor> e : descriptors.entrySet()) {
+                String f = e.getKey();
+                Typeface font = usedFonts.get(f);
                 String encoding = font.getEncodingName();
                 if (font instanceof Symbol || font instanceof ZapfDingbats) {
                     encoding = null; //Symbolic fonts shouldn't specify an encoding value in PDF
                 }
                 addFont(doc.getFactory().makeFont(
-                    f, font.getEmbedFontName(), encoding, font, desc));
+                    f, font.getEmbedFontName(), encoding, font, e.getValue()));
+            }
+        } finally {
+            if (executor != null) {
+                doc.getFactory().discardPreparedFontFiles();
+                executor.shutdownNow();
             }
         }
    }
 
+    /**
+     * Starts subsetting the embedded fonts concurrently if enabled for the document.
+     * @return the executor the fonts are subset on, null if they are subset one at a time
+     */
+    private ExecutorService createFontEmbeddingExecutor(PDFDocument doc,
+            Map<String, FontDescriptor> descriptors) {
+        Map<String, FontDescriptor> embeddedFonts = new LinkedHashMap<String, FontDescriptor>();
+        for (Map.Entry<String, FontDescriptor> e : descriptors.entrySet()) {
+            if (e.getValue() != null) {
+                embeddedFonts.put(e.getKey(), e.getValue());
+            }
+        }
+        int threadCount = Math.min(doc.getFontEmbeddingThreadCount(), embeddedFonts.size());
+        if (threadCount < 2) {
+            return null;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        doc.getFactory().prepareFontFiles(embeddedFonts, executor);
+        return executor;
+    }
+
     /**
      * Add an XObject to the resources.
      *
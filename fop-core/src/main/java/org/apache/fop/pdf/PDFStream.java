@@ -121,8 +121,20 @@ public class PDFStream extends AbstractPDFStream {
         }
     }
 
+    /**
+     * Appends the unfiltered content of another stream to this stream.
+     *
+     * @param stream the stream to copy
+     * @throws IOException in case of an I/O problem
+     */
+    public void add(PDFStream stream) throws IOException {
+        stream.outputRawStreamData(getBufferOutputStream());
+    }
+
     private void flush() throws IOException {
-        this.streamWriter.flush();
+        if (this.streamWriter != null) {
+            this.streamWriter.flush();
+        }
     }
 
     /**
@@ -194,6 +206,13 @@ public class PDFStream extends AbstractPDFStream {
         return len;
     }
 
+    /** {@inheritDoc} */
+    protected void releaseStreamData() throws IOException {
+        data.clear();
+        streamWriter = null;
+        charBuffer = null;
+    }
+
     public String streamHashCode() throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         outputRawStreamData(bos);
@@ -26,7 +26,9 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
+import java.util.Set;
 
 import org.apache.fop.accessibility.StructureTreeElement;
 import org.apache.fop.pdf.StandardStructureAttributes.Table;
@@ -247,6 +249,23 @@ public class PDFStructElem extends StructureHierarchyMember
         return this.kids;
     }
 
+    /**
+     * Replaces the given kids, which have already been written to the PDF, by objects that
+     * only hold their object numbers, so this element no longer keeps them in memory.
+     *
+     * @param writtenKids the structure elements that have been written
+     */
+    void replaceWrittenKids(Set<PDFStructElem> writtenKids) {
+        if (kids != null) {
+            for (ListIterator<PDFObject> iter = kids.listIterator(); iter.hasNext();) {
+                PDFObject kid = iter.next();
+                if (writtenKids.contains(kid)) {
+                    iter.set(new WrittenKid(kid));
+                }
+            }
+        }
+    }
+
     public int output(OutputStream stream) throws IOException {
         if (getDocument() != null && getDocument().getProfile().getPDFUAMode().isEnabled()) {
             if (entries.containsKey("Alt") && "".equals(get("Alt"))) {
@@ -272,6 +291,16 @@ public class PDFStructElem extends StructureHierarchyMember
         return Arrays.asList(blseValues).contains(type);
     }
 
+    /**
+     * Stands in for a kid that has already been written. It is output as a reference.
+     */
+    private static final class WrittenKid extends PDFObject {
+
+        WrittenKid(PDFObject kid) {
+            setObjectNumber(kid.getObjectNumber());
+        }
+    }
+
     /**
      * Class representing a placeholder for a PDF Structure Element.
      */
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A temporary file that data is spilled to, so it doesn't have to be held in memory until it is
+ * output. The file holds any number of {@link StreamCache}s, each occupying a region of the file.
+ * Data is always appended at the end of the file, so only the cache written last may be appended
+ * to; the data of all caches can be read at any time. Reading uses channel transfers, so the data
+ * doesn't pass through the heap as a whole.
+ */
+final class SpillStore implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    /** the end of the data in the file */
+    private long end;
+
+    /** the cache currently being appended to */
+    private Region appending;
+
+    /**
+     * Creates a new store.
+     * @throws IOException if the temporary file can't be created
+     */
+    SpillStore() throws IOException {
+        file = File.createTempFile("org.apache.fop.pdf.SpillStore-", ".temp");
+        file.deleteOnExit();
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Creates a new, empty cache backed by this store.
+     * @return the cache
+     */
+    StreamCache createStreamCache() {
+        return new Region();
+    }
+
+    /** @return the number of bytes in the store (including those of cleared caches) */
+    long getSize() {
+        return end;
+    }
+
+    /**
+     * Closes and deletes the temporary file. The caches can't be used any more.
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        try {
+            channel.close();
+            raf.close();
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private final class Region implements StreamCache {
+
+        private long start = -1;
+
+        private long size;
+
+        private OutputStream output;
+
+        /** {@inheritDoc} */
+        public OutputStream getOutputStream() throws IOException {
+            if (output == null) {
+                if (appending != null) {
+                    appending.closeOutput();
+                }
+                if (start < 0) {
+                    start = end;
+                } else if (start + size != end) {
+                    throw new IllegalStateException(
+                            "Other data has been spilled since; the cache can't be appended to");
+                }
+                output = new BufferedOutputStream(new RegionOutputStream(), BUFFER_SIZE);
+                appending = this;
+            }
+            return output;
+        }
+
+        /** {@inheritDoc} */
+        public void write(byte[] data) throws IOException {
+            getOutputStream().write(data);
+        }
+
+        /** {@inheritDoc} */
+        public int outputContents(OutputStream out) throws IOException {
+            closeOutput();
+            if (start < 0) {
+                return 0;
+            }
+            int length = getIntSize();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = size;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                position += transferred;
+                remaining -= transferred;
+            }
+            return length;
+        }
+
+        /** {@inheritDoc} */
+        public int getSize() throws IOException {
+            if (output != null) {
+                output.flush();
+            }
+            return getIntSize();
+        }
+
+        /**
+         * The sizes of {@link StreamCache}s are ints, so like the other caches a region can't
+         * hold more than 2 GB.
+         */
+        private int getIntSize() throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Spilled stream data exceeds " + Integer.MAX_VALUE
+                        + " bytes: " + size);
+            }
+            return (int) size;
+        }
+
+        /** {@inheritDoc} */
+        public void clear() throws IOException {
+            closeOutput();
+            if (start >= 0 && start + size == end && appending == null) {
+                //the data is at the end of the file, so the space can be reused
+                end = start;
+            }
+            start = -1;
+            size = 0;
+        }
+
+        private void closeOutput() throws IOException {
+            if (output != null) {
+                output.close();
+                output = null;
+                appending = null;
+            }
+        }
+
+        private final class RegionOutputStream extends OutputStream {
+
+            /** {@inheritDoc} */
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            /** {@inheritDoc} */
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, start + size + (len - buffer.remaining()));
+                }
+                size += len;
+                end = start + size;
+            }
+        }
+    }
+}
@@ -88,7 +88,7 @@ public abstract class PrintRenderer extends AbstractRenderer {
         FontCollection[] fontCollections = new FontCollection[] {
                 new Base14FontCollection(fontManager.isBase14KerningEnabled()),
                 new CustomFontCollection(fontManager.getResourceResolver(), getFontList(),
-                        userAgent.isComplexScriptFeaturesEnabled())
+                        userAgent.isComplexScriptFeaturesEnabled(), fontManager.getFontFaceCache())
         };
         fontManager.setup(getFontInfo(), fontCollections);
     }
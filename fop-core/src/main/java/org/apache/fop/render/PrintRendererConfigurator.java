@@ -159,7 +159,7 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
     protected FontCollection createCollectionFromFontList(InternalResourceResolver resolver,
             List<EmbedFontInfo> fontList) {
         return new CustomFontCollection(resolver, fontList,
-                userAgent.isComplexScriptFeaturesEnabled());
+                userAgent.isComplexScriptFeaturesEnabled(), userAgent.getFontManager().getFontFaceCache());
     }
 
     private List<EmbedFontInfo> buildFontList(String mimeType) throws FOPException {
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import org.xml.sax.Attributes;
+
+import org.apache.fop.util.ConversionUtils;
+
+/**
+ * The attributes of an intermediate format element, where integer values and integer lists
+ * are kept as ints. Producers that already have the values in binary form (like the reader
+ * of the binary intermediate format) use this class so {@link IFParser} can take the values
+ * as they are instead of parsing their string form. The string form is only created when
+ * {@link #getValue(int)} is called.
+ */
+public class IFAttributes implements Attributes {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final byte STRING = 0;
+    private static final byte INT = 1;
+    private static final byte INT_ARRAY = 2;
+
+    private int length;
+    private String[] uris = new String[INITIAL_CAPACITY];
+    private String[] localNames = new String[INITIAL_CAPACITY];
+    private String[] qNames = new String[INITIAL_CAPACITY];
+    private String[] types = new String[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] intValues = new int[INITIAL_CAPACITY];
+    private int[][] intArrayValues = new int[INITIAL_CAPACITY][];
+
+    /** Creates an empty instance. */
+    public IFAttributes() {
+    }
+
+    /**
+     * Creates a copy of the given attributes.
+     * @param atts the attributes to copy
+     */
+    public IFAttributes(IFAttributes atts) {
+        length = atts.length;
+        uris = atts.uris.clone();
+        localNames = atts.localNames.clone();
+        qNames = atts.qNames.clone();
+        types = atts.types.clone();
+        kinds = atts.kinds.clone();
+        values = atts.values.clone();
+        intValues = atts.intValues.clone();
+        intArrayValues = atts.intArrayValues.clone();
+    }
+
+    /** Removes all attributes. */
+    public void clear() {
+        for (int i = 0; i < length; i++) {
+            values[i] = null;
+            intArrayValues[i] = null;
+        }
+        length = 0;
+    }
+
+    /**
+     * Adds an attribute with a string value.
+     * @param uri the namespace URI
+     * @param localName the local name
+     * @param qName the qualified name
+     * @param type the attribute type
+     * @param value the value
+     */
+    public void addAttribute(String uri, String localName, String qName, String type,
+            String value) {
+        add(uri, localName, qName, type, STRING);
+        values[length - 1] = value;
+    }
+
+    /**
+     * Adds an attribute with an integer value.
+     * @param uri the namespace URI
+     * @param localName the local name
+     * @param qName the qualified name
+     * @param type the attribute type
+     * @param value the value
+     */
+    public void addAttribute(String uri, String localName, String qName, String type,
+            int value) {
+        add(uri, localName, qName, type, INT);
+        intValues[length - 1] = value;
+    }
+
+    /**
+     * Adds an attribute whose value is a space-separated list of integers.
+     * @param uri the namespace URI
+     * @param localName the local name
+     * @param qName the qualified name
+     * @param type the attribute type
+     * @param value the integers
+     */
+    public void addAttribute(String uri, String localName, String qName, String type,
+            int[] value) {
+        add(uri, localName, qName, type, INT_ARRAY);
+        intArrayValues[length - 1] = value;
+    }
+
+    private void add(String uri, String localName, String qName, String type, byte kind) {
+        if (length == kinds.length) {
+            int capacity = length * 2;
+            uris = copyOf(uris, capacity);
+            localNames = copyOf(localNames, capacity);
+            qNames = copyOf(qNames, capacity);
+            types = copyOf(types, capacity);
+            values = copyOf(values, capacity);
+            byte[] newKinds = new byte[capacity];
+            System.arraycopy(kinds, 0, newKinds, 0, length);
+            kinds = newKinds;
+            int[] newIntValues = new int[capacity];
+            System.arraycopy(intValues, 0, newIntValues, 0, length);
+            intValues = newIntValues;
+            int[][] newIntArrayValues = new int[capacity][];
+            System.arraycopy(intArrayValues, 0, newIntArrayValues, 0, length);
+            intArrayValues = newIntArrayValues;
+        }
+        uris[length] = uri;
+        localNames[length] = localName;
+        qNames[length] = qName;
+        types[length] = type;
+        kinds[length] = kind;
+        length++;
+    }
+
+    private static String[] copyOf(String[] array, int capacity) {
+        String[] copy = new String[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    /**
+     * Returns the value of an attribute as an int.
+     * @param qName the qualified name of the attribute
+     * @return the value
+     * @throws NumberFormatException if the attribute is missing or is not an integer
+     */
+    public int getIntValue(String qName) {
+        int index = getIndex(qName);
+        if (index >= 0 && kinds[index] == INT) {
+            return intValues[index];
+        }
+        return Integer.parseInt(getValue(qName));
+    }
+
+    /**
+     * Returns the value of an attribute as an array of ints. The array is not copied, so it
+     * must not be modified.
+     * @param qName the qualified name of the attribute
+     * @return the integers or null if the attribute is missing
+     */
+    public int[] getIntArrayValue(String qName) {
+        int index = getIndex(qName);
+        if (index < 0) {
+            return null;
+        }
+        switch (kinds[index]) {
+        case INT_ARRAY:
+            return intArrayValues[index];
+        case INT:
+            return new int[] {intValues[index]};
+        default:
+            return ConversionUtils.toIntArray(values[index].trim(), "\\s");
+        }
+    }
+
+    /** {@inheritDoc} */
+    public int getLength() {
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    public String getURI(int index) {
+        return index >= 0 && index < length ? uris[index] : null;
+    }
+
+    /** {@inheritDoc} */
+    public String getLocalName(int index) {
+        return index >= 0 && index < length ? localNames[index] : null;
+    }
+
+    /** {@inheritDoc} */
+    public String getQName(int index) {
+        return index >= 0 && index < length ? qNames[index] : null;
+    }
+
+    /** {@inheritDoc} */
+    public String getType(int index) {
+        return index >= 0 && index < length ? types[index] : null;
+    }
+
+    /** {@inheritDoc} */
+    public String getValue(int index) {
+        if (index < 0 || index >= length) {
+            return null;
+        }
+        if (values[index] == null) {
+            if (kinds[index] == INT) {
+                values[index] = Integer.toString(intValues[index]);
+            } else if (kinds[index] == INT_ARRAY) {
+                int[] ints = intArrayValues[index];
+                StringBuilder sb = new StringBuilder(ints.length * 4);
+                for (int i = 0; i < ints.length; i++) {
+                    if (i > 0) {
+                        sb.append(' ');
+                    }
+                    sb.append(ints[i]);
+                }
+                values[index] = sb.toString();
+            }
+        }
+        return values[index];
+    }
+
+    /** {@inheritDoc} */
+    public int getIndex(String uri, String localName) {
+        for (int i = 0; i < length; i++) {
+            if (localNames[i].equals(localName) && uris[i].equals(uri)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    public int getIndex(String qName) {
+        for (int i = 0; i < length; i++) {
+            if (qNames[i].equals(qName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    public String getType(String uri, String localName) {
+        return getType(getIndex(uri, localName));
+    }
+
+    /** {@inheritDoc} */
+    public String getType(String qName) {
+        return getType(getIndex(qName));
+    }
+
+    /** {@inheritDoc} */
+    public String getValue(String uri, String localName) {
+        return getValue(getIndex(uri, localName));
+    }
+
+    /** {@inheritDoc} */
+    public String getValue(String qName) {
+        return getValue(getIndex(qName));
+    }
+
+}
@@ -373,7 +373,11 @@ public class IFParser implements IFConstants {
 
         private boolean startIFElement(String localName, Attributes attributes)
                 throws SAXException {
-            lastAttributes = new AttributesImpl(attributes);
+            if (attributes instanceof IFAttributes) {
+                lastAttributes = new IFAttributes((IFAttributes) attributes);
+            } else {
+                lastAttributes = new AttributesImpl(attributes);
+            }
             ElementHandler elementHandler = elementHandlers.get(localName);
             content.setLength(0);
             ignoreCharacters = true;
@@ -539,11 +543,11 @@ public class IFParser implements IFConstants {
         private class PageHandler extends AbstractElementHandler {
 
             public void startElement(Attributes attributes) throws IFException {
-                int index = Integer.parseInt(attributes.getValue("index"));
+                int index = getAttributeAsInt(attributes, "index");
                 String name = attributes.getValue("name");
                 String pageMasterName = attributes.getValue("page-master-name");
-                int width = Integer.parseInt(attributes.getValue("width"));
-                int height = Integer.parseInt(attributes.getValue("height"));
+                int width = getAttributeAsInt(attributes, "width");
+                int height = getAttributeAsInt(attributes, "height");
                 Map<QName, String> foreignAttributes = getForeignAttributes(lastAttributes);
                 establishForeignAttributes(foreignAttributes);
                 documentHandler.startPage(index, name, pageMasterName,
@@ -603,9 +607,9 @@ public class IFParser implements IFConstants {
                 String transform = attributes.getValue("transform");
                 AffineTransform[] transforms
                     = AffineTransformArrayParser.createAffineTransform(transform);
-                int width = Integer.parseInt(attributes.getValue("width"));
-                int height = Integer.parseInt(attributes.getValue("height"));
-                Rectangle clipRect = XMLUtil.getAttributeAsRectangle(attributes, "clip-rect");
+                int width = getAttributeAsInt(attributes, "width");
+                int height = getAttributeAsInt(attributes, "height");
+                Rectangle clipRect = getAttributeAsRectangle(attributes, "clip-rect");
                 painter.startViewport(transforms, new Dimension(width, height), clipRect);
                 documentHandler.getContext().setRegionType(attributes.getValue("region-type"));
             }
@@ -647,9 +651,9 @@ public class IFParser implements IFConstants {
             public void startElement(Attributes attributes) throws IFException {
                 String family = attributes.getValue("family");
                 String style = attributes.getValue("style");
-                Integer weight = XMLUtil.getAttributeAsInteger(attributes, "weight");
+                Integer weight = getAttributeAsInteger(attributes, "weight");
                 String variant = attributes.getValue("variant");
-                Integer size = XMLUtil.getAttributeAsInteger(attributes, "size");
+                Integer size = getAttributeAsInteger(attributes, "size");
                 Color color;
                 try {
                     color = getAttributeAsColor(attributes, "color");
@@ -664,13 +668,13 @@ public class IFParser implements IFConstants {
         private class TextHandler extends AbstractElementHandler {
 
             public void endElement() throws IFException {
-                int x = Integer.parseInt(lastAttributes.getValue("x"));
-                int y = Integer.parseInt(lastAttributes.getValue("y"));
-                String s = lastAttributes.getValue("letter-spacing");
-                int letterSpacing = (s != null ? Integer.parseInt(s) : 0);
-                s = lastAttributes.getValue("word-spacing");
-                int wordSpacing = (s != null ? Integer.parseInt(s) : 0);
-                int[] dx = XMLUtil.getAttributeAsIntArray(lastAttributes, "dx");
+                int x = getAttributeAsInt(lastAttributes, "x");
+                int y = getAttributeAsInt(lastAttributes, "y");
+                Integer spacing = getAttributeAsInteger(lastAttributes, "letter-spacing");
+                int letterSpacing = (spacing != null ? spacing : 0);
+                spacing = getAttributeAsInteger(lastAttributes, "word-spacing");
+                int wordSpacing = (spacing != null ? spacing : 0);
+                int[] dx = getAttributeAsIntArray(lastAttributes, "dx");
                 int[][] dp = XMLUtil.getAttributeAsPositionAdjustments(lastAttributes, "dp");
                 // if only DX present, then convert DX to DP; otherwise use only DP,
                 // effectively ignoring DX
@@ -697,10 +701,10 @@ public class IFParser implements IFConstants {
         private class ClipRectHandler extends AbstractElementHandler {
 
             public void startElement(Attributes attributes) throws IFException {
-                int x = Integer.parseInt(attributes.getValue("x"));
-                int y = Integer.parseInt(attributes.getValue("y"));
-                int width = Integer.parseInt(attributes.getValue("width"));
-                int height = Integer.parseInt(attributes.getValue("height"));
+                int x = getAttributeAsInt(attributes, "x");
+                int y = getAttributeAsInt(attributes, "y");
+                int width = getAttributeAsInt(attributes, "width");
+                int height = getAttributeAsInt(attributes, "height");
                 BorderProps[] borders = new BorderProps[4];
                 for (int i = 0; i < 4; i++) {
                     String b = attributes.getValue(SIDES[i]);
@@ -722,10 +726,10 @@ public class IFParser implements IFConstants {
         private class RectHandler extends AbstractElementHandler {
 
             public void startElement(Attributes attributes) throws IFException {
-                int x = Integer.parseInt(attributes.getValue("x"));
-                int y = Integer.parseInt(attributes.getValue("y"));
-                int width = Integer.parseInt(attributes.getValue("width"));
-                int height = Integer.parseInt(attributes.getValue("height"));
+                int x = getAttributeAsInt(attributes, "x");
+                int y = getAttributeAsInt(attributes, "y");
+                int width = getAttributeAsInt(attributes, "width");
+                int height = getAttributeAsInt(attributes, "height");
                 Color fillColor;
                 try {
                     fillColor = getAttributeAsColor(attributes, "fill");
@@ -759,11 +763,11 @@ public class IFParser implements IFConstants {
         private class LineHandler extends AbstractElementHandler {
 
             public void startElement(Attributes attributes) throws IFException {
-                int x1 = Integer.parseInt(attributes.getValue("x1"));
-                int y1 = Integer.parseInt(attributes.getValue("y1"));
-                int x2 = Integer.parseInt(attributes.getValue("x2"));
-                int y2 = Integer.parseInt(attributes.getValue("y2"));
-                int width = Integer.parseInt(attributes.getValue("stroke-width"));
+                int x1 = getAttributeAsInt(attributes, "x1");
+                int y1 = getAttributeAsInt(attributes, "y1");
+                int x2 = getAttributeAsInt(attributes, "x2");
+                int y2 = getAttributeAsInt(attributes, "y2");
+                int width = getAttributeAsInt(attributes, "stroke-width");
                 Color color;
                 try {
                     color = getAttributeAsColor(attributes, "color");
@@ -781,10 +785,10 @@ public class IFParser implements IFConstants {
         private class BorderRectHandler extends AbstractElementHandler {
 
             public void startElement(Attributes attributes) throws IFException {
-                int x = Integer.parseInt(attributes.getValue("x"));
-                int y = Integer.parseInt(attributes.getValue("y"));
-                int width = Integer.parseInt(attributes.getValue("width"));
-                int height = Integer.parseInt(attributes.getValue("height"));
+                int x = getAttributeAsInt(attributes, "x");
+                int y = getAttributeAsInt(attributes, "y");
+                int width = getAttributeAsInt(attributes, "width");
+                int height = getAttributeAsInt(attributes, "height");
                 BorderProps[] borders = new BorderProps[4];
                 for (int i = 0; i < 4; i++) {
                     String b = attributes.getValue(SIDES[i]);
@@ -813,10 +817,10 @@ public class IFParser implements IFConstants {
             }
 
             public void endElement() throws IFException {
-                int x = Integer.parseInt(lastAttributes.getValue("x"));
-                int y = Integer.parseInt(lastAttributes.getValue("y"));
-                int width = Integer.parseInt(lastAttributes.getValue("width"));
-                int height = Integer.parseInt(lastAttributes.getValue("height"));
+                int x = getAttributeAsInt(lastAttributes, "x");
+                int y = getAttributeAsInt(lastAttributes, "y");
+                int width = getAttributeAsInt(lastAttributes, "width");
+                int height = getAttributeAsInt(lastAttributes, "height");
                 Map<QName, String> foreignAttributes = getForeignAttributes(lastAttributes);
                 establishForeignAttributes(foreignAttributes);
                 establishStructureTreeElement(lastAttributes);
@@ -859,6 +863,44 @@ public class IFParser implements IFConstants {
             }
         }
 
+        private static int getAttributeAsInt(Attributes attributes, String name) {
+            if (attributes instanceof IFAttributes) {
+                return ((IFAttributes) attributes).getIntValue(name);
+            }
+            return Integer.parseInt(attributes.getValue(name));
+        }
+
+        private static Integer getAttributeAsInteger(Attributes attributes, String name) {
+            if (attributes instanceof IFAttributes) {
+                if (attributes.getIndex(name) < 0) {
+                    return null;
+                }
+                return ((IFAttributes) attributes).getIntValue(name);
+            }
+            return XMLUtil.getAttributeAsInteger(attributes, name);
+        }
+
+        private static int[] getAttributeAsIntArray(Attributes attributes, String name) {
+            if (attributes instanceof IFAttributes) {
+                return ((IFAttributes) attributes).getIntArrayValue(name);
+            }
+            return XMLUtil.getAttributeAsIntArray(attributes, name);
+        }
+
+        private static Rectangle getAttributeAsRectangle(Attributes attributes, String name) {
+            if (attributes instanceof IFAttributes) {
+                int[] values = ((IFAttributes) attributes).getIntArrayValue(name);
+                if (values == null) {
+                    return null;
+                }
+                if (values.length != 4) {
+                    throw new IllegalArgumentException("Rectangle must consist of 4 int values!");
+                }
+                return new Rectangle(values[0], values[1], values[2], values[3]);
+            }
+            return XMLUtil.getAttributeAsRectangle(attributes, name);
+        }
+
         private Color getAttributeAsColor(Attributes attributes, String name)
                     throws PropertyException {
             String s = attributes.getValue(name);
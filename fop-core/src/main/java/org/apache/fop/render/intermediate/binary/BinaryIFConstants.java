@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.binary;
+
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Constants for the binary encoding of the intermediate format.
+ * <p>
+ * The binary encoding is a compact representation of the SAX event stream produced by
+ * the {@link org.apache.fop.render.intermediate.IFSerializer}. Strings (element and
+ * attribute names, namespace URIs, attribute values such as font families or colors) are
+ * written once in UTF-8 and then referenced through a document-level string table. Attribute
+ * values that are plain integers (coordinates, sizes) or space-separated integer lists
+ * (the "dx" arrays of text elements) are stored as zig-zag encoded variable-length integers
+ * and are handed to the element handlers as ints through
+ * {@link org.apache.fop.render.intermediate.IFAttributes}.
+ * Since the whole SAX stream is encoded, everything that can be expressed in the XML form
+ * (structure trees, foreign objects and extension attachments) round-trips.
+ */
+public interface BinaryIFConstants {
+
+    /** MIME type of the binary intermediate format. */
+    String MIME_TYPE = MimeConstants.MIME_FOP_IF_BINARY;
+
+    /** Magic bytes at the start of every binary IF stream. */
+    byte[] MAGIC = {'F', 'O', 'P', 'I', 'F', 'B'};
+
+    /** Version of the binary encoding. */
+    int FORMAT_VERSION = 2;
+
+    /** Strings up to this length are added to the string table as long as it has room. */
+    int MAX_SHORT_STRING_LENGTH = 256;
+
+    /**
+     * Maximum total number of characters of the strings longer than
+     * {@link #MAX_SHORT_STRING_LENGTH} in the string table. Longer strings that don't fit any
+     * more are written inline.
+     */
+    int MAX_LONG_STRING_CHARS = 1 << 20;
+
+    /** Maximum number of entries in the string table. */
+    int MAX_STRING_TABLE_SIZE = 65536;
+
+    /** Event: start of document */
+    int EV_START_DOCUMENT = 1;
+    /** Event: end of document */
+    int EV_END_DOCUMENT = 2;
+    /** Event: start of a namespace prefix mapping */
+    int EV_START_PREFIX_MAPPING = 3;
+    /** Event: end of a namespace prefix mapping */
+    int EV_END_PREFIX_MAPPING = 4;
+    /** Event: start of an element */
+    int EV_START_ELEMENT = 5;
+    /** Event: end of the current element */
+    int EV_END_ELEMENT = 6;
+    /** Event: character data */
+    int EV_CHARACTERS = 7;
+    /** Event: ignorable whitespace */
+    int EV_IGNORABLE_WHITESPACE = 8;
+    /** Event: processing instruction */
+    int EV_PROCESSING_INSTRUCTION = 9;
+
+    /** Attribute value type: string */
+    int VALUE_STRING = 0;
+    /** Attribute value type: single integer */
+    int VALUE_INT = 1;
+    /** Attribute value type: space-separated list of integers */
+    int VALUE_INT_ARRAY = 2;
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * SAX ContentHandler that encodes the received events in the binary intermediate format.
+ * @see BinaryIFConstants
+ */
+public class BinaryIFContentHandler implements ContentHandler, BinaryIFConstants {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final OutputStream out;
+    private final boolean closeAtEnd;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+    private int longStringChars;
+
+    /**
+     * Creates a new instance.
+     * @param out the output stream to write to
+     * @param closeAtEnd true if the output stream shall be closed at the end of the document
+     */
+    public BinaryIFContentHandler(OutputStream out, boolean closeAtEnd) {
+        this.out = out;
+        this.closeAtEnd = closeAtEnd;
+    }
+
+    /** {@inheritDoc} */
+    public void setDocumentLocator(Locator locator) {
+        //nop
+    }
+
+    /** {@inheritDoc} */
+    public void startDocument() throws SAXException {
+        for (byte b : MAGIC) {
+            writeByte(b);
+        }
+        writeByte(FORMAT_VERSION);
+        writeByte(EV_START_DOCUMENT);
+    }
+
+    /** {@inheritDoc} */
+    public void endDocument() throws SAXException {
+        writeByte(EV_END_DOCUMENT);
+        try {
+            flushBuffer();
+            if (closeAtEnd) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        writeByte(EV_START_PREFIX_MAPPING);
+        writeString(prefix);
+        writeString(uri);
+    }
+
+    /** {@inheritDoc} */
+    public void endPrefixMapping(String prefix) throws SAXException {
+        writeByte(EV_END_PREFIX_MAPPING);
+        writeString(prefix);
+    }
+
+    /** {@inheritDoc} */
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        writeByte(EV_START_ELEMENT);
+        writeName(uri, localName, qName);
+        int len = atts.getLength();
+        writeVarInt(len);
+        for (int i = 0; i < len; i++) {
+            writeName(atts.getURI(i), atts.getLocalName(i), atts.getQName(i));
+            writeString(atts.getType(i));
+            writeValue(atts.getValue(i));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        writeByte(EV_END_ELEMENT);
+    }
+
+    /** {@inheritDoc} */
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        writeByte(EV_CHARACTERS);
+        writeString(new String(ch, start, length));
+    }
+
+    /** {@inheritDoc} */
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        writeByte(EV_IGNORABLE_WHITESPACE);
+        writeString(new String(ch, start, length));
+    }
+
+    /** {@inheritDoc} */
+    public void processingInstruction(String target, String data) throws SAXException {
+        writeByte(EV_PROCESSING_INSTRUCTION);
+        writeString(target);
+        writeString(data);
+    }
+
+    /** {@inheritDoc} */
+    public void skippedEntity(String name) throws SAXException {
+        //nop, not produced by the IF serializer
+    }
+
+    private void writeName(String uri, String localName, String qName) throws SAXException {
+        String key = uri + '\u0000' + localName + '\u0000' + qName;
+        Integer index = names.get(key);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            writeVarInt(0);
+            writeString(uri);
+            writeString(localName);
+            writeString(qName);
+            if (names.size() < MAX_STRING_TABLE_SIZE) {
+                names.put(key, names.size());
+            }
+        }
+    }
+
+    private void writeValue(String value) throws SAXException {
+        if (isInteger(value, 0, value.length())) {
+            writeByte(VALUE_INT);
+            writeSignedVarInt(Integer.parseInt(value));
+        } else if (isIntegerArray(value)) {
+            writeByte(VALUE_INT_ARRAY);
+            int itemCount = 1;
+            for (int i = 0, c = value.length(); i < c; i++) {
+                if (value.charAt(i) == ' ') {
+                    itemCount++;
+                }
+            }
+            writeVarInt(itemCount);
+            int start = 0;
+            for (int i = 0, c = value.length(); i <= c; i++) {
+                if (i == c || value.charAt(i) == ' ') {
+                    writeSignedVarInt(Integer.parseInt(value.substring(start, i)));
+                    start = i + 1;
+                }
+            }
+        } else {
+            writeByte(VALUE_STRING);
+            writeString(value);
+        }
+    }
+
+    /**
+     * Indicates whether the given character range holds an integer in its canonical decimal
+     * representation, i.e. one that survives a round-trip through {@link Integer#toString(int)}.
+     */
+    private static boolean isInteger(String s, int start, int end) {
+        int len = end - start;
+        if (len == 0 || len > 11) {
+            return false;
+        }
+        int i = start;
+        if (s.charAt(i) == '-') {
+            i++;
+            if (i == end || s.charAt(i) == '0') {
+                return false;
+            }
+        }
+        if (s.charAt(i) == '0' && end - i > 1) {
+            return false;
+        }
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        long l = Long.parseLong(s.substring(start, end));
+        return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE;
+    }
+
+    private static boolean isIntegerArray(String s) {
+        int start = 0;
+        int items = 0;
+        for (int i = 0, c = s.length(); i <= c; i++) {
+            if (i == c || s.charAt(i) == ' ') {
+                if (!isInteger(s, start, i)) {
+                    return false;
+                }
+                items++;
+                start = i + 1;
+            }
+        }
+        return items > 1;
+    }
+
+    private void writeString(String s) throws SAXException {
+        if (s == null) {
+            s = "";
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            writeVarInt(0);
+            byte[] bytes = s.getBytes(UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+            int len = s.length();
+            if (strings.size() < MAX_STRING_TABLE_SIZE) {
+                if (len <= MAX_SHORT_STRING_LENGTH) {
+                    strings.put(s, strings.size());
+                } else if (longStringChars + len <= MAX_LONG_STRING_CHARS) {
+                    strings.put(s, strings.size());
+                    longStringChars += len;
+                }
+            }
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws SAXException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (count == buffer.length) {
+                try {
+                    flushBuffer();
+                } catch (IOException ioe) {
+                    throw new SAXException(ioe);
+                }
+            }
+            int chunk = Math.min(bytes.length - offset, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, chunk);
+            count += chunk;
+            offset += chunk;
+        }
+    }
+
+    private void writeSignedVarInt(int value) throws SAXException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarInt(int value) throws SAXException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int b) throws SAXException {
+        if (count == buffer.length) {
+            try {
+                flushBuffer();
+            } catch (IOException ioe) {
+                throw new SAXException(ioe);
+            }
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+}
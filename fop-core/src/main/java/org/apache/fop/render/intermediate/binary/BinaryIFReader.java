@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.fop.render.intermediate.IFAttributes;
+
+/**
+ * Decodes a binary intermediate format stream and replays it as SAX events. The attributes
+ * are passed as {@link IFAttributes}, so integer values reach the handlers without being
+ * turned into strings first.
+ * @see BinaryIFConstants
+ */
+public class BinaryIFReader implements BinaryIFConstants {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    private final List<String> strings = new ArrayList<String>();
+    private final List<String[]> names = new ArrayList<String[]>();
+    private final List<String[]> elementStack = new ArrayList<String[]>();
+    private int longStringChars;
+    private byte[] bytes = new byte[BUFFER_SIZE];
+
+    /**
+     * Creates a new reader.
+     * @param in the input stream to read the binary intermediate format from
+     */
+    public BinaryIFReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Indicates whether the given bytes start with the binary intermediate format's
+     * magic number.
+     * @param header the first bytes of a stream
+     * @param length the number of valid bytes in the array
+     * @return true if the bytes identify a binary intermediate format stream
+     */
+    public static boolean isBinaryIF(byte[] header, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the whole stream and sends the decoded SAX events to the given handler.
+     * @param handler the content handler to receive the events
+     * @throws IOException if an I/O error occurs or the stream is not valid binary IF
+     * @throws SAXException if the content handler throws an exception
+     */
+    public void replay(ContentHandler handler) throws IOException, SAXException {
+        for (byte b : MAGIC) {
+            if (readByte() != (b & 0xFF)) {
+                throw new IOException("Not a binary intermediate format stream");
+            }
+        }
+        int version = readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary intermediate format version: " + version);
+        }
+        IFAttributes atts = new IFAttributes();
+        while (true) {
+            int event = readByte();
+            switch (event) {
+            case EV_START_DOCUMENT:
+                handler.startDocument();
+                break;
+            case EV_END_DOCUMENT:
+                handler.endDocument();
+                return;
+            case EV_START_PREFIX_MAPPING:
+                String prefix = readString();
+                handler.startPrefixMapping(prefix, readString());
+                break;
+            case EV_END_PREFIX_MAPPING:
+                handler.endPrefixMapping(readString());
+                break;
+            case EV_START_ELEMENT:
+                String[] name = readName();
+                atts.clear();
+                int attCount = readVarInt();
+                for (int i = 0; i < attCount; i++) {
+                    String[] attName = readName();
+                    readAttributeValue(attName, readString(), atts);
+                }
+                elementStack.add(name);
+                handler.startElement(name[0], name[1], name[2], atts);
+                break;
+            case EV_END_ELEMENT:
+                if (elementStack.isEmpty()) {
+                    throw new IOException("Unbalanced end of element in binary intermediate format");
+                }
+                String[] endName = elementStack.remove(elementStack.size() - 1);
+                handler.endElement(endName[0], endName[1], endName[2]);
+                break;
+            case EV_CHARACTERS:
+                String text = readString();
+                handler.characters(text.toCharArray(), 0, text.length());
+                break;
+            case EV_IGNORABLE_WHITESPACE:
+                String ws = readString();
+                handler.ignorableWhitespace(ws.toCharArray(), 0, ws.length());
+                break;
+            case EV_PROCESSING_INSTRUCTION:
+                String target = readString();
+                handler.processingInstruction(target, readString());
+                break;
+            default:
+                throw new IOException("Invalid event in binary intermediate format: " + event);
+            }
+        }
+    }
+
+    private String[] readName() throws IOException {
+        int ref = readVarInt();
+        if (ref > 0) {
+            return names.get(ref - 1);
+        }
+        String[] name = new String[] {readString(), readString(), readString()};
+        if (names.size() < MAX_STRING_TABLE_SIZE) {
+            names.add(name);
+        }
+        return name;
+    }
+
+    private void readAttributeValue(String[] name, String type, IFAttributes atts)
+            throws IOException {
+        int valueType = readByte();
+        switch (valueType) {
+        case VALUE_STRING:
+            atts.addAttribute(name[0], name[1], name[2], type, readString());
+            break;
+        case VALUE_INT:
+            atts.addAttribute(name[0], name[1], name[2], type, readSignedVarInt());
+            break;
+        case VALUE_INT_ARRAY:
+            int[] values = new int[readVarInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readSignedVarInt();
+            }
+            atts.addAttribute(name[0], name[1], name[2], type, values);
+            break;
+        default:
+            throw new IOException("Invalid attribute value type in binary intermediate format: "
+                    + valueType);
+        }
+    }
+
+    private String readString() throws IOException {
+        int ref = readVarInt();
+        if (ref > 0) {
+            return strings.get(ref - 1);
+        }
+        int byteCount = readVarInt();
+        String s;
+        if (limit - pos >= byteCount) {
+            s = new String(buffer, pos, byteCount, UTF_8);
+            pos += byteCount;
+        } else {
+            if (bytes.length < byteCount) {
+                bytes = new byte[byteCount];
+            }
+            readBytes(bytes, byteCount);
+            s = new String(bytes, 0, byteCount, UTF_8);
+        }
+        int len = s.length();
+        if (strings.size() < MAX_STRING_TABLE_SIZE) {
+            if (len <= MAX_SHORT_STRING_LENGTH) {
+                strings.add(s);
+            } else if (longStringChars + len <= MAX_LONG_STRING_CHARS) {
+                strings.add(s);
+                longStringChars += len;
+            }
+        }
+        return s;
+    }
+
+    private void readBytes(byte[] b, int len) throws IOException {
+        int offset = 0;
+        while (offset < len) {
+            if (pos == limit) {
+                fillBuffer();
+            }
+            int chunk = Math.min(len - offset, limit - pos);
+            System.arraycopy(buffer, pos, b, offset, chunk);
+            pos += chunk;
+            offset += chunk;
+        }
+    }
+
+    private int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed variable-length integer in binary intermediate format");
+            }
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit) {
+            fillBuffer();
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private void fillBuffer() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            throw new EOFException("Unexpected end of binary intermediate format stream");
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xml.sax.SAXException;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFParser;
+
+/**
+ * This is a parser for the binary intermediate format. It decodes the stream without an XML
+ * parser and feeds the resulting events to the same element handlers that {@link IFParser}
+ * uses for the XML form.
+ */
+public class IFBinaryParser {
+
+    /**
+     * Parses a binary intermediate format stream and paints it.
+     * @param in the input stream to read the binary intermediate format from
+     * @param documentHandler the intermediate format document handler used to process the IF events
+     * @param userAgent the user agent
+     * @throws IOException if an I/O error occurs or the stream is not valid
+     * @throws IFException if an IF-related error occurs inside the target document handler
+     */
+    public void parse(InputStream in, IFDocumentHandler documentHandler, FOUserAgent userAgent)
+            throws IOException, IFException {
+        IFParser parser = new IFParser();
+        BinaryIFReader reader = new BinaryIFReader(in);
+        try {
+            reader.replay(parser.getContentHandler(documentHandler, userAgent));
+        } catch (SAXException se) {
+            //Unpack original IFException if applicable
+            if (se.getCause() instanceof IFException) {
+                throw (IFException) se.getCause();
+            } else if (se.getException() instanceof IFException) {
+                throw (IFException) se.getException();
+            }
+            throw new IFException("Error while parsing the binary intermediate format", se);
+        }
+    }
+
+}
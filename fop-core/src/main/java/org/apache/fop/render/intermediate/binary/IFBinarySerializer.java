@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.ContentHandler;
+
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFSerializer;
+
+/**
+ * IFSerializer variant that writes the intermediate format in its compact binary encoding
+ * instead of XML. The generated stream can be read back using {@link IFBinaryParser}.
+ * @see BinaryIFConstants
+ */
+public class IFBinarySerializer extends IFSerializer {
+
+    /**
+     * Main constructor.
+     * @param context the intermediate format context
+     */
+    public IFBinarySerializer(IFContext context) {
+        super(context);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getMimeType() {
+        return BinaryIFConstants.MIME_TYPE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected ContentHandler createContentHandler(Result result) throws IFException {
+        if (!(result instanceof StreamResult)) {
+            throw new UnsupportedOperationException(
+                    "Unsupported Result subclass: " + result.getClass().getName());
+        }
+        StreamResult streamResult = (StreamResult) result;
+        OutputStream out = streamResult.getOutputStream();
+        boolean ownOutputStream = false;
+        if (out == null) {
+            if (streamResult.getWriter() != null) {
+                throw new IllegalArgumentException(
+                        "FOP cannot use a Writer. Please supply an OutputStream!");
+            }
+            try {
+                URI resultURI = URI.create(streamResult.getSystemId());
+                out = new BufferedOutputStream(
+                        getUserAgent().getResourceResolver().getOutputStream(resultURI));
+            } catch (IOException ioe) {
+                throw new IFException("I/O error while opening output stream" , ioe);
+            }
+            ownOutputStream = true;
+        }
+        return new BinaryIFContentHandler(out, ownOutputStream);
+    }
+
+}
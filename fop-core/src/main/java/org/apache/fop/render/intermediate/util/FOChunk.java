@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.sax.SAXSource;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.xmlgraphics.io.TempResourceURIGenerator;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fo.FOElementMapping;
+
+/**
+ * A self-contained FO document holding one or more consecutive page-sequences of a larger
+ * document, as produced by {@link FOChunker}. Besides the serialized FO, the chunk records the
+ * information needed to stitch its formatted result together with the other chunks.
+ * <p>
+ * The serialized FO is kept in a temporary resource (see
+ * {@link org.apache.fop.apps.io.TempResourceResolver}). Temporary resources can only be read
+ * once, so every read copies the FO into a new temporary resource for the next one.
+ * {@link #release()} discards it when the chunk isn't needed anymore.
+ */
+public class FOChunk {
+
+    /** Generates the URIs of the temporary resources holding the FO of the chunks. */
+    static final TempResourceURIGenerator TEMP_URI_GENERATOR
+            = new TempResourceURIGenerator("fo-chunk");
+
+    private static final String INITIAL_PAGE_NUMBER = "initial-page-number";
+    private static final String FORCE_PAGE_COUNT = "force-page-count";
+    private static final String REF_ID = "ref-id";
+
+    private final int index;
+    private final InternalResourceResolver resourceResolver;
+    private URI fo;
+    private final int pageSequenceCount;
+    private final List<String> initialPageNumbers;
+    private final List<String> pageSequenceIDs;
+    private final String lastForcePageCount;
+    private final Set<String> ids;
+    private final Set<String> citedIDs;
+    private final boolean pageNumberDependent;
+
+    FOChunk(int index, InternalResourceResolver resourceResolver, URI fo,
+            List<String> initialPageNumbers, List<String> pageSequenceIDs,
+            String lastForcePageCount, Set<String> ids, Set<String> citedIDs,
+            boolean pageNumberDependent) {
+        this.index = index;
+        this.resourceResolver = resourceResolver;
+        this.fo = fo;
+        this.pageSequenceCount = initialPageNumbers.size();
+        this.initialPageNumbers = Collections.unmodifiableList(initialPageNumbers);
+        this.pageSequenceIDs = Collections.unmodifiableList(pageSequenceIDs);
+        this.lastForcePageCount = lastForcePageCount;
+        this.ids = Collections.unmodifiableSet(ids);
+        this.citedIDs = Collections.unmodifiableSet(citedIDs);
+        this.pageNumberDependent = pageNumberDependent;
+    }
+
+    /** @return the index of the chunk within the document (0-based) */
+    public int getIndex() {
+        return index;
+    }
+
+    /** @return the number of page-sequences in this chunk */
+    public int getPageSequenceCount() {
+        return pageSequenceCount;
+    }
+
+    /**
+     * Returns the values of the "initial-page-number" property of the page-sequences in this
+     * chunk, in document order. Page-sequences that don't specify the property have the value
+     * "auto".
+     * @return the initial-page-number values
+     */
+    public List<String> getInitialPageNumbers() {
+        return initialPageNumbers;
+    }
+
+    /**
+     * Returns the IDs of the page-sequences in this chunk, in document order. Page-sequences
+     * without an ID have a null entry. The intermediate format doesn't carry these IDs, so
+     * they are needed to find the last page of a page-sequence.
+     * @return the page-sequence IDs
+     */
+    public List<String> getPageSequenceIDs() {
+        return pageSequenceIDs;
+    }
+
+    /**
+     * Returns the value of the "force-page-count" property of the last page-sequence in this
+     * chunk ("auto" if not specified).
+     * @return the force-page-count value
+     */
+    public String getLastForcePageCount() {
+        return lastForcePageCount;
+    }
+
+    /** @return the IDs defined in this chunk */
+    public Set<String> getIDs() {
+        return ids;
+    }
+
+    /** @return the IDs referenced by page-number-citation(-last) elements in this chunk */
+    public Set<String> getCitedIDs() {
+        return citedIDs;
+    }
+
+    /**
+     * Indicates whether the formatted result of this chunk depends on its page numbers, i.e.
+     * whether page numbers are rendered, affect the page count or use a non-decimal format.
+     * Chunks which don't depend on their page numbers don't need to be formatted again when
+     * their page offset changes.
+     * @return true if the chunk depends on its page numbers
+     */
+    public boolean isPageNumberDependent() {
+        return pageNumberDependent;
+    }
+
+    /**
+     * Opens the serialized FO of this chunk. The stream must be closed, even if it isn't read
+     * to the end, so the FO is available for the next read.
+     * @return the stream
+     * @throws IOException if an I/O error occurs
+     */
+    public InputStream openStream() throws IOException {
+        InputStream in = resourceResolver.getResource(fo);
+        URI copy = TEMP_URI_GENERATOR.generate();
+        OutputStream out;
+        try {
+            out = resourceResolver.getOutputStream(copy);
+        } catch (IOException ioe) {
+            IOUtils.closeQuietly(in);
+            throw ioe;
+        }
+        //the resource read is deleted when the stream is closed
+        fo = copy;
+        return new TeeInputStream(in, out, true) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                //parsers close their input, so this may be called twice
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    //copy what the parser left unread
+                    IOUtils.copy(this, NullOutputStream.NULL_OUTPUT_STREAM);
+                } finally {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a Source for this chunk that applies the given adjustments while the FO is read.
+     * @param parser the XML reader used to parse the chunk
+     * @param adjustments the adjustments to apply
+     * @param in the stream returned by {@link #openStream()}
+     * @return the Source for the FO document
+     */
+    public Source createSource(XMLReader parser, Adjustments adjustments, InputStream in) {
+        return new SAXSource(new AdjustingFilter(parser, adjustments), new InputSource(in));
+    }
+
+    /**
+     * Discards the temporary resource holding the serialized FO of this chunk.
+     * @throws IOException if an I/O error occurs
+     */
+    public void release() throws IOException {
+        if (fo != null) {
+            URI uri = fo;
+            fo = null;
+            resourceResolver.getResource(uri).close();
+        }
+    }
+
+    /**
+     * Adjustments applied to a chunk so its formatted result fits into the complete document.
+     */
+    public static class Adjustments {
+
+        private final String initialPageNumber;
+        private final String lastForcePageCount;
+        private final Map<String, String> citations;
+        private final Map<String, String> lastCitations;
+
+        /**
+         * Creates a new set of adjustments.
+         * @param initialPageNumber the initial-page-number for the chunk's first page-sequence,
+         *          or null to leave it unchanged
+         * @param lastForcePageCount the force-page-count for the chunk's last page-sequence,
+         *          or null to leave it unchanged
+         * @param citations the page numbers to substitute for page-number-citation elements
+         *          referencing IDs outside the chunk (key: ID)
+         * @param lastCitations the page numbers to substitute for page-number-citation-last
+         *          elements referencing IDs outside the chunk (key: ID)
+         */
+        public Adjustments(String initialPageNumber, String lastForcePageCount,
+                Map<String, String> citations, Map<String, String> lastCitations) {
+            this.initialPageNumber = initialPageNumber;
+            this.lastForcePageCount = lastForcePageCount;
+            this.citations = citations;
+            this.lastCitations = lastCitations;
+        }
+
+        /** @return the initial-page-number for the chunk's first page-sequence or null */
+        public String getInitialPageNumber() {
+            return initialPageNumber;
+        }
+
+        /**
+         * Indicates whether the chunk has to be formatted again when these adjustments replace
+         * the given ones.
+         * @param previous the adjustments the chunk has been formatted with
+         * @param pageNumberDependent true if the chunk depends on its page numbers
+         * @return true if the chunk has to be formatted again
+         */
+        public boolean requiresFormatting(Adjustments previous, boolean pageNumberDependent) {
+            if (previous == null) {
+                return true;
+            }
+            if (!equal(lastForcePageCount, previous.lastForcePageCount)
+                    || !citations.equals(previous.citations)
+                    || !lastCitations.equals(previous.lastCitations)) {
+                return true;
+            }
+            return pageNumberDependent && !equal(initialPageNumber, previous.initialPageNumber);
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Adjustments)) {
+                return false;
+            }
+            Adjustments other = (Adjustments) obj;
+            return equal(initialPageNumber, other.initialPageNumber)
+                    && equal(lastForcePageCount, other.lastForcePageCount)
+                    && citations.equals(other.citations)
+                    && lastCitations.equals(other.lastCitations);
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return citations.hashCode() * 31 + lastCitations.hashCode();
+        }
+
+        private static boolean equal(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+
+    /**
+     * SAX filter applying {@link Adjustments} to the FO of a chunk.
+     */
+    private class AdjustingFilter extends XMLFilterImpl {
+
+        private final Adjustments adjustments;
+        private int pageSequence;
+        private boolean inReplacedCitation;
+
+        AdjustingFilter(XMLReader parent, Adjustments adjustments) {
+            super(parent);
+            this.adjustments = adjustments;
+        }
+
+        /** {@inheritDoc} */
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+            if (FOElementMapping.URI.equals(uri)) {
+                if ("page-sequence".equals(localName)) {
+                    pageSequence++;
+                    AttributesImpl adjusted = new AttributesImpl(atts);
+                    if (pageSequence == 1 && adjustments.initialPageNumber != null) {
+                        setAttribute(adjusted, INITIAL_PAGE_NUMBER, adjustments.initialPageNumber);
+                    }
+                    if (pageSequence == pageSequenceCount && adjustments.lastForcePageCount != null) {
+                        setAttribute(adjusted, FORCE_PAGE_COUNT, adjustments.lastForcePageCount);
+                    }
+                    atts = adjusted;
+                } else if ("page-number-citation".equals(localName)
+                        || "page-number-citation-last".equals(localName)) {
+                    Map<String, String> values = "page-number-citation".equals(localName)
+                            ? adjustments.citations : adjustments.lastCitations;
+                    String text = values.get(atts.getValue(REF_ID));
+                    if (text != null) {
+                        AttributesImpl adjusted = new AttributesImpl(atts);
+                        adjusted.removeAttribute(adjusted.getIndex(REF_ID));
+                        String inlineQName = qName.substring(0, qName.length() - localName.length())
+                                + "inline";
+                        super.startElement(uri, "inline", inlineQName, adjusted);
+                        super.characters(text.toCharArray(), 0, text.length());
+                        super.endElement(uri, "inline", inlineQName);
+                        inReplacedCitation = true;
+                        return;
+                    }
+                }
+            }
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        /** {@inheritDoc} */
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (inReplacedCitation) {
+                inReplacedCitation = false;
+                return;
+            }
+            super.endElement(uri, localName, qName);
+        }
+
+        private static void setAttribute(AttributesImpl atts, String name, String value) {
+            int index = atts.getIndex("", name);
+            if (index >= 0) {
+                atts.setValue(index, value);
+            } else {
+                atts.addAttribute("", name, name, "CDATA", value);
+            }
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fo.FOElementMapping;
+import org.apache.fop.fo.extensions.ExtensionElementMapping;
+
+/**
+ * Splits an FO document at page-sequence boundaries into a list of self-contained
+ * {@link FOChunk}s which can be formatted independently. Every chunk repeats the fo:root
+ * element and the content preceding the first page-sequence (fo:layout-master-set,
+ * fo:declarations). The fo:bookmark-tree and fox:destination elements are removed from the
+ * chunks and made available through {@link #getBookmarks()} and {@link #getDestinations()}
+ * so they can be rendered after all chunks have been merged. A fox:destination is added to
+ * each chunk for every ID it defines so the exact positions of all IDs show up in the
+ * formatted result.
+ * <p>
+ * The chunks are written to temporary resources as they are read, so the document is never
+ * held in memory as a whole.
+ */
+public class FOChunker extends DefaultHandler {
+
+    /** logging instance */
+    private static Log log = LogFactory.getLog(FOChunker.class);
+
+    private static final String AUTO = "auto";
+
+    private static final Object START_ELEMENT = new Object();
+    private static final Object END_ELEMENT = new Object();
+    private static final Object CHARACTERS = new Object();
+    private static final Object START_PREFIX_MAPPING = new Object();
+    private static final Object END_PREFIX_MAPPING = new Object();
+
+    private final int pageSequencesPerChunk;
+    private final InternalResourceResolver resourceResolver;
+    private final SAXTransformerFactory tFactory
+            = (SAXTransformerFactory) SAXTransformerFactory.newInstance();
+
+    private final List<FOChunk> chunks = new ArrayList<FOChunk>();
+    private final List<BookmarkItem> bookmarks = new ArrayList<BookmarkItem>();
+    private final List<String> destinations = new ArrayList<String>();
+
+    /** SAX events of the content before the first page-sequence */
+    private final List<Object[]> prologue = new ArrayList<Object[]>();
+    private final List<String[]> prefixMappings = new ArrayList<String[]>();
+    private final List<String[]> pendingPrefixMappings = new ArrayList<String[]>();
+    private String[] rootName;
+    private Attributes rootAttributes;
+
+    private int depth;
+    private boolean pageSequenceFound;
+    private int skipDepth;
+    private List<BookmarkItem> bookmarkStack = new ArrayList<BookmarkItem>();
+    private StringBuilder bookmarkTitle;
+
+    //State of the current chunk
+    private TransformerHandler chunkHandler;
+    private URI chunkURI;
+    private OutputStream chunkOut;
+    private List<String> initialPageNumbers;
+    private List<String> pageSequenceIDs;
+    private String lastForcePageCount;
+    private Set<String> ids;
+    private Set<String> citedIDs;
+    private boolean pageNumberDependent;
+    private boolean inPageSequence;
+
+    /**
+     * Creates a new chunker.
+     * @param pageSequencesPerChunk the maximum number of page-sequences per chunk
+     * @param resourceResolver the resolver for the temporary resources holding the chunks
+     */
+    public FOChunker(int pageSequencesPerChunk, InternalResourceResolver resourceResolver) {
+        if (pageSequencesPerChunk < 1) {
+            throw new IllegalArgumentException("pageSequencesPerChunk must be at least 1");
+        }
+        this.pageSequencesPerChunk = pageSequencesPerChunk;
+        this.resourceResolver = resourceResolver;
+    }
+
+    /**
+     * Splits the given FO document. The caller must {@link FOChunk#release() release} the
+     * chunks once they are no longer needed. If splitting fails, the chunks are released.
+     * @param transformer the transformer used to read the source (an identity transformer for
+     *          FO input, or a stylesheet producing FO)
+     * @param src the source document
+     * @return the list of chunks
+     * @throws TransformerException if an error occurs while reading the document
+     */
+    public List<FOChunk> split(Transformer transformer, Source src) throws TransformerException {
+        boolean success = false;
+        try {
+            transformer.transform(src, new SAXResult(this));
+            success = true;
+        } finally {
+            if (!success) {
+                releaseChunks();
+            }
+        }
+        return chunks;
+    }
+
+    private void releaseChunks() {
+        if (chunkOut != null) {
+            IOUtils.closeQuietly(chunkOut);
+            chunkOut = null;
+            release(chunkURI);
+        }
+        for (FOChunk chunk : chunks) {
+            try {
+                chunk.release();
+            } catch (IOException ioe) {
+                log.warn("Could not delete the temporary resource of chunk " + chunk.getIndex()
+                        + ": " + ioe.getMessage());
+            }
+        }
+        chunks.clear();
+    }
+
+    private void release(URI tempURI) {
+        try {
+            resourceResolver.getResource(tempURI).close();
+        } catch (IOException ioe) {
+            log.warn("Could not delete the temporary resource " + tempURI + ": "
+                    + ioe.getMessage());
+        }
+    }
+
+    /** @return the chunks produced by the last call to {@link #split(Transformer, Source)} */
+    public List<FOChunk> getChunks() {
+        return chunks;
+    }
+
+    /** @return the top-level items of the document's fo:bookmark-tree */
+    public List<BookmarkItem> getBookmarks() {
+        return bookmarks;
+    }
+
+    /** @return the internal destinations of the document's fox:destination elements */
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    /** {@inheritDoc} */
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        if (depth == 0) {
+            prefixMappings.add(new String[] {prefix, uri});
+        } else if (depth == 1) {
+            //deferred until it is known which chunk the next element belongs to
+            pendingPrefixMappings.add(new String[] {prefix, uri});
+        } else if (pageSequenceFound) {
+            forward().startPrefixMapping(prefix, uri);
+        } else {
+            prologue.add(new Object[] {START_PREFIX_MAPPING, prefix, uri});
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endPrefixMapping(String prefix) throws SAXException {
+        if (depth == 0) {
+            return;
+        } else if (pageSequenceFound) {
+            forward().endPrefixMapping(prefix);
+        } else {
+            prologue.add(new Object[] {END_PREFIX_MAPPING, prefix});
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        depth++;
+        if (depth == 1) {
+            rootName = new String[] {uri, localName, qName};
+            rootAttributes = new AttributesImpl(atts);
+            return;
+        }
+        if (skipDepth > 0) {
+            skipDepth++;
+            handleBookmark(uri, localName, atts);
+            return;
+        }
+        if (depth == 2) {
+            List<String[]> mappings = new ArrayList<String[]>(pendingPrefixMappings);
+            pendingPrefixMappings.clear();
+            if (FOElementMapping.URI.equals(uri) && "bookmark-tree".equals(localName)) {
+                skipDepth = 1;
+                return;
+            } else if (ExtensionElementMapping.URI.equals(uri) && "destination".equals(localName)) {
+                destinations.add(atts.getValue("internal-destination"));
+                skipDepth = 1;
+                return;
+            } else if ((FOElementMapping.URI.equals(uri) && "page-sequence".equals(localName))
+                    || (ExtensionElementMapping.URI.equals(uri)
+                            && "external-document".equals(localName))) {
+                pageSequenceFound = true;
+                if (chunkHandler != null && initialPageNumbers.size() == pageSequencesPerChunk) {
+                    endChunk();
+                }
+                if (chunkHandler == null) {
+                    startChunk();
+                }
+                inPageSequence = true;
+                String initial = atts.getValue("initial-page-number");
+                initial = (initial != null ? initial : AUTO);
+                initialPageNumbers.add(initial);
+                pageSequenceIDs.add(atts.getValue("id"));
+                String forcePageCount = atts.getValue("force-page-count");
+                lastForcePageCount = (forcePageCount != null ? forcePageCount : AUTO);
+                if (isPageNumberDependent(initial, lastForcePageCount, atts)) {
+                    pageNumberDependent = true;
+                }
+            }
+            for (String[] mapping : mappings) {
+                startPrefixMapping(mapping[0], mapping[1]);
+            }
+        }
+        if (inPageSequence) {
+            collectReferences(uri, localName, atts);
+        }
+        if (pageSequenceFound) {
+            forward().startElement(uri, localName, qName, atts);
+        } else {
+            prologue.add(new Object[] {START_ELEMENT, uri, localName, qName, new AttributesImpl(atts)});
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        depth--;
+        if (depth == 0) {
+            if (chunkHandler != null) {
+                endChunk();
+            }
+            return;
+        }
+        if (skipDepth > 0) {
+            skipDepth--;
+            if (FOElementMapping.URI.equals(uri)) {
+                if ("bookmark-title".equals(localName) && !bookmarkStack.isEmpty()) {
+                    bookmarkStack.get(bookmarkStack.size() - 1).title = bookmarkTitle.toString();
+                    bookmarkTitle = null;
+                } else if ("bookmark".equals(localName)) {
+                    bookmarkStack.remove(bookmarkStack.size() - 1);
+                }
+            }
+            return;
+        }
+        if (pageSequenceFound) {
+            forward().endElement(uri, localName, qName);
+        } else {
+            prologue.add(new Object[] {END_ELEMENT, uri, localName, qName});
+        }
+        if (depth == 1) {
+            inPageSequence = false;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (depth < 2) {
+            return;
+        }
+        if (skipDepth > 0) {
+            if (bookmarkTitle != null) {
+                bookmarkTitle.append(ch, start, length);
+            }
+        } else if (pageSequenceFound) {
+            forward().characters(ch, start, length);
+        } else {
+            prologue.add(new Object[] {CHARACTERS, new String(ch, start, length)});
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    /** {@inheritDoc} */
+    public void processingInstruction(String target, String data) throws SAXException {
+        if (pageSequenceFound && depth > 1 && skipDepth == 0) {
+            forward().processingInstruction(target, data);
+        }
+    }
+
+    private ContentHandler forward() throws SAXException {
+        if (chunkHandler == null) {
+            startChunk();
+        }
+        return chunkHandler;
+    }
+
+    private static boolean isPageNumberDependent(String initial, String forcePageCount,
+            Attributes atts) {
+        if (!AUTO.equals(initial) && !isNumber(initial)) {
+            return true; //auto-odd, auto-even
+        }
+        if (!AUTO.equals(forcePageCount) && !"no-force".equals(forcePageCount)) {
+            return true;
+        }
+        String format = atts.getValue("format");
+        return (format != null && !"1".equals(format))
+                || atts.getValue("grouping-separator") != null;
+    }
+
+    static boolean isNumber(String s) {
+        if (s.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void collectReferences(String uri, String localName, Attributes atts) {
+        String id = atts.getValue("id");
+        if (id != null && id.length() > 0) {
+            ids.add(id);
+        }
+        if (FOElementMapping.URI.equals(uri)) {
+            if ("page-number".equals(localName)) {
+                pageNumberDependent = true;
+            } else if ("page-number-citation".equals(localName)
+                    || "page-number-citation-last".equals(localName)) {
+                pageNumberDependent = true;
+                String refID = atts.getValue("ref-id");
+                if (refID != null) {
+                    citedIDs.add(refID);
+                }
+            }
+        }
+    }
+
+    private void handleBookmark(String uri, String localName, Attributes atts) {
+        if (!FOElementMapping.URI.equals(uri)) {
+            return;
+        }
+        if ("bookmark".equals(localName)) {
+            String s = atts.getValue("starting-state");
+            BookmarkItem item = new BookmarkItem(atts.getValue("internal-destination"),
+                    !"hide".equals(s));
+            if (bookmarkStack.isEmpty()) {
+                bookmarks.add(item);
+            } else {
+                bookmarkStack.get(bookmarkStack.size() - 1).children.add(item);
+            }
+            bookmarkStack.add(item);
+        } else if ("bookmark-title".equals(localName)) {
+            bookmarkTitle = new StringBuilder();
+        }
+    }
+
+    private void startChunk() throws SAXException {
+        try {
+            chunkHandler = tFactory.newTransformerHandler();
+        } catch (TransformerConfigurationException tce) {
+            throw new SAXException(tce);
+        }
+        chunkURI = FOChunk.TEMP_URI_GENERATOR.generate();
+        try {
+            chunkOut = resourceResolver.getOutputStream(chunkURI);
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+        chunkHandler.setResult(new StreamResult(chunkOut));
+        initialPageNumbers = new ArrayList<String>();
+        pageSequenceIDs = new ArrayList<String>();
+        lastForcePageCount = AUTO;
+        ids = new HashSet<String>();
+        citedIDs = new HashSet<String>();
+        pageNumberDependent = false;
+
+        chunkHandler.startDocument();
+        for (String[] mapping : prefixMappings) {
+            chunkHandler.startPrefixMapping(mapping[0], mapping[1]);
+        }
+        chunkHandler.startElement(rootName[0], rootName[1], rootName[2], rootAttributes);
+        for (Object[] event : prologue) {
+            if (event[0] == START_ELEMENT) {
+                chunkHandler.startElement((String) event[1], (String) event[2], (String) event[3],
+                        (Attributes) event[4]);
+            } else if (event[0] == END_ELEMENT) {
+                chunkHandler.endElement((String) event[1], (String) event[2], (String) event[3]);
+            } else if (event[0] == START_PREFIX_MAPPING) {
+                chunkHandler.startPrefixMapping((String) event[1], (String) event[2]);
+            } else if (event[0] == END_PREFIX_MAPPING) {
+                chunkHandler.endPrefixMapping((String) event[1]);
+            } else {
+                String text = (String) event[1];
+                chunkHandler.characters(text.toCharArray(), 0, text.length());
+            }
+        }
+    }
+
+    private void endChunk() throws SAXException {
+        //Make the positions of all IDs in this chunk visible in the intermediate format
+        String qName = "fox:destination";
+        chunkHandler.startPrefixMapping("fox", ExtensionElementMapping.URI);
+        for (String id : ids) {
+            AttributesImpl atts = new AttributesImpl();
+            atts.addAttribute("", "internal-destination", "internal-destination", "CDATA", id);
+            chunkHandler.startElement(ExtensionElementMapping.URI, "destination", qName, atts);
+            chunkHandler.endElement(ExtensionElementMapping.URI, "destination", qName);
+        }
+        chunkHandler.endPrefixMapping("fox");
+        chunkHandler.endElement(rootName[0], rootName[1], rootName[2]);
+        for (String[] mapping : prefixMappings) {
+            chunkHandler.endPrefixMapping(mapping[0]);
+        }
+        chunkHandler.endDocument();
+        try {
+            chunkOut.close();
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+        chunkOut = null;
+        chunks.add(new FOChunk(chunks.size(), resourceResolver, chunkURI, initialPageNumbers,
+                pageSequenceIDs, lastForcePageCount, ids, citedIDs, pageNumberDependent));
+        chunkHandler = null;
+        chunkURI = null;
+    }
+
+    /**
+     * An fo:bookmark of the original document.
+     */
+    public static class BookmarkItem {
+
+        private final String internalDestination;
+        private final boolean show;
+        private String title = "";
+        private final List<BookmarkItem> children = new ArrayList<BookmarkItem>();
+
+        BookmarkItem(String internalDestination, boolean show) {
+            this.internalDestination = internalDestination;
+            this.show = show;
+        }
+
+        /** @return the ID the bookmark points to */
+        public String getInternalDestination() {
+            return internalDestination;
+        }
+
+        /** @return true if the child bookmarks are initially shown */
+        public boolean isShown() {
+            return show;
+        }
+
+        /** @return the bookmark title */
+        public String getTitle() {
+            return title;
+        }
+
+        /** @return the child bookmarks */
+        public List<BookmarkItem> getChildren() {
+            return children;
+        }
+    }
+}
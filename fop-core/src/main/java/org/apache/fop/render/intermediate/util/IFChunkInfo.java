@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.xmlgraphics.xmp.Metadata;
+
+import org.apache.fop.render.intermediate.IFConstants;
+import org.apache.fop.render.intermediate.extensions.DocumentNavigationExtensionConstants;
+
+/**
+ * Layout information about a formatted {@link FOChunk}, gathered from its intermediate format:
+ * the page count and page names of each page-sequence, and the pages and positions of the IDs
+ * defined in the chunk. Page indices are local to the chunk.
+ */
+public class IFChunkInfo {
+
+    private final List<String> pageSequenceIDs;
+    private final List<Integer> pageSequencePageCounts = new ArrayList<Integer>();
+    private final List<String> pageNames = new ArrayList<String>();
+    private final Map<String, int[]> idPages = new HashMap<String, int[]>();
+    private final Map<String, Point> idLocations = new HashMap<String, Point>();
+    private final Map<String, Integer> idLocationPages = new HashMap<String, Integer>();
+    private Metadata documentMetadata;
+
+    /**
+     * Creates a new instance.
+     * @param pageSequenceIDs the IDs of the page-sequences of the chunk, in document order
+     * (null entries for page-sequences without an ID), see {@link FOChunk#getPageSequenceIDs()}
+     */
+    public IFChunkInfo(List<String> pageSequenceIDs) {
+        this.pageSequenceIDs = pageSequenceIDs;
+    }
+
+    /** @return the total number of pages in the chunk */
+    public int getPageCount() {
+        return pageNames.size();
+    }
+
+    /** @return the number of pages of each page-sequence in the chunk */
+    public List<Integer> getPageSequencePageCounts() {
+        return pageSequencePageCounts;
+    }
+
+    /**
+     * Returns the name (the formatted page number) of a page.
+     * @param pageIndex the chunk-local page index
+     * @return the page name
+     */
+    public String getPageName(int pageIndex) {
+        return pageNames.get(pageIndex);
+    }
+
+    /**
+     * Returns the first and last chunk-local page index on which content with the given ID
+     * was painted.
+     * @param id the ID
+     * @return an array holding the first and the last page index, or null if the ID is unknown
+     */
+    public int[] getPages(String id) {
+        return idPages.get(id);
+    }
+
+    /**
+     * Returns the exact position of an ID on its page if known.
+     * @param id the ID
+     * @return the position in millipoints or null
+     */
+    public Point getLocation(String id) {
+        return idLocations.get(id);
+    }
+
+    /**
+     * Returns the chunk-local page index belonging to {@link #getLocation(String)}.
+     * @param id the ID
+     * @return the page index or -1
+     */
+    public int getLocationPage(String id) {
+        Integer page = idLocationPages.get(id);
+        return page != null ? page : -1;
+    }
+
+    /** @return the XMP metadata of the document as produced for this chunk, or null */
+    public Metadata getDocumentMetadata() {
+        return documentMetadata;
+    }
+
+    void setDocumentMetadata(Metadata metadata) {
+        this.documentMetadata = metadata;
+    }
+
+    /** @return all IDs for which pages are known */
+    public Iterable<String> getIDs() {
+        return idPages.keySet();
+    }
+
+    private void notePage(String id, int pageIndex) {
+        if (id == null || id.length() == 0 || pageIndex < 0) {
+            return;
+        }
+        int[] pages = idPages.get(id);
+        if (pages == null) {
+            idPages.put(id, new int[] {pageIndex, pageIndex});
+        } else {
+            pages[0] = Math.min(pages[0], pageIndex);
+            pages[1] = Math.max(pages[1], pageIndex);
+        }
+    }
+
+    /**
+     * Creates a SAX handler that fills this object from an intermediate format document.
+     * @return the SAX handler
+     */
+    public DefaultHandler createScanner() {
+        return new Scanner();
+    }
+
+    private class Scanner extends DefaultHandler implements IFConstants {
+
+        private int pageIndex = -1;
+        private String pageSequenceID;
+        private int pageSequenceStart;
+
+        /** {@inheritDoc} */
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            if (NAMESPACE.equals(uri)) {
+                if (EL_PAGE_SEQUENCE.equals(localName)) {
+                    //the intermediate format doesn't carry the IDs of the page-sequences
+                    int index = pageSequencePageCounts.size();
+                    pageSequenceID = index < pageSequenceIDs.size()
+                            ? pageSequenceIDs.get(index) : null;
+                    pageSequenceStart = pageNames.size();
+                } else if (EL_PAGE.equals(localName)) {
+                    pageNames.add(atts.getValue("name"));
+                    pageIndex = pageNames.size() - 1;
+                } else if (EL_ID.equals(localName)) {
+                    notePage(atts.getValue("name"), pageIndex);
+                }
+            } else if (DocumentNavigationExtensionConstants.NAMESPACE.equals(uri)
+                    && DocumentNavigationExtensionConstants.GOTO_XY.getLocalName().equals(localName)) {
+                String id = atts.getValue("id");
+                String page = atts.getValue("page-index");
+                //Links painted before their target is reached report the target page with
+                //a zero position, so the position resolved last is the exact one
+                if (id != null && page != null) {
+                    int targetPage = Integer.parseInt(page);
+                    if (targetPage >= 0) {
+                        idLocations.put(id, new Point(Integer.parseInt(atts.getValue("x")),
+                                Integer.parseInt(atts.getValue("y"))));
+                        idLocationPages.put(id, targetPage);
+                        notePage(id, targetPage);
+                    }
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        public void endElement(String uri, String localName, String qName) {
+            if (NAMESPACE.equals(uri) && EL_PAGE_SEQUENCE.equals(localName)) {
+                int count = pageNames.size() - pageSequenceStart;
+                pageSequencePageCounts.add(count);
+                if (pageSequenceID != null && count > 0) {
+                    notePage(pageSequenceID, pageSequenceStart);
+                    notePage(pageSequenceID, pageNames.size() - 1);
+                }
+                pageSequenceID = null;
+            }
+        }
+    }
+}
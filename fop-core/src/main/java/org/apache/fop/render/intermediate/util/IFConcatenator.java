@@ -20,6 +20,8 @@
 package org.apache.fop.render.intermediate.util;
 
 import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
@@ -30,14 +32,16 @@ import org.apache.fop.render.intermediate.IFDocumentHandler;
 import org.apache.fop.render.intermediate.IFDocumentNavigationHandler;
 import org.apache.fop.render.intermediate.IFException;
 import org.apache.fop.render.intermediate.IFParser;
+import org.apache.fop.render.intermediate.binary.IFBinaryParser;
 
 /**
  * This class allows to concatenate multiple intermediate format files to a single output file
  * in the final format. It is based on the SAX API and is therefore very fast and does not
  * require to load the individual documents into memory as DOM documents, for example.
  * <p>
- * Note: This class will filter/ignore any document navigation events. Support for this may be
- * added later.
+ * Note: This class will filter/ignore any document navigation events. Subclasses that can map
+ * navigation between documents (see {@link IFScatterGatherRenderer}) may override
+ * {@link #createPageSequenceFilter()} to pass them through.
  * <p>
  * Note: document-level extensions will only be transferred from the first document passed in.
  * If you need to merge extensions from all the concatenated documents, you may have to merge
@@ -71,11 +75,20 @@ public class IFConcatenator {
     }
 
     private void endDocument() throws IFException {
-        this.targetHandler.startPageTrailer();
-        this.targetHandler.endPageTrailer();
+        this.targetHandler.startDocumentTrailer();
+        handleDocumentTrailer();
+        this.targetHandler.endDocumentTrailer();
         this.targetHandler.endDocument();
     }
 
+    /**
+     * Called inside the document trailer of the output file. Subclasses may override this
+     * method to add document-level content, like the document navigation.
+     * @throws IFException if an IF-related error occurs
+     */
+    protected void handleDocumentTrailer() throws IFException {
+    }
+
     /**
      * Returns the target document handler.
      * @return the target document handler
@@ -103,14 +116,53 @@ public class IFConcatenator {
      */
     public void appendDocument(Source src) throws TransformerException, IFException {
         IFParser parser = new IFParser();
-        parser.parse(src, new IFPageSequenceFilter(getTargetHandler()),
+        parser.parse(src, createPageSequenceFilter(),
+                getTargetHandler().getContext().getUserAgent());
+    }
+
+    /**
+     * Appends another document in the binary intermediate format to the current output file.
+     * All document-level content (i.e. the document header and trailer) is ignored. This method
+     * shall not be called after {@link #finish()} has been called.
+     * @param in the input stream to read the binary intermediate format document from
+     * @throws IOException if an I/O error occurs while reading the document
+     * @throws IFException if an IF-related error occurs
+     */
+    public void appendBinaryDocument(InputStream in) throws IOException, IFException {
+        IFBinaryParser parser = new IFBinaryParser();
+        parser.parse(in, createPageSequenceFilter(),
                 getTargetHandler().getContext().getUserAgent());
     }
 
-    private class IFPageSequenceFilter extends IFDocumentHandlerProxy {
+    /**
+     * Creates the filter that receives the events of an appended document and passes the
+     * page-sequence content on to the target handler.
+     * @return the filtering document handler
+     */
+    protected IFDocumentHandler createPageSequenceFilter() {
+        return new IFPageSequenceFilter(getTargetHandler());
+    }
+
+    /**
+     * Returns the index the next appended page will receive in the target document.
+     * @return the next page index
+     */
+    protected int getNextPageIndex() {
+        return this.nextPageIndex;
+    }
+
+    /**
+     * Filter which ignores the document-level events of appended documents and renumbers
+     * their pages.
+     */
+    protected class IFPageSequenceFilter extends IFDocumentHandlerProxy {
 
         private boolean inPageSequence;
 
+        /**
+         * Creates a new filter.
+         * @param delegate the target document handler
+         */
         public IFPageSequenceFilter(IFDocumentHandler delegate) {
             super(delegate);
         }
@@ -0,0 +1,762 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.xmlgraphics.io.TempResourceURIGenerator;
+import org.apache.xmlgraphics.xmp.Metadata;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFDocumentNavigationHandler;
+import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFUtil;
+import org.apache.fop.render.intermediate.binary.BinaryIFConstants;
+import org.apache.fop.render.intermediate.binary.IFBinarySerializer;
+import org.apache.fop.render.intermediate.extensions.AbstractAction;
+import org.apache.fop.render.intermediate.extensions.Bookmark;
+import org.apache.fop.render.intermediate.extensions.BookmarkTree;
+import org.apache.fop.render.intermediate.extensions.GoToXYAction;
+import org.apache.fop.render.intermediate.extensions.Link;
+import org.apache.fop.render.intermediate.extensions.NamedDestination;
+import org.apache.fop.util.DelegatingContentHandler;
+
+/**
+ * Renders an FO document by splitting it into chunks of page-sequences (see {@link FOChunker}),
+ * formatting the chunks concurrently to the binary intermediate format and concatenating the
+ * results into the final output format. The chunks and their formatted results are kept in
+ * temporary resources (see {@link org.apache.fop.apps.io.TempResourceResolver}) until they
+ * are no longer needed.
+ * <p>
+ * Page numbers, page-number-citations and links that cross chunk boundaries are resolved in
+ * additional passes: after each pass the page offsets of all chunks and the pages of all IDs
+ * are known, and only the chunks whose input changed (and which actually depend on it) are
+ * formatted again. Chunks that don't render page numbers are never reformatted because of a
+ * page offset change; their pages are simply renamed during concatenation.
+ * <p>
+ * Note: the document is split at page-sequence boundaries only, so there is no benefit for
+ * documents with a single page-sequence. Markers, "last" page-number-citations spanning
+ * several chunks and outlines are resolved per chunk or from the painted IDs, which works for
+ * common documents but is not identical to formatting the document as a whole in every case.
+ */
+public class IFScatterGatherRenderer {
+
+    /** logging instance */
+    private static Log log = LogFactory.getLog(IFScatterGatherRenderer.class);
+
+    private static final TempResourceURIGenerator TEMP_URI_GENERATOR
+            = new TempResourceURIGenerator("if-chunk");
+
+    private final FopFactory fopFactory;
+    private final String outputFormat;
+
+    private int pageSequencesPerChunk = 1;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int maxPasses = 3;
+
+    private List<FOChunk> chunks;
+    private FOChunk.Adjustments[] used;
+    private InternalResourceResolver resourceResolver;
+    private URI[] results;
+    private IFChunkInfo[] infos;
+    private String[] forceOverrides;
+
+    /**
+     * Creates a new renderer.
+     * @param fopFactory the FOP factory used to create the user agents and Fop instances
+     * @param outputFormat the MIME type of the final output format
+     */
+    public IFScatterGatherRenderer(FopFactory fopFactory, String outputFormat) {
+        this.fopFactory = fopFactory;
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * Sets the number of page-sequences that are formatted together as one chunk.
+     * @param count the number of page-sequences per chunk (default: 1)
+     */
+    public void setPageSequencesPerChunk(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one page-sequence per chunk is required");
+        }
+        this.pageSequencesPerChunk = count;
+    }
+
+    /**
+     * Sets the number of threads used to format the chunks.
+     * @param count the number of threads (default: the number of available processors)
+     */
+    public void setThreadCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        this.threadCount = count;
+    }
+
+    /**
+     * Sets the maximum number of formatting passes. If page numbers still change after the
+     * last pass, the document is produced nevertheless and a warning is logged.
+     * @param passes the maximum number of passes (default: 3)
+     */
+    public void setMaxPasses(int passes) {
+        if (passes < 1) {
+            throw new IllegalArgumentException("At least one pass is required");
+        }
+        this.maxPasses = passes;
+    }
+
+    /**
+     * Renders an FO document.
+     * @param src the FO document
+     * @param out the output stream for the final output format
+     * @throws FOPException if an error occurs while formatting or rendering
+     */
+    public void render(Source src, OutputStream out) throws FOPException {
+        try {
+            render(TransformerFactory.newInstance().newTransformer(), src, out);
+        } catch (TransformerException te) {
+            throw new FOPException(te);
+        }
+    }
+
+    /**
+     * Renders the FO document produced by a transformation (for example an XSLT stylesheet).
+     * @param transformer the transformer producing the FO document
+     * @param src the transformer's input
+     * @param out the output stream for the final output format
+     * @throws FOPException if an error occurs while formatting or rendering
+     */
+    public void render(Transformer transformer, Source src, OutputStream out)
+            throws FOPException {
+        resourceResolver = createUserAgent().getResourceResolver();
+        FOChunker chunker = new FOChunker(pageSequencesPerChunk, resourceResolver);
+        try {
+            chunks = chunker.split(transformer, src);
+        } catch (TransformerException te) {
+            throw new FOPException(te);
+        }
+        int chunkCount = chunks.size();
+        used = new FOChunk.Adjustments[chunkCount];
+        results = new URI[chunkCount];
+        infos = new IFChunkInfo[chunkCount];
+        forceOverrides = determineForcePageCounts();
+
+        try {
+            formatChunks();
+            merge(computeLayout(), chunker, out);
+        } finally {
+            for (int i = 0; i < chunkCount; i++) {
+                releaseResult(i);
+                try {
+                    chunks.get(i).release();
+                } catch (IOException ioe) {
+                    log.warn("Could not delete the temporary resource of chunk " + i + ": "
+                            + ioe.getMessage());
+                }
+            }
+        }
+    }
+
+    private void formatChunks() throws FOPException {
+        int chunkCount = chunks.size();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, chunkCount));
+        try {
+            Layout layout = null;
+            for (int pass = 1;; pass++) {
+                FOChunk.Adjustments[] desired = new FOChunk.Adjustments[chunkCount];
+                List<Integer> todo = new ArrayList<Integer>();
+                for (int i = 0; i < chunkCount; i++) {
+                    desired[i] = layout != null ? layout.adjustments[i] : initialAdjustments(i);
+                    if (desired[i].requiresFormatting(used[i], isPageNumberDependent(i))) {
+                        todo.add(i);
+                    }
+                }
+                if (todo.isEmpty()) {
+                    break;
+                }
+                if (pass > maxPasses) {
+                    log.warn("Page numbers did not stabilize after " + maxPasses
+                            + " passes. Some page numbers or page-number-citations may be wrong.");
+                    break;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Pass " + pass + ": formatting " + todo.size() + " of "
+                            + chunkCount + " chunks");
+                }
+                format(executor, todo, desired);
+                layout = computeLayout();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the user agent used to format one chunk. Subclasses may override this method to
+     * configure the user agents.
+     * @return the new user agent
+     */
+    protected FOUserAgent createUserAgent() {
+        return fopFactory.newFOUserAgent();
+    }
+
+    private boolean isPageNumberDependent(int i) {
+        return chunks.get(i).isPageNumberDependent() || forceOverrides[i] != null;
+    }
+
+    /**
+     * Determines the force-page-count values for the last page-sequence of each chunk which
+     * are implied by the initial-page-number of the next chunk. When the whole document is
+     * formatted, "auto" is resolved against the next page-sequence; a chunk can't see it.
+     */
+    private String[] determineForcePageCounts() {
+        String[] overrides = new String[chunks.size()];
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            if (!"auto".equals(chunks.get(i).getLastForcePageCount())) {
+                continue;
+            }
+            String next = chunks.get(i + 1).getInitialPageNumbers().get(0);
+            if ("auto-odd".equals(next)
+                    || (FOChunker.isNumber(next) && Integer.parseInt(next) % 2 == 1)) {
+                overrides[i] = "end-on-even";
+            } else if ("auto-even".equals(next)
+                    || (FOChunker.isNumber(next) && Integer.parseInt(next) % 2 == 0)) {
+                overrides[i] = "end-on-odd";
+            }
+        }
+        return overrides;
+    }
+
+    private FOChunk.Adjustments initialAdjustments(int i) {
+        return new FOChunk.Adjustments(null, forceOverrides[i],
+                new HashMap<String, String>(), new HashMap<String, String>());
+    }
+
+    private void format(ExecutorService executor, List<Integer> todo,
+            final FOChunk.Adjustments[] desired) throws FOPException {
+        List<Future<URI>> futures = new ArrayList<Future<URI>>(todo.size());
+        final List<IFChunkInfo> newInfos = new ArrayList<IFChunkInfo>(todo.size());
+        for (final Integer i : todo) {
+            final IFChunkInfo info = new IFChunkInfo(chunks.get(i).getPageSequenceIDs());
+            newInfos.add(info);
+            futures.add(executor.submit(new Callable<URI>() {
+                public URI call() throws Exception {
+                    return formatChunk(chunks.get(i), desired[i], info);
+                }
+            }));
+        }
+        FOPException failure = null;
+        for (int t = 0; t < todo.size(); t++) {
+            int i = todo.get(t);
+            URI result;
+            try {
+                result = futures.get(t).get();
+            } catch (CancellationException ce) {
+                continue;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new FOPException(ie);
+            } catch (ExecutionException ee) {
+                if (failure == null) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof FOPException) {
+                        failure = (FOPException) cause;
+                    } else {
+                        failure = new FOPException("Error while formatting chunk " + i,
+                                cause instanceof Exception ? (Exception) cause : ee);
+                    }
+                    //Don't start the remaining chunks, but wait for the running ones
+                    //so their temporary resources can be released
+                    for (Future<URI> future : futures) {
+                        future.cancel(false);
+                    }
+                }
+                continue;
+            }
+            if (failure != null) {
+                release(result);
+                continue;
+            }
+            releaseResult(i);
+            results[i] = result;
+            used[i] = desired[i];
+            infos[i] = newInfos.get(t);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Formats a chunk to the binary intermediate format in a temporary resource. The chunk
+     * information is collected while the chunk is written, so the resource is only read once,
+     * when it is concatenated.
+     */
+    private URI formatChunk(FOChunk chunk, FOChunk.Adjustments adjustments,
+            final IFChunkInfo info)
+            throws FOPException, TransformerException, IOException {
+        FOUserAgent userAgent = createUserAgent();
+        final ContentHandler scanner = info.createScanner();
+        IFBinarySerializer serializer = new IFBinarySerializer(new IFContext(userAgent)) {
+            @Override
+            public void handleExtensionObject(Object extension) throws IFException {
+                if (extension instanceof Metadata && info.getDocumentMetadata() == null) {
+                    info.setDocumentMetadata((Metadata) extension);
+                }
+                super.handleExtensionObject(extension);
+            }
+
+            @Override
+            protected ContentHandler createContentHandler(Result result) throws IFException {
+                return new DelegatingContentHandler(super.createContentHandler(result)) {
+                    @Override
+                    public void startElement(String uri, String localName, String qName,
+                            Attributes atts) throws SAXException {
+                        scanner.startElement(uri, localName, qName, atts);
+                        super.startElement(uri, localName, qName, atts);
+                    }
+
+                    @Override
+                    public void endElement(String uri, String localName, String qName)
+                            throws SAXException {
+                        scanner.endElement(uri, localName, qName);
+                        super.endElement(uri, localName, qName);
+                    }
+                };
+            }
+        };
+        serializer.mimicDocumentHandler(
+                userAgent.getRendererFactory().createDocumentHandler(userAgent, outputFormat));
+        userAgent.setDocumentHandlerOverride(serializer);
+        if (userAgent.isAccessibilityEnabled()) {
+            userAgent.setStructureTreeEventHandler(serializer.getStructureTreeEventHandler());
+        }
+
+        //the factories aren't thread-safe, so every task creates its own
+        XMLReader parser;
+        try {
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            parser = parserFactory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException pce) {
+            throw new FOPException(pce);
+        } catch (SAXException se) {
+            throw new FOPException(se);
+        }
+        URI tempURI = TEMP_URI_GENERATOR.generate();
+        OutputStream out = resourceResolver.getOutputStream(tempURI);
+        boolean success = false;
+        InputStream in = null;
+        try {
+            in = chunk.openStream();
+            Fop fop = fopFactory.newFop(BinaryIFConstants.MIME_TYPE, userAgent, out);
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.transform(chunk.createSource(parser, adjustments, in),
+                    new SAXResult(fop.getDefaultHandler()));
+            in.close();
+            out.close();
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeQuietly(in);
+                IOUtils.closeQuietly(out);
+                release(tempURI);
+            }
+        }
+        return tempURI;
+    }
+
+    private void releaseResult(int i) {
+        if (results[i] != null) {
+            release(results[i]);
+            results[i] = null;
+        }
+    }
+
+    /** Discards a temporary resource. Temporary resources are deleted once they are read. */
+    private void release(URI tempURI) {
+        try {
+            resourceResolver.getResource(tempURI).close();
+        } catch (IOException ioe) {
+            log.warn("Could not delete the temporary resource " + tempURI + ": "
+                    + ioe.getMessage());
+        }
+    }
+
+    private static int getStartNumber(String initialPageNumber, int previousLast) {
+        if (FOChunker.isNumber(initialPageNumber)) {
+            return Integer.parseInt(initialPageNumber);
+        }
+        int next = previousLast + 1;
+        if ("auto-odd".equals(initialPageNumber) && next % 2 == 0) {
+            next++;
+        } else if ("auto-even".equals(initialPageNumber) && next % 2 == 1) {
+            next++;
+        }
+        return next;
+    }
+
+    private Layout computeLayout() {
+        int chunkCount = chunks.size();
+        Layout layout = new Layout(chunkCount);
+        int offset = 0;
+        int previousLast = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            FOChunk chunk = chunks.get(i);
+            IFChunkInfo info = infos[i];
+
+            String initial = null;
+            List<String> initialPageNumbers = chunk.getInitialPageNumbers();
+            if (i > 0 && !FOChunker.isNumber(initialPageNumbers.get(0))) {
+                initial = Integer.toString(getStartNumber(initialPageNumbers.get(0), previousLast));
+            }
+            //Trust the page names in the IF if the chunk was formatted with the right offset
+            boolean namesValid = used[i] != null && (initial == null
+                    ? used[i].getInitialPageNumber() == null
+                    : initial.equals(used[i].getInitialPageNumber()));
+
+            int local = 0;
+            List<Integer> counts = info.getPageSequencePageCounts();
+            for (int k = 0; k < counts.size(); k++) {
+                String raw = (k == 0 && initial != null) ? initial
+                        : (k < initialPageNumbers.size() ? initialPageNumbers.get(k) : "auto");
+                int start = getStartNumber(raw, previousLast);
+                int count = counts.get(k);
+                for (int p = 0; p < count; p++) {
+                    layout.pageNames.add(namesValid
+                            ? info.getPageName(local) : Integer.toString(start + p));
+                    local++;
+                }
+                if (count > 0) {
+                    previousLast = start + count - 1;
+                }
+            }
+
+            for (String id : info.getIDs()) {
+                if (!layout.targets.containsKey(id)) {
+                    int[] pages = info.getPages(id);
+                    int locationPage = info.getLocationPage(id);
+                    Point location = info.getLocation(id);
+                    layout.targets.put(id, new Target(offset + pages[0], offset + pages[1],
+                            locationPage >= 0 ? offset + locationPage : offset + pages[0],
+                            location != null ? location : new Point()));
+                }
+            }
+            layout.initialPageNumbers[i] = initial;
+            offset += info.getPageCount();
+        }
+
+        for (int i = 0; i < chunkCount; i++) {
+            FOChunk chunk = chunks.get(i);
+            Map<String, String> citations = new HashMap<String, String>();
+            Map<String, String> lastCitations = new HashMap<String, String>();
+            for (String id : chunk.getCitedIDs()) {
+                Target target = layout.targets.get(id);
+                if (target != null && !chunk.getIDs().contains(id)) {
+                    citations.put(id, layout.pageNames.get(target.firstPage));
+                    lastCitations.put(id, layout.pageNames.get(target.lastPage));
+                }
+            }
+            layout.adjustments[i] = new FOChunk.Adjustments(layout.initialPageNumbers[i],
+                    forceOverrides[i], citations, lastCitations);
+        }
+        return layout;
+    }
+
+    private void merge(Layout layout, FOChunker chunker, OutputStream out) throws FOPException {
+        FOUserAgent userAgent = createUserAgent();
+        IFDocumentHandler targetHandler
+            = userAgent.getRendererFactory().createDocumentHandler(userAgent, outputFormat);
+        try {
+            targetHandler.setResult(new StreamResult(out));
+            IFUtil.setupFonts(targetHandler);
+            ChunkConcatenator concatenator = new ChunkConcatenator(targetHandler, layout,
+                    infos[0].getDocumentMetadata(), chunker.getBookmarks(),
+                    chunker.getDestinations());
+            for (int i = 0; i < results.length; i++) {
+                //Reading the temporary resource deletes it
+                InputStream in = resourceResolver.getResource(results[i]);
+                results[i] = null;
+                try {
+                    concatenator.appendBinaryDocument(in);
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+            concatenator.finish();
+        } catch (IFException ife) {
+            throw new FOPException(ife);
+        } catch (IOException ioe) {
+            throw new FOPException(ioe);
+        }
+    }
+
+    /** The global page layout after a formatting pass. */
+    private static class Layout {
+
+        private final String[] initialPageNumbers;
+        private final FOChunk.Adjustments[] adjustments;
+        private final List<String> pageNames = new ArrayList<String>();
+        private final Map<String, Target> targets = new HashMap<String, Target>();
+
+        Layout(int chunkCount) {
+            initialPageNumbers = new String[chunkCount];
+            adjustments = new FOChunk.Adjustments[chunkCount];
+        }
+    }
+
+    /** The global pages of an ID. */
+    private static class Target {
+
+        private final int firstPage;
+        private final int lastPage;
+        private final int locationPage;
+        private final Point location;
+
+        Target(int firstPage, int lastPage, int locationPage, Point location) {
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+            this.locationPage = locationPage;
+            this.location = location;
+        }
+    }
+
+    /**
+     * Concatenator which renames the pages of chunks that were not formatted with their final
+     * page offset and maps the document navigation of all chunks into the target document.
+     */
+    private class ChunkConcatenator extends IFConcatenator {
+
+        private final Layout layout;
+        private final List<FOChunker.BookmarkItem> bookmarks;
+        private final List<String> destinations;
+        private final Map<String, GoToXYAction> pendingActions
+                = new LinkedHashMap<String, GoToXYAction>();
+
+        ChunkConcatenator(IFDocumentHandler targetHandler, Layout layout, Metadata metadata,
+                List<FOChunker.BookmarkItem> bookmarks, List<String> destinations)
+                throws IFException {
+            super(targetHandler, metadata);
+            this.layout = layout;
+            this.bookmarks = bookmarks;
+            this.destinations = destinations;
+        }
+
+        /** {@inheritDoc} */
+        protected IFDocumentHandler createPageSequenceFilter() {
+            return new ChunkFilter(getTargetHandler());
+        }
+
+        /** {@inheritDoc} */
+        protected void handleDocumentTrailer() throws IFException {
+            IFDocumentNavigationHandler navHandler
+                    = getTargetHandler().getDocumentNavigationHandler();
+            if (navHandler != null) {
+                for (String id : destinations) {
+                    if (layout.targets.containsKey(id)) {
+                        navHandler.renderNamedDestination(
+                                new NamedDestination(id, createAction(id)));
+                    }
+                }
+                if (!bookmarks.isEmpty()) {
+                    BookmarkTree tree = new BookmarkTree();
+                    for (FOChunker.BookmarkItem item : bookmarks) {
+                        tree.addBookmark(createBookmark(item));
+                    }
+                    navHandler.renderBookmarkTree(tree);
+                }
+                for (GoToXYAction action : pendingActions.values()) {
+                    navHandler.addResolvedAction(action);
+                }
+            }
+        }
+
+        private Bookmark createBookmark(FOChunker.BookmarkItem item) {
+            String id = item.getInternalDestination();
+            Bookmark bookmark = new Bookmark(item.getTitle(), item.isShown(),
+                    id != null && layout.targets.containsKey(id) ? createAction(id) : null);
+            for (FOChunker.BookmarkItem child : item.getChildren()) {
+                bookmark.addChildBookmark(createBookmark(child));
+            }
+            return bookmark;
+        }
+
+        private GoToXYAction createAction(String id) {
+            Target target = layout.targets.get(id);
+            return new GoToXYAction(id, target.locationPage, target.location,
+                    getTargetHandler().getContext());
+        }
+
+        /**
+         * Passes on the actions of links to the given page that were painted before the page,
+         * at the end of the page like the actions resolved while formatting a document.
+         */
+        private void resolvePendingActions(int pageIndex) throws IFException {
+            IFDocumentNavigationHandler navHandler
+                    = getTargetHandler().getDocumentNavigationHandler();
+            Iterator<GoToXYAction> iter = pendingActions.values().iterator();
+            while (iter.hasNext()) {
+                GoToXYAction action = iter.next();
+                if (action.getPageIndex() == pageIndex) {
+                    if (navHandler != null) {
+                        navHandler.addResolvedAction(action);
+                    }
+                    iter.remove();
+                }
+            }
+        }
+
+        private AbstractAction mapAction(AbstractAction action) {
+            if (!(action instanceof GoToXYAction) || !layout.targets.containsKey(action.getID())) {
+                return action;
+            }
+            GoToXYAction complete = createAction(action.getID());
+            GoToXYAction mapped;
+            if (complete.getPageIndex() < getNextPageIndex()) {
+                mapped = complete;
+            } else {
+                //The target page hasn't been started yet, so resolve the action at its end
+                pendingActions.put(complete.getID(), complete);
+                mapped = new GoToXYAction(action.getID());
+            }
+            mapped.setStructureTreeElement(action.getStructureTreeElement());
+            return mapped;
+        }
+
+        private class ChunkFilter extends IFPageSequenceFilter {
+
+            private final NavigationFilter navigationFilter;
+
+            ChunkFilter(IFDocumentHandler delegate) {
+                super(delegate);
+                IFDocumentNavigationHandler navHandler = delegate.getDocumentNavigationHandler();
+                this.navigationFilter = navHandler != null ? new NavigationFilter(navHandler) : null;
+            }
+
+            /** {@inheritDoc} */
+            public void startPage(int index, String name, String pageMasterName, Dimension size)
+                    throws IFException {
+                String globalName = layout.pageNames.get(getNextPageIndex());
+                super.startPage(index, globalName, pageMasterName, size);
+            }
+
+            /** {@inheritDoc} */
+            public void endPageTrailer() throws IFException {
+                resolvePendingActions(getNextPageIndex() - 1);
+                super.endPageTrailer();
+            }
+
+            /** {@inheritDoc} */
+            public void handleExtensionObject(Object extension) throws IFException {
+                //the document metadata has already been passed to the concatenator
+                if (!(extension instanceof Metadata)) {
+                    super.handleExtensionObject(extension);
+                }
+            }
+
+            /** {@inheritDoc} */
+            public IFDocumentNavigationHandler getDocumentNavigationHandler() {
+                return navigationFilter;
+            }
+        }
+
+        /**
+         * Passes links on to the target document, with their targets mapped to the global
+         * pages. The document-level navigation of the chunks is ignored as it is rebuilt for
+         * the whole document in {@link ChunkConcatenator#handleDocumentTrailer()}.
+         */
+        private class NavigationFilter implements IFDocumentNavigationHandler {
+
+            private final IFDocumentNavigationHandler delegate;
+
+            NavigationFilter(IFDocumentNavigationHandler delegate) {
+                this.delegate = delegate;
+            }
+
+            /** {@inheritDoc} */
+            public void renderNamedDestination(NamedDestination destination) throws IFException {
+                //ignore, rebuilt in finish()
+            }
+
+            /** {@inheritDoc} */
+            public void renderBookmarkTree(BookmarkTree tree) throws IFException {
+                //ignore, rebuilt in finish()
+            }
+
+            /** {@inheritDoc} */
+            public void renderLink(Link link) throws IFException {
+                delegate.renderLink(new Link(mapAction(link.getAction()), link.getTargetRect()));
+            }
+
+            /** {@inheritDoc} */
+            public void addResolvedAction(AbstractAction action) throws IFException {
+                //ignore, all targets are known from the layout
+            }
+
+            /** {@inheritDoc} */
+            public int getPageIndex() {
+                //IDs reported by the chunks are resolved through the layout
+                return -1;
+            }
+        }
+    }
+}
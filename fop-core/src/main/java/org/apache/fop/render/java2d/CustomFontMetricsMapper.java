@@ -33,6 +33,7 @@ import org.apache.fop.complexscripts.fonts.Positionable;
 import org.apache.fop.complexscripts.fonts.Substitutable;
 import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.FontType;
+import org.apache.fop.fonts.KerningTable;
 import org.apache.fop.fonts.LazyFont;
 import org.apache.fop.fonts.Typeface;
 
@@ -181,6 +182,12 @@ public class CustomFontMetricsMapper extends Typeface implements FontMetricsMapp
         return typeface.getKerningInfo();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public final KerningTable getKerningTable() {
+        return typeface.getKerningTable();
+    }
+
     /** {@inheritDoc} */
     public final int getWidth(final int i, final int size) {
         return typeface.getWidth(i, size);
@@ -55,6 +55,9 @@ public class PDFContentGenerator {
     /** the current stream to add PDF commands to */
     private PDFStream currentStream;
 
+    /** the stream of the page while the commands are captured, null otherwise */
+    private PDFStream pageStream;
+
     private PDFColorHandler colorHandler;
 
     /** drawing state */
@@ -136,6 +139,29 @@ public class PDFContentGenerator {
         return this.currentStream;
     }
 
+    /**
+     * Redirects the PDF commands that follow to a new stream, until {@link #endCapture()} is
+     * called.
+     */
+    void startCapture() {
+        assert pageStream == null;
+        endTextObject();
+        pageStream = currentStream;
+        currentStream = document.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+    }
+
+    /**
+     * Stops redirecting the PDF commands, and adds them to the stream of the page again.
+     * @return the stream containing the PDF commands added since {@link #startCapture()}
+     */
+    PDFStream endCapture() {
+        endTextObject();
+        PDFStream captured = currentStream;
+        currentStream = pageStream;
+        pageStream = null;
+        return captured;
+    }
+
     /**
      * Returns the {@link PDFPaintingState} associated with this instance.
      * @return the PDF state
@@ -26,6 +26,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 
@@ -40,10 +41,12 @@ import org.apache.fop.fo.extensions.xmp.XMPMetadata;
 import org.apache.fop.pdf.PDFAnnotList;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFormXObject;
 import org.apache.fop.pdf.PDFPage;
 import org.apache.fop.pdf.PDFReference;
 import org.apache.fop.pdf.PDFResources;
 import org.apache.fop.pdf.PDFStream;
+import org.apache.fop.pdf.PDFXObject;
 import org.apache.fop.render.extensions.prepress.PageBoundaries;
 import org.apache.fop.render.extensions.prepress.PageScale;
 import org.apache.fop.render.intermediate.AbstractBinaryWritingIFDocumentHandler;
@@ -100,6 +103,22 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
     private Map<Integer, PDFArray> pageNumbers = new HashMap<Integer, PDFArray>();
     private Map<String, PDFReference> contents = new HashMap<String, PDFReference>();
 
+    /** The number of region contents kept in case they repeat on a later page. */
+    private static final int MAX_REGION_CONTENTS = 16;
+
+    /** The region contents written once into a page, by key, least recently used first. */
+    private final Map<String, PDFStream> regionContents
+            = new LinkedHashMap<String, PDFStream>(32, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, PDFStream> eldest) {
+            return size() > MAX_REGION_CONTENTS;
+        }
+    };
+
+    /** the media box of the current page, in the coordinate system of the painter */
+    private Rectangle2D currentMediaBox;
+
     /**
      * Default constructor.
      */
@@ -183,21 +202,24 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
 
     /** {@inheritDoc} */
     public void endDocument() throws IFException {
-        pdfDoc.getResources().addFonts(pdfDoc, fontInfo);
         try {
+            pdfDoc.getResources().addFonts(pdfDoc, fontInfo);
             if (pdfDoc.isLinearizationEnabled()) {
                 generator.flushPDFDoc();
             } else {
                 pdfDoc.outputTrailer(this.outputStream);
             }
-            this.pdfDoc = null;
-
-            pdfResources = null;
-            this.generator = null;
-            currentPage = null;
         } catch (IOException ioe) {
             throw new IFException("I/O error in endDocument()", ioe);
+        } finally {
+            pdfDoc.closeSpillStore();
         }
+        this.pdfDoc = null;
+
+        pdfResources = null;
+        this.generator = null;
+        currentPage = null;
+        regionContents.clear();
         super.endDocument();
     }
 
@@ -208,7 +230,13 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
 
     /** {@inheritDoc} */
     public void endPageSequence() throws IFException {
-        //nop
+        if (accessEnabled) {
+            try {
+                pdfDoc.outputStructureTreeElements(this.outputStream);
+            } catch (IOException ioe) {
+                throw new IFException("I/O error in endPageSequence()", ioe);
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -257,6 +285,9 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         currentPageRef = new PageReference(currentPage, size);
         this.pageReferences.put(index, currentPageRef);
 
+        currentMediaBox = new Rectangle2D.Double(mediaBox.getX() / 1000, mediaBox.getY() / 1000,
+                mediaBox.getWidth() / 1000, mediaBox.getHeight() / 1000);
+
         this.generator = new PDFContentGenerator(this.pdfDoc, this.outputStream, this.currentPage, getContext());
         // Transform the PDF's default coordinate system (0,0 at lower left) to the PDFPainter's
         AffineTransform basicPageTransform = new AffineTransform(1, 0, 0, -1, 0,
@@ -298,6 +329,8 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             if (!pdfDoc.isLinearizationEnabled()) {
                 this.generator.flushPDFDoc();
                 this.generator = null;
+            } else {
+                this.pdfDoc.spillStreams();
             }
         } catch (IOException ioe) {
             throw new IFException("I/O error in endPage()", ioe);
@@ -315,6 +348,38 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         currentPage.setContents(contents.get(hash));
     }
 
+    /**
+     * Adds the content of a before or after region to the current page. The first time the
+     * content is written directly into the page, since most region contents, like a footer
+     * with the page number, never repeat. When the same content occurs again on a page of the
+     * same size, it is turned into a form XObject, which that page and all later ones draw.
+     * @param content the content of the region, starting with a "q" and ending with a "Q"
+     * @throws IOException in case of an I/O problem
+     */
+    void addRegionContent(PDFStream content) throws IOException {
+        //the content is drawn in the coordinate system of the page, and clipped to it
+        Rectangle2D box = currentMediaBox;
+        String key = "region:" + content.streamHashCode() + ":" + box;
+        PDFXObject form = pdfDoc.getXObject(key);
+        if (form != null) {
+            currentPage.addXObject(form);
+        } else {
+            PDFStream earlier = regionContents.remove(key);
+            if (earlier == null) {
+                generator.getStream().add(content);
+                regionContents.put(key, content);
+                return;
+            }
+            //the earlier page may already be written, so the form gets the kept content
+            PDFFormXObject newForm = pdfDoc.addFormXObject(currentPage, earlier,
+                    pdfResources.makeReference(), key);
+            newForm.put("BBox", new PDFArray(newForm, new double[] {
+                    box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY()}));
+            form = newForm;
+        }
+        generator.add(form.getName() + " Do\n");
+    }
+
     /** {@inheritDoc} */
     public void handleExtensionObject(Object extension) throws IFException {
         if (extension instanceof XMPMetadata) {
@@ -24,6 +24,7 @@ import org.apache.fop.pdf.PDFDictionary;
 import org.apache.fop.pdf.PDFDocument;
 import org.apache.fop.pdf.PDFLink;
 import org.apache.fop.pdf.PDFName;
+import org.apache.fop.pdf.PDFObject;
 import org.apache.fop.pdf.PDFPage;
 import org.apache.fop.pdf.PDFParentTree;
 import org.apache.fop.pdf.PDFStructElem;
@@ -128,7 +129,16 @@ public class PDFLogicalStructureHandler {
         // being output to the PDF.
         // This should really be handled by PDFNumsArray
         pdfDoc.registerObject(pageParentTreeArray);
-        parentTree.addToNums(currentPage.getStructParents(), pageParentTreeArray);
+        parentTree.addToNums(currentPage.getStructParents(), parentTreeValue(pageParentTreeArray));
+    }
+
+    /**
+     * When the structure tree is output incrementally, the parent tree only refers to its
+     * values, so it doesn't keep the structure elements in memory until the end of the
+     * document.
+     */
+    private Object parentTreeValue(PDFObject value) {
+        return pdfDoc.isIncrementalStructureTreeEnabled() ? value.makeReference() : value;
     }
 
     private MarkedContentInfo addToParentTree(PDFStructElem structureTreeElement) {
@@ -206,7 +216,7 @@ public class PDFLogicalStructureHandler {
         contentItem.put("Type", OBJR);
         contentItem.put("Pg", this.currentPage);
         contentItem.put("Obj", link);
-        parentTree.addToNums(structParent, structureTreeElement);
+        parentTree.addToNums(structParent, parentTreeValue(structureTreeElement));
         structureTreeElement.addKid(contentItem);
     }
 
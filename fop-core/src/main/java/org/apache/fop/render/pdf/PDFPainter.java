@@ -27,11 +27,19 @@ import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
@@ -39,6 +47,7 @@ import org.apache.xmlgraphics.image.loader.ImageManager;
 import org.apache.xmlgraphics.image.loader.ImageSessionContext;
 
 import org.apache.fop.ResourceEventProducer;
+import org.apache.fop.fo.extensions.svg.SVGElementMapping;
 import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.Font;
 import org.apache.fop.fonts.FontTriplet;
@@ -48,8 +57,11 @@ import org.apache.fop.fonts.SingleByteFont;
 import org.apache.fop.fonts.Typeface;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDictionary;
+import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFormXObject;
 import org.apache.fop.pdf.PDFName;
 import org.apache.fop.pdf.PDFNumber;
+import org.apache.fop.pdf.PDFStream;
 import org.apache.fop.pdf.PDFStructElem;
 import org.apache.fop.pdf.PDFTextUtil;
 import org.apache.fop.pdf.PDFXObject;
@@ -72,6 +84,8 @@ import org.apache.fop.util.CharUtilities;
  */
 public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /** The current content generator */
     protected PDFContentGenerator generator;
 
@@ -87,6 +101,12 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
 
     private final LanguageAvailabilityChecker languageAvailabilityChecker;
 
+    /** the nesting level of the viewports, 1 inside the viewport of a region */
+    private int viewportLevel;
+
+    /** true while the content of a before or after region is captured for reuse */
+    private boolean capturingRegion;
+
     private static class LanguageAvailabilityChecker {
 
         private final IFContext context;
@@ -142,6 +162,11 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
     /** {@inheritDoc} */
     public void startViewport(AffineTransform transform, Dimension size, Rectangle clipRect)
             throws IFException {
+        if (viewportLevel++ == 0 && getContext().getRegionType() != null && !accessEnabled
+                && getDocumentHandler().getPDFDocument().isRegionContentReuseEnabled()) {
+            generator.startCapture();
+            capturingRegion = true;
+        }
         generator.saveGraphicsState();
         generator.concatenate(toPoints(transform));
         if (clipRect != null) {
@@ -152,6 +177,14 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
     /** {@inheritDoc} */
     public void endViewport() throws IFException {
         generator.restoreGraphicsState();
+        if (--viewportLevel == 0 && capturingRegion) {
+            capturingRegion = false;
+            try {
+                getDocumentHandler().addRegionContent(generator.endCapture());
+            } catch (IOException ioe) {
+                throw new IFException("I/O error while adding the content of a region", ioe);
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -287,12 +320,128 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
             prepareImageMCID(structElem);
             addStructTreeBBox(rect);
         }
-        drawImageUsingDocument(doc, rect);
+        String key = getReusableImageKey(doc, rect);
+        if (key != null) {
+            drawReusableImage(doc, rect, key);
+        } else {
+            drawImageUsingDocument(doc, rect);
+        }
         if (!getDocumentHandler().getPDFDocument().isLinearizationEnabled()) {
             flushPDFDoc();
         }
     }
 
+    /**
+     * Draws an SVG graphic that may occur several times in the document. The graphic is painted
+     * once into a form XObject, at the origin, and the form is drawn at each occurrence.
+     */
+    private void drawReusableImage(Document doc, Rectangle rect, String key) {
+        PDFDocument pdfDoc = getDocumentHandler().getPDFDocument();
+        PDFXObject form = pdfDoc.getXObject(key);
+        if (form == null) {
+            //Paint with a new generator, so the form doesn't depend on the state of the page
+            PDFContentGenerator pageGenerator = generator;
+            generator = new PDFContentGenerator(pdfDoc, pageGenerator.getOutputStream(),
+                    pageGenerator.getResourceContext(), getContext());
+            PDFStream content;
+            try {
+                drawImageUsingDocument(doc, new Rectangle(rect.width, rect.height));
+                content = generator.getStream();
+            } finally {
+                generator = pageGenerator;
+            }
+            PDFFormXObject newForm = pdfDoc.addFormXObject(getDocumentHandler().getCurrentPage(),
+                    content, pdfDoc.getResources().makeReference(), key);
+            newForm.put("BBox", new PDFArray(newForm, new double[] {
+                    0, 0, rect.width / 1000.0, rect.height / 1000.0}));
+            form = newForm;
+        } else {
+            getDocumentHandler().getCurrentPage().addXObject(form);
+        }
+        generator.saveGraphicsState();
+        generator.add("1 0 0 1 " + format(rect.x) + " " + format(rect.y) + " cm "
+                + form.getName() + " Do\n");
+        generator.restoreGraphicsState();
+    }
+
+    /**
+     * Returns the key under which an SVG graphic is drawn as a form XObject, made of a digest
+     * of the document and of the size of the graphic. Returns null if the graphic is not to be
+     * reused: if it isn't SVG, if the option is disabled or with accessibility, since the marked
+     * content must stay in the page, and if the graphic contains links, since they are
+     * annotations of the page.
+     */
+    private String getReusableImageKey(Document doc, Rectangle rect) {
+        Node root = doc.getDocumentElement();
+        if (accessEnabled || !getDocumentHandler().getPDFDocument().isSVGReuseEnabled()
+                || root == null || !SVGElementMapping.URI.equals(root.getNamespaceURI())) {
+            return null;
+        }
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        //relative references are resolved against the URI of the document
+        update(md, 'U', doc.getDocumentURI());
+        if (!digest(root, md)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder("svg:");
+        for (byte b : md.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.append(':').append(rect.width).append('x').append(rect.height).toString();
+    }
+
+    private static boolean digest(Node node, MessageDigest md) {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            String namespace = node.getNamespaceURI();
+            String name = node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+            if (SVGElementMapping.URI.equals(namespace) && "a".equals(name)) {
+                return false;
+            }
+            update(md, '<', namespace);
+            update(md, ':', name);
+            //the order of the attributes is not significant
+            NamedNodeMap atts = node.getAttributes();
+            List<String> attributes = new ArrayList<String>(atts.getLength());
+            for (int i = 0; i < atts.getLength(); i++) {
+                Node att = atts.item(i);
+                attributes.add(att.getNamespaceURI() + "\u0000" + att.getNodeName()
+                        + "\u0000" + att.getNodeValue());
+            }
+            Collections.sort(attributes);
+            for (String att : attributes) {
+                update(md, '@', att);
+            }
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!digest(child, md)) {
+                    return false;
+                }
+            }
+            update(md, '>', null);
+            break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+            update(md, '"', node.getNodeValue());
+            break;
+        default:
+            //comments and processing instructions don't change the graphic
+        }
+        return true;
+    }
+
+    private static void update(MessageDigest md, char type, String value) {
+        md.update((byte) type);
+        if (value != null) {
+            md.update(value.getBytes(UTF_8));
+        }
+        md.update((byte) 0);
+    }
+
     private void flushPDFDoc() throws IFException {
         // output new data
         try {
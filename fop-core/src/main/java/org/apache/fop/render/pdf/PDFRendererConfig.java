@@ -57,14 +57,20 @@ import static org.apache.fop.render.pdf.PDFEncryptionOption.OWNER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.USER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
+import static org.apache.fop.render.pdf.PDFRendererOption.FONT_EMBEDDING_THREADS;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
+import static org.apache.fop.render.pdf.PDFRendererOption.INCREMENTAL_STRUCTURE_TREE;
 import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION;
+import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION_SPILL;
 import static org.apache.fop.render.pdf.PDFRendererOption.MERGE_FONTS;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_UA_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_VT_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_REGION_CONTENT;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_SVG;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -151,7 +157,13 @@ public final class PDFRendererConfig implements RendererConfig {
                 parseAndPut(DISABLE_SRGB_COLORSPACE, cfg);
                 parseAndPut(MERGE_FONTS, cfg);
                 parseAndPut(LINEARIZATION, cfg);
+                parseAndPut(LINEARIZATION_SPILL, cfg);
                 parseAndPut(FORM_XOBJECT, cfg);
+                parseAndPut(INCREMENTAL_STRUCTURE_TREE, cfg);
+                parseAndPut(OBJECT_STREAMS, cfg);
+                parseAndPut(REUSE_REGION_CONTENT, cfg);
+                parseAndPut(REUSE_SVG, cfg);
+                parseAndPut(FONT_EMBEDDING_THREADS, cfg);
                 parseAndPut(VERSION, cfg);
             } catch (ConfigurationException e) {
                 LogUtil.handleException(LOG, e, strict);
@@ -99,6 +99,43 @@ public enum PDFRendererOption implements RendererConfigOption {
             return Boolean.valueOf(value);
         }
     },
+    INCREMENTAL_STRUCTURE_TREE("incremental-structure-tree", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    OBJECT_STREAMS("object-streams", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    LINEARIZATION_SPILL("linearization-spill", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    REUSE_REGION_CONTENT("reuse-region-content", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    REUSE_SVG("reuse-svg", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /** Number of threads used to subset the embedded fonts at the end of the document */
+    FONT_EMBEDDING_THREADS("font-embedding-threads", 0) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
     /** Rendering Options key for the ICC profile for the output intent. */
     OUTPUT_PROFILE("output-profile") {
         @Override
@@ -33,14 +33,20 @@ import org.apache.fop.pdf.Version;
 
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
+import static org.apache.fop.render.pdf.PDFRendererOption.FONT_EMBEDDING_THREADS;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
+import static org.apache.fop.render.pdf.PDFRendererOption.INCREMENTAL_STRUCTURE_TREE;
 import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION;
+import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION_SPILL;
 import static org.apache.fop.render.pdf.PDFRendererOption.MERGE_FONTS;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_UA_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_VT_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_REGION_CONTENT;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_SVG;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -144,7 +150,31 @@ public final class PDFRendererOptionsConfig {
         return (Boolean)properties.get(LINEARIZATION);
     }
 
+    public Boolean getLinearizationSpillEnabled() {
+        return (Boolean)properties.get(LINEARIZATION_SPILL);
+    }
+
     public Boolean getFormXObjectEnabled() {
         return (Boolean)properties.get(FORM_XOBJECT);
     }
+
+    public Boolean getIncrementalStructureTreeEnabled() {
+        return (Boolean)properties.get(INCREMENTAL_STRUCTURE_TREE);
+    }
+
+    public Boolean getObjectStreamsEnabled() {
+        return (Boolean)properties.get(OBJECT_STREAMS);
+    }
+
+    public Boolean getReuseRegionContentEnabled() {
+        return (Boolean)properties.get(REUSE_REGION_CONTENT);
+    }
+
+    public Boolean getReuseSVGEnabled() {
+        return (Boolean)properties.get(REUSE_SVG);
+    }
+
+    public Integer getFontEmbeddingThreadCount() {
+        return (Integer)properties.get(FONT_EMBEDDING_THREADS);
+    }
 }
@@ -620,7 +620,14 @@ class PDFRenderingUtil {
         this.pdfDoc.enableAccessibility(userAgent.isAccessibilityEnabled());
         pdfDoc.setMergeFontsEnabled(rendererConfig.getMergeFontsEnabled());
         pdfDoc.setLinearizationEnabled(rendererConfig.getLinearizationEnabled());
+        pdfDoc.setLinearizationSpillEnabled(rendererConfig.getLinearizationSpillEnabled());
         pdfDoc.setFormXObjectEnabled(rendererConfig.getFormXObjectEnabled());
+        pdfDoc.setIncrementalStructureTreeEnabled(
+                rendererConfig.getIncrementalStructureTreeEnabled());
+        pdfDoc.setObjectStreamsEnabled(rendererConfig.getObjectStreamsEnabled());
+        pdfDoc.setRegionContentReuseEnabled(rendererConfig.getReuseRegionContentEnabled());
+        pdfDoc.setSVGReuseEnabled(rendererConfig.getReuseSVGEnabled());
+        pdfDoc.setFontEmbeddingThreadCount(rendererConfig.getFontEmbeddingThreadCount());
 
         return this.pdfDoc;
     }
@@ -375,6 +375,7 @@ public class PDFStructureTreeBuilder implements StructureTreeEventHandler {
 
     public void startPageSequence(Locale language, String role) {
         ancestors = new LinkedList<PDFStructElem>();
+        pdfFactory.getDocument().startStructureTreePageSequence();
         AttributesImpl attributes = new AttributesImpl();
         attributes.addAttribute("", ROLE, ROLE, XMLUtil.CDATA, role);
         PDFStructElem structElem = createStructureElement("page-sequence",
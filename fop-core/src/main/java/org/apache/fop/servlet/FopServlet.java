@@ -19,6 +19,7 @@
 
 package org.apache.fop.servlet;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -39,7 +40,9 @@ import javax.xml.transform.URIResolver;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 
 import org.apache.xmlgraphics.io.Resource;
 import org.apache.xmlgraphics.io.ResourceResolver;
@@ -70,7 +73,26 @@ import org.apache.fop.apps.MimeConstants;
  * <br>
  * For this to work with Internet Explorer, you might need to append "ext=.pdf"
  * to the URL.
- * (todo) Ev. add caching mechanism for Templates objects
+ * <br>
+ * The following (optional) servlet init parameters are supported:
+ * <ul>
+ *   <li>output-mode: "buffer" (default) collects the whole PDF in memory before sending it,
+ *   "stream" writes it straight to the response (the container switches to chunked transfer
+ *   encoding once the response buffer is full), "spool" collects it in memory up to
+ *   spool-threshold bytes and spills to a temporary file beyond that. With "buffer" and
+ *   "spool" a failed rendering run still produces a proper error response.</li>
+ *   <li>response-buffer-size: the response buffer size in bytes for the "stream" mode. Documents
+ *   smaller than the buffer are sent with a Content-Length header.</li>
+ *   <li>spool-threshold: the number of bytes kept in memory in the "spool" mode
+ *   (default: 1 MB)</li>
+ *   <li>max-concurrent-renders: the maximum number of documents rendered at the same time
+ *   (default: unlimited). Further requests wait for a free slot.</li>
+ *   <li>max-queued-renders: the maximum number of requests waiting for a free slot
+ *   (default: unlimited). Requests beyond that are rejected with status 503.</li>
+ *   <li>queue-timeout: the maximum time in milliseconds a request waits for a free slot
+ *   (default: 30000) before it's rejected with status 503.</li>
+ * </ul>
+ * Compiled stylesheets are cached by their system ID and last-modified time.
  */
 public class FopServlet extends HttpServlet {
 
@@ -83,12 +105,42 @@ public class FopServlet extends HttpServlet {
     /** Name of the parameter used for the XSLT file */
     protected static final String XSLT_REQUEST_PARAM = "xslt";
 
+    /** Name of the init parameter selecting how the output is sent */
+    protected static final String OUTPUT_MODE_PARAM = "output-mode";
+    /** Name of the init parameter for the response buffer size in "stream" mode */
+    protected static final String RESPONSE_BUFFER_SIZE_PARAM = "response-buffer-size";
+    /** Name of the init parameter for the in-memory threshold in "spool" mode */
+    protected static final String SPOOL_THRESHOLD_PARAM = "spool-threshold";
+    /** Name of the init parameter for the maximum number of concurrent renders */
+    protected static final String MAX_CONCURRENT_RENDERS_PARAM = "max-concurrent-renders";
+    /** Name of the init parameter for the maximum number of queued requests */
+    protected static final String MAX_QUEUED_RENDERS_PARAM = "max-queued-renders";
+    /** Name of the init parameter for the queue timeout in milliseconds */
+    protected static final String QUEUE_TIMEOUT_PARAM = "queue-timeout";
+
+    /** Output mode: the whole result is collected in memory before it's sent */
+    protected static final String OUTPUT_MODE_BUFFER = "buffer";
+    /** Output mode: the result is written directly to the response */
+    protected static final String OUTPUT_MODE_STREAM = "stream";
+    /** Output mode: the result is collected in memory or in a temporary file */
+    protected static final String OUTPUT_MODE_SPOOL = "spool";
+
+    private static final int DEFAULT_SPOOL_THRESHOLD = 1024 * 1024;
+    private static final long DEFAULT_QUEUE_TIMEOUT = 30000;
+
     /** The TransformerFactory used to create Transformer instances */
     protected TransformerFactory transFactory;
     /** The FopFactory used to create Fop instances */
     protected FopFactory fopFactory;
     /** URIResolver for use by this servlet */
     protected transient URIResolver uriResolver;
+    /** The cache for compiled stylesheets */
+    protected transient TemplatesCache templatesCache;
+
+    private String outputMode = OUTPUT_MODE_BUFFER;
+    private int responseBufferSize;
+    private int spoolThreshold = DEFAULT_SPOOL_THRESHOLD;
+    private transient RenderLimiter renderLimiter;
 
     /**
      * {@inheritDoc}
@@ -99,6 +151,8 @@ public class FopServlet extends HttpServlet {
         transFactory.setAttribute("http://javax.xml.XMLConstants/property/accessExternalDTD", "");
         transFactory.setAttribute("http://javax.xml.XMLConstants/property/accessExternalStylesheet", "");
         this.transFactory.setURIResolver(this.uriResolver);
+        this.templatesCache = new TemplatesCache(this.transFactory);
+        configureOutput();
         //Configure FopFactory as desired
         // TODO: Double check this behaves properly!!
         ResourceResolver resolver = new ResourceResolver() {
@@ -116,6 +170,42 @@ public class FopServlet extends HttpServlet {
         fopFactory = builder.build();
     }
 
+    private void configureOutput() throws ServletException {
+        String mode = getInitParameter(OUTPUT_MODE_PARAM);
+        if (mode != null) {
+            if (!OUTPUT_MODE_BUFFER.equals(mode) && !OUTPUT_MODE_STREAM.equals(mode)
+                    && !OUTPUT_MODE_SPOOL.equals(mode)) {
+                throw new ServletException("Invalid value for " + OUTPUT_MODE_PARAM + ": " + mode);
+            }
+            this.outputMode = mode;
+        }
+        this.responseBufferSize = (int) getLongInitParameter(RESPONSE_BUFFER_SIZE_PARAM, 0);
+        this.spoolThreshold = (int) getLongInitParameter(SPOOL_THRESHOLD_PARAM,
+                DEFAULT_SPOOL_THRESHOLD);
+        int maxConcurrent = (int) getLongInitParameter(MAX_CONCURRENT_RENDERS_PARAM, 0);
+        if (maxConcurrent > 0) {
+            this.renderLimiter = new RenderLimiter(maxConcurrent,
+                    (int) getLongInitParameter(MAX_QUEUED_RENDERS_PARAM, Integer.MAX_VALUE),
+                    getLongInitParameter(QUEUE_TIMEOUT_PARAM, DEFAULT_QUEUE_TIMEOUT));
+        }
+    }
+
+    private long getLongInitParameter(String name, long defaultValue) throws ServletException {
+        String value = getInitParameter(name);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+        try {
+            long l = Long.parseLong(value.trim());
+            if (l < 0) {
+                throw new ServletException("Negative value for " + name + ": " + value);
+            }
+            return l;
+        } catch (NumberFormatException nfe) {
+            throw new ServletException("Invalid value for " + name + ": " + value);
+        }
+    }
+
     /**
      * This method is called right after the FopFactory is instantiated and can be overridden
      * by subclasses to perform additional configuration.
@@ -136,16 +226,32 @@ public class FopServlet extends HttpServlet {
             String xsltParam = request.getParameter(XSLT_REQUEST_PARAM);
 
             //Analyze parameters and decide with method to use
-            if (foParam != null) {
-                renderFO(foParam, response);
-            } else if ((xmlParam != null) && (xsltParam != null)) {
-                renderXML(xmlParam, xsltParam, response);
-            } else {
+            if (foParam == null && (xmlParam == null || xsltParam == null)) {
                 response.setContentType("text/html");
                 PrintWriter out = response.getWriter();
                 out.println("<html><head><title>Error</title></head>\n"
                           + "<body><h1>FopServlet Error</h1><h3>No 'fo' "
                           + "request param given.</body></html>");
+                return;
+            }
+
+            //Limit the number of documents rendered at the same time
+            if (renderLimiter != null && !renderLimiter.acquire()) {
+                response.setHeader("Retry-After", "1");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                        "Too many documents are being rendered. Please try again later.");
+                return;
+            }
+            try {
+                if (foParam != null) {
+                    renderFO(foParam, response);
+                } else {
+                    renderXML(xmlParam, xsltParam, response);
+                }
+            } finally {
+                if (renderLimiter != null) {
+                    renderLimiter.release();
+                }
             }
         } catch (Exception ex) {
             throw new ServletException(ex);
@@ -178,6 +284,15 @@ public class FopServlet extends HttpServlet {
         response.getOutputStream().flush();
     }
 
+    private void sendPDF(DeferredFileOutputStream content, HttpServletResponse response)
+                throws IOException {
+        //Send the result back to the client
+        response.setContentType("application/pdf");
+        response.setContentLength((int) content.getByteCount());
+        content.writeTo(response.getOutputStream());
+        response.getOutputStream().flush();
+    }
+
     /**
      * Renders an XSL-FO file into a PDF file. The PDF is written to a byte
      * array that is returned as the method's result.
@@ -223,8 +338,8 @@ public class FopServlet extends HttpServlet {
         Source xmlSrc = convertString2Source(xml);
         Source xsltSrc = convertString2Source(xslt);
 
-        //Setup the XSL transformation
-        Transformer transformer = this.transFactory.newTransformer(xsltSrc);
+        //Setup the XSL transformation (using the compiled stylesheet if cached)
+        Transformer transformer = this.templatesCache.getTemplates(xsltSrc).newTransformer();
         transformer.setURIResolver(this.uriResolver);
 
         //Start transformation and rendering process
@@ -235,8 +350,8 @@ public class FopServlet extends HttpServlet {
      * Renders an input file (XML or XSL-FO) into a PDF file. It uses the JAXP
      * transformer given to optionally transform the input document to XSL-FO.
      * The transformer may be an identity transformer in which case the input
-     * must already be XSL-FO. The PDF is written to a byte array that is
-     * returned as the method's result.
+     * must already be XSL-FO. Depending on the "output-mode" init parameter, the
+     * PDF is collected in memory, spooled or streamed directly to the client.
      * @param src Input XML or XSL-FO
      * @param transformer Transformer to use for optional transformation
      * @param response HTTP response object
@@ -248,6 +363,18 @@ public class FopServlet extends HttpServlet {
      */
     protected void render(Source src, Transformer transformer, HttpServletResponse response)
                 throws FOPException, TransformerException, IOException {
+        if (OUTPUT_MODE_STREAM.equals(outputMode)) {
+            renderStreaming(src, transformer, response);
+        } else if (OUTPUT_MODE_SPOOL.equals(outputMode)) {
+            renderSpooled(src, transformer, response);
+        } else {
+            renderBuffered(src, transformer, response);
+        }
+    }
+
+    private void renderBuffered(Source src, Transformer transformer,
+                HttpServletResponse response)
+                throws FOPException, TransformerException, IOException {
 
         FOUserAgent foUserAgent = getFOUserAgent();
 
@@ -267,6 +394,98 @@ public class FopServlet extends HttpServlet {
         sendPDF(out.toByteArray(), response);
     }
 
+    private void renderSpooled(Source src, Transformer transformer,
+                HttpServletResponse response)
+                throws FOPException, TransformerException, IOException {
+
+        FOUserAgent foUserAgent = getFOUserAgent();
+
+        //Setup output: memory up to the threshold, a temporary file beyond
+        DeferredFileOutputStream out = new DeferredFileOutputStream(spoolThreshold,
+                "fop", ".pdf", getTempDirectory());
+        try {
+            try {
+                //Setup FOP
+                Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
+
+                //Make sure the XSL transformation's result is piped through to FOP
+                Result res = new SAXResult(fop.getDefaultHandler());
+
+                //Start the transformation and rendering process
+                transformer.transform(src, res);
+            } finally {
+                out.close();
+            }
+
+            //Return the result
+            sendPDF(out, response);
+        } finally {
+            if (!out.isInMemory()) {
+                FileUtils.deleteQuietly(out.getFile());
+            }
+        }
+    }
+
+    private void renderStreaming(Source src, Transformer transformer,
+                HttpServletResponse response)
+                throws FOPException, TransformerException, IOException {
+
+        FOUserAgent foUserAgent = getFOUserAgent();
+
+        //Setup output: the PDF goes straight to the client
+        if (responseBufferSize > 0) {
+            response.setBufferSize(responseBufferSize);
+        }
+        response.setContentType("application/pdf");
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
+
+        try {
+            //Setup FOP
+            Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
+
+            //Make sure the XSL transformation's result is piped through to FOP
+            Result res = new SAXResult(fop.getDefaultHandler());
+
+            //Start the transformation and rendering process
+            transformer.transform(src, res);
+            out.flush();
+        } catch (FOPException e) {
+            discardResponse(response);
+            throw e;
+        } catch (TransformerException e) {
+            discardResponse(response);
+            throw e;
+        } catch (RuntimeException e) {
+            discardResponse(response);
+            throw e;
+        }
+    }
+
+    /**
+     * Clears a partially written response so the container can send an error page instead.
+     * This is only possible as long as nothing has been sent to the client.
+     */
+    private void discardResponse(HttpServletResponse response) {
+        if (!response.isCommitted()) {
+            response.reset();
+        } else {
+            log("Rendering failed after the response has been committed."
+                    + " The client receives an incomplete document.");
+        }
+    }
+
+    /**
+     * Returns the directory for temporary files used in the "spool" output mode.
+     * @return the directory for temporary files
+     */
+    protected File getTempDirectory() {
+        Object dir = getServletContext().getAttribute("javax.servlet.context.tempdir");
+        if (dir instanceof File) {
+            return (File) dir;
+        }
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
     /** @return a new FOUserAgent for FOP */
     protected FOUserAgent getFOUserAgent() {
         FOUserAgent userAgent = fopFactory.newFOUserAgent();
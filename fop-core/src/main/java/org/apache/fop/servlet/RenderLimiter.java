@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.servlet;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of documents rendered at the same time. Requests beyond the limit wait
+ * in a first-come, first-served queue of limited length for a free slot, so a burst of
+ * requests cannot exhaust the heap.
+ */
+public class RenderLimiter {
+
+    private final Semaphore permits;
+    private final int maxQueued;
+    private final long timeout;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Creates a new limiter.
+     * @param maxConcurrent the maximum number of concurrent renders
+     * @param maxQueued the maximum number of requests waiting for a free slot
+     * @param timeout the maximum time in milliseconds to wait for a free slot
+     */
+    public RenderLimiter(int maxConcurrent, int maxQueued, long timeout) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Acquires a slot for rendering a document, waiting if necessary. Every successful call
+     * has to be matched by a call to {@link #release()}.
+     * @return true if a slot has been acquired, false if the queue is full, the timeout has
+     *          elapsed or the thread has been interrupted
+     */
+    public boolean acquire() {
+        try {
+            //unlike tryAcquire(), this doesn't take a free slot ahead of the waiting requests
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return false;
+            }
+            try {
+                return permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Releases a slot acquired by {@link #acquire()}. */
+    public void release() {
+        permits.release();
+    }
+
+    /** @return the number of requests currently waiting for a free slot */
+    public int getQueueLength() {
+        return queued.get();
+    }
+}
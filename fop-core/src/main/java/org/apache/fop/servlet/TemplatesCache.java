@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.servlet;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Cache for compiled stylesheets. Entries are keyed by the stylesheet's system ID and are
+ * compiled again when the last-modified time of the stylesheet changes. Stylesheets without
+ * a system ID are never cached.
+ * <p>
+ * This class is thread-safe. {@link Templates} objects are thread-safe, too, so a cached
+ * stylesheet can be used by concurrent requests.
+ */
+public class TemplatesCache {
+
+    private final TransformerFactory transformerFactory;
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Creates a new cache.
+     * @param transformerFactory the transformer factory used to compile the stylesheets
+     */
+    public TemplatesCache(TransformerFactory transformerFactory) {
+        this.transformerFactory = transformerFactory;
+    }
+
+    /**
+     * Returns the compiled form of a stylesheet, compiling it if it isn't cached or has
+     * been modified since it was compiled.
+     * @param xsltSrc the stylesheet
+     * @return the compiled stylesheet
+     * @throws TransformerException if the stylesheet cannot be compiled
+     */
+    public Templates getTemplates(Source xsltSrc) throws TransformerException {
+        String systemId = xsltSrc.getSystemId();
+        if (systemId == null) {
+            return transformerFactory.newTemplates(xsltSrc);
+        }
+        long lastModified = getLastModified(systemId);
+        Entry entry = cache.get(systemId);
+        if (entry != null && entry.lastModified == lastModified) {
+            //The source is not needed, release any stream opened for it
+            closeQuietly(xsltSrc);
+            return entry.templates;
+        }
+        Templates templates = transformerFactory.newTemplates(xsltSrc);
+        cache.put(systemId, new Entry(templates, lastModified));
+        return templates;
+    }
+
+    /** Removes all cached stylesheets. */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Determines the last-modified time of a resource.
+     * @param systemId the system ID of the resource
+     * @return the last-modified time or 0 if unknown
+     */
+    protected long getLastModified(String systemId) {
+        try {
+            URI uri = new URI(systemId);
+            if ("file".equals(uri.getScheme())) {
+                return new File(uri).lastModified();
+            }
+            URLConnection connection = uri.toURL().openConnection();
+            try {
+                return connection.getLastModified();
+            } finally {
+                if (connection instanceof HttpURLConnection) {
+                    ((HttpURLConnection) connection).disconnect();
+                }
+            }
+        } catch (Exception e) {
+            //Unknown, the cached entry is used as long as it's also unknown
+            return 0;
+        }
+    }
+
+    private static void closeQuietly(Source src) {
+        if (src instanceof StreamSource) {
+            IOUtils.closeQuietly(((StreamSource) src).getInputStream());
+            IOUtils.closeQuietly(((StreamSource) src).getReader());
+        }
+    }
+
+    private static final class Entry {
+
+        private final Templates templates;
+        private final long lastModified;
+
+        private Entry(Templates templates, long lastModified) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs work on a helper thread that may only read state shared with the rest of the document.
+ * <p>
+ * Code that is about to change shared state (font subsets, caches, event listeners...) calls
+ * {@link #checkSharedStateChange()} first. On a speculative thread this abandons the work by
+ * throwing {@link Aborted}, so the caller can redo it on the main thread, in document order.
+ * Everywhere else the check does nothing.
+ * <p>
+ * Caches that only hold values computed from immutable data, like the lookup caches of the
+ * OpenType tables, are not guarded: the order in which they are filled doesn't show in the
+ * output. They must be thread-safe though, since a speculative thread may fill them.
+ */
+public final class SpeculativeExecution {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<Boolean>();
+
+    private static final Aborted ABORTED = new Aborted();
+
+    private SpeculativeExecution() {
+    }
+
+    /**
+     * Indicates whether the current thread runs speculatively.
+     * @return true if shared state must not be changed by the current thread
+     */
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+
+    /**
+     * Must be called before changing state shared with the rest of the document. Aborts the
+     * current work if it runs speculatively.
+     * @throws Aborted if the current thread runs speculatively
+     */
+    public static void checkSharedStateChange() {
+        if (isActive()) {
+            throw ABORTED;
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs speculatively on whatever thread executes it.
+     * @param task the task
+     * @param <T> the result type
+     * @return the wrapped task, which returns null if the task had to be abandoned
+     */
+    public static <T> Callable<T> speculative(final Callable<T> task) {
+        return new Callable<T>() {
+            public T call() throws Exception {
+                ACTIVE.set(Boolean.TRUE);
+                try {
+                    return task.call();
+                } catch (Aborted e) {
+                    return null;
+                } finally {
+                    ACTIVE.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Thrown when speculative work tries to change shared state.
+     */
+    public static final class Aborted extends RuntimeException {
+
+        private static final long serialVersionUID = 2964017215417386405L;
+
+        private Aborted() {
+            super("Shared state change during speculative execution", null, false, false);
+        }
+    }
+}
@@ -137,6 +137,14 @@ public final class MutableConfig implements FopFactoryConfig {
         return delegate.isTableBorderOverpaint();
     }
 
+    public boolean isSparsePropertyLists() {
+        return delegate.isSparsePropertyLists();
+    }
+
+    public int getPropertyExpressionCacheSize() {
+        return delegate.getPropertyExpressionCacheSize();
+    }
+
     public Map<String, String> getHyphenationPatternNames() {
         return delegate.getHyphenationPatternNames();
     }
@@ -31,10 +31,16 @@ import static org.apache.fop.render.pdf.PDFEncryptionOption.OWNER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.USER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
+import static org.apache.fop.render.pdf.PDFRendererOption.FONT_EMBEDDING_THREADS;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
+import static org.apache.fop.render.pdf.PDFRendererOption.INCREMENTAL_STRUCTURE_TREE;
+import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION_SPILL;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_REGION_CONTENT;
+import static org.apache.fop.render.pdf.PDFRendererOption.REUSE_SVG;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -99,6 +105,36 @@ public final class PDFRendererConfBuilder extends RendererConfBuilder {
         return this;
     }
 
+    public PDFRendererConfBuilder setIncrementalStructureTreeEnabled(boolean b) {
+        createTextElement(INCREMENTAL_STRUCTURE_TREE, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setLinearizationSpillEnabled(boolean b) {
+        createTextElement(LINEARIZATION_SPILL, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setObjectStreamsEnabled(boolean b) {
+        createTextElement(OBJECT_STREAMS, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setReuseRegionContentEnabled(boolean b) {
+        createTextElement(REUSE_REGION_CONTENT, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setReuseSVGEnabled(boolean b) {
+        createTextElement(REUSE_SVG, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setFontEmbeddingThreadCount(int threadCount) {
+        createTextElement(FONT_EMBEDDING_THREADS, String.valueOf(threadCount));
+        return this;
+    }
+
     public final class EncryptionParamsBuilder {
         private final Element el;
 
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.commons.io.FileUtils;
+
+import org.apache.fop.apps.MimeConstants;
+
+public class BatchProcessorTestCase {
+
+    private File dir;
+    private File outDir;
+    private BatchProcessor processor;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("fop-batch", "");
+        dir.delete();
+        dir.mkdir();
+        outDir = new File(dir, "out");
+        processor = new BatchProcessor(null, MimeConstants.MIME_PDF, outDir);
+        write("a.fo", "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'/>");
+        write("b.xml", "<document/>");
+        write("c.xml", "<document xmlns='http://xmlgraphics.apache.org/fop/intermediate'/>");
+        write("d.txt", "not a document");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        File xsl = new File(dir, "style.xsl");
+        List<BatchProcessor.Job> jobs = processor.readJobs(dir, xsl);
+        assertEquals(3, jobs.size());
+        assertJob(jobs.get(0), "a.fo", CommandLineOptions.FO_INPUT, null, "a.pdf");
+        assertJob(jobs.get(1), "b.xml", CommandLineOptions.XSLT_INPUT, xsl, "b.pdf");
+        assertJob(jobs.get(2), "c.xml", CommandLineOptions.IF_INPUT, null, "c.pdf");
+    }
+
+    @Test
+    public void testDirectoryWithoutStylesheet() throws IOException {
+        List<BatchProcessor.Job> jobs = processor.readJobs(dir, null);
+        assertJob(jobs.get(1), "b.xml", CommandLineOptions.FO_INPUT, null, "b.pdf");
+    }
+
+    @Test
+    public void testManifest() throws IOException {
+        File manifest = write("jobs.txt", "# comment\n"
+                + "a.fo\n"
+                + "\n"
+                + "  b.xml other.xsl  \n"
+                + "c.xml - sub/result.pdf\n");
+        List<BatchProcessor.Job> jobs = processor.readJobs(manifest, null);
+        assertEquals(3, jobs.size());
+        assertJob(jobs.get(0), "a.fo", CommandLineOptions.FO_INPUT, null, "a.pdf");
+        assertJob(jobs.get(1), "b.xml", CommandLineOptions.XSLT_INPUT,
+                new File(dir, "other.xsl"), "b.pdf");
+        assertEquals(new File(outDir, "sub/result.pdf"), jobs.get(2).getOutput());
+        assertEquals(CommandLineOptions.IF_INPUT, jobs.get(2).getInputType());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidManifestLine() throws IOException {
+        processor.readJobs(write("jobs.txt", "a.fo - a.pdf extra\n"), null);
+    }
+
+    @Test
+    public void testDirectoryWithSharedBaseName() throws IOException {
+        write("b.fo", "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'/>");
+        List<BatchProcessor.Job> jobs = processor.readJobs(dir, null);
+        assertEquals(4, jobs.size());
+        assertJob(jobs.get(0), "a.fo", CommandLineOptions.FO_INPUT, null, "a.pdf");
+        assertJob(jobs.get(1), "b.fo", CommandLineOptions.FO_INPUT, null, "b.fo.pdf");
+        assertJob(jobs.get(2), "b.xml", CommandLineOptions.FO_INPUT, null, "b.xml.pdf");
+    }
+
+    @Test(expected = IOException.class)
+    public void testManifestWithSharedOutput() throws IOException {
+        processor.readJobs(write("jobs.txt", "a.fo - result.pdf\nb.xml - result.pdf\n"), null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOutputOverwritesInput() throws IOException {
+        processor = new BatchProcessor(null, MimeConstants.MIME_XSL_FO, dir);
+        processor.readJobs(dir, new File(dir, "style.xsl"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOutputOverwritesStylesheet() throws IOException {
+        processor.readJobs(write("jobs.txt", "b.xml style.xsl ../style.xsl\n"), null);
+    }
+
+    private void assertJob(BatchProcessor.Job job, String input, int inputType,
+            File stylesheet, String output) {
+        assertEquals(new File(dir, input), job.getInput());
+        assertEquals(inputType, job.getInputType());
+        if (stylesheet == null) {
+            assertNull(job.getStylesheet());
+        } else {
+            assertEquals(stylesheet, job.getStylesheet());
+        }
+        assertEquals(new File(outDir, output), job.getOutput());
+    }
+}
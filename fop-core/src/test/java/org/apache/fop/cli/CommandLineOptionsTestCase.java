@@ -25,6 +25,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.fop.apps.FOPException;
@@ -70,4 +72,19 @@ public class CommandLineOptionsTestCase {
         CommandLineOptions clo3 = new CommandLineOptions();
         assertTrue(clo3.parse(cmd3));
     }
+
+    @Test
+    public void testThreadsWithoutBatch() throws FOPException, IOException {
+        assertNull(clo.getScatterGatherRenderer());
+        CommandLineOptions threads = new CommandLineOptions();
+        assertTrue(threads.parse("-fo examples/fo/basic/simple.fo -threads 2 -pdf out.pdf"
+                .split(" ")));
+        assertNotNull(threads.getScatterGatherRenderer());
+    }
+
+    @Test(expected = FOPException.class)
+    public void testThreadsUnsupportedOutput() throws FOPException, IOException {
+        new CommandLineOptions().parse("-fo examples/fo/basic/simple.fo -threads 2 -at out.xml"
+                .split(" "));
+    }
 }
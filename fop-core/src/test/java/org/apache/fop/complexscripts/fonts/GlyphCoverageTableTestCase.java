@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GlyphCoverageTableTestCase {
+
+    @Test
+    public void testMappedCoverage() {
+        int[] glyphs = {3, 4, 5, 9, 20};
+        GlyphCoverageTable table = GlyphCoverageTable.createMappedCoverageTable(glyphs);
+        List entries = new ArrayList();
+        for (int gid : glyphs) {
+            entries.add(gid);
+        }
+        GlyphCoverageTable boxed = GlyphCoverageTable.createCoverageTable(entries);
+        for (int gid = 0; gid < 25; gid++) {
+            assertEquals(boxed.getCoverageIndex(gid), table.getCoverageIndex(gid));
+        }
+        assertEquals(4, table.getCoverageIndex(20));
+        assertEquals(-1, table.getCoverageIndex(6));
+        assertArrayEquals(new int[] {3, 5, 9, 9, 20, 20}, table.getGlyphRanges());
+        assertEquals(entries, table.getEntries());
+    }
+
+    @Test
+    public void testRangeCoverage() {
+        GlyphCoverageTable table = GlyphCoverageTable.createRangeCoverageTable(
+                new int[] {10, 30}, new int[] {12, 31}, new int[] {0, 3});
+        assertEquals(-1, table.getCoverageIndex(9));
+        assertEquals(2, table.getCoverageIndex(12));
+        assertEquals(-1, table.getCoverageIndex(13));
+        assertEquals(4, table.getCoverageIndex(31));
+        assertEquals(-1, table.getCoverageIndex(32));
+        assertArrayEquals(new int[] {10, 12, 30, 31}, table.getGlyphRanges());
+    }
+
+    @Test
+    public void testSparseCoverage() {
+        GlyphCoverageTable table = GlyphCoverageTable.createMappedCoverageTable(new int[] {1, 60000});
+        assertEquals(0, table.getCoverageIndex(1));
+        assertEquals(1, table.getCoverageIndex(60000));
+        assertEquals(-1, table.getCoverageIndex(30000));
+    }
+
+    @Test
+    public void testRangeClassTable() {
+        GlyphClassTable table = GlyphClassTable.createRangeClassTable(
+                new int[] {5, 8}, new int[] {6, 9}, new int[] {1, 2});
+        List entries = new ArrayList();
+        entries.add(new GlyphClassTable.MappingRange(5, 6, 1));
+        entries.add(new GlyphClassTable.MappingRange(8, 9, 2));
+        GlyphClassTable boxed = GlyphClassTable.createClassTable(entries);
+        for (int gid = 0; gid < 12; gid++) {
+            assertEquals(boxed.getClassIndex(gid, 0), table.getClassIndex(gid, 0));
+        }
+        assertEquals(2, table.getClassIndex(8, 0));
+        assertEquals(boxed.getClassSize(0), table.getClassSize(0));
+    }
+}
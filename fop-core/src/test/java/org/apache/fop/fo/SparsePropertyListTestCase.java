@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.fo.properties.EnumProperty;
+import org.apache.fop.fo.properties.Property;
+
+public class SparsePropertyListTestCase {
+
+    @Test
+    public void testExplicitMatchesStaticPropertyList() {
+        PropertyList expected = new StaticPropertyList(null, null);
+        PropertyList actual = new SparsePropertyList(null, null);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            int propId = 1 + random.nextInt(Constants.PROPERTY_COUNT);
+            Property value = EnumProperty.getInstance(i, "value" + i);
+            expected.putExplicit(propId, value);
+            actual.putExplicit(propId, value);
+        }
+        for (int propId = 1; propId <= Constants.PROPERTY_COUNT; propId++) {
+            assertSame(expected.getExplicit(propId), actual.getExplicit(propId));
+        }
+    }
+
+    @Test
+    public void testGetIsCached() throws Exception {
+        PropertyList propertyList = new SparsePropertyList(null, null);
+        Property right = EnumProperty.getInstance(Constants.EN_RIGHT, "RIGHT");
+        propertyList.putExplicit(Constants.PR_TEXT_ALIGN, right);
+        assertSame(right, propertyList.get(Constants.PR_TEXT_ALIGN));
+        assertNull(propertyList.getExplicit(Constants.PR_TEXT_ALIGN_LAST));
+
+        Property center = EnumProperty.getInstance(Constants.EN_CENTER, "CENTER");
+        propertyList.putExplicit(Constants.PR_TEXT_ALIGN, center);
+        assertSame(center, propertyList.get(Constants.PR_TEXT_ALIGN));
+    }
+}
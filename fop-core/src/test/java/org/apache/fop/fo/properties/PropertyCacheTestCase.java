@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PropertyCacheTestCase {
+
+    @Test
+    public void testEqualObjectsAreShared() {
+        PropertyCache<String> cache = new PropertyCache<String>(String.class);
+        String first = cache.fetch(new String("value"));
+        assertSame(first, cache.fetch(new String("value")));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getCollisionCount());
+    }
+
+    @Test
+    public void testCollidingObjectsAreKept() {
+        PropertyCache<Colliding> cache = new PropertyCache<Colliding>(Colliding.class);
+        Colliding a = cache.fetch(new Colliding("a"));
+        Colliding b = cache.fetch(new Colliding("b"));
+        assertNotSame(a, b);
+        assertSame(a, cache.fetch(new Colliding("a")));
+        assertSame(b, cache.fetch(new Colliding("b")));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getCollisionCount());
+    }
+
+    @Test
+    public void testCacheIsRegistered() {
+        PropertyCache<String> cache = new PropertyCache<String>(String.class);
+        assertTrue(PropertyCache.getCaches().contains(cache));
+        assertEquals(String.class.getName(), cache.getName());
+    }
+
+    private static final class Colliding {
+
+        private final String value;
+
+        Colliding(String value) {
+            this.value = value;
+        }
+
+        public int hashCode() {
+            return 1;
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Colliding && ((Colliding) obj).value.equals(value);
+        }
+    }
+}
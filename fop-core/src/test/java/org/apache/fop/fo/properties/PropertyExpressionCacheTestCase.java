@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FObj;
+import org.apache.fop.fo.PropertyList;
+import org.apache.fop.fo.expr.PropertyException;
+
+public class PropertyExpressionCacheTestCase {
+
+    private CountingMaker maker;
+    private PropertyList propertyList;
+
+    @Before
+    public void setUp() {
+        maker = new CountingMaker();
+        propertyList = PropertyListMocks.mockPropertyList();
+    }
+
+    @Test
+    public void testContextIndependentValueIsParsedOnce() throws PropertyException {
+        PropertyExpressionCache cache = new PropertyExpressionCache(10);
+        Property prop = cache.make(maker, "10", propertyList, null);
+        assertSame(prop, cache.make(maker, "10", mock(PropertyList.class), null));
+        assertEquals(1, maker.count);
+    }
+
+    @Test
+    public void testContextDependentValueIsNotCached() throws PropertyException {
+        PropertyExpressionCache cache = new PropertyExpressionCache(10);
+        cache.make(maker, "from-parent", propertyList, null);
+        cache.make(maker, "from-parent", propertyList, null);
+        //one attempt without context, then always made in context
+        assertEquals(3, maker.count);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMutablePropertyIsNotCached() throws PropertyException {
+        PropertyExpressionCache cache = new PropertyExpressionCache(10);
+        Property prop = cache.make(maker, "pair", propertyList, null);
+        assertNotSame(prop, cache.make(maker, "pair", propertyList, null));
+    }
+
+    @Test
+    public void testBounded() throws PropertyException {
+        PropertyExpressionCache cache = new PropertyExpressionCache(1);
+        cache.make(maker, "10", propertyList, null);
+        cache.make(maker, "20", propertyList, null);
+        cache.make(maker, "20", propertyList, null);
+        assertEquals(1, cache.size());
+        assertEquals(3, maker.count);
+        //no attempt without context once the cache is full
+        cache.make(maker, "from-parent", propertyList, null);
+        assertEquals(4, maker.count);
+    }
+
+    @Test
+    public void testStringPropertyIsNotCached() throws PropertyException {
+        PropertyExpressionCache cache = new PropertyExpressionCache(10);
+        PropertyMaker idMaker = new StringProperty.Maker(Constants.PR_ID);
+        Property prop = cache.make(idMaker, "id1", propertyList, null);
+        assertEquals("id1", prop.getString());
+        assertEquals(0, cache.size());
+    }
+
+    private static final class CountingMaker extends PropertyMaker {
+
+        private int count;
+
+        CountingMaker() {
+            super(Constants.PR_FONT_SIZE);
+        }
+
+        /** {@inheritDoc} */
+        public Property make(PropertyList propertyList, String value, FObj fo)
+                throws PropertyException {
+            count++;
+            if ("from-parent".equals(value)) {
+                return propertyList.getFromParent(Constants.PR_FONT_SIZE);
+            } else if ("pair".equals(value)) {
+                return new LengthPairProperty(FixedLength.ZERO_FIXED_LENGTH);
+            }
+            return FixedLength.getInstance(Double.parseDouble(value), "pt");
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.apps.io.ResourceResolverFactory;
@@ -72,4 +73,36 @@ public class DejaVuLGCSerifTestCase {
         assertEquals(490, font.getStrikeoutThickness(10));
     }
 
+    @Test
+    public void testGlyphIndexLookup() {
+        MultiByteFont multiByteFont = (MultiByteFont) font;
+        CMapSegment[] cmap = multiByteFont.getCMap();
+        for (int cp = 0; cp < 0x10000; cp++) {
+            int expected = 0;
+            for (CMapSegment segment : cmap) {
+                if (segment.getUnicodeStart() <= cp && cp <= segment.getUnicodeEnd()) {
+                    expected = segment.getGlyphStartIndex() + cp - segment.getUnicodeStart();
+                    if (expected != 0) {
+                        break;
+                    }
+                }
+            }
+            assertEquals(expected, multiByteFont.findGlyphIndex(cp));
+        }
+        assertEquals(0, multiByteFont.findGlyphIndex(0x1F600));
+    }
+
+    @Test
+    public void testCharWidthCache() {
+        MultiByteFont multiByteFont = (MultiByteFont) font;
+        Font sized = new Font("F1", null, font, 12000);
+        int width = sized.getCharWidth('A');
+        assertTrue(width > 0);
+        assertEquals(multiByteFont.getWidth(multiByteFont.mapChar('A'), 12000) / 1000, width);
+        int usedGlyphs = multiByteFont.getUsedGlyphs().size();
+        assertEquals(width, sized.getCharWidth('A'));
+        assertEquals(width, sized.getCharWidth((int) 'A'));
+        assertEquals(usedGlyphs, multiByteFont.getUsedGlyphs().size());
+        assertEquals(-1, sized.getCharWidth(0x1F600));
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+/**
+ * Test case for {@link FontFaceCache}.
+ */
+public class FontFaceCacheTestCase {
+
+    private final FontUris fontUris = new FontUris(
+            new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf").toURI(), null);
+
+    private final InternalResourceResolver resourceResolver
+            = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+
+    private final FontFaceCache cache = new FontFaceCache();
+
+    private CustomFont load(EncodingMode encodingMode) throws IOException {
+        return cache.loadFont(fontUris, null, true, EmbeddingMode.SUBSET, encodingMode, true, true,
+                resourceResolver, false, false, false);
+    }
+
+    @Test
+    public void testParsedFontIsShared() throws IOException {
+        MultiByteFont first = (MultiByteFont) load(EncodingMode.CID);
+        MultiByteFont second = (MultiByteFont) load(EncodingMode.CID);
+        assertNotSame(first, second);
+        assertEquals(1, cache.size());
+        assertNotNull(first.getGSUB());
+        assertSame(first.getGSUB(), second.getGSUB());
+        assertSame(first.getKerningTable(), second.getKerningTable());
+        assertEquals(first.getWidth(first.mapChar('A'), 1), second.getWidth(second.mapChar('A'), 1));
+    }
+
+    @Test
+    public void testSubsetsAreSeparate() throws IOException {
+        MultiByteFont first = (MultiByteFont) load(EncodingMode.CID);
+        first.mapChar('A');
+        first.mapChar('B');
+        MultiByteFont second = (MultiByteFont) load(EncodingMode.CID);
+        assertTrue(first.hadMappingOperations());
+        assertFalse(second.hadMappingOperations());
+        assertEquals(3, first.getUsedGlyphs().size());
+        assertEquals(1, second.getUsedGlyphs().size());
+        //both subsets start from the same selector
+        assertEquals(first.mapChar('A'), second.mapChar('A'));
+        second.mapChar('Z');
+        assertEquals(3, second.getUsedGlyphs().size());
+        assertEquals(3, first.getUsedGlyphs().size());
+    }
+
+    @Test
+    public void testDifferentParametersAreNotShared() throws IOException {
+        CustomFont withKerning = load(EncodingMode.CID);
+        CustomFont withoutKerning = cache.loadFont(fontUris, null, true, EmbeddingMode.SUBSET,
+                EncodingMode.CID, false, true, resourceResolver, false, false, false);
+        assertEquals(2, cache.size());
+        assertTrue(withKerning.hasKerningInfo());
+        assertFalse(withoutKerning.hasKerningInfo());
+    }
+
+    @Test
+    public void testSingleByteFontsAreNotShared() throws IOException {
+        CustomFont first = load(EncodingMode.SINGLE_BYTE);
+        CustomFont second = load(EncodingMode.SINGLE_BYTE);
+        assertTrue(first instanceof SingleByteFont);
+        assertNotSame(first, second);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentShaping() throws Exception {
+        //the expected results come from a font that isn't shared with the other two
+        List<String> expected = shape((MultiByteFont) new FontFaceCache().loadFont(fontUris, null,
+                true, EmbeddingMode.SUBSET, EncodingMode.CID, true, true, resourceResolver, false,
+                false, false));
+        final MultiByteFont first = (MultiByteFont) load(EncodingMode.CID);
+        final MultiByteFont second = (MultiByteFont) load(EncodingMode.CID);
+        assertSame(first.getGSUB(), second.getGSUB());
+        assertSame(first.getGPOS(), second.getGPOS());
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (final MultiByteFont font : new MultiByteFont[] {first, second}) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() throws Exception {
+                        start.await();
+                        return shape(font);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Shapes the same texts for many script and language combinations, each of which adds
+     * entries to the lookup caches of the glyph tables.
+     */
+    private static List<String> shape(MultiByteFont font) {
+        String[] scripts = {"latn", "cyrl", "grek", "arab", "hebr", "dflt", "*"};
+        String[] texts = {"office affine", "\u0431\u0443\u043a\u0432\u0430", "\u03b1\u03b2\u03b3"};
+        List<String> results = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            String language = "l" + i;
+            for (String script : scripts) {
+                for (String text : texts) {
+                    CharSequence substituted = font.performSubstitution(text, script, language,
+                            null, false);
+                    int[][] adjustments = font.performPositioning(substituted, script, language,
+                            12000);
+                    results.add(substituted + Arrays.deepToString(adjustments));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+/**
+ * Test case for {@link KerningTable}.
+ */
+public class KerningTableTestCase {
+
+    @Test
+    public void testLookup() {
+        Map<Integer, Map<Integer, Integer>> kerning = new HashMap<Integer, Map<Integer, Integer>>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            int first = random.nextInt(0x3000);
+            Map<Integer, Integer> seconds = kerning.get(first);
+            if (seconds == null) {
+                seconds = new HashMap<Integer, Integer>();
+                kerning.put(first, seconds);
+            }
+            seconds.put(random.nextInt(0x3000), random.nextInt(400) - 200);
+        }
+        KerningTable table = KerningTable.create(kerning);
+        int pairs = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                assertEquals(second.getValue().intValue(),
+                        table.getKerning(first.getKey(), second.getKey()));
+                pairs++;
+            }
+        }
+        assertEquals(pairs, table.size());
+        assertEquals(0, table.getKerning(0x3000, 'A'));
+        assertEquals(0, table.getKerning(-1, -1));
+        assertEquals(kerning, table.toMap());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(KerningTable.EMPTY, KerningTable.create(null));
+        assertSame(KerningTable.EMPTY,
+                KerningTable.create(new HashMap<Integer, Map<Integer, Integer>>()));
+        assertEquals(0, KerningTable.EMPTY.size());
+        assertEquals(0, KerningTable.EMPTY.getKerning('A', 'V'));
+    }
+
+    @Test
+    public void testFontKerning() throws Exception {
+        FontUris fontUris = new FontUris(
+                new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf").toURI(), null);
+        CustomFont font = FontLoader.loadFont(fontUris, null, true, EmbeddingMode.AUTO,
+                EncodingMode.AUTO, true, false,
+                ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI()),
+                false, false, false);
+        assertTrue(font.hasKerningInfo());
+        Map<Integer, Map<Integer, Integer>> kerning = font.getKerningInfo();
+        assertEquals(kerning, font.getKerningTable().toMap());
+        Font sized = new Font("F1", null, font, 10000);
+        Integer kern = kerning.get((int) 'A').get((int) 'V');
+        assertEquals(kern * 10000 / 1000, sized.getKernValue('A', 'V'));
+        assertEquals(0, sized.getKernValue('A', 0xD800));
+        font.setKerningEnabled(false);
+        assertEquals(0, font.getKerningTable().size());
+    }
+}
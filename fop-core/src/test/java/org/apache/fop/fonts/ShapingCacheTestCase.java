@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.traits.MinOptMax;
+
+public class ShapingCacheTestCase {
+
+    @Test
+    public void testRunIsCachedPerScriptAndLanguage() {
+        ShapingCache cache = new ShapingCache(10);
+        ShapingCache.ShapedRun run = new ShapingCache.ShapedRun("\uFEDF\uFEE0", null, null,
+                MinOptMax.getInstance(1000));
+        cache.put("\u0644\u0644", "arab", "dflt", false, false, run);
+        assertSame(run, cache.get("\u0644\u0644", "arab", "dflt", false, false));
+        assertNull(cache.get("\u0644\u0644", "arab", "URD", false, false));
+        assertNull(cache.get("\u0644\u0644", "arab", "dflt", true, false));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testRunsAreNotShared() {
+        int[][] adjustments = new int[][] {{0, 0, 100, 0}, {0, 0, 0, 0}};
+        List<CharAssociation> associations = new ArrayList<CharAssociation>();
+        associations.add(new CharAssociation(0, 2));
+        ShapingCache.ShapedRun run = new ShapingCache.ShapedRun("ab", adjustments, associations,
+                MinOptMax.getInstance(2100));
+        adjustments[0][2] = 0;
+        int[][] first = run.getAdjustments();
+        assertEquals(100, first[0][2]);
+        first[0][2] = 0;
+        assertEquals(100, run.getAdjustments()[0][2]);
+        assertNotSame(run.getAssociations().get(0), run.getAssociations().get(0));
+        assertEquals(2, run.getAssociations().get(0).getCount());
+    }
+
+    @Test
+    public void testBounded() {
+        ShapingCache cache = new ShapingCache(1);
+        ShapingCache.ShapedRun run = new ShapingCache.ShapedRun("a", null, null, MinOptMax.ZERO);
+        cache.put("a", "latn", "dflt", false, false, run);
+        cache.put("b", "latn", "dflt", false, false, run);
+        assertEquals(1, cache.size());
+        assertNull(cache.get("b", "latn", "dflt", false, false));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.image;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+
+import org.apache.fop.apps.FOUserAgent;
+
+public class ImagePrefetcherTestCase {
+
+    private FOUserAgent userAgent;
+    private ImageManager imageManager;
+
+    @Before
+    public void setUp() {
+        userAgent = mock(FOUserAgent.class);
+        imageManager = mock(ImageManager.class);
+        when(userAgent.getImageManager()).thenReturn(imageManager);
+        when(userAgent.newImageSessionContext()).thenReturn(mock(ImageSessionContext.class));
+        when(userAgent.getImageSessionContext()).thenReturn(mock(ImageSessionContext.class));
+    }
+
+    @Test
+    public void testPrefetchOncePerURI() throws Exception {
+        ImageInfo info = new ImageInfo("test.png", "image/png");
+        when(imageManager.getImageInfo(eq("test.png"), any(ImageSessionContext.class)))
+                .thenReturn(info);
+        ImagePrefetcher prefetcher = new ImagePrefetcher(userAgent, 2);
+        try {
+            Future<ImageInfo> future = prefetcher.prefetch("test.png");
+            assertSame(future, prefetcher.prefetch("test.png"));
+            assertSame(info, ImagePrefetcher.getImageInfo(future, "test.png", userAgent));
+            verify(imageManager, times(1)).getImageInfo(eq("test.png"),
+                    any(ImageSessionContext.class));
+        } finally {
+            prefetcher.dispose();
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testErrorIsRethrown() throws Exception {
+        when(imageManager.getImageInfo(eq("missing.png"), any(ImageSessionContext.class)))
+                .thenThrow(new FileNotFoundException("missing.png"));
+        ImagePrefetcher prefetcher = new ImagePrefetcher(userAgent, 1);
+        try {
+            ImagePrefetcher.getImageInfo(prefetcher.prefetch("missing.png"), "missing.png",
+                    userAgent);
+        } finally {
+            prefetcher.dispose();
+        }
+    }
+
+    @Test
+    public void testSynchronousFallback() throws Exception {
+        ImageInfo info = new ImageInfo("test.png", "image/png");
+        when(imageManager.getImageInfo("test.png", userAgent.getImageSessionContext()))
+                .thenReturn(info);
+        assertSame(info, ImagePrefetcher.getImageInfo(null, "test.png", userAgent));
+    }
+}
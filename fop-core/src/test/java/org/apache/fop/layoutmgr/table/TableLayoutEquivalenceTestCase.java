@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr.table;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.Random;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Checks that the table layout options that only affect speed or memory use produce the same
+ * output as the default layout.
+ */
+public class TableLayoutEquivalenceTestCase {
+
+    private static final String FONTS = "<fonts>"
+            + "<font embed-url=\"test/resources/fonts/ttf/DejaVuLGCSerif.ttf\">"
+            + "<font-triplet name=\"DejaVu\" style=\"normal\" weight=\"normal\"/>"
+            + "<font-triplet name=\"DejaVu\" style=\"normal\" weight=\"bold\"/>"
+            + "</font></fonts>";
+
+    private static final String FOP_CONF = "<fop version=\"1.0\"><renderers>"
+            + "<renderer mime=\"application/pdf\">"
+            + "<filterList><value>null</value></filterList>" + FONTS + "</renderer>"
+            + "<renderer mime=\"application/X-fop-areatree\">" + FONTS + "</renderer>"
+            + "</renderers></fop>";
+
+    /** The words used in the cells, the last three only in the DejaVu font. */
+    private static final String[] WORDS = {"table", "cell", "layout", "a", "of", "Zebra",
+        "quantum", "microscopic", "x", "Kerning", "AVATAR", "fi", "waffle",
+        "\u00e9t\u00e9", "\u0436\u0438\u0437\u043d\u044c", "\u03bb\u03cc\u03b3\u03bf\u03c2"};
+
+    private static final byte[] FO = createTableFO().getBytes(Charset.forName("UTF-8"));
+
+    /**
+     * Creates a document with a table spanning many pages. Its cells have blocks of varying
+     * length in two fonts, lists, leaders, page numbers, links and markers, and some of them
+     * span two rows.
+     */
+    private static String createTableFO() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-height=\"200mm\" page-width=\"150mm\" margin=\"10mm\">"
+                + "<fo:region-body margin-top=\"10mm\"/><fo:region-before extent=\"8mm\"/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"page\">"
+                + "<fo:static-content flow-name=\"xsl-region-before\"><fo:block>"
+                + "<fo:retrieve-marker retrieve-class-name=\"row\""
+                + " retrieve-position=\"first-including-carryover\"/></fo:block>"
+                + "</fo:static-content>"
+                + "<fo:flow flow-name=\"xsl-region-body\">"
+                + "<fo:block id=\"top\">Start</fo:block>"
+                + "<fo:table table-layout=\"fixed\" width=\"100%\" border-collapse=\"separate\">"
+                + "<fo:table-column column-width=\"40mm\"/><fo:table-column column-width=\"40mm\"/>"
+                + "<fo:table-column column-width=\"50mm\"/>"
+                + "<fo:table-header><fo:table-row><fo:table-cell><fo:block>One</fo:block>"
+                + "</fo:table-cell><fo:table-cell><fo:block>Two</fo:block></fo:table-cell>"
+                + "<fo:table-cell><fo:block>Three</fo:block></fo:table-cell></fo:table-row>"
+                + "</fo:table-header>"
+                + "<fo:table-footer><fo:table-row><fo:table-cell number-columns-spanned=\"3\">"
+                + "<fo:block><fo:retrieve-table-marker retrieve-class-name=\"row\""
+                + " retrieve-position-within-table=\"last-ending\"/></fo:block></fo:table-cell>"
+                + "</fo:table-row></fo:table-footer><fo:table-body>");
+        boolean spanned = false;
+        for (int row = 0; row < 150; row++) {
+            sb.append("<fo:table-row>");
+            int columns = spanned ? 2 : 3;
+            spanned = !spanned && row % 7 == 3;
+            for (int column = 0; column < columns; column++) {
+                sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"1pt\"");
+                if (spanned && column == 0) {
+                    sb.append(" number-rows-spanned=\"2\"");
+                }
+                sb.append('>');
+                if (column == 0) {
+                    sb.append("<fo:marker marker-class-name=\"row\">Row " + row + "</fo:marker>");
+                }
+                appendCellContent(sb, random, row);
+                sb.append("</fo:table-cell>");
+            }
+            sb.append("</fo:table-row>");
+        }
+        sb.append("</fo:table-body></fo:table></fo:flow></fo:page-sequence></fo:root>");
+        return sb.toString();
+    }
+
+    private static void appendCellContent(StringBuilder sb, Random random, int row) {
+        boolean dejaVu = random.nextBoolean();
+        String font = dejaVu ? "DejaVu" : "Helvetica";
+        int words = dejaVu ? WORDS.length : WORDS.length - 3;
+        sb.append("<fo:block font-family=\"" + font + "\" text-align=\"justify\">");
+        for (int i = random.nextInt(30); i >= 0; i--) {
+            String word = WORDS[random.nextInt(words)];
+            switch (random.nextInt(12)) {
+            case 0:
+                sb.append("<fo:inline font-weight=\"bold\">" + word + "</fo:inline> ");
+                break;
+            case 1:
+                sb.append("<fo:leader leader-pattern=\"dots\" leader-length=\"5mm\"/> ");
+                break;
+            case 2:
+                sb.append("<fo:page-number/> ");
+                break;
+            case 3:
+                sb.append("<fo:basic-link internal-destination=\"top\">" + word
+                        + "</fo:basic-link> ");
+                break;
+            default:
+                sb.append(word + ' ');
+            }
+        }
+        sb.append("</fo:block>");
+        if (row % 5 == 0) {
+            sb.append("<fo:list-block><fo:list-item><fo:list-item-label end-indent=\"label-end()\">"
+                    + "<fo:block>-</fo:block></fo:list-item-label>"
+                    + "<fo:list-item-body start-indent=\"body-start()\"><fo:block>Item " + row
+                    + "</fo:block></fo:list-item-body></fo:list-item></fo:list-block>");
+        }
+    }
+
+    private static String render(FOUserAgent userAgent, String mime) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userAgent.setCreationDate(new Date(0));
+        Fop fop = userAgent.newFop(mime, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new ByteArrayInputStream(FO)),
+                new SAXResult(fop.getDefaultHandler()));
+        assertTrue(fop.getResults().getPageCount() > 5);
+        //the metadata date and the file ID change with every run
+        return out.toString("ISO-8859-1")
+                .replaceAll("<xmp:MetadataDate>[^<]*</xmp:MetadataDate>", "")
+                .replaceAll("/ID \\[<\\w+> <\\w+>\\]", "");
+    }
+
+    private static FopFactory createFopFactory() throws Exception {
+        return FopFactory.newInstance(new File(".").toURI(),
+                new ByteArrayInputStream(FOP_CONF.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testTableCellLayoutThreads() throws Exception {
+        for (String mime : new String[] {MimeConstants.MIME_FOP_AREA_TREE, MimeConstants.MIME_PDF}) {
+            //a fresh factory for each document, so both start with fonts in the same state
+            String serial = render(createFopFactory().newFOUserAgent(), mime);
+            FOUserAgent userAgent = createFopFactory().newFOUserAgent();
+            userAgent.setTableCellLayoutThreadCount(4);
+            assertEquals(mime, serial, render(userAgent, mime));
+        }
+    }
+
+    @Test
+    public void testTableStreaming() throws Exception {
+        for (String mime : new String[] {MimeConstants.MIME_FOP_AREA_TREE, MimeConstants.MIME_PDF}) {
+            FOUserAgent userAgent = createFopFactory().newFOUserAgent();
+            userAgent.setTableStreamingEnabled(false);
+            String whole = render(userAgent, mime);
+            userAgent = createFopFactory().newFOUserAgent();
+            userAgent.setTableStreamingEnabled(true);
+            assertEquals(mime, whole, render(userAgent, mime));
+        }
+    }
+}
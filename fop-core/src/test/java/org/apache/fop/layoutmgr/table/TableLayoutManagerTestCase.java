@@ -24,19 +24,23 @@ import java.util.HashMap;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.area.PageViewport;
 import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.flow.Marker;
 import org.apache.fop.fo.flow.RetrieveTableMarker;
 import org.apache.fop.fo.flow.table.Table;
 import org.apache.fop.layoutmgr.BlockLayoutManager;
+import org.apache.fop.layoutmgr.FlowLayoutManager;
 import org.apache.fop.layoutmgr.Page;
 import org.apache.fop.layoutmgr.PageSequenceLayoutManager;
 
@@ -116,4 +120,28 @@ public class TableLayoutManagerTestCase {
         assertNull(tlm.resolveRetrieveTableMarker(rtm));
     }
 
+    @Test
+    public void testBodyCellReleaseEnabled() {
+        FOUserAgent userAgent = mock(FOUserAgent.class);
+        Table t = mock(Table.class);
+        when(t.getUserAgent()).thenReturn(userAgent);
+        FlowLayoutManager flm = mock(FlowLayoutManager.class);
+        TableLayoutManager tlm = new TableLayoutManager(t);
+        tlm.setParent(flm);
+        assertFalse(tlm.isBodyCellReleaseEnabled());
+        when(userAgent.isTableStreamingEnabled()).thenReturn(true);
+        assertTrue(tlm.isBodyCellReleaseEnabled());
+        // nested in a cell of a table-header, whose areas are added on every page
+        TableCellLayoutManager tclm = mock(TableCellLayoutManager.class);
+        when(tclm.isDescendantOfTableHeaderOrFooter()).thenReturn(true);
+        when(tclm.getParent()).thenReturn(flm);
+        tlm.setParent(tclm);
+        assertFalse(tlm.isBodyCellReleaseEnabled());
+        when(tclm.isDescendantOfTableHeaderOrFooter()).thenReturn(false);
+        assertTrue(tlm.isBodyCellReleaseEnabled());
+        // static content is laid out again on every page
+        tlm.setParent(mock(PageSequenceLayoutManager.class));
+        assertFalse(tlm.isBodyCellReleaseEnabled());
+    }
+
 }
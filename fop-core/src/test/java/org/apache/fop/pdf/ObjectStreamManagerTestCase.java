@@ -26,6 +26,7 @@ import java.util.List;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.fop.pdf.xref.CompressedObjectReference;
@@ -49,6 +50,24 @@ public class ObjectStreamManagerTestCase {
         assertEquals(objectStreamNumber3, pdfDocument.previous.getObjectNumber().getNumber());
     }
 
+    @Test
+    public void objectStreamsOutputByCaller() {
+        ObjectStreamManager sut = new ObjectStreamManager(new PDFDocument(""), true);
+        for (int obNum = 1; obNum <= 150; obNum++) {
+            sut.add(createCompressedObject(obNum));
+        }
+        List<ObjectStream> completed = sut.takeCompletedObjectStreams(false);
+        assertEquals(1, completed.size());
+        assertNull(completed.get(0).get("Extends"));
+        assertTrue(sut.takeCompletedObjectStreams(false).isEmpty());
+
+        List<ObjectStream> remaining = sut.takeCompletedObjectStreams(true);
+        assertEquals(1, remaining.size());
+        compressedObjectReferences = sut.getCompressedObjectReferences();
+        assertEquals(completed.get(0).getObjectNumber().getNumber(), getObjectStreamNumber(99));
+        assertEquals(remaining.get(0).getObjectNumber().getNumber(), getObjectStreamNumber(100));
+    }
+
     private void createCompressObjectReferences(int numObjects) {
         pdfDocument = new MockPdfDocument();
         ObjectStreamManager sut = new ObjectStreamManager(pdfDocument);
@@ -21,10 +21,14 @@ package org.apache.fop.pdf;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test case for {@link PDFDocument}
@@ -59,4 +63,58 @@ public class PDFDocumentTestCase {
         PDFDocument.flushTextBuffer(textBuffer, out);
         assertEquals(fullString, out.toString());
     }
+
+    @Test
+    public void testIncrementalStructureTree() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setIncrementalStructureTreeEnabled(true);
+        PDFStructTreeRoot structTreeRoot = doc.makeStructTreeRoot(new PDFParentTree());
+        PDFStructElem document = new PDFStructElem(structTreeRoot,
+                StandardStructureTypes.Grouping.DOCUMENT);
+        doc.registerStructureElement(document);
+        structTreeRoot.addKid(document);
+        doc.startStructureTreePageSequence();
+        PDFStructElem part = new PDFStructElem(document, StandardStructureTypes.Grouping.PART);
+        doc.registerStructureElement(part);
+        document.addKid(part);
+        // the structure tree of the next page-sequence is built before the pages of the
+        // first one are complete
+        doc.startStructureTreePageSequence();
+        PDFStructElem nextPart = new PDFStructElem(document, StandardStructureTypes.Grouping.PART);
+        doc.registerStructureElement(nextPart);
+        document.addKid(nextPart);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        doc.outputStructureTreeElements(out);
+        assertTrue(out.toString("ISO-8859-1").contains(part.getObjectID()));
+        assertFalse(out.toString("ISO-8859-1").contains(nextPart.getObjectID()));
+        assertEquals(Arrays.asList(document, nextPart), doc.getStructureTreeElements());
+
+        doc.outputStructureTreeElements(out);
+        assertTrue(out.toString("ISO-8859-1").contains(nextPart.getObjectID()));
+        assertEquals(Collections.singletonList(document), doc.getStructureTreeElements());
+
+        doc.outputTrailer(out);
+        assertTrue(out.toString("ISO-8859-1").contains(
+                "/K [" + part.referencePDF() + " " + nextPart.referencePDF() + "]"));
+    }
+
+    @Test
+    public void testObjectStreams() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setObjectStreamsEnabled(true);
+        assertEquals(Version.V1_5, doc.getPDFVersion());
+        PDFDictionary dict = new PDFDictionary();
+        dict.put("Foo", "Bar");
+        doc.registerObject(dict);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        doc.outputTrailer(out);
+        String pdf = out.toString("ISO-8859-1");
+        assertTrue(pdf.contains("/Type /ObjStm"));
+        assertTrue(pdf.contains("/Type /XRef"));
+        assertFalse(pdf.contains(dict.getObjectID()));
+    }
 }
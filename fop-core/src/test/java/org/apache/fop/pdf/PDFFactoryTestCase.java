@@ -27,8 +27,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -42,6 +47,8 @@ import org.apache.fop.fonts.CIDSubset;
 import org.apache.fop.fonts.CodePointMapping;
 import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.EmbeddingMode;
+import org.apache.fop.fonts.EncodingMode;
+import org.apache.fop.fonts.FontDescriptor;
 import org.apache.fop.fonts.FontType;
 import org.apache.fop.fonts.FontUris;
 import org.apache.fop.fonts.MultiByteFont;
@@ -247,4 +254,45 @@ public class PDFFactoryTestCase {
 
         assertEquals(expectedString, link.toPDFString());
     }
+
+    @Test
+    public void testPrepareFontFiles() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertArrayEquals(makeFonts(null), makeFonts(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] makeFonts(ExecutorService executor) throws IOException {
+        InternalResourceResolver rr =
+                ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        Map<String, FontDescriptor> fonts = new LinkedHashMap<String, FontDescriptor>();
+        fonts.put("F1", loadFont("test/resources/fonts/ttf/DejaVuLGCSerif.ttf", rr));
+        fonts.put("F2", loadFont("test/resources/fonts/otf/SourceSansProBold.otf", rr));
+        fonts.put("F3", loadFont("test/resources/fonts/ttf/DroidSansMono.ttf", rr));
+        PDFDocument doc = new PDFDocument("");
+        PDFFactory pdfFactory = new PDFFactory(doc);
+        if (executor != null) {
+            pdfFactory.prepareFontFiles(fonts, executor);
+        }
+        for (Map.Entry<String, FontDescriptor> entry : fonts.entrySet()) {
+            CustomFont font = (CustomFont) entry.getValue();
+            pdfFactory.makeFont(entry.getKey(), font.getEmbedFontName(), font.getEncodingName(),
+                    font, font);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        doc.output(bos);
+        return bos.toByteArray();
+    }
+
+    private CustomFont loadFont(String path, InternalResourceResolver rr) throws IOException {
+        CustomFont font = OFFontLoader.loadFont(new FontUris(new File(path).toURI(), null), null,
+                true, EmbeddingMode.SUBSET, EncodingMode.CID, false, false, rr, false, false, false);
+        for (char c = 'A'; c <= 'z'; c++) {
+            font.mapChar(c);
+        }
+        return font;
+    }
 }
@@ -21,9 +21,13 @@ package org.apache.fop.pdf;
 
 import java.awt.image.IndexColorModel;
 import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -102,4 +106,63 @@ public class PDFImageXObjectTestCase {
             assertEquals(2, ((PDFArray) obj).length());
         }
     }
+
+    @Test
+    public void testSpilledImageIsReleased() throws IOException {
+        byte[] expected = outputImage(false);
+        byte[] spilled = outputImage(true);
+        assertArrayEquals(expected, spilled);
+    }
+
+    private byte[] outputImage(boolean spill) throws IOException {
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        ReleasableImage image = new ReleasableImage();
+        image.setup(doc);
+        PDFImageXObject xobject = new PDFImageXObject(1, image);
+        xobject.setDocument(doc);
+        xobject.setObjectNumber(1);
+        if (spill) {
+            xobject.spill(StreamCacheFactory.getInstance().createStreamCache());
+            //The image must not be accessed any more once its data has been spilled
+            image.released = true;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xobject.output(out);
+        return out.toByteArray();
+    }
+
+    private static class ReleasableImage extends BitmapImage {
+
+        private boolean released;
+
+        ReleasableImage() {
+            super("img", 2, 1, new byte[] {0, 1, 2, 3, 4, 5}, null);
+        }
+
+        private void checkNotReleased() {
+            if (released) {
+                throw new IllegalStateException("Image accessed after its data was spilled");
+            }
+        }
+
+        public PDFDeviceColorSpace getColorSpace() {
+            checkNotReleased();
+            return super.getColorSpace();
+        }
+
+        public PDFICCStream getICCStream() {
+            checkNotReleased();
+            return super.getICCStream();
+        }
+
+        public void outputContents(OutputStream out) throws IOException {
+            checkNotReleased();
+            super.outputContents(out);
+        }
+
+        public void populateXObjectDictionary(PDFDictionary dict) {
+            checkNotReleased();
+            super.populateXObjectDictionary(dict);
+        }
+    }
 }
@@ -69,6 +69,42 @@ public class PDFLinearizationTestCase {
         checkPDF(data);
     }
 
+    @Test
+    public void testSpilledStreams() throws IOException {
+        byte[] data = linearize(true);
+        checkPDF(data);
+        Assert.assertEquals(withoutVolatileEntries(linearize(false)), withoutVolatileEntries(data));
+    }
+
+    private String withoutVolatileEntries(byte[] data) throws IOException {
+        //The file identifier and the creation date depend on the time the document was made
+        return new String(data, "ISO-8859-1")
+                .replaceAll("/ID \\[<\\p{XDigit}+> <\\p{XDigit}+>\\]", "/ID")
+                .replaceAll("/CreationDate \\(D:[^)]*\\)", "/CreationDate");
+    }
+
+    private byte[] linearize(boolean spill) throws IOException {
+        PDFDocument doc = new PDFDocument("");
+        doc.setLinearizationEnabled(true);
+        doc.setLinearizationSpillEnabled(spill);
+        PDFResources resources = new PDFResources(doc);
+        PDFResourceContext context = new PDFResourceContext(resources);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PDFContentGenerator gen = null;
+        for (int i = 0; i < 3; i++) {
+            gen = new PDFContentGenerator(doc, out, context);
+            gen.getStream().add("BT /F1 12 Tf 72 712 Td (Page " + i + ") Tj ET\n");
+            Rectangle2D.Float f = new Rectangle2D.Float();
+            PDFPage page = new PDFPage(resources, i, f, f, f, f);
+            doc.registerObject(gen.getStream());
+            page.setContents(new PDFReference(gen.getStream()));
+            doc.registerObject(page);
+            doc.spillStreams();
+        }
+        gen.flushPDFDoc();
+        return out.toByteArray();
+    }
+
     @Test
     public void testImage() throws Exception {
         String fopxconf = "<fop version=\"1.0\"><renderers>"
@@ -120,7 +156,9 @@ public class PDFLinearizationTestCase {
         Assert.assertTrue(firstObj.endsWith("startxref0%%EOF"));
         int pageObjNumber = getValue("/O", firstObj);
         Assert.assertTrue(objs.get(pageObjNumber + " 0 obj").toString().contains("/Type /Page"));
-        Assert.assertTrue(objs.get("5 0 obj").toString().contains("/Type /Pages"));
+        String catalog = objs.get(getValue("/Root", firstObj) + " 0 obj").toString().replace("\n", "");
+        int pagesObjNumber = getValue("/Pages", catalog);
+        Assert.assertTrue(objs.get(pagesObjNumber + " 0 obj").toString().contains("/Type /Pages"));
 
         int total = 0;
         for (int i : objects) {
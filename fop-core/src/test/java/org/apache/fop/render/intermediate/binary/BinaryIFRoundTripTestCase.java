@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+
+package org.apache.fop.render.intermediate.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.render.extensions.DocumentNavigationHandlerTestCase;
+import org.apache.fop.render.intermediate.IFAttributes;
+
+/**
+ * Tests that the binary intermediate format round-trips the SAX stream of the XML form.
+ */
+public class BinaryIFRoundTripTestCase {
+
+    private static final String NS = "http://xmlgraphics.apache.org/fop/intermediate";
+
+    @Test
+    public void testRoundTripIFDocument() throws Exception {
+        String expected = toXML(loadIF());
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(loadIF()),
+                new SAXResult(new BinaryIFContentHandler(bout, true)));
+        byte[] binary = bout.toByteArray();
+        assertTrue(BinaryIFReader.isBinaryIF(binary, binary.length));
+
+        StringWriter writer = new StringWriter();
+        new BinaryIFReader(new ByteArrayInputStream(binary)).replay(createSerializer(new StreamResult(writer)));
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testAttributeValues() throws Exception {
+        String[] values = {"0", "-1", "2147483647", "-2147483648", "2147483648", "007", "-0",
+                "1 2 -3 0", "1  2", " 1", "1 ", "1.5", "translate(72000,72000)", "", "#000000"};
+        AttributesImpl atts = new AttributesImpl();
+        for (int i = 0; i < values.length; i++) {
+            atts.addAttribute("", "a" + i, "a" + i, "CDATA", values[i]);
+        }
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryIFContentHandler handler = new BinaryIFContentHandler(bout, true);
+        handler.startDocument();
+        handler.startElement(NS, "text", "text", atts);
+        handler.characters("Hello".toCharArray(), 0, 5);
+        handler.endElement(NS, "text", "text");
+        handler.endDocument();
+
+        StringWriter writer = new StringWriter();
+        new BinaryIFReader(new ByteArrayInputStream(bout.toByteArray())).replay(
+                createSerializer(new StreamResult(writer)));
+        String xml = writer.toString();
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(xml, xml.contains("a" + i + "=\"" + values[i] + "\""));
+        }
+        assertTrue(xml.contains(">Hello</text>"));
+    }
+
+    @Test
+    public void testStringTable() throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryIFContentHandler handler = new BinaryIFContentHandler(bout, true);
+        handler.startDocument();
+        handler.startElement(NS, "page", "page", new AttributesImpl());
+        for (int i = 0; i < 100; i++) {
+            AttributesImpl atts = new AttributesImpl();
+            atts.addAttribute("", "family", "family", "CDATA", "Helvetica");
+            atts.addAttribute("", "size", "size", "CDATA", "12000");
+            handler.startElement(NS, "font", "font", atts);
+            handler.endElement(NS, "font", "font");
+        }
+        handler.endElement(NS, "page", "page");
+        handler.endDocument();
+        //every repeated font element only needs a few bytes
+        assertTrue(bout.size() < 100 * 16);
+    }
+
+    @Test
+    public void testTypedAttributeValues() throws Exception {
+        AttributesImpl atts = new AttributesImpl();
+        atts.addAttribute("", "x", "x", "CDATA", "-72000");
+        atts.addAttribute("", "dx", "dx", "CDATA", "0 -120 5000");
+        atts.addAttribute("", "family", "family", "CDATA", "Helvetica");
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryIFContentHandler handler = new BinaryIFContentHandler(bout, true);
+        handler.startDocument();
+        handler.startElement(NS, "text", "text", atts);
+        handler.endElement(NS, "text", "text");
+        handler.endDocument();
+
+        final IFAttributes[] received = new IFAttributes[1];
+        new BinaryIFReader(new ByteArrayInputStream(bout.toByteArray())).replay(new DefaultHandler() {
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                received[0] = new IFAttributes((IFAttributes) attributes);
+            }
+        });
+        assertEquals(-72000, received[0].getIntValue("x"));
+        assertArrayEquals(new int[] {0, -120, 5000}, received[0].getIntArrayValue("dx"));
+        assertEquals("Helvetica", received[0].getValue("family"));
+        assertEquals("0 -120 5000", received[0].getValue("dx"));
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("M\u00fcller \u4e2d\u6587 \ud835\udc00 ");
+        }
+        String text = sb.toString();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinaryIFContentHandler handler = new BinaryIFContentHandler(bout, true);
+        handler.startDocument();
+        handler.startElement(NS, "page", "page", new AttributesImpl());
+        for (int i = 0; i < 10; i++) {
+            handler.startElement(NS, "text", "text", new AttributesImpl());
+            handler.characters(text.toCharArray(), 0, text.length());
+            handler.endElement(NS, "text", "text");
+        }
+        handler.endElement(NS, "page", "page");
+        handler.endDocument();
+        //strings longer than MAX_SHORT_STRING_LENGTH are written only once as well
+        assertTrue(bout.size() < 2 * text.getBytes("UTF-8").length);
+
+        final List<String> texts = new ArrayList<String>();
+        new BinaryIFReader(new ByteArrayInputStream(bout.toByteArray())).replay(new DefaultHandler() {
+            public void characters(char[] ch, int start, int length) {
+                texts.add(new String(ch, start, length));
+            }
+        });
+        assertEquals(10, texts.size());
+        for (String s : texts) {
+            assertEquals(text, s);
+        }
+    }
+
+    @Test
+    public void testNotBinary() {
+        byte[] xml = "<?xml version=\"1.0\"?>".getBytes();
+        assertFalse(BinaryIFReader.isBinaryIF(xml, xml.length));
+    }
+
+    private InputStream loadIF() {
+        return DocumentNavigationHandlerTestCase.class.getResourceAsStream("link.if.xml");
+    }
+
+    private String toXML(InputStream in) throws Exception {
+        StringWriter writer = new StringWriter();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(in), new SAXResult(createSerializer(new StreamResult(writer))));
+        return writer.toString();
+    }
+
+    private TransformerHandler createSerializer(Result result) throws Exception {
+        SAXTransformerFactory tf = (SAXTransformerFactory) SAXTransformerFactory.newInstance();
+        TransformerHandler handler = tf.newTransformerHandler();
+        handler.setResult(result);
+        return handler;
+    }
+}
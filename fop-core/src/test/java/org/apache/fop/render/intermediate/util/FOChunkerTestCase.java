@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+/**
+ * Tests the splitting of FO documents into chunks of page-sequences.
+ */
+public class FOChunkerTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+            + "<fo:layout-master-set><fo:simple-page-master master-name='A'>"
+            + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+            + "<fo:bookmark-tree><fo:bookmark internal-destination='b'>"
+            + "<fo:bookmark-title>Chapter B</fo:bookmark-title></fo:bookmark></fo:bookmark-tree>"
+            + "<fo:page-sequence master-reference='A'><fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block id='a'>See page <fo:page-number-citation ref-id='b'/></fo:block>"
+            + "</fo:flow></fo:page-sequence>"
+            + "<fo:page-sequence master-reference='A'><fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block id='b'>Text</fo:block></fo:flow></fo:page-sequence>"
+            + "<fo:page-sequence master-reference='A' initial-page-number='auto-odd'>"
+            + "<fo:flow flow-name='xsl-region-body'><fo:block>Text</fo:block></fo:flow>"
+            + "</fo:page-sequence></fo:root>";
+
+    private final InternalResourceResolver resourceResolver
+            = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+
+    private List<FOChunk> split(FOChunker chunker) throws Exception {
+        return chunker.split(TransformerFactory.newInstance().newTransformer(),
+                new StreamSource(new StringReader(FO)));
+    }
+
+    private static void release(List<FOChunk> chunks) throws Exception {
+        for (FOChunk chunk : chunks) {
+            chunk.release();
+        }
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        FOChunker chunker = new FOChunker(1, resourceResolver);
+        List<FOChunk> chunks = split(chunker);
+        assertEquals(3, chunks.size());
+
+        FOChunk first = chunks.get(0);
+        assertEquals(Collections.singleton("a"), first.getIDs());
+        assertEquals(Collections.singleton("b"), first.getCitedIDs());
+        assertTrue(first.isPageNumberDependent());
+
+        FOChunk second = chunks.get(1);
+        assertEquals(Collections.singleton("b"), second.getIDs());
+        assertFalse(second.isPageNumberDependent());
+        assertEquals("auto-odd", chunks.get(2).getInitialPageNumbers().get(0));
+
+        assertEquals(1, chunker.getBookmarks().size());
+        assertEquals("Chapter B", chunker.getBookmarks().get(0).getTitle());
+        assertEquals("b", chunker.getBookmarks().get(0).getInternalDestination());
+        release(chunks);
+    }
+
+    @Test
+    public void testPageSequencesPerChunk() throws Exception {
+        List<FOChunk> chunks = split(new FOChunker(2, resourceResolver));
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).getPageSequenceCount());
+        assertEquals(1, chunks.get(1).getPageSequenceCount());
+        release(chunks);
+    }
+
+    @Test
+    public void testAdjustments() throws Exception {
+        List<FOChunk> chunks = split(new FOChunker(1, resourceResolver));
+        FOChunk first = chunks.get(0);
+        Map<String, String> citations = new HashMap<String, String>();
+        citations.put("b", "42");
+        FOChunk.Adjustments adjustments = new FOChunk.Adjustments("7", "end-on-even",
+                citations, new HashMap<String, String>());
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        StringWriter writer = new StringWriter();
+        InputStream in = first.openStream();
+        try {
+            TransformerFactory.newInstance().newTransformer().transform(
+                    first.createSource(parserFactory.newSAXParser().getXMLReader(), adjustments,
+                            in), new StreamResult(writer));
+        } finally {
+            in.close();
+        }
+        release(chunks);
+        String fo = writer.toString();
+        assertTrue(fo.contains("initial-page-number=\"7\""));
+        assertTrue(fo.contains("force-page-count=\"end-on-even\""));
+        assertTrue(fo.contains("<fo:inline>42</fo:inline>"));
+        assertFalse(fo.contains("page-number-citation"));
+        assertFalse(fo.contains("bookmark-tree"));
+        assertTrue(fo.contains("internal-destination=\"a\""));
+    }
+
+    @Test
+    public void testChunkCanBeReadRepeatedly() throws Exception {
+        List<FOChunk> chunks = split(new FOChunker(1, resourceResolver));
+        FOChunk chunk = chunks.get(1);
+        String fo = read(chunk);
+        assertTrue(fo.contains("<fo:block id=\"b\">Text</fo:block>"));
+        assertEquals(fo, read(chunk));
+        //a partial read still leaves the whole chunk for the next one
+        InputStream in = chunk.openStream();
+        in.read();
+        in.close();
+        assertEquals(fo, read(chunk));
+        release(chunks);
+    }
+
+    private static String read(FOChunk chunk) throws Exception {
+        InputStream in = chunk.openStream();
+        try {
+            return IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Checks that formatting the page-sequences of a document concurrently produces the same
+ * output as formatting the document as a whole.
+ */
+public class IFScatterGatherRendererTestCase {
+
+    private static final int SEQUENCES = 6;
+
+    private static final byte[] FO = createFO().getBytes(Charset.forName("UTF-8"));
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    /**
+     * Creates a document with several page-sequences of different lengths. They cite pages of
+     * the sequences before and after them, link to them and are listed in the bookmarks.
+     */
+    private static String createFO() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"page\""
+                + " page-height=\"100mm\" page-width=\"100mm\" margin=\"10mm\">"
+                + "<fo:region-body margin-bottom=\"10mm\"/><fo:region-after extent=\"8mm\"/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:bookmark-tree>");
+        for (int seq = 0; seq < SEQUENCES; seq++) {
+            sb.append("<fo:bookmark internal-destination=\"seq" + seq + "\">"
+                    + "<fo:bookmark-title>Sequence " + seq + "</fo:bookmark-title>"
+                    + "<fo:bookmark internal-destination=\"end" + seq + "\">"
+                    + "<fo:bookmark-title>End</fo:bookmark-title></fo:bookmark></fo:bookmark>");
+        }
+        sb.append("</fo:bookmark-tree>");
+        for (int seq = 0; seq < SEQUENCES; seq++) {
+            sb.append("<fo:page-sequence master-reference=\"page\" id=\"ps" + seq + "\"");
+            if (seq % 3 == 2) {
+                sb.append(" initial-page-number=\"auto-odd\"");
+            }
+            sb.append("><fo:static-content flow-name=\"xsl-region-after\">"
+                    + "<fo:block text-align=\"center\">Page <fo:page-number/> of "
+                    + "<fo:page-number-citation-last ref-id=\"ps" + (SEQUENCES - 1) + "\"/>"
+                    + "</fo:block></fo:static-content>"
+                    + "<fo:flow flow-name=\"xsl-region-body\">"
+                    + "<fo:block id=\"seq" + seq + "\" font-weight=\"bold\">Sequence " + seq
+                    + "</fo:block>");
+            for (int other = 0; other < SEQUENCES; other++) {
+                sb.append("<fo:block>Sequence " + other + " starts on page "
+                        + "<fo:page-number-citation ref-id=\"seq" + other + "\"/>, ends on page "
+                        + "<fo:page-number-citation-last ref-id=\"ps" + other + "\"/> "
+                        + "(<fo:basic-link internal-destination=\"end" + other + "\">"
+                        + "last block</fo:basic-link>).</fo:block>");
+            }
+            //a different number of pages in every sequence
+            for (int i = 0; i < 15 * (seq + 1); i++) {
+                sb.append("<fo:block>Filler " + i + " of sequence " + seq + ".</fo:block>");
+            }
+            sb.append("<fo:block id=\"end" + seq + "\">End of sequence " + seq + " on page "
+                    + "<fo:page-number/>.</fo:block></fo:flow></fo:page-sequence>");
+        }
+        sb.append("</fo:root>");
+        return sb.toString();
+    }
+
+    private static Source createSource() {
+        return new StreamSource(new ByteArrayInputStream(FO));
+    }
+
+    /** Removes the metadata date and the file ID, which change with every run. */
+    private static String normalize(ByteArrayOutputStream out) throws Exception {
+        return out.toString("ISO-8859-1")
+                .replaceAll("<xmp:MetadataDate>[^<]*</xmp:MetadataDate>", "")
+                .replaceAll("/ID \\[<\\w+> <\\w+>\\]", "");
+    }
+
+    private String renderDocument() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setCreationDate(new Date(0));
+        Fop fop = userAgent.newFop(MimeConstants.MIME_PDF, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(createSource(), new SAXResult(fop.getDefaultHandler()));
+        return normalize(out);
+    }
+
+    private String renderChunks(int maxPasses) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IFScatterGatherRenderer renderer = new IFScatterGatherRenderer(fopFactory,
+                MimeConstants.MIME_PDF) {
+            @Override
+            protected FOUserAgent createUserAgent() {
+                FOUserAgent userAgent = super.createUserAgent();
+                userAgent.setCreationDate(new Date(0));
+                return userAgent;
+            }
+        };
+        renderer.setThreadCount(3);
+        renderer.setMaxPasses(maxPasses);
+        renderer.render(createSource(), out);
+        return normalize(out);
+    }
+
+    @Test
+    public void testSameOutputAsDocument() throws Exception {
+        assertEquals(renderDocument(), renderChunks(3));
+    }
+
+    @Test
+    public void testPassesUntilPageNumbersAreKnown() throws Exception {
+        String expected = renderDocument();
+        //the first pass knows neither the page offsets nor the pages of the other sequences
+        assertFalse(expected.equals(renderChunks(1)));
+        //the passes stop once the page numbers are stable
+        assertEquals(expected, renderChunks(10));
+    }
+}
@@ -19,18 +19,26 @@
 package org.apache.fop.render.pdf;
 
 import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.render.intermediate.IFContext;
@@ -63,6 +71,65 @@ public class PDFDocumentHandlerTestCase {
         Assert.assertFalse(contents.get(0).equals(contents.get(1)));
     }
 
+    @Test
+    public void testIncrementalStructureTree() throws Exception {
+        StringBuilder fo = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"page\">"
+                + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>");
+        for (int i = 1; i <= 3; i++) {
+            fo.append("<fo:page-sequence master-reference=\"page\">"
+                    + "<fo:flow flow-name=\"xsl-region-body\">");
+            for (int j = 1; j <= 2; j++) {
+                fo.append("<fo:block id=\"b" + i + j + "\" break-before=\"page\">Page " + j
+                        + " of sequence " + i + ", see page <fo:page-number-citation ref-id=\"b32\"/> or "
+                        + "<fo:basic-link internal-destination=\"b11\">the start</fo:basic-link>.</fo:block>");
+            }
+            fo.append("</fo:flow></fo:page-sequence>");
+        }
+        fo.append("</fo:root>");
+        List<String> expected = getStructElems(foToPDF(fo.toString(), false));
+        List<String> actual = getStructElems(foToPDF(fo.toString(), true));
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(countContentItems(expected), countContentItems(actual));
+        for (String structElem : actual) {
+            Assert.assertTrue(structElem, structElem.contains("/K "));
+        }
+    }
+
+    private String foToPDF(String fo, boolean incrementalStructureTree) throws Exception {
+        FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setAccessibility(true);
+        userAgent.getRendererOptions().put(PDFRendererOption.INCREMENTAL_STRUCTURE_TREE.getName(),
+                incrementalStructureTree);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop("application/pdf", userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new ByteArrayInputStream(fo.getBytes("UTF-8"))),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toString("ISO-8859-1");
+    }
+
+    private List<String> getStructElems(String pdf) {
+        List<String> structElems = new ArrayList<String>();
+        Matcher matcher = Pattern.compile("(?s)\\d+ 0 obj\n(.*?)\nendobj").matcher(pdf);
+        while (matcher.find()) {
+            if (matcher.group(1).startsWith("<<\n  /S /")) {
+                structElems.add(matcher.group(1));
+            }
+        }
+        Assert.assertFalse(structElems.isEmpty());
+        return structElems;
+    }
+
+    private int countContentItems(List<String> structElems) {
+        int count = 0;
+        for (String structElem : structElems) {
+            count += structElem.split("/Type /MCR|/Type /OBJR", -1).length - 1;
+        }
+        return count;
+    }
+
     private void addPage(PDFDocumentHandler d, String command, int i) throws IFException {
         d.startPage(i, "", "", new Dimension());
         d.getGenerator().add(command);
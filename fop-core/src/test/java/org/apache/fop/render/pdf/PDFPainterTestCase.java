@@ -22,21 +22,30 @@ package org.apache.fop.render.pdf;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.stream.StreamResult;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.mock;
@@ -54,6 +63,7 @@ import org.apache.fop.apps.FopFactory;
 import org.apache.fop.events.Event;
 import org.apache.fop.events.EventListener;
 import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.extensions.svg.SVGElementMapping;
 import org.apache.fop.fonts.CMapSegment;
 import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.fonts.FontTriplet;
@@ -471,4 +481,103 @@ public class PDFPainterTestCase {
         pdfPainter.drawImageUsingImageHandler(info, new Rectangle());
         Assert.assertEquals(event[0].getEventKey(), "imageWritingError");
     }
+
+    @Test
+    public void testReuseRegionContent() throws IOException, IFException {
+        foUserAgent = FopFactory.newInstance(new File(".").toURI()).newFOUserAgent();
+        foUserAgent.getRendererOptions().put(PDFRendererOption.REUSE_REGION_CONTENT.getName(), true);
+        PDFDocumentHandler pdfDocumentHandler = new PDFDocumentHandler(new IFContext(foUserAgent));
+        pdfDocumentHandler.setResult(new StreamResult(new ByteArrayOutputStream()));
+        pdfDocumentHandler.startDocument();
+        //the first occurrence is written into the page
+        String first = paintRegions(pdfDocumentHandler, Color.RED);
+        assertTrue(first.contains("1 0 0 rg"));
+        assertFalse(first.contains(" Do\n"));
+        //the second one turns the content into a form
+        String second = paintRegions(pdfDocumentHandler, Color.RED);
+        assertFalse(second.contains("1 0 0 rg"));
+        assertTrue(second.contains("/Form1 Do\n"));
+        //content that doesn't repeat never becomes a form
+        String third = paintRegions(pdfDocumentHandler, Color.BLUE);
+        assertTrue(third.contains("0 0 1 rg"));
+        assertFalse(third.contains(" Do\n"));
+        String fourth = paintRegions(pdfDocumentHandler, Color.RED);
+        assertTrue(fourth.contains("/Form1 Do\n"));
+        //the region body is not captured
+        assertTrue(fourth.contains("0 1 0 rg"));
+    }
+
+    private String paintRegions(PDFDocumentHandler pdfDocumentHandler, Color color)
+            throws IOException, IFException {
+        pdfDocumentHandler.startPage(0, "", "", new Dimension(100000, 100000));
+        PDFPainter pdfPainter = new PDFPainter(pdfDocumentHandler, null);
+        pdfPainter.getContext().setRegionType(Constants.FO_REGION_BEFORE);
+        pdfPainter.startViewport(new AffineTransform(), new Dimension(50000, 10000), null);
+        pdfPainter.fillRect(new Rectangle(0, 0, 10000, 10000), color);
+        pdfPainter.endViewport();
+        pdfPainter.getContext().setRegionType(Constants.FO_REGION_BODY);
+        pdfPainter.startViewport(new AffineTransform(), new Dimension(50000, 50000), null);
+        pdfPainter.fillRect(new Rectangle(0, 0, 10000, 10000), Color.GREEN);
+        pdfPainter.endViewport();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        pdfPainter.generator.getStream().getFilterList().setDisableAllFilters(true);
+        pdfPainter.generator.getStream().output(bos);
+        return bos.toString();
+    }
+
+    @Test
+    public void testReuseSVG() throws Exception {
+        foUserAgent = FopFactory.newInstance(new File(".").toURI()).newFOUserAgent();
+        foUserAgent.getRendererOptions().put(PDFRendererOption.REUSE_SVG.getName(), true);
+        PDFDocumentHandler pdfDocumentHandler = new PDFDocumentHandler(new IFContext(foUserAgent));
+        pdfDocumentHandler.setResult(new StreamResult(new ByteArrayOutputStream()));
+        pdfDocumentHandler.startDocument();
+        pdfDocumentHandler.startPage(0, "", "", new Dimension(100000, 100000));
+        final List<Rectangle> painted = new ArrayList<Rectangle>();
+        PDFPainter pdfPainter = new PDFPainter(pdfDocumentHandler, null) {
+            @Override
+            protected void drawImageUsingDocument(Document doc, Rectangle rect) {
+                painted.add(rect);
+                generator.add("0 0 10 10 re f\n");
+            }
+        };
+        pdfPainter.drawImage(createSVG(false), new Rectangle(10000, 20000, 30000, 40000));
+        pdfPainter.drawImage(createSVG(false), new Rectangle(50000, 60000, 30000, 40000));
+        assertEquals(1, painted.size());
+        assertEquals(new Rectangle(30000, 40000), painted.get(0));
+        pdfPainter.drawImage(createSVG(false), new Rectangle(0, 0, 20000, 40000));
+        assertEquals(2, painted.size());
+        pdfPainter.drawImage(createSVG(true), new Rectangle(0, 0, 30000, 40000));
+        pdfPainter.drawImage(createSVG(true), new Rectangle(0, 0, 30000, 40000));
+        assertEquals(4, painted.size());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        pdfPainter.generator.getStream().getFilterList().setDisableAllFilters(true);
+        pdfPainter.generator.getStream().output(bos);
+        String content = bos.toString();
+        assertTrue(content.contains("1 0 0 1 10 20 cm /Form1 Do\n"));
+        assertTrue(content.contains("1 0 0 1 50 60 cm /Form1 Do\n"));
+        assertTrue(content.contains("1 0 0 1 0 0 cm /Form2 Do\n"));
+        assertFalse(content.contains("/Form3"));
+    }
+
+    private Document createSVG(boolean link) throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document doc = dbf.newDocumentBuilder().newDocument();
+        Element svg = doc.createElementNS(SVGElementMapping.URI, "svg");
+        svg.setAttribute("width", "30pt");
+        svg.setAttribute("height", "40pt");
+        doc.appendChild(svg);
+        Element parent = svg;
+        if (link) {
+            parent = doc.createElementNS(SVGElementMapping.URI, "a");
+            svg.appendChild(parent);
+        }
+        Element rect = doc.createElementNS(SVGElementMapping.URI, "rect");
+        rect.setAttribute("width", "10");
+        rect.setAttribute("height", "10");
+        parent.appendChild(rect);
+        return doc;
+    }
 }
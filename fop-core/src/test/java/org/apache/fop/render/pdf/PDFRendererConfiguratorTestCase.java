@@ -73,4 +73,25 @@ public class PDFRendererConfiguratorTestCase extends
         docHandler.startDocument();
         Assert.assertTrue(getDocHandler().getThePDFDocument().isFormXObjectEnabled());
     }
+
+    @Test
+    public void testReuseRegionContentEnabled() throws Exception {
+        parseConfig(createBuilder().setReuseRegionContentEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isRegionContentReuseEnabled());
+    }
+
+    @Test
+    public void testReuseSVGEnabled() throws Exception {
+        parseConfig(createBuilder().setReuseSVGEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isSVGReuseEnabled());
+    }
+
+    @Test
+    public void testFontEmbeddingThreadCount() throws Exception {
+        parseConfig(createBuilder().setFontEmbeddingThreadCount(4));
+        docHandler.startDocument();
+        Assert.assertEquals(4, getDocHandler().getThePDFDocument().getFontEmbeddingThreadCount());
+    }
 }
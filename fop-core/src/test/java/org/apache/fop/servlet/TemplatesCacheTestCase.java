@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.servlet;
+
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+
+public class TemplatesCacheTestCase {
+
+    private static final String XSLT = "<xsl:stylesheet version='1.0'"
+            + " xmlns:xsl='http://www.w3.org/1999/XSL/Transform'/>";
+
+    @Test
+    public void testCachedUntilModified() throws Exception {
+        File xslt = File.createTempFile("fop", ".xsl");
+        try {
+            FileUtils.writeStringToFile(xslt, XSLT, "UTF-8");
+            TemplatesCache cache = new TemplatesCache(TransformerFactory.newInstance());
+            Templates templates = cache.getTemplates(new StreamSource(xslt));
+            assertSame(templates, cache.getTemplates(new StreamSource(xslt)));
+
+            assertTrue(xslt.setLastModified(xslt.lastModified() - 10000));
+            assertNotSame(templates, cache.getTemplates(new StreamSource(xslt)));
+        } finally {
+            xslt.delete();
+        }
+    }
+
+    @Test
+    public void testNoSystemId() throws Exception {
+        TemplatesCache cache = new TemplatesCache(TransformerFactory.newInstance());
+        Templates templates = cache.getTemplates(new StreamSource(new StringReader(XSLT)));
+        assertNotSame(templates, cache.getTemplates(new StreamSource(new StringReader(XSLT))));
+    }
+}
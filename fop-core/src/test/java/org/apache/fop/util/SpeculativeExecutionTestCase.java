@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.apache.fop.fonts.CIDSubset;
+import org.apache.fop.fonts.MultiByteFont;
+
+public class SpeculativeExecutionTestCase {
+
+    @Test
+    public void testInactiveByDefault() throws Exception {
+        assertFalse(SpeculativeExecution.isActive());
+        SpeculativeExecution.checkSharedStateChange();
+        Boolean active = SpeculativeExecution.speculative(new Callable<Boolean>() {
+            public Boolean call() {
+                return SpeculativeExecution.isActive();
+            }
+        }).call();
+        assertTrue(active);
+        assertFalse(SpeculativeExecution.isActive());
+    }
+
+    @Test
+    public void testSharedStateChangeAbandonsTask() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        String result = SpeculativeExecution.speculative(new Callable<String>() {
+            public String call() {
+                sb.append("before");
+                SpeculativeExecution.checkSharedStateChange();
+                sb.append("after");
+                return sb.toString();
+            }
+        }).call();
+        assertNull(result);
+        assertEquals("before", sb.toString());
+        assertFalse(SpeculativeExecution.isActive());
+    }
+
+    @Test
+    public void testSubsetOnlyReadSpeculatively() throws Exception {
+        final CIDSubset subset = new CIDSubset(mock(MultiByteFont.class));
+        assertEquals(1, subset.mapChar(36, 'A'));
+        Callable<Integer> mapA = new Callable<Integer>() {
+            public Integer call() {
+                return subset.mapChar(36, 'A');
+            }
+        };
+        Callable<Integer> mapB = new Callable<Integer>() {
+            public Integer call() {
+                return subset.mapChar(37, 'B');
+            }
+        };
+        assertEquals(Integer.valueOf(1), SpeculativeExecution.speculative(mapA).call());
+        assertNull(SpeculativeExecution.speculative(mapB).call());
+        assertEquals(2, subset.getGlyphs().size());
+        assertEquals(2, subset.mapChar(37, 'B'));
+    }
+}